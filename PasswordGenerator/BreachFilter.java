@@ -0,0 +1,309 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * BreachFilter - memory-mapped Bloom filter over SHA-1 password hashes
+ * Built offline from a list of hex SHA-1 hashes (one per line, optionally
+ * followed by ":count" as in the Have I Been Pwned dumps). At runtime the
+ * filter file is mapped read-only, so loading is instant and the bits live
+ * off-heap. A lookup hashes the password once and probes k bits using
+ * double hashing over the digest; it allocates nothing. Lookups of
+ * generated passwords scrub the UTF-8 copy, the digest and the hasher's
+ * internal block afterwards, so no trace of the candidate stays behind.
+ * False positives are possible (the password is then just regenerated),
+ * false negatives are not.
+ */
+public final class BreachFilter {
+
+    private static final byte[] MAGIC = { 'P', 'G', 'B', 'L', 'O', 'O', 'M', '1' };
+    private static final int HEADER_BYTES = 24;
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final MappedByteBuffer[] segments;
+    private final long bitCount;
+    private final int hashCount;
+
+    // One digest and scratch buffer per thread keeps lookups allocation-free
+    private static final ThreadLocal<Probe> PROBE = ThreadLocal.withInitial(Probe::new);
+
+    // Hashing one full zero block overwrites the hasher's schedule, the 63-byte tail its input buffer
+    private static final byte[] SCRUB = new byte[64 + 63];
+
+    private static final class Probe {
+        final MessageDigest sha1 = sha1();
+        final byte[] digest = new byte[20];
+        byte[] utf8 = new byte[256];
+
+        void scrub(int utf8Used) {
+            sha1.update(SCRUB, 0, SCRUB.length);
+            sha1.reset();
+            Arrays.fill(digest, (byte) 0);
+            Arrays.fill(utf8, 0, utf8Used, (byte) 0);
+        }
+    }
+
+    private BreachFilter(MappedByteBuffer[] segments, long bitCount, int hashCount) {
+        this.segments = segments;
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+    }
+
+    /** Maps an existing filter file read-only. */
+    public static BreachFilter open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (header.get(i) != MAGIC[i]) {
+                    throw new IOException("Not a breach filter file: " + file);
+                }
+            }
+            long bits = header.getLong(8);
+            int k = header.getInt(16);
+            if (bits <= 0 || (bits & 63) != 0 || k < 1 || channel.size() < HEADER_BYTES + bits / 8) {
+                throw new IOException("Corrupt breach filter header: " + file);
+            }
+            return new BreachFilter(mapBits(channel, FileChannel.MapMode.READ_ONLY, bits / 8), bits, k);
+        }
+    }
+
+    private static MappedByteBuffer[] mapBits(FileChannel channel, FileChannel.MapMode mode, long bytes)
+            throws IOException {
+        int count = (int) ((bytes + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            segments[i] = channel.map(mode, HEADER_BYTES + start, Math.min(1L << SEGMENT_SHIFT, bytes - start));
+        }
+        return segments;
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    public boolean mightContain(char[] password, int off, int len) {
+        Probe probe = PROBE.get();
+        int n = encodeUtf8(probe, password, off, len);
+        boolean found = mightContainPassword(probe, probe.utf8, 0, n);
+        probe.scrub(n);
+        return found;
+    }
+
+    /** Password given as UTF-8 (or ASCII) bytes. */
+    public boolean mightContain(byte[] password, int off, int len) {
+        Probe probe = PROBE.get();
+        boolean found = mightContainPassword(probe, password, off, len);
+        probe.scrub(0);
+        return found;
+    }
+
+    /**
+     * Password given as UTF-8 bytes inside a buffer, for example a mapped
+     * audit file. The plaintext is already on disk, so nothing is scrubbed.
+     */
+    public boolean mightContain(ByteBuffer buf, int off, int len) {
+        Probe probe = PROBE.get();
+        if (probe.utf8.length < len) {
+            probe.utf8 = new byte[Math.max(len, probe.utf8.length * 2)];
+        }
+        for (int i = 0; i < len; i++) {
+            probe.utf8[i] = buf.get(off + i);
+        }
+        return mightContainPassword(probe, probe.utf8, 0, len);
+    }
+
+    private boolean mightContainPassword(Probe probe, byte[] bytes, int off, int len) {
+        probe.sha1.update(bytes, off, len);
+        try {
+            probe.sha1.digest(probe.digest, 0, 20);
+        } catch (java.security.DigestException e) {
+            throw new IllegalStateException(e);
+        }
+        return mightContainHash(probe.digest);
+    }
+
+    /** Checks a raw 20-byte SHA-1 digest. */
+    public boolean mightContainHash(byte[] sha1) {
+        long h1 = readLong(sha1, 0);
+        long h2 = readLong(sha1, 8) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            long byteIndex = bit >>> 3;
+            int b = segments[(int) (byteIndex >>> SEGMENT_SHIFT)].get((int) (byteIndex & SEGMENT_MASK));
+            if ((b & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds a filter sized for the number of hashes in hashList at the given
+     * false-positive rate. Lines that do not start with 40 hex digits are
+     * skipped. Returns the number of hashes added.
+     */
+    public static long build(Path hashList, Path out, double falsePositiveRate) throws IOException {
+        long n = countHashes(hashList);
+        if (n == 0) {
+            throw new IOException("No SHA-1 hashes found in " + hashList);
+        }
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2));
+        bits = (bits + 63) & ~63L;
+        int k = Math.max(1, (int) Math.round((double) bits / n * ln2));
+
+        Files.deleteIfExists(out);
+        try (RandomAccessFile raf = new RandomAccessFile(out.toFile(), "rw");
+                FileChannel channel = raf.getChannel()) {
+            raf.setLength(HEADER_BYTES + bits / 8);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.put(MAGIC).putLong(bits).putInt(k).putInt(0);
+            header.force();
+
+            MappedByteBuffer[] segments = mapBits(channel, FileChannel.MapMode.READ_WRITE, bits / 8);
+            BreachFilter filter = new BreachFilter(segments, bits, k);
+            byte[] digest = new byte[20];
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(hashList), 1 << 20)) {
+                while (nextHash(in, digest)) {
+                    filter.add(digest);
+                }
+            }
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+        return n;
+    }
+
+    private void add(byte[] sha1) {
+        long h1 = readLong(sha1, 0);
+        long h2 = readLong(sha1, 8) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            long byteIndex = bit >>> 3;
+            MappedByteBuffer segment = segments[(int) (byteIndex >>> SEGMENT_SHIFT)];
+            int index = (int) (byteIndex & SEGMENT_MASK);
+            segment.put(index, (byte) (segment.get(index) | (1 << (bit & 7))));
+        }
+    }
+
+    private static long countHashes(Path hashList) throws IOException {
+        long n = 0;
+        byte[] digest = new byte[20];
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(hashList), 1 << 20)) {
+            while (nextHash(in, digest)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Reads lines until one starts with a hash of exactly 40 hex digits; false
+     * at end of stream. Longer runs (SHA-256 and the like) are skipped, not
+     * truncated, so such a list builds no filter instead of one that matches nothing.
+     */
+    private static boolean nextHash(InputStream in, byte[] digest) throws IOException {
+        while (true) {
+            int c = in.read();
+            if (c < 0) {
+                return false;
+            }
+            int digits = 0;
+            while (c >= 0 && c != '\n' && digits < 40) {
+                int v = hexValue(c);
+                if (v < 0) {
+                    break;
+                }
+                if ((digits & 1) == 0) {
+                    digest[digits >> 1] = (byte) (v << 4);
+                } else {
+                    digest[digits >> 1] |= (byte) v;
+                }
+                digits++;
+                c = in.read();
+            }
+            boolean sha1 = digits == 40 && hexValue(c) < 0;
+            // Skip the rest of the line (":count", CR, or garbage)
+            while (c >= 0 && c != '\n') {
+                c = in.read();
+            }
+            if (sha1) {
+                return true;
+            }
+            if (c < 0) {
+                return false;
+            }
+        }
+    }
+
+    private static int hexValue(int c) {
+        if (c >= '0' && c <= '9')
+            return c - '0';
+        if (c >= 'a' && c <= 'f')
+            return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F')
+            return c - 'A' + 10;
+        return -1;
+    }
+
+    private static long readLong(byte[] b, int off) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) {
+            v = (v << 8) | (b[off + i] & 0xFF);
+        }
+        return v;
+    }
+
+    private static int encodeUtf8(Probe probe, char[] s, int off, int len) {
+        if (probe.utf8.length < len * 3) {
+            probe.utf8 = new byte[len * 3];
+        }
+        byte[] out = probe.utf8;
+        int n = 0;
+        for (int i = off, end = off + len; i < end; i++) {
+            char c = s[i];
+            if (c < 0x80) {
+                out[n++] = (byte) c;
+            } else if (c < 0x800) {
+                out[n++] = (byte) (0xC0 | (c >> 6));
+                out[n++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s[i + 1])) {
+                int cp = Character.toCodePoint(c, s[++i]);
+                out[n++] = (byte) (0xF0 | (cp >> 18));
+                out[n++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                out[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                out[n++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                out[n++] = (byte) (0xE0 | (c >> 12));
+                out[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[n++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return n;
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is required by every Java runtime", e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+import java.security.SecureRandom;
+
+/**
+ * ChaCha20Source - ChaCha20 keystream (RFC 8439) used as a fast CSPRNG
+ * Keyed once from SecureRandom; after that every 64-byte block costs one
+ * block function and no provider calls. The source rekeys before the 32-bit
+ * block counter wraps.
+ */
+public final class ChaCha20Source implements EntropySource {
+
+    private static final int[] SIGMA = { 0x61707865, 0x3320646e, 0x79622d32, 0x6b206574 };
+
+    private final SecureRandom seeder;
+    private final int[] state = new int[16];
+    private final int[] working = new int[16];
+    private final byte[] block = new byte[64];
+    private int blockPos = 64;
+
+    public ChaCha20Source() {
+        this(new SecureRandom());
+    }
+
+    public ChaCha20Source(SecureRandom seeder) {
+        this.seeder = seeder;
+        rekey();
+    }
+
+    private void rekey() {
+        byte[] seed = new byte[44];
+        seeder.nextBytes(seed);
+        System.arraycopy(SIGMA, 0, state, 0, 4);
+        for (int i = 0; i < 8; i++) {
+            state[4 + i] = le32(seed, i * 4);
+        }
+        state[12] = 0;
+        for (int i = 0; i < 3; i++) {
+            state[13 + i] = le32(seed, 32 + i * 4);
+        }
+        java.util.Arrays.fill(seed, (byte) 0);
+    }
+
+    @Override
+    public void nextBytes(byte[] buf, int off, int len) {
+        int end = off + len;
+        // Drain what is left of the current block first
+        while (off < end && blockPos < 64) {
+            buf[off++] = block[blockPos++];
+        }
+        // Whole blocks go straight into the caller's buffer
+        while (end - off >= 64) {
+            nextBlock(buf, off);
+            off += 64;
+        }
+        if (off < end) {
+            nextBlock(block, 0);
+            blockPos = 0;
+            while (off < end) {
+                buf[off++] = block[blockPos++];
+            }
+        }
+    }
+
+    private void nextBlock(byte[] out, int off) {
+        int[] x = working;
+        System.arraycopy(state, 0, x, 0, 16);
+        for (int round = 0; round < 10; round++) {
+            quarterRound(x, 0, 4, 8, 12);
+            quarterRound(x, 1, 5, 9, 13);
+            quarterRound(x, 2, 6, 10, 14);
+            quarterRound(x, 3, 7, 11, 15);
+            quarterRound(x, 0, 5, 10, 15);
+            quarterRound(x, 1, 6, 11, 12);
+            quarterRound(x, 2, 7, 8, 13);
+            quarterRound(x, 3, 4, 9, 14);
+        }
+        for (int i = 0; i < 16; i++) {
+            int v = x[i] + state[i];
+            int p = off + i * 4;
+            out[p] = (byte) v;
+            out[p + 1] = (byte) (v >>> 8);
+            out[p + 2] = (byte) (v >>> 16);
+            out[p + 3] = (byte) (v >>> 24);
+        }
+        if (++state[12] == 0) {
+            rekey();
+        }
+    }
+
+    private static void quarterRound(int[] x, int a, int b, int c, int d) {
+        x[a] += x[b];
+        x[d] = Integer.rotateLeft(x[d] ^ x[a], 16);
+        x[c] += x[d];
+        x[b] = Integer.rotateLeft(x[b] ^ x[c], 12);
+        x[a] += x[b];
+        x[d] = Integer.rotateLeft(x[d] ^ x[a], 8);
+        x[c] += x[d];
+        x[b] = Integer.rotateLeft(x[b] ^ x[c], 7);
+    }
+
+    private static int le32(byte[] b, int i) {
+        return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | (b[i + 3] & 0xFF) << 24;
+    }
+
+    @Override
+    public String name() {
+        return "ChaCha20";
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * CompiledPolicy - precomputed sampling plan for a {@link PasswordPolicy}
+ * Everything the generator needs is resolved here once: the fill alphabet,
+ * one alphabet and sampler per required class slot, per pinned position,
+ * exclusions already applied and the samplers' rejection thresholds already
+ * computed. {@link PasswordEngine} runs the plan; the plan itself is
+ * immutable and can be shared by any number of engines and threads.
+ */
+public final class CompiledPolicy {
+
+    // Free positions draw from here
+    final char[] alphabet;
+    // Same chars as bytes, or null if the alphabet is not ASCII
+    final byte[] asciiAlphabet;
+    final IndexSampler sampler;
+
+    // Class minimums: slotCounts[s] characters from slotAlphabets[s], placed on free positions
+    final char[][] slotAlphabets;
+    final IndexSampler[] slotSamplers;
+    final int[] slotCounts;
+    final int requiredSlots;
+
+    // Pinned positions (negative counts from the end) and the set each one draws from
+    final int[] positions;
+    final char[][] positionAlphabets;
+    final IndexSampler[] positionSamplers;
+
+    // 0 when runs of identical characters are unrestricted
+    final int maxRepeat;
+    // Where a character came from: 0 the fill alphabet, 1 + s a class slot, 1 + slots + k a pinned position
+    final char[][] originAlphabets;
+    final int minimumLength;
+    // Every alphabet is ASCII, so passwords can be written as bytes
+    final boolean ascii;
+
+    CompiledPolicy(IndexSampler.Kind kind, char[] alphabet, char[][] slotAlphabets, int[] slotCounts,
+            int[] positions, char[][] positionAlphabets, int maxRepeat) {
+        if (alphabet.length == 0) {
+            throw new IllegalArgumentException("Character pool is empty");
+        }
+        this.alphabet = alphabet.clone();
+        this.sampler = IndexSampler.create(kind, alphabet.length);
+        byte[] ascii = new byte[alphabet.length];
+        for (int i = 0; i < alphabet.length; i++) {
+            if (alphabet[i] > 0x7F) {
+                ascii = null;
+                break;
+            }
+            ascii[i] = (byte) alphabet[i];
+        }
+        this.asciiAlphabet = ascii;
+
+        this.slotAlphabets = slotAlphabets;
+        this.slotCounts = slotCounts;
+        this.slotSamplers = samplers(kind, slotAlphabets);
+        int required = 0;
+        for (int count : slotCounts) {
+            required += count;
+        }
+        this.requiredSlots = required;
+
+        this.positions = positions;
+        this.positionAlphabets = positionAlphabets;
+        this.positionSamplers = samplers(kind, positionAlphabets);
+        this.maxRepeat = maxRepeat;
+        this.originAlphabets = new char[1 + slotAlphabets.length + positionAlphabets.length][];
+        originAlphabets[0] = this.alphabet;
+        System.arraycopy(slotAlphabets, 0, originAlphabets, 1, slotAlphabets.length);
+        System.arraycopy(positionAlphabets, 0, originAlphabets, 1 + slotAlphabets.length, positionAlphabets.length);
+        boolean allAscii = true;
+        for (char[] a : originAlphabets) {
+            for (char c : a) {
+                allAscii &= c <= 0x7F;
+            }
+        }
+        this.ascii = allAscii;
+
+        // Long enough for every pinned index and every required character
+        int min = required + positions.length;
+        for (int p : positions) {
+            min = Math.max(min, p >= 0 ? p + 1 : -p);
+        }
+        this.minimumLength = min;
+    }
+
+    private static IndexSampler[] samplers(IndexSampler.Kind kind, char[][] alphabets) {
+        IndexSampler[] samplers = new IndexSampler[alphabets.length];
+        for (int i = 0; i < alphabets.length; i++) {
+            samplers[i] = IndexSampler.create(kind, alphabets[i].length);
+        }
+        return samplers;
+    }
+
+    /** The same plan with a different sampling strategy. */
+    CompiledPolicy withSampler(IndexSampler.Kind kind) {
+        return new CompiledPolicy(kind, alphabet, slotAlphabets, slotCounts, positions, positionAlphabets,
+                maxRepeat);
+    }
+
+    /** True when passwords are plain draws from the alphabet, with no composition rule at all. */
+    boolean isUniform() {
+        return requiredSlots == 0 && positions.length == 0 && maxRepeat == 0;
+    }
+
+    public IndexSampler.Kind samplerKind() {
+        return sampler.kind();
+    }
+
+    public int alphabetSize() {
+        return alphabet.length;
+    }
+
+    /** Shortest length this plan can fill. */
+    public int minimumLength() {
+        return minimumLength;
+    }
+
+    /**
+     * Resolves the pinned indexes for a password of the given length into
+     * resolved (one per pinned position). Throws if two of them land on the
+     * same character.
+     */
+    void resolvePositions(int length, int[] resolved) {
+        for (int k = 0; k < positions.length; k++) {
+            int at = positions[k] >= 0 ? positions[k] : length + positions[k];
+            for (int j = 0; j < k; j++) {
+                if (resolved[j] == at) {
+                    throw new IllegalArgumentException("Pinned positions " + positions[j] + " and " + positions[k]
+                            + " are the same character at length " + length);
+                }
+            }
+            resolved[k] = at;
+        }
+    }
+}
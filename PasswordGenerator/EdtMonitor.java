@@ -0,0 +1,93 @@
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+
+/**
+ * EdtMonitor - measures how long each event blocks the Event Dispatch Thread
+ * Pushed onto the system event queue, it times every dispatch into a small
+ * histogram. An event that runs a nested event loop (a modal dialog, for
+ * example) keeps the EDT responsive while it waits, so it is counted as
+ * "nested" instead of as one long block; the events dispatched inside it are
+ * timed on their own. All state is confined to the EDT.
+ */
+public final class EdtMonitor extends EventQueue {
+
+    // One frame at 60 Hz; anything longer is a visible stutter
+    private static final long SLOW_NANOS = 16_000_000L;
+    private static final long[] BUCKET_LIMITS_NANOS = { 100_000L, 1_000_000L, 4_000_000L, SLOW_NANOS,
+            50_000_000L, 100_000_000L, Long.MAX_VALUE };
+    private static final String[] BUCKET_LABELS = { "<0.1ms", "<1ms", "<4ms", "<16ms", "<50ms", "<100ms",
+            ">=100ms" };
+
+    private final long[] histogram = new long[BUCKET_LIMITS_NANOS.length];
+    private long events;
+    private long nestedLoops;
+    private long totalNanos;
+    private long maxNanos;
+    private String maxEvent = "-";
+    // pumped[d] is set when the dispatch at depth d ran a nested loop
+    private final boolean[] pumped = new boolean[32];
+    private int depth;
+
+    /** Installs a monitor as the system event queue and returns it. */
+    public static EdtMonitor install() {
+        EdtMonitor monitor = new EdtMonitor();
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(monitor);
+        return monitor;
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        if (depth > 0 && depth <= pumped.length) {
+            pumped[depth - 1] = true;
+        }
+        depth++;
+        long start = System.nanoTime();
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            depth--;
+            boolean nested = depth < pumped.length && pumped[depth];
+            if (depth < pumped.length) {
+                pumped[depth] = false;
+            }
+            if (nested) {
+                nestedLoops++;
+            } else {
+                record(event, elapsed);
+            }
+        }
+    }
+
+    private void record(AWTEvent event, long nanos) {
+        events++;
+        totalNanos += nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+            maxEvent = event.getClass().getSimpleName() + "#" + event.getID();
+        }
+        int b = 0;
+        while (nanos >= BUCKET_LIMITS_NANOS[b]) {
+            b++;
+        }
+        histogram[b]++;
+    }
+
+    /** Multi-line summary; call on the EDT. */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("EDT: %,d events, %.1f ms blocked in total, %.3f ms avg, %.1f ms max (%s),"
+                + " %,d nested loops%n", events, totalNanos / 1e6, events == 0 ? 0.0 : totalNanos / 1e6 / events,
+                maxNanos / 1e6, maxEvent, nestedLoops));
+        long slow = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            sb.append(String.format("  %-8s %,10d%n", BUCKET_LABELS[i], histogram[i]));
+            if (BUCKET_LIMITS_NANOS[i] > SLOW_NANOS) {
+                slow += histogram[i];
+            }
+        }
+        sb.append(String.format("  %,d event(s) blocked longer than one frame%n", slow));
+        return sb.toString();
+    }
+}
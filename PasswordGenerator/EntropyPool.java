@@ -0,0 +1,102 @@
+import java.util.Arrays;
+
+/**
+ * EntropyPool - buffered front end for an {@link EntropySource}
+ * Refills in large blocks so the per-character cost is an array read, not a
+ * call into the provider. One pool per thread; it is not thread-safe.
+ * Consumed bytes decide which characters were picked, so callers that hand
+ * out secrets call {@link #wipeConsumed()} to zero them before returning.
+ */
+public final class EntropyPool {
+
+    public static final int DEFAULT_BLOCK_SIZE = 8192;
+
+    private final EntropySource source;
+    private final byte[] buffer;
+    private int pos;
+    // Bytes below this index are already zeroed
+    private int wiped;
+
+    public EntropyPool(EntropySource source) {
+        this(source, DEFAULT_BLOCK_SIZE);
+    }
+
+    public EntropyPool(EntropySource source, int blockSize) {
+        if (blockSize < 8) {
+            throw new IllegalArgumentException("blockSize must be >= 8");
+        }
+        this.source = source;
+        this.buffer = new byte[blockSize];
+        this.pos = blockSize;
+    }
+
+    public EntropySource source() {
+        return source;
+    }
+
+    /** Next random byte as an int in [0, 256). */
+    public int nextByte() {
+        if (pos == buffer.length) {
+            refill();
+        }
+        return buffer[pos++] & 0xFF;
+    }
+
+    public int nextInt() {
+        if (buffer.length - pos < 4) {
+            refill();
+        }
+        byte[] b = buffer;
+        int p = pos;
+        pos = p + 4;
+        return (b[p] & 0xFF) | (b[p + 1] & 0xFF) << 8 | (b[p + 2] & 0xFF) << 16 | (b[p + 3] & 0xFF) << 24;
+    }
+
+    /** Uniform int in [0, bound), same rejection rule as java.util.Random#nextInt(int). */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        int r = nextInt() >>> 1;
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return (int) ((bound * (long) r) >> 31);
+        }
+        for (int u = r; u - (r = u % bound) + m < 0; u = nextInt() >>> 1)
+            ;
+        return r;
+    }
+
+    /** Copies len random bytes into out, refilling as needed. */
+    public void nextBytes(byte[] out, int off, int len) {
+        while (len > 0) {
+            if (pos == buffer.length) {
+                refill();
+            }
+            int n = Math.min(len, buffer.length - pos);
+            System.arraycopy(buffer, pos, out, off, n);
+            pos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /** Zeroes the bytes handed out since the last wipe; cost is proportional to what was used. */
+    public void wipeConsumed() {
+        if (pos > wiped) {
+            Arrays.fill(buffer, wiped, pos, (byte) 0);
+            wiped = pos;
+        }
+    }
+
+    private void refill() {
+        // Keep any unread tail so multi-byte reads never skip entropy
+        int tail = buffer.length - pos;
+        if (tail > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, tail);
+        }
+        source.nextBytes(buffer, tail, buffer.length - tail);
+        pos = 0;
+        wiped = 0;
+    }
+}
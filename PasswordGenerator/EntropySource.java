@@ -0,0 +1,13 @@
+/**
+ * EntropySource - a raw stream of random bytes
+ * Implementations are not required to be thread-safe; give every thread its
+ * own instance. Callers are expected to pull large blocks through
+ * {@link EntropyPool} rather than a few bytes at a time.
+ */
+public interface EntropySource {
+
+    /** Fills buf[off, off + len) with random bytes. */
+    void nextBytes(byte[] buf, int off, int len);
+
+    String name();
+}
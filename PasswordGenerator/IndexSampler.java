@@ -0,0 +1,177 @@
+/**
+ * IndexSampler - uniform index in [0, bound) drawn from an {@link EntropyPool}
+ * All strategies are exactly uniform. The rejection thresholds are computed
+ * once per bound, so the per-character path has no division.
+ * <ul>
+ * <li>NEXT_INT - java.util.Random style modulo with rejection (reference)</li>
+ * <li>MASKED_REJECTION - mask to the next power of two, reject values &gt;= bound</li>
+ * <li>MULTIPLY_SHIFT - Lemire's multiply-shift with rejection of the biased low range</li>
+ * </ul>
+ * Bounds up to 256 consume one byte per attempt; larger bounds use 32 bits.
+ */
+public abstract class IndexSampler {
+
+    public enum Kind {
+        NEXT_INT, MASKED_REJECTION, MULTIPLY_SHIFT
+    }
+
+    public static final Kind DEFAULT_KIND = Kind.MULTIPLY_SHIFT;
+
+    protected final int bound;
+
+    protected IndexSampler(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        this.bound = bound;
+    }
+
+    public static IndexSampler create(Kind kind, int bound) {
+        switch (kind) {
+            case NEXT_INT:
+                return new NextInt(bound);
+            case MASKED_REJECTION:
+                return bound <= 256 ? new MaskedByte(bound) : new MaskedInt(bound);
+            case MULTIPLY_SHIFT:
+                return bound <= 256 ? new MultiplyShiftByte(bound) : new MultiplyShiftInt(bound);
+            default:
+                throw new IllegalArgumentException("Unknown sampler: " + kind);
+        }
+    }
+
+    /**
+     * One-off uniform index in [0, bound) for bounds that change on every
+     * call, such as Fisher-Yates shuffles. Lemire's method: the modulo is
+     * only computed in the rare case the low product falls in the biased range.
+     */
+    public static int nextIndex(EntropyPool pool, int bound) {
+        long m = (pool.nextInt() & 0xFFFFFFFFL) * bound;
+        long low = m & 0xFFFFFFFFL;
+        if (low < bound) {
+            long threshold = (1L << 32) % bound;
+            while (low < threshold) {
+                m = (pool.nextInt() & 0xFFFFFFFFL) * bound;
+                low = m & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+
+    public final int bound() {
+        return bound;
+    }
+
+    public abstract Kind kind();
+
+    public abstract int next(EntropyPool pool);
+
+    private static final class NextInt extends IndexSampler {
+        NextInt(int bound) {
+            super(bound);
+        }
+
+        @Override
+        public Kind kind() {
+            return Kind.NEXT_INT;
+        }
+
+        @Override
+        public int next(EntropyPool pool) {
+            return pool.nextInt(bound);
+        }
+    }
+
+    private static final class MaskedByte extends IndexSampler {
+        private final int mask;
+
+        MaskedByte(int bound) {
+            super(bound);
+            this.mask = bound == 1 ? 0 : (Integer.highestOneBit(bound - 1) << 1) - 1;
+        }
+
+        @Override
+        public Kind kind() {
+            return Kind.MASKED_REJECTION;
+        }
+
+        @Override
+        public int next(EntropyPool pool) {
+            int r;
+            do {
+                r = pool.nextByte() & mask;
+            } while (r >= bound);
+            return r;
+        }
+    }
+
+    private static final class MaskedInt extends IndexSampler {
+        private final int mask;
+
+        MaskedInt(int bound) {
+            super(bound);
+            // Wraps to Integer.MAX_VALUE for bounds above 2^30, which is what we want
+            this.mask = (Integer.highestOneBit(bound - 1) << 1) - 1;
+        }
+
+        @Override
+        public Kind kind() {
+            return Kind.MASKED_REJECTION;
+        }
+
+        @Override
+        public int next(EntropyPool pool) {
+            int r;
+            do {
+                r = pool.nextInt() & mask;
+            } while (r >= bound);
+            return r;
+        }
+    }
+
+    private static final class MultiplyShiftByte extends IndexSampler {
+        // Low products below 256 mod bound would favour small indices
+        private final int threshold;
+
+        MultiplyShiftByte(int bound) {
+            super(bound);
+            this.threshold = 256 % bound;
+        }
+
+        @Override
+        public Kind kind() {
+            return Kind.MULTIPLY_SHIFT;
+        }
+
+        @Override
+        public int next(EntropyPool pool) {
+            int m;
+            do {
+                m = pool.nextByte() * bound;
+            } while ((m & 0xFF) < threshold);
+            return m >>> 8;
+        }
+    }
+
+    private static final class MultiplyShiftInt extends IndexSampler {
+        private final long threshold;
+
+        MultiplyShiftInt(int bound) {
+            super(bound);
+            this.threshold = (1L << 32) % bound;
+        }
+
+        @Override
+        public Kind kind() {
+            return Kind.MULTIPLY_SHIFT;
+        }
+
+        @Override
+        public int next(EntropyPool pool) {
+            long m;
+            do {
+                m = (pool.nextInt() & 0xFFFFFFFFL) * bound;
+            } while ((m & 0xFFFFFFFFL) < threshold);
+            return (int) (m >>> 32);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * ParallelBatchGenerator - splits a batch across a fixed worker pool
+ * Every worker owns its own engine and CSPRNG (a DRBG behind its own entropy
+ * pool), so workers never share a random stream or a lock. Each worker writes
+ * a disjoint slice of the caller's preallocated output buffer.
+ */
+public class ParallelBatchGenerator implements AutoCloseable {
+
+    private final ExecutorService workers;
+    private final PasswordEngine[] engines;
+
+    public ParallelBatchGenerator(PasswordEngine template, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be >= 1");
+        }
+        this.engines = new PasswordEngine[threads];
+        for (int i = 0; i < threads; i++) {
+            engines[i] = template.withSource(new SecureRandomSource());
+        }
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "password-worker");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public int threads() {
+        return engines.length;
+    }
+
+    /**
+     * Same layout as {@link PasswordEngine#generateBatch(byte[], int, int, int, int)}.
+     * Calls are serialized; the work inside one call runs on all workers.
+     */
+    public synchronized void generateBatch(byte[] out, int offset, int count, int length, int stride)
+            throws InterruptedException {
+        int threads = engines.length;
+        List<Future<?>> pending = new ArrayList<>(threads);
+        int start = 0;
+        for (int w = 0; w < threads; w++) {
+            // Spread the remainder so slice sizes differ by at most one
+            int slice = count / threads + (w < count % threads ? 1 : 0);
+            if (slice == 0) {
+                continue;
+            }
+            PasswordEngine engine = engines[w];
+            int sliceOffset = offset + start * stride;
+            pending.add(workers.submit(() -> engine.generateBatch(out, sliceOffset, slice, length, stride)));
+            start += slice;
+        }
+        for (Future<?> f : pending) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Worker failed", e.getCause());
+            }
+        }
+    }
+
+    /** Passwords regenerated by all workers because the breach filter flagged them. */
+    public long breachRejections() {
+        long total = 0;
+        for (PasswordEngine engine : engines) {
+            total += engine.breachRejections();
+        }
+        return total;
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+}
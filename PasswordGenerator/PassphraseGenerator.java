@@ -0,0 +1,103 @@
+/**
+ * PassphraseGenerator - diceware-style passphrases from a {@link WordList}
+ * Words are picked uniformly with the same buffered entropy pool and
+ * unbiased sampler as the character engine, and written straight into
+ * caller-supplied buffers. Not thread-safe; use one per thread.
+ */
+public final class PassphraseGenerator {
+
+    // Gives up instead of spinning when the breach filter flags (almost) every passphrase
+    private static final int MAX_BREACH_ATTEMPTS = 1000;
+
+    private final WordList words;
+    private final int wordCount;
+    private final char separator;
+    private final EntropyPool entropy;
+    private final IndexSampler sampler;
+    private BreachFilter breachFilter;
+
+    public PassphraseGenerator(WordList words, int wordCount, char separator) {
+        this(words, wordCount, separator, new SecureRandomSource());
+    }
+
+    public PassphraseGenerator(WordList words, int wordCount, char separator, EntropySource source) {
+        if (wordCount < 1) {
+            throw new IllegalArgumentException("wordCount must be >= 1");
+        }
+        if (separator > 0x7F) {
+            throw new IllegalArgumentException("Separator must be ASCII");
+        }
+        this.words = words;
+        this.wordCount = wordCount;
+        this.separator = separator;
+        this.entropy = new EntropyPool(source);
+        this.sampler = IndexSampler.create(IndexSampler.DEFAULT_KIND, words.size());
+    }
+
+    public void setBreachFilter(BreachFilter filter) {
+        this.breachFilter = filter;
+    }
+
+    public double entropyBits() {
+        return wordCount * words.bitsPerWord();
+    }
+
+    /** Upper bound on the chars (or UTF-8 bytes) one passphrase can take. */
+    public int maxLength() {
+        return wordCount * words.maxWordBytes() + (wordCount - 1);
+    }
+
+    /** Writes one passphrase at out[off]; returns its length in chars. */
+    public int generate(char[] out, int off) {
+        int len;
+        int attempts = 0;
+        do {
+            int p = off;
+            for (int w = 0; w < wordCount; w++) {
+                if (w > 0) {
+                    out[p++] = separator;
+                }
+                p += words.copyWord(sampler.next(entropy), out, p);
+            }
+            len = p - off;
+        } while (breachFilter != null && rejected(breachFilter.mightContain(out, off, len), ++attempts));
+        entropy.wipeConsumed();
+        return len;
+    }
+
+    /**
+     * Writes count newline-terminated UTF-8 passphrases starting at out[off]
+     * and returns the offset after the last one. out needs room for
+     * count * (maxLength() + 1) bytes.
+     */
+    public int generateLines(byte[] out, int off, int count) {
+        if ((long) off + (long) count * (maxLength() + 1) > out.length) {
+            throw new IndexOutOfBoundsException("Buffer too small for " + count + " passphrases");
+        }
+        int p = off;
+        for (int i = 0; i < count; i++) {
+            int start = p;
+            int attempts = 0;
+            do {
+                p = start;
+                for (int w = 0; w < wordCount; w++) {
+                    if (w > 0) {
+                        out[p++] = (byte) separator;
+                    }
+                    p += words.copyWord(sampler.next(entropy), out, p);
+                }
+            } while (breachFilter != null && rejected(breachFilter.mightContain(out, start, p - start), ++attempts));
+            out[p++] = '\n';
+        }
+        entropy.wipeConsumed();
+        return p;
+    }
+
+    private static boolean rejected(boolean flagged, int attempts) {
+        if (flagged && attempts >= MAX_BREACH_ATTEMPTS) {
+            throw new IllegalStateException("Almost every passphrase from this word list is in the breach corpus;"
+                    + " use more words or a larger word list");
+        }
+        return flagged;
+    }
+}
@@ -0,0 +1,236 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * PasswordAudit - scores a newline-separated password file with StrengthEstimator
+ * The file is memory-mapped one segment at a time and the segments are
+ * scored in parallel. At most two segments per worker are mapped or queued
+ * at once, and each worker keeps only a histogram and a bounded list of
+ * the weakest entries. So heap use does not depend on the file size.
+ */
+public class PasswordAudit {
+
+    static final int SEGMENT_BYTES = 64 << 20;
+    // A line that crosses a segment end is read from the overlap, up to this length
+    static final int MAX_LINE = 4096;
+
+    /** One of the weakest passwords found. */
+    public static final class Entry {
+        public final String password;
+        public final int score;
+        public long line;
+
+        Entry(String password, int score, long line) {
+            this.password = password;
+            this.score = score;
+            this.line = line;
+        }
+    }
+
+    /** Histogram over the strength buckets plus the weakest entries. */
+    public static final class Report {
+        public final long[] histogram = new long[StrengthEstimator.LABELS.length];
+        public long lines;
+        public long bytes;
+        public long breached;
+        // Newline-terminated lines including empty ones, used to number lines across segments
+        long physicalLines;
+        final PriorityQueue<Entry> worst;
+        final int worstLimit;
+
+        Report(int worstLimit) {
+            this.worstLimit = worstLimit;
+            // Max-heap on score, so the strongest of the kept entries is evicted first
+            this.worst = new PriorityQueue<>(Math.max(1, worstLimit),
+                    Comparator.comparingInt((Entry e) -> e.score).reversed());
+        }
+
+        boolean wouldKeep(int score) {
+            return worstLimit > 0 && (worst.size() < worstLimit || score < worst.peek().score);
+        }
+
+        void offer(Entry entry) {
+            worst.add(entry);
+            if (worst.size() > worstLimit) {
+                worst.poll();
+            }
+        }
+
+        /** Merges the report of the next segment in file order. */
+        void merge(Report other) {
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += other.histogram[i];
+            }
+            for (Entry e : other.worst) {
+                if (wouldKeep(e.score)) {
+                    e.line += physicalLines;
+                    offer(e);
+                }
+            }
+            lines += other.lines;
+            bytes += other.bytes;
+            breached += other.breached;
+            physicalLines += other.physicalLines;
+        }
+
+        /** The weakest entries, weakest first. */
+        public List<Entry> worst() {
+            List<Entry> sorted = new ArrayList<>(worst);
+            sorted.sort(Comparator.comparingInt((Entry e) -> e.score));
+            return sorted;
+        }
+
+        public void print(PrintStream out) {
+            out.printf("Audited %,d passwords (%,d bytes)%n", lines, bytes);
+            for (int i = 0; i < histogram.length; i++) {
+                double pct = lines == 0 ? 0 : histogram[i] * 100.0 / lines;
+                out.printf("  %-12s %,14d  %5.1f%%%n", StrengthEstimator.LABELS[i], histogram[i], pct);
+            }
+            if (breached > 0) {
+                out.printf("  %-12s %,14d  %5.1f%%%n", "Breached", breached, breached * 100.0 / lines);
+            }
+            List<Entry> sorted = worst();
+            if (!sorted.isEmpty()) {
+                out.println("Weakest passwords:");
+                for (Entry e : sorted) {
+                    out.printf("  line %,d  score %3d  %s%n", e.line, e.score, e.password);
+                }
+            }
+        }
+    }
+
+    private final int threads;
+    private final int worstLimit;
+    private BreachFilter breachFilter;
+
+    public PasswordAudit(int threads, int worstLimit) {
+        if (threads < 1 || worstLimit < 0) {
+            throw new IllegalArgumentException("threads must be >= 1 and worst >= 0");
+        }
+        this.threads = threads;
+        this.worstLimit = worstLimit;
+    }
+
+    /** Also counts lines found in the breach corpus; they are scored as 0. */
+    public void setBreachFilter(BreachFilter filter) {
+        this.breachFilter = filter;
+    }
+
+    public Report audit(Path file) throws IOException, InterruptedException {
+        Report total = new Report(worstLimit);
+        ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "audit-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Future<Report>> inFlight = new ArrayList<>();
+            for (long start = 0; start < size; start += SEGMENT_BYTES) {
+                long segmentStart = start;
+                long segmentEnd = Math.min(size, start + SEGMENT_BYTES);
+                inFlight.add(workers.submit(() -> scanSegment(channel, size, segmentStart, segmentEnd)));
+                // Bounded look-ahead keeps the number of live mappings constant;
+                // segments are merged in file order so line numbers stay absolute
+                if (inFlight.size() >= threads * 2) {
+                    total.merge(await(inFlight.remove(0)));
+                }
+            }
+            for (Future<Report> f : inFlight) {
+                total.merge(await(f));
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return total;
+    }
+
+    private static Report await(Future<Report> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Audit worker failed", e.getCause());
+        }
+    }
+
+    private static final ThreadLocal<StrengthEstimator> ESTIMATOR = ThreadLocal.withInitial(StrengthEstimator::new);
+
+    /**
+     * Scores every line that starts in [start, end). The line that crosses
+     * end is finished from the overlap. Line numbers are relative to the
+     * segment until the report is merged.
+     */
+    private Report scanSegment(FileChannel channel, long size, long start, long end) throws IOException {
+        long mapStart = start == 0 ? 0 : start - 1;
+        long mapEnd = Math.min(size, end + MAX_LINE);
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        StrengthEstimator estimator = ESTIMATOR.get();
+        Report report = new Report(worstLimit);
+
+        int limit = buf.limit();
+        int stop = (int) (end - mapStart);
+        int pos = 0;
+        if (start > 0) {
+            // Skip the tail of a line owned by the previous segment
+            while (pos < limit && buf.get(pos) != '\n') {
+                pos++;
+            }
+            pos++;
+        }
+        long lineNo = 0;
+        while (pos < stop && pos < limit) {
+            int lineEnd = pos;
+            while (lineEnd < limit && buf.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            lineNo++;
+            int len = lineEnd - pos;
+            if (len > 0 && buf.get(lineEnd - 1) == '\r') {
+                len--;
+            }
+            if (len > 0) {
+                int score;
+                if (breachFilter != null && breachFilter.mightContain(buf, pos, len)) {
+                    report.breached++;
+                    score = 0;
+                } else {
+                    score = estimator.score(buf, pos, len);
+                }
+                report.histogram[StrengthEstimator.bucket(score)]++;
+                report.lines++;
+                report.bytes += len;
+                if (report.wouldKeep(score)) {
+                    report.offer(new Entry(decode(buf, pos, len), score, lineNo));
+                }
+            }
+            pos = lineEnd + 1;
+        }
+        report.physicalLines = lineNo;
+        return report;
+    }
+
+    private static String decode(ByteBuffer buf, int off, int len) {
+        byte[] bytes = new byte[len];
+        for (int i = 0; i < len; i++) {
+            bytes[i] = buf.get(off + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
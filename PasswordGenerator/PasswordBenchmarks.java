@@ -0,0 +1,796 @@
+import java.awt.GraphicsEnvironment;
+import java.io.ByteArrayOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * PasswordBenchmarks - self-contained micro-benchmarks for the generator
+ * Usage:
+ * java PasswordBenchmarks [suite ...]
+ * Suites: entropy, sampler, uniformity, generate, policy, strength, pool,
+ * residue, startup.
+ * Without arguments every suite runs.
+ * The uniformity suite is a chi-square check of every IndexSampler and exits
+ * non-zero if one of them looks biased. The residue suite generates, shows,
+ * copies and exports passwords, clears them, then dumps the heap and exits
+ * non-zero if any of them can still be found in it. The startup suite launches
+ * the GUI in fresh JVMs, with and without the class-data-sharing archive that
+ * cds.sh builds, and exits non-zero if the median time to first paint misses
+ * -Dbench.startupTargetMs (it is skipped without a display).
+ * Every rate line also reports the bytes allocated per operation, summed over
+ * all live threads (the same number JMH's gc profiler reports as
+ * gc.alloc.rate.norm).
+ * Properties:
+ * -Dbench.warmup=SECONDS, -Dbench.seconds=SECONDS  measurement timing
+ * -Dbench.lengths=4,16,128                          lengths for the generate suite
+ * -Dbench.threads=N                                 workers for multi-threaded runs
+ * -Dbench.csv=FILE                                  also append results as CSV
+ * -Dbench.startupRuns=N, -Dbench.startupTargetMs=MS launches and budget for startup
+ * -Dbench.cdsArchive=FILE                           archive to compare (passgen.jsa)
+ * Run with no JIT-unfriendly flags; compare numbers from the same host only.
+ */
+public class PasswordBenchmarks {
+
+    private static final double WARMUP_SECONDS = Double.parseDouble(System.getProperty("bench.warmup", "1"));
+    private static final double MEASURE_SECONDS = Double.parseDouble(System.getProperty("bench.seconds", "2"));
+
+    private static final int[] LENGTHS = parseInts(System.getProperty("bench.lengths", "4,8,12,16,32,64,128"));
+    private static final int THREADS = Integer.getInteger("bench.threads",
+            Runtime.getRuntime().availableProcessors());
+    private static final String CSV_FILE = System.getProperty("bench.csv");
+
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+    // Results are folded into this so the JIT cannot drop the work
+    static volatile long sink;
+
+    interface Op {
+        /** Runs one batch and returns how many operations it performed. */
+        long run();
+    }
+
+    public static void main(String[] args) {
+        Map<String, Runnable> suites = new LinkedHashMap<>();
+        suites.put("entropy", PasswordBenchmarks::entropySuite);
+        suites.put("sampler", PasswordBenchmarks::samplerSuite);
+        suites.put("uniformity", PasswordBenchmarks::uniformitySuite);
+        suites.put("generate", PasswordBenchmarks::generateSuite);
+        suites.put("policy", PasswordBenchmarks::policySuite);
+        suites.put("strength", PasswordBenchmarks::strengthSuite);
+        suites.put("pool", PasswordBenchmarks::poolSuite);
+        suites.put("residue", PasswordBenchmarks::residueSuite);
+        suites.put("startup", PasswordBenchmarks::startupSuite);
+
+        if (args.length == 0) {
+            suites.values().forEach(Runnable::run);
+            return;
+        }
+        for (String name : args) {
+            Runnable suite = suites.get(name);
+            if (suite == null) {
+                System.err.println("Unknown suite: " + name + " (available: " + suites.keySet() + ")");
+                System.exit(2);
+            }
+            suite.run();
+        }
+    }
+
+    static void entropySuite() {
+        System.out.println("== entropy: raw bytes through EntropyPool ==");
+        EntropySource[] sources = { new SecureRandomSource(), new ChaCha20Source(), new SeededSource(42) };
+        for (EntropySource source : sources) {
+            EntropyPool pool = new EntropyPool(source);
+            byte[] out = new byte[64 * 1024];
+            report(source.name() + " bytes", "MB/s", 1e-6, () -> {
+                pool.nextBytes(out, 0, out.length);
+                sink += out[17];
+                return out.length;
+            });
+        }
+
+        System.out.println("== entropy: 16-char passwords, all charsets ==");
+        char[] charset = PasswordEngine.buildPool(true, true, true, true);
+        char[] passwords = new char[1024 * 16];
+        for (EntropySource source : sources) {
+            PasswordEngine engine = new PasswordEngine(charset, source);
+            report(source.name() + " passwords", "pw/s", 1, () -> {
+                engine.generateBatch(passwords, 0, 1024, 16);
+                sink += passwords[5];
+                return 1024;
+            });
+        }
+
+        // Baseline: one provider call per character, as a naive SecureRandom port would do
+        SecureRandom direct = new SecureRandom();
+        report("SecureRandom.nextInt per char", "pw/s", 1, () -> {
+            for (int i = 0; i < passwords.length; i++) {
+                passwords[i] = charset[direct.nextInt(charset.length)];
+            }
+            sink += passwords[5];
+            return 1024;
+        });
+    }
+
+    static void samplerSuite() {
+        System.out.println("== sampler: indices/sec per pool size ==");
+        int[] bounds = { 10, 26, 36, 62, 87 };
+        for (int bound : bounds) {
+            for (IndexSampler.Kind kind : IndexSampler.Kind.values()) {
+                IndexSampler sampler = IndexSampler.create(kind, bound);
+                EntropyPool pool = new EntropyPool(new ChaCha20Source());
+                report(kind + " bound=" + bound, "idx/s", 1, () -> {
+                    int acc = 0;
+                    for (int i = 0; i < 4096; i++) {
+                        acc += sampler.next(pool);
+                    }
+                    sink += acc;
+                    return 4096;
+                });
+            }
+        }
+    }
+
+    static void uniformitySuite() {
+        System.out.println("== uniformity: chi-square, 2000 expected hits per bucket ==");
+        int[] bounds = { 2, 3, 10, 26, 36, 52, 62, 87, 255, 256, 300, 7776 };
+        boolean allPassed = true;
+        for (IndexSampler.Kind kind : IndexSampler.Kind.values()) {
+            for (int bound : bounds) {
+                IndexSampler sampler = IndexSampler.create(kind, bound);
+                EntropyPool pool = new EntropyPool(new SeededSource(bound * 31L + kind.ordinal()));
+                boolean passed = chiSquare(kind + " bound=" + bound, bound, () -> sampler.next(pool));
+                allPassed &= passed;
+            }
+        }
+        // Control: plain byte modulo is biased for bounds that do not divide 256
+        EntropyPool pool = new EntropyPool(new SeededSource(7));
+        boolean controlPassed = chiSquare("byte % 87 (biased control)", 87, () -> pool.nextByte() % 87);
+        if (controlPassed) {
+            System.out.println("WARNING: the biased control passed; the check has too little power");
+        }
+        if (!allPassed) {
+            System.out.println("Uniformity check FAILED");
+            System.exit(1);
+        }
+    }
+
+    static void generateSuite() {
+        System.out.println("== generate: every charset combination, single- and multi-threaded ==");
+        int batch = 256;
+        for (int length : LENGTHS) {
+            byte[] out = new byte[batch * (length + 1)];
+            for (int mask = 1; mask < 16; mask++) {
+                boolean upper = (mask & 1) != 0, lower = (mask & 2) != 0;
+                boolean numbers = (mask & 4) != 0, special = (mask & 8) != 0;
+                PasswordEngine engine = new PasswordEngine(upper, lower, numbers, special);
+                String label = "len=" + length + " " + charsetLabel(upper, lower, numbers, special);
+
+                report(label + " 1t", "pw/s", 1, () -> {
+                    engine.generateBatch(out, 0, batch, length, length + 1);
+                    sink += out[1];
+                    return batch;
+                });
+                if (THREADS > 1) {
+                    try (ParallelBatchGenerator parallel = new ParallelBatchGenerator(engine, THREADS)) {
+                        byte[] big = new byte[batch * THREADS * (length + 1)];
+                        report(label + " " + THREADS + "t", "pw/s", 1, () -> {
+                            try {
+                                parallel.generateBatch(big, 0, batch * THREADS, length, length + 1);
+                            } catch (InterruptedException e) {
+                                throw new IllegalStateException(e);
+                            }
+                            sink += big[1];
+                            return batch * THREADS;
+                        });
+                    }
+                }
+            }
+        }
+    }
+
+    static void policySuite() {
+        System.out.println("== policy: compiled plan vs generate-and-validate ==");
+        String[][] policies = {
+                { "built-in ULNS min 1 each", "min upper 1\nmin lower 1\nmin digits 1\nmin special 1\n" },
+                { "built-in ULN min 3 each", "allow upper lower digits\nmin upper 3\nmin lower 3\nmin digits 3\n" },
+                { "strict (exclusions, pins, max-repeat 1)",
+                        "allow upper lower digits special\nexclude lookalike \"{}[]\"\nmin upper 2\nmin digits 2\n"
+                                + "min special 1\nmax-repeat 1\nposition 0 upper lower\nposition -1 digits\n" },
+                { "digits only, min 4, max-repeat 1", "allow digits\nmax-repeat 1\nposition 0 \"123456789\"\n" } };
+        int length = 12;
+        int batch = 256;
+        char[] out = new char[length];
+        for (String[] p : policies) {
+            PasswordPolicy policy = PasswordPolicy.parse(p[1]);
+            PasswordEngine compiled = new PasswordEngine(policy.compile(IndexSampler.DEFAULT_KIND),
+                    new SecureRandomSource());
+            // The naive way: draw from the allowed characters until a password passes every rule
+            PasswordEngine naive = new PasswordEngine(policy.allowed(), new SecureRandomSource());
+            long[] attempts = new long[1];
+            double compiledRate = report(p[0] + " compiled", "pw/s", 1, () -> {
+                for (int i = 0; i < batch; i++) {
+                    compiled.generate(out, 0, length);
+                }
+                sink += out[0];
+                return batch;
+            });
+            double naiveRate = report(p[0] + " validate", "pw/s", 1, () -> {
+                for (int i = 0; i < batch; i++) {
+                    do {
+                        naive.generate(out, 0, length);
+                        attempts[0]++;
+                    } while (!policy.validate(out, 0, length));
+                }
+                sink += out[0];
+                return batch;
+            });
+            System.out.printf("  %.2fx faster compiled%n", compiledRate / naiveRate);
+        }
+        Arrays.fill(out, '\0');
+        // Passwords leave the CLI and the service as ASCII bytes, so a non-ASCII set must fail to parse
+        try {
+            PasswordPolicy.parse("allow lower \"\u00e9\u00fc\"\n");
+            System.out.println("Policy check FAILED: non-ASCII set accepted");
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.out.println("  rejected: " + e.getMessage());
+        }
+    }
+
+    static void strengthSuite() {
+        System.out.println("== strength: option-space score and per-password estimator ==");
+        report("calculatePasswordStrength", "ops/s", 1, () -> {
+            int acc = 0;
+            for (int length = 4; length <= 128; length++) {
+                for (int mask = 1; mask < 16; mask++) {
+                    acc += PasswordGenerator.calculatePasswordStrength(length, (mask & 1) != 0, (mask & 2) != 0,
+                            (mask & 4) != 0, (mask & 8) != 0);
+                }
+            }
+            sink += acc;
+            return 125 * 15;
+        });
+
+        // Real passwords: random ones, and ones full of patterns that exercise every detector
+        String[] samples = { "password123", "Qwerty!2345", "aaaaaaaaaaaa", "P@ssw0rdSunshine", "zxcvbnm,./",
+                "correcthorsebatterystaple", "9876543210ab" };
+        PasswordEngine engine = new PasswordEngine(true, true, true, true);
+        char[] corpus = new char[4096 * 16];
+        engine.generateBatch(corpus, 0, 4096, 16);
+        StrengthEstimator estimator = new StrengthEstimator();
+        report("StrengthEstimator random 16-char", "pw/s", 1, () -> {
+            int acc = 0;
+            for (int i = 0; i < 4096; i++) {
+                acc += estimator.score(corpus, i * 16, 16);
+            }
+            sink += acc;
+            return 4096;
+        });
+        char[][] patterned = new char[samples.length][];
+        for (int i = 0; i < samples.length; i++) {
+            patterned[i] = samples[i].toCharArray();
+        }
+        report("StrengthEstimator patterned", "pw/s", 1, () -> {
+            int acc = 0;
+            for (char[] pw : patterned) {
+                acc += estimator.score(pw, 0, pw.length);
+            }
+            sink += acc;
+            return patterned.length;
+        });
+        for (char[] pw : patterned) {
+            double bits = estimator.entropyBits(pw, 0, pw.length);
+            System.out.printf("  %-28s %6.1f bits, patterns=%s%n", new String(pw), bits,
+                    Integer.toBinaryString(estimator.lastPatterns()));
+        }
+    }
+
+    static void poolSuite() {
+        System.out.println("== pool: latency of one password, pooled vs generated on demand ==");
+        Path dir = null;
+        try {
+            dir = Files.createTempDirectory("pool");
+            // A synthetic 7776-word list and a 100k-hash breach filter stand in for the real files
+            Path words = dir.resolve("words.txt");
+            Path hashes = dir.resolve("hashes.txt");
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(words))) {
+                for (int i = 0; i < 7776; i++) {
+                    out.println("w" + Integer.toString(i * 7919 + 104729, 36));
+                }
+            }
+            SecureRandom random = new SecureRandom();
+            byte[] digest = new byte[20];
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(hashes))) {
+                for (int i = 0; i < 100_000; i++) {
+                    random.nextBytes(digest);
+                    StringBuilder hex = new StringBuilder(40);
+                    for (byte b : digest) {
+                        hex.append(String.format("%02X", b));
+                    }
+                    out.println(hex);
+                }
+            }
+            WordList.build(words, dir.resolve("words.idx"));
+            BreachFilter.build(hashes, dir.resolve("breached.bloom"), 0.001);
+            BreachFilter filter = BreachFilter.open(dir.resolve("breached.bloom"));
+            WordList list = WordList.open(dir.resolve("words.idx"));
+
+            PasswordEngine engine = new PasswordEngine(true, true, true, true, 1, 1, 1, 1);
+            engine.setBreachFilter(filter);
+            char[] out = new char[256];
+            latency("direct 16-char, minimums + breach", null, () -> engine.generate(out, 0, 16));
+            try (PasswordPool pool = PasswordPool.forEngine(engine, 16, 16, 4)) {
+                latency("pooled 16-char, minimums + breach", () -> awaitReady(pool), () -> sink += pool.take(out, 0));
+                burst(pool, out);
+            }
+
+            PassphraseGenerator direct = new PassphraseGenerator(list, 6, '-');
+            direct.setBreachFilter(filter);
+            latency("direct 6-word passphrase + breach", null, () -> sink += direct.generate(out, 0));
+            PassphraseGenerator pooled = new PassphraseGenerator(list, 6, '-');
+            pooled.setBreachFilter(filter);
+            try (PasswordPool pool = PasswordPool.forPassphrases(pooled, 16, 4)) {
+                latency("pooled 6-word passphrase + breach", () -> awaitReady(pool), () -> sink += pool.take(out, 0));
+                burst(pool, out);
+            }
+            Arrays.fill(out, '\0');
+            exhaustedPassphrases(dir);
+        } catch (IOException e) {
+            System.out.println("Pool suite skipped: " + e.getMessage());
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    // A filter holding every word of a list flags every 1-word passphrase; generation must give up, not spin
+    private static void exhaustedPassphrases(Path dir) throws IOException {
+        String[] words = { "alpha", "bravo" };
+        Path text = dir.resolve("tiny.txt");
+        Path hashes = dir.resolve("tiny-hashes.txt");
+        // The repeat must not count as a third word
+        Files.write(text, Arrays.asList("alpha", "bravo", "alpha"), StandardCharsets.UTF_8);
+        List<String> hex = new ArrayList<>();
+        for (String word : words) {
+            StringBuilder h = new StringBuilder(40);
+            for (byte b : sha1(word.getBytes(StandardCharsets.UTF_8))) {
+                h.append(String.format("%02X", b));
+            }
+            hex.add(h.toString());
+        }
+        Files.write(hashes, hex, StandardCharsets.US_ASCII);
+        WordList.build(text, dir.resolve("tiny.idx"));
+        BreachFilter.build(hashes, dir.resolve("tiny.bloom"), 0.001);
+        WordList list = WordList.open(dir.resolve("tiny.idx"));
+        if (list.size() != words.length) {
+            System.out.println("Word list check FAILED: " + list.size() + " words indexed from 2 distinct ones");
+            System.exit(1);
+        }
+        PassphraseGenerator generator = new PassphraseGenerator(list, 1, '-');
+        generator.setBreachFilter(BreachFilter.open(dir.resolve("tiny.bloom")));
+        char[] out = new char[generator.maxLength()];
+        byte[] lines = new byte[generator.maxLength() + 1];
+        boolean chars = throwsExhausted(() -> generator.generate(out, 0));
+        boolean bytes = throwsExhausted(() -> generator.generateLines(lines, 0, 1));
+        boolean pooled;
+        try (PasswordPool pool = PasswordPool.forPassphrases(generator, 4, 1)) {
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            pooled = throwsExhausted(() -> {
+                while (System.nanoTime() < deadline) {
+                    pool.take(out, 0);
+                    Thread.yield();
+                }
+            });
+        }
+        System.out.printf("%-44s %s%n", "passphrases all in the breach filter",
+                chars && bytes && pooled ? "gave up" : "FAILED");
+        if (!(chars && bytes && pooled)) {
+            System.out.println("Breach check FAILED: passphrase generation did not give up");
+            System.exit(1);
+        }
+    }
+
+    private static boolean throwsExhausted(Runnable generation) {
+        try {
+            generation.run();
+            return false;
+        } catch (IllegalStateException e) {
+            return true;
+        }
+    }
+
+    private static byte[] sha1(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Paced like a user clicking: every timed take finds a password ready
+    private static void awaitReady(PasswordPool pool) {
+        while (pool.size() == 0) {
+            Thread.yield();
+        }
+    }
+
+    /** Back-to-back takes until the pool runs dry, then the metrics the GUI would report. */
+    private static void burst(PasswordPool pool, char[] out) {
+        for (int i = 0; i < pool.capacity() * 4; i++) {
+            sink += pool.take(out, 0);
+        }
+        System.out.println("  " + pool.stats());
+    }
+
+    interface Sample {
+        void run();
+    }
+
+    /** Times single calls (after an untimed before step, if any) and prints the median and 99th percentile. */
+    private static void latency(String name, Sample before, Sample sample) {
+        int n = 2000;
+        long[] nanos = new long[n];
+        // The first round only warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < n; i++) {
+                if (before != null) {
+                    before.run();
+                }
+                long start = System.nanoTime();
+                sample.run();
+                nanos[i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-44s p50 %,10d ns   p99 %,10d ns%n", name, nanos[n / 2], nanos[n * 99 / 100]);
+    }
+
+    private static void deleteTree(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try (java.util.stream.Stream<Path> files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(f);
+            }
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            System.err.println("Cannot delete " + dir + ": " + e.getMessage());
+        }
+    }
+
+    static void residueSuite() {
+        System.out.println("== residue: heap dump scan for plaintext after generate and clear ==");
+        int count = 64, length = 32;
+        // Expected passwords are kept XOR-masked so the check itself leaves no plaintext behind
+        char[][] maskedCopies = new char[count + 1][];
+        PasswordEngine engine = new PasswordEngine(true, true, true, true, 1, 1, 1, 1);
+        StrengthEstimator estimator = new StrengthEstimator();
+        SecretField field = new SecretField(20);
+        char[] buf = new char[length];
+        for (int i = 0; i < count / 2; i++) {
+            // The GUI path: generate, score, display, copy, clear
+            engine.generate(buf, 0, length);
+            sink += estimator.score(buf, 0, length);
+            field.setSecret(buf, 0, length);
+            SecretTransferable copied = new SecretTransferable(buf, 0, length);
+            maskedCopies[i] = xorMask(buf, length);
+            Arrays.fill(buf, '\0');
+            copied.lostOwnership(null, copied);
+            field.clear();
+        }
+        // The CLI path: a byte batch that is wiped after export
+        byte[] export = new byte[(count / 2) * (length + 1)];
+        engine.generateBatch(export, 0, count / 2, length, length + 1);
+        for (int i = 0; i < count / 2; i++) {
+            char[] pw = new char[length];
+            for (int j = 0; j < length; j++) {
+                pw[j] = (char) export[i * (length + 1) + j];
+            }
+            maskedCopies[count / 2 + i] = xorMask(pw, length);
+            Arrays.fill(pw, '\0');
+        }
+        Arrays.fill(export, (byte) 0);
+        // Control: one password deliberately left in a String must be found
+        engine.generate(buf, 0, length);
+        maskedCopies[count] = xorMask(buf, length);
+        String control = new String(buf);
+        Arrays.fill(buf, '\0');
+
+        boolean[] found;
+        try {
+            Path dir = Files.createTempDirectory("residue");
+            Path dump = dir.resolve("heap.hprof");
+            try {
+                ManagementFactory.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class)
+                        .dumpHeap(dump.toString(), false);
+                sink += control.length();
+                found = scanDump(dump, maskedCopies, length);
+            } finally {
+                Files.deleteIfExists(dump);
+                Files.deleteIfExists(dir);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Heap dump not available: " + e.getMessage());
+            return;
+        }
+        int leaked = 0;
+        for (int i = 0; i < count; i++) {
+            leaked += found[i] ? 1 : 0;
+        }
+        System.out.printf("%-44s %d of %d passwords found%n", "after clear", leaked, count);
+        System.out.printf("%-44s %s%n", "String control", found[count] ? "found" : "NOT FOUND");
+        if (!found[count]) {
+            System.out.println("WARNING: the control was not found; the scan has no power");
+        }
+        if (leaked > 0) {
+            System.out.println("Residue check FAILED");
+            System.exit(1);
+        }
+    }
+
+    static void startupSuite() {
+        System.out.println("== startup: time to first paint, fresh JVM per launch ==");
+        if (GraphicsEnvironment.isHeadless()) {
+            System.out.println("skipped: no display");
+            return;
+        }
+        int runs = Integer.getInteger("bench.startupRuns", 10);
+        long target = Long.getLong("bench.startupTargetMs", 1000);
+        Path archive = Paths.get(System.getProperty("bench.cdsArchive", "passgen.jsa"));
+        Map<String, String[]> variants = new LinkedHashMap<>();
+        String baseline = "no class sharing (-Xshare:off)";
+        variants.put(baseline, new String[] { "-Xshare:off" });
+        variants.put("default JDK archive", new String[0]);
+        if (Files.exists(archive)) {
+            variants.put("app archive " + archive, new String[] { "-XX:SharedArchiveFile=" + archive });
+        } else {
+            System.out.println("(no " + archive + "; run cds.sh to compare against an application archive)");
+        }
+        long best = Long.MAX_VALUE;
+        for (Map.Entry<String, String[]> variant : variants.entrySet()) {
+            long[] millis = new long[runs];
+            try {
+                for (int i = 0; i < runs; i++) {
+                    millis[i] = launchToFirstPaint(variant.getValue());
+                }
+            } catch (IOException | InterruptedException e) {
+                System.out.println(variant.getKey() + ": launch failed: " + e.getMessage());
+                continue;
+            }
+            Arrays.sort(millis);
+            long median = millis[runs / 2];
+            System.out.printf("%-44s p50 %5d ms, min %5d ms, max %5d ms over %d launches%n", variant.getKey(),
+                    median, millis[0], millis[runs - 1], runs);
+            if (!variant.getKey().equals(baseline)) {
+                best = Math.min(best, median);
+            }
+        }
+        if (best > target) {
+            System.out.println("Startup check FAILED: best median above " + target + " ms");
+            System.exit(1);
+        }
+    }
+
+    // Starts the GUI in a new JVM that prints its time to first paint and exits
+    private static long launchToFirstPaint(String[] jvmOptions) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(Arrays.asList(jvmOptions));
+        command.add("-Dpassgen.startupProbe=true");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("-Dpassgen.launchMillis=" + System.currentTimeMillis());
+        command.add("PasswordGenerator");
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output;
+        try (InputStream in = process.getInputStream()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                bytes.write(chunk, 0, n);
+            }
+            output = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+        process.waitFor();
+        Matcher m = Pattern.compile("Time to first paint: (\\d+) ms").matcher(output);
+        if (!m.find()) {
+            throw new IOException("no startup report: " + output.trim());
+        }
+        return Long.parseLong(m.group(1));
+    }
+
+    private static char[] xorMask(char[] pw, int length) {
+        char[] masked = new char[length];
+        for (int i = 0; i < length; i++) {
+            masked[i] = (char) (pw[i] ^ 0x5A5A);
+        }
+        return masked;
+    }
+
+    /**
+     * Looks for every password as Latin-1 bytes (compact Strings, byte
+     * buffers) and as big-endian UTF-16 (char arrays, as hprof stores them).
+     * Candidates are found by their first 8 bytes in one pass over the dump.
+     */
+    private static boolean[] scanDump(Path dump, char[][] maskedCopies, int length) throws IOException {
+        int n = maskedCopies.length;
+        byte[][] patterns = new byte[n * 2][];
+        Set<Long> prefixes = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            byte[] latin1 = new byte[length];
+            byte[] utf16 = new byte[length * 2];
+            for (int j = 0; j < length; j++) {
+                char c = (char) (maskedCopies[i][j] ^ 0x5A5A);
+                latin1[j] = (byte) c;
+                utf16[j * 2] = (byte) (c >> 8);
+                utf16[j * 2 + 1] = (byte) c;
+            }
+            patterns[i * 2] = latin1;
+            patterns[i * 2 + 1] = utf16;
+            prefixes.add(prefix(latin1, 0));
+            prefixes.add(prefix(utf16, 0));
+        }
+        boolean[] found = new boolean[n];
+        try (FileChannel channel = FileChannel.open(dump, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int window = 1 << 30;
+            for (long start = 0; start < size; start += window - length * 2) {
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(window, size - start));
+                int limit = chunk.limit();
+                long key = 0;
+                for (int i = 0; i < limit; i++) {
+                    key = (key << 8) | (chunk.get(i) & 0xFF);
+                    if (i < 7 || !prefixes.contains(key)) {
+                        continue;
+                    }
+                    for (int p = 0; p < patterns.length; p++) {
+                        if (!found[p / 2] && matches(chunk, i - 7, patterns[p])) {
+                            found[p / 2] = true;
+                        }
+                    }
+                }
+            }
+        }
+        for (byte[] pattern : patterns) {
+            Arrays.fill(pattern, (byte) 0);
+        }
+        return found;
+    }
+
+    private static long prefix(byte[] b, int off) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) {
+            v = (v << 8) | (b[off + i] & 0xFF);
+        }
+        return v;
+    }
+
+    private static boolean matches(MappedByteBuffer chunk, int off, byte[] pattern) {
+        if (off + pattern.length > chunk.limit()) {
+            return false;
+        }
+        for (int i = 0; i < pattern.length; i++) {
+            if (chunk.get(off + i) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String charsetLabel(boolean upper, boolean lower, boolean numbers, boolean special) {
+        return (upper ? "U" : "-") + (lower ? "L" : "-") + (numbers ? "N" : "-") + (special ? "S" : "-");
+    }
+
+    interface IntDraw {
+        int next();
+    }
+
+    /** Pearson chi-square against the uniform distribution, flagged at p &lt; 0.0005. */
+    private static boolean chiSquare(String name, int bound, IntDraw draw) {
+        long[] counts = new long[bound];
+        long samples = bound * 2000L;
+        for (long i = 0; i < samples; i++) {
+            counts[draw.next()]++;
+        }
+        double expected = samples / (double) bound;
+        double chi2 = 0;
+        for (long c : counts) {
+            double d = c - expected;
+            chi2 += d * d / expected;
+        }
+        // Wilson-Hilferty normal approximation of the chi-square tail
+        int df = bound - 1;
+        double z = (Math.cbrt(chi2 / df) - (1 - 2.0 / (9 * df))) / Math.sqrt(2.0 / (9 * df));
+        boolean passed = z < 3.29;
+        System.out.printf("%-44s chi2=%12.1f df=%5d z=%7.2f %s%n", name, chi2, df, z, passed ? "ok" : "BIASED");
+        return passed;
+    }
+
+    /** Runs op for the warm-up period, then measures and prints a rate line. */
+    static double report(String name, String unit, double scale, Op op) {
+        runFor(op, WARMUP_SECONDS);
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long ops = runFor(op, MEASURE_SECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = allocatedBytes() - allocatedBefore;
+        double rate = ops / seconds;
+        double bytesPerOp = allocatedBefore < 0 ? Double.NaN : allocated / (double) ops;
+        System.out.printf("%-44s %,16.1f %-6s %10.2f B/op %10.1f MB/s alloc%n", name, rate * scale, unit,
+                bytesPerOp, allocated / seconds / 1e6);
+        appendCsv(name, unit, rate * scale, bytesPerOp);
+        return rate;
+    }
+
+    /** Bytes allocated so far by all live threads, or -1 if the JVM cannot tell. */
+    private static long allocatedBytes() {
+        if (!(THREAD_BEAN instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_BEAN;
+        if (!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : bean.getThreadAllocatedBytes(bean.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    private static void appendCsv(String name, String unit, double rate, double bytesPerOp) {
+        if (CSV_FILE == null) {
+            return;
+        }
+        try (PrintWriter out = new PrintWriter(new FileWriter(CSV_FILE, true))) {
+            out.printf("%s,%s,%.1f,%.2f%n", name, unit, rate, bytesPerOp);
+        } catch (IOException e) {
+            System.err.println("Cannot write " + CSV_FILE + ": " + e.getMessage());
+        }
+    }
+
+    private static int[] parseInts(String csv) {
+        String[] parts = csv.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+
+    private static long runFor(Op op, double seconds) {
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        long ops = 0;
+        do {
+            ops += op.run();
+        } while (System.nanoTime() < deadline);
+        return ops;
+    }
+}
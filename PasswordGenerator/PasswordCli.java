@@ -0,0 +1,386 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * PasswordCli - headless entry point for bulk password generation
+ * Usage:
+ * java PasswordCli --count 1000000 --length 16 --upper --lower --numbers --special
+ * Passwords are written to stdout, one per line. Without any charset flag the
+ * GUI default (lowercase only) is used.
+ * --threads N spreads generation over N workers; throughput is then reported
+ * on stderr (use --stats to get the report single-threaded too).
+ * --audit FILE scores an existing newline-separated password file instead,
+ * printing a strength histogram and the --worst N weakest entries.
+ * --min-upper/--min-lower/--min-numbers/--min-special N guarantee at least N
+ * characters of that class (and enable it).
+ * --passphrase --wordlist INDEX [--words N] [--separator C] generates
+ * diceware-style passphrases instead; build INDEX once with
+ * --build-wordlist TEXT INDEX.
+ * --breach-filter FILE rejects (or, when auditing, counts) passwords found in
+ * a filter built with --build-breach-filter HASHES OUT [--fp-rate P].
+ * --policy FILE generates from a {@link PasswordPolicy} file instead of the
+ * charset flags; its length rule is the default for --length.
+ * --serve PORT runs a {@link PasswordService} on the loopback address instead
+ * of generating once; --sampler, --breach-filter and --wordlist apply to it.
+ */
+public class PasswordCli {
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    long count = 1;
+    int length = 12;
+    boolean lengthGiven;
+    int threads = 1;
+    IndexSampler.Kind sampler = IndexSampler.DEFAULT_KIND;
+    boolean stats;
+    String auditFile;
+    String policyFile;
+    int servePort = -1;
+    String breachFilterFile;
+    String buildHashes, buildOut;
+    boolean passphrase;
+    String wordlistFile;
+    String buildWordsText, buildWordsOut;
+    int words = 6;
+    char separator = '-';
+    double fpRate = 0.001;
+    int worst = 20;
+    boolean upper, lower, numbers, special;
+    int minUpper, minLower, minNumbers, minSpecial;
+
+    static PasswordCli parse(String[] args) {
+        PasswordCli cli = new PasswordCli();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--count":
+                    cli.count = Long.parseLong(value(args, ++i, arg));
+                    break;
+                case "--length":
+                    cli.length = Integer.parseInt(value(args, ++i, arg));
+                    break;
+                case "--threads":
+                    cli.threads = Integer.parseInt(value(args, ++i, arg));
+                    cli.stats = true;
+                    break;
+                case "--sampler":
+                    cli.sampler = parseSampler(value(args, ++i, arg));
+                    break;
+                case "--audit":
+                    cli.auditFile = value(args, ++i, arg);
+                    break;
+                case "--policy":
+                    cli.policyFile = value(args, ++i, arg);
+                    break;
+                case "--serve":
+                    cli.servePort = Integer.parseInt(value(args, ++i, arg));
+                    break;
+                case "--breach-filter":
+                    cli.breachFilterFile = value(args, ++i, arg);
+                    break;
+                case "--build-breach-filter":
+                    cli.buildHashes = value(args, ++i, arg);
+                    cli.buildOut = value(args, ++i, arg);
+                    break;
+                case "--passphrase":
+                    cli.passphrase = true;
+                    break;
+                case "--wordlist":
+                    cli.wordlistFile = value(args, ++i, arg);
+                    break;
+                case "--words":
+                    cli.words = Integer.parseInt(value(args, ++i, arg));
+                    break;
+                case "--separator": {
+                    String sep = value(args, ++i, arg);
+                    if (sep.length() != 1 || sep.charAt(0) > 0x7F) {
+                        throw new IllegalArgumentException("--separator must be a single ASCII character");
+                    }
+                    cli.separator = sep.charAt(0);
+                    break;
+                }
+                case "--build-wordlist":
+                    cli.buildWordsText = value(args, ++i, arg);
+                    cli.buildWordsOut = value(args, ++i, arg);
+                    break;
+                case "--fp-rate":
+                    cli.fpRate = Double.parseDouble(value(args, ++i, arg));
+                    break;
+                case "--worst":
+                    cli.worst = Integer.parseInt(value(args, ++i, arg));
+                    break;
+                case "--stats":
+                    cli.stats = true;
+                    break;
+                case "--min-upper":
+                    cli.minUpper = Integer.parseInt(value(args, ++i, arg));
+                    cli.upper = true;
+                    break;
+                case "--min-lower":
+                    cli.minLower = Integer.parseInt(value(args, ++i, arg));
+                    cli.lower = true;
+                    break;
+                case "--min-numbers":
+                    cli.minNumbers = Integer.parseInt(value(args, ++i, arg));
+                    cli.numbers = true;
+                    break;
+                case "--min-special":
+                    cli.minSpecial = Integer.parseInt(value(args, ++i, arg));
+                    cli.special = true;
+                    break;
+                case "--upper":
+                    cli.upper = true;
+                    break;
+                case "--lower":
+                    cli.lower = true;
+                    break;
+                case "--numbers":
+                    cli.numbers = true;
+                    break;
+                case "--special":
+                    cli.special = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (!cli.upper && !cli.lower && !cli.numbers && !cli.special) {
+            cli.lower = true;
+        }
+        if (cli.auditFile != null && !given(args, "--threads")) {
+            cli.threads = Runtime.getRuntime().availableProcessors();
+        }
+        if (cli.servePort > 65535) {
+            throw new IllegalArgumentException("--serve needs a port between 0 and 65535");
+        }
+        if (cli.passphrase && (cli.wordlistFile == null || cli.words < 1)) {
+            throw new IllegalArgumentException("--passphrase needs --wordlist INDEX and --words >= 1");
+        }
+        if (cli.minUpper + cli.minLower + cli.minNumbers + cli.minSpecial > cli.length) {
+            throw new IllegalArgumentException("The per-class minimums add up to more than --length");
+        }
+        if (!(cli.fpRate > 0 && cli.fpRate < 1)) {
+            throw new IllegalArgumentException("--fp-rate must be between 0 and 1");
+        }
+        cli.lengthGiven = given(args, "--length");
+        if (cli.count < 0 || cli.length < 1 || cli.threads < 1 || cli.worst < 0) {
+            throw new IllegalArgumentException("--count must be >= 0, --length and --threads >= 1");
+        }
+        return cli;
+    }
+
+    private static boolean given(String[] args, String option) {
+        for (String arg : args) {
+            if (arg.equals(option)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static IndexSampler.Kind parseSampler(String name) {
+        switch (name) {
+            case "nextint":
+                return IndexSampler.Kind.NEXT_INT;
+            case "masked":
+                return IndexSampler.Kind.MASKED_REJECTION;
+            case "multiply":
+                return IndexSampler.Kind.MULTIPLY_SHIFT;
+            default:
+                throw new IllegalArgumentException("Unknown sampler: " + name + " (nextint, masked, multiply)");
+        }
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[i];
+    }
+
+    void run(OutputStream out) throws IOException, InterruptedException {
+        PasswordEngine engine;
+        if (policyFile != null) {
+            PasswordPolicy policy = PasswordPolicy.load(Paths.get(policyFile));
+            if (!lengthGiven && policy.length() > 0) {
+                length = policy.length();
+            }
+            engine = new PasswordEngine(policy.compile(sampler), new SecureRandomSource());
+        } else {
+            engine = new PasswordEngine(PasswordPolicy.builtIn(upper, lower, numbers, special,
+                    new int[] { minUpper, minLower, minNumbers, minSpecial }).compile(sampler),
+                    new SecureRandomSource());
+        }
+        engine.setBreachFilter(openBreachFilter());
+        ParallelBatchGenerator parallel = threads > 1 ? new ParallelBatchGenerator(engine, threads) : null;
+        int stride = length + 1;
+        int perChunk = Math.max(threads, CHUNK_BYTES * threads / stride);
+        byte[] buffer = new byte[perChunk * stride];
+        // Separators are written once; the engine only overwrites password bytes
+        for (int i = stride - 1; i < buffer.length; i += stride) {
+            buffer[i] = '\n';
+        }
+
+        long started = System.nanoTime();
+        try {
+            long remaining = count;
+            while (remaining > 0) {
+                int n = (int) Math.min(perChunk, remaining);
+                if (parallel != null) {
+                    parallel.generateBatch(buffer, 0, n, length, stride);
+                } else {
+                    engine.generateBatch(buffer, 0, n, length, stride);
+                }
+                out.write(buffer, 0, n * stride);
+                remaining -= n;
+            }
+            out.flush();
+        } finally {
+            // Chunks are far larger than any stream buffer, so this is the only copy left in the process
+            Arrays.fill(buffer, (byte) 0);
+            if (parallel != null) {
+                parallel.close();
+            }
+        }
+        if (stats) {
+            reportThroughput(System.nanoTime() - started, "passwords (length " + length + ")");
+            if (engine.breachFilter() != null) {
+                long rejected = parallel != null ? parallel.breachRejections() : engine.breachRejections();
+                System.err.printf("Regenerated %d password(s) flagged by the breach filter%n", rejected);
+            }
+        }
+    }
+
+    void runPassphrases(OutputStream out) throws IOException {
+        PassphraseGenerator generator = new PassphraseGenerator(WordList.open(Paths.get(wordlistFile)), words,
+                separator);
+        generator.setBreachFilter(openBreachFilter());
+        int perChunk = Math.max(1, CHUNK_BYTES / (generator.maxLength() + 1));
+        byte[] buffer = new byte[perChunk * (generator.maxLength() + 1)];
+
+        long started = System.nanoTime();
+        try {
+            long remaining = count;
+            while (remaining > 0) {
+                int n = (int) Math.min(perChunk, remaining);
+                int end = generator.generateLines(buffer, 0, n);
+                out.write(buffer, 0, end);
+                remaining -= n;
+            }
+            out.flush();
+        } finally {
+            Arrays.fill(buffer, (byte) 0);
+        }
+        if (stats) {
+            reportThroughput(System.nanoTime() - started, "passphrases (" + words + " words)");
+            System.err.printf("%.1f bits of entropy per passphrase%n", generator.entropyBits());
+        }
+    }
+
+    void serve() throws IOException, InterruptedException {
+        WordList wordList = wordlistFile == null ? null : WordList.open(Paths.get(wordlistFile));
+        PasswordService service = new PasswordService(servePort, sampler, openBreachFilter(), wordList);
+        service.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.err.print(service.stats());
+            service.close();
+        }));
+        System.err.printf("Serving passwords on http://127.0.0.1:%d/ (%s); Ctrl+C stops%n", service.port(),
+                service.executorName());
+        Thread.currentThread().join();
+    }
+
+    void buildWordList() throws IOException {
+        int n = WordList.build(Paths.get(buildWordsText), Paths.get(buildWordsOut));
+        System.err.printf("Indexed %,d words into %s (%.2f bits per word)%n", n, buildWordsOut,
+                Math.log(n) / Math.log(2));
+    }
+
+    private BreachFilter openBreachFilter() throws IOException {
+        return breachFilterFile == null ? null : BreachFilter.open(Paths.get(breachFilterFile));
+    }
+
+    void buildBreachFilter() throws IOException {
+        long started = System.nanoTime();
+        long n = BreachFilter.build(Paths.get(buildHashes), Paths.get(buildOut), fpRate);
+        BreachFilter filter = BreachFilter.open(Paths.get(buildOut));
+        System.err.printf("Built %s from %,d hashes: %,d bits (%.1f MB), %d hashes per entry, in %.1f s%n",
+                buildOut, n, filter.bitCount(), filter.bitCount() / 8e6, filter.hashCount(),
+                (System.nanoTime() - started) / 1e9);
+    }
+
+    void audit(PrintStream out) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        PasswordAudit audit = new PasswordAudit(threads, worst);
+        audit.setBreachFilter(openBreachFilter());
+        PasswordAudit.Report report = audit.audit(Paths.get(auditFile));
+        report.print(out);
+        if (stats) {
+            double seconds = Math.max(System.nanoTime() - started, 1) / 1e9;
+            System.err.printf("Audited in %.3f s on %d thread(s): %.0f passwords/sec, %.1f MB/s%n", seconds,
+                    threads, report.lines / seconds, report.bytes / seconds / 1e6);
+        }
+    }
+
+    private void reportThroughput(long nanos, String what) {
+        double seconds = Math.max(nanos, 1) / 1e9;
+        System.err.printf("Generated %d %s in %.3f s on %d thread(s): %.0f passwords/sec%n",
+                count, what, seconds, threads, count / seconds);
+    }
+
+    static void printUsage(PrintStream err) {
+        err.println("Usage: java PasswordCli [--count N] [--length L] [--threads N] [--sampler nextint|masked|multiply] [--stats]"
+                + " [--upper] [--lower] [--numbers] [--special] [--min-upper N] [--min-lower N]"
+                + " [--min-numbers N] [--min-special N]");
+        err.println("       java PasswordCli --policy FILE [--count N] [--length L] [--threads N]");
+        err.println("       java PasswordCli --serve PORT [--wordlist INDEX] [--sampler ...]");
+        err.println("       java PasswordCli --audit FILE [--worst N] [--threads N] [--stats]");
+        err.println("       java PasswordCli --build-breach-filter HASHES OUT [--fp-rate P]");
+        err.println("       java PasswordCli --passphrase --wordlist INDEX [--words N] [--separator C] [--count N]");
+        err.println("       java PasswordCli --build-wordlist TEXT INDEX");
+        err.println("Generation and audit accept --breach-filter FILE.");
+    }
+
+    public static void main(String[] args) {
+        PasswordCli cli;
+        try {
+            cli = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage(System.err);
+            System.exit(2);
+            return;
+        }
+        try {
+            if (cli.buildHashes != null) {
+                cli.buildBreachFilter();
+            } else if (cli.buildWordsText != null) {
+                cli.buildWordList();
+            } else if (cli.servePort >= 0) {
+                cli.serve();
+            } else if (cli.passphrase) {
+                cli.runPassphrases(System.out);
+            } else if (cli.auditFile != null) {
+                cli.audit(System.out);
+            } else {
+                cli.run(System.out);
+            }
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            // A policy file that cannot be met, or a length too short for it
+            System.err.println(e.getMessage());
+            System.exit(2);
+        } catch (IOException e) {
+            System.err.println("I/O failed: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(1);
+        }
+    }
+}
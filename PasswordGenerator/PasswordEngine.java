@@ -0,0 +1,366 @@
+import java.util.Arrays;
+
+/**
+ * PasswordEngine - UI-free password generator
+ * Runs a {@link CompiledPolicy}, which is built once per configuration; the
+ * batch methods write straight into caller-supplied buffers and allocate
+ * nothing per password. Randomness comes from an {@link EntropyPool}, so
+ * characters are drawn from a buffered block rather than one provider call
+ * each, and mapped to alphabet indices by a division-free {@link IndexSampler}.
+ * A plan with class minimums places the required characters first, fills
+ * the rest of the free positions from the whole alphabet and shuffles them
+ * with an unbiased Fisher-Yates pass; pinned positions draw from their own
+ * alphabets. Runs longer than the policy's max-repeat are repaired in place
+ * with a character from the same alphabet, which keeps every minimum. So
+ * every password meets the policy at a constant cost (no generate-and-check
+ * loop).
+ * With a {@link BreachFilter} set, any password found in the breach corpus
+ * is regenerated in place before it is handed out.
+ * Passwords only ever exist in caller buffers (there is deliberately no
+ * String-returning method), and the random bytes that chose them are wiped
+ * from the entropy pool before each call returns.
+ */
+public final class PasswordEngine {
+
+    public static final String UPPERCASE = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    public static final String LOWERCASE = "abcdefghijklmnopqrstuvwxyz";
+    public static final String NUMBERS = "0123456789";
+    public static final String SPECIAL = "!@#$%^&*()-_=+[]{};:,.<>?";
+
+    // Small policies can be almost fully covered by a breach corpus; give up instead of spinning
+    private static final int MAX_BREACH_ATTEMPTS = 1000;
+
+    private final CompiledPolicy plan;
+    private final EntropyPool entropy;
+    private char[] scratch;
+
+    // Layout for pinned positions, cached for the last length used
+    private int layoutLength = -1;
+    private int[] resolved;
+    private int[] freeIndex;
+    private char[] work;
+    private int[] workOrigin;
+    private int[] origin;
+
+    private BreachFilter breachFilter;
+    private long breachRejections;
+
+    public PasswordEngine(boolean upper, boolean lower, boolean numbers, boolean special) {
+        this(buildPool(upper, lower, numbers, special), new SecureRandomSource());
+    }
+
+    /**
+     * Engine that guarantees at least the given number of characters from
+     * each class. A class with a positive minimum must be enabled.
+     */
+    public PasswordEngine(boolean upper, boolean lower, boolean numbers, boolean special,
+            int minUpper, int minLower, int minNumbers, int minSpecial) {
+        this(PasswordPolicy.builtIn(upper, lower, numbers, special,
+                new int[] { minUpper, minLower, minNumbers, minSpecial }).compile(IndexSampler.DEFAULT_KIND),
+                new SecureRandomSource());
+    }
+
+    public PasswordEngine(char[] pool, EntropySource source) {
+        this(pool, source, IndexSampler.DEFAULT_KIND);
+    }
+
+    public PasswordEngine(char[] pool, EntropySource source, IndexSampler.Kind samplerKind) {
+        this(PasswordPolicy.ofAlphabet(pool).compile(samplerKind), source);
+    }
+
+    public PasswordEngine(CompiledPolicy plan, EntropySource source) {
+        this.plan = plan;
+        this.entropy = new EntropyPool(source);
+    }
+
+    private PasswordEngine(PasswordEngine base, EntropySource source, CompiledPolicy plan) {
+        this(plan, source);
+        this.breachFilter = base.breachFilter;
+    }
+
+    /** Returns an engine sharing this plan but drawing from its own entropy source. */
+    public PasswordEngine withSource(EntropySource source) {
+        return new PasswordEngine(this, source, plan);
+    }
+
+    /** Returns an engine with the same plan and a fresh entropy source using the given sampler. */
+    public PasswordEngine withSampler(IndexSampler.Kind kind, EntropySource source) {
+        return new PasswordEngine(this, source, plan.withSampler(kind));
+    }
+
+    /** Rejects passwords the filter flags; null turns the check off. Copies made later inherit it. */
+    public void setBreachFilter(BreachFilter filter) {
+        this.breachFilter = filter;
+    }
+
+    public BreachFilter breachFilter() {
+        return breachFilter;
+    }
+
+    /** Number of passwords regenerated because the breach filter flagged them. */
+    public long breachRejections() {
+        return breachRejections;
+    }
+
+    /** Required characters plus pinned positions; passwords must be at least this long. */
+    public int minimumLength() {
+        return plan.minimumLength();
+    }
+
+    public IndexSampler.Kind samplerKind() {
+        return plan.samplerKind();
+    }
+
+    public CompiledPolicy policy() {
+        return plan;
+    }
+
+    public static char[] buildPool(boolean upper, boolean lower, boolean numbers, boolean special) {
+        StringBuilder pool = new StringBuilder();
+        if (upper)
+            pool.append(UPPERCASE);
+        if (lower)
+            pool.append(LOWERCASE);
+        if (numbers)
+            pool.append(NUMBERS);
+        if (special)
+            pool.append(SPECIAL);
+        return pool.toString().toCharArray();
+    }
+
+    public static int poolSize(boolean upper, boolean lower, boolean numbers, boolean special) {
+        return (upper ? UPPERCASE.length() : 0) + (lower ? LOWERCASE.length() : 0)
+                + (numbers ? NUMBERS.length() : 0) + (special ? SPECIAL.length() : 0);
+    }
+
+    public int poolSize() {
+        return plan.alphabetSize();
+    }
+
+    /** Writes one password of the given length at out[offset]. */
+    public void generate(char[] out, int offset, int length) {
+        checkRange(out.length, offset, 1, length, length);
+        fillChecked(out, offset, length);
+        entropy.wipeConsumed();
+    }
+
+    /**
+     * Writes count passwords back to back, each length characters long,
+     * starting at out[offset].
+     */
+    public void generateBatch(char[] out, int offset, int count, int length) {
+        checkRange(out.length, offset, count, length, length);
+        if (breachFilter == null && plan.isUniform()) {
+            fill(out, offset, count * length);
+        } else {
+            for (int p = 0, base = offset; p < count; p++, base += length) {
+                fillChecked(out, base, length);
+            }
+        }
+        entropy.wipeConsumed();
+    }
+
+    /**
+     * Writes count ASCII passwords starting at out[offset], password i
+     * starting at offset + i * stride. Bytes between passwords (for example
+     * line separators) are left untouched. The policy must be ASCII-only.
+     */
+    public void generateBatch(byte[] out, int offset, int count, int length, int stride) {
+        checkRange(out.length, offset, count, length, stride);
+        if (!plan.ascii) {
+            throw new IllegalStateException("The policy has non-ASCII characters; generate into a char[] instead");
+        }
+        if (!plan.isUniform()) {
+            // Composition works on chars; go through one reusable scratch password
+            if (scratch == null || scratch.length < length) {
+                scratch = new char[length];
+            }
+            for (int p = 0, base = offset; p < count; p++, base += stride) {
+                fillChecked(scratch, 0, length);
+                for (int i = 0; i < length; i++) {
+                    out[base + i] = (byte) scratch[i];
+                }
+            }
+            Arrays.fill(scratch, '\0');
+            entropy.wipeConsumed();
+            return;
+        }
+        byte[] asciiPool = plan.asciiAlphabet;
+        IndexSampler sampler = plan.sampler;
+        BreachFilter filter = breachFilter;
+        for (int p = 0, base = offset; p < count; p++, base += stride) {
+            int attempts = 0;
+            do {
+                for (int i = 0; i < length; i++) {
+                    out[base + i] = asciiPool[sampler.next(entropy)];
+                }
+            } while (filter != null && rejected(filter.mightContain(out, base, length), ++attempts));
+        }
+        entropy.wipeConsumed();
+    }
+
+    private void fillChecked(char[] out, int from, int len) {
+        BreachFilter filter = breachFilter;
+        int attempts = 0;
+        do {
+            if (plan.isUniform()) {
+                fill(out, from, len);
+            } else {
+                fillPlanned(out, from, len);
+            }
+        } while (filter != null && rejected(filter.mightContain(out, from, len), ++attempts));
+    }
+
+    private void fillPlanned(char[] out, int from, int len) {
+        CompiledPolicy p = plan;
+        boolean repairs = p.maxRepeat > 0;
+        if (repairs && (origin == null || origin.length < len)) {
+            origin = new int[len];
+        }
+        int pinned = p.positions.length;
+        if (pinned == 0) {
+            composeFree(out, from, len, repairs ? origin : null);
+        } else {
+            // layout was prepared by checkRange
+            int free = len - pinned;
+            composeFree(work, 0, free, repairs ? workOrigin : null);
+            int[] index = freeIndex;
+            for (int i = 0; i < free; i++) {
+                out[from + index[i]] = work[i];
+            }
+            if (repairs) {
+                for (int i = 0; i < free; i++) {
+                    origin[index[i]] = workOrigin[i];
+                }
+            }
+            Arrays.fill(work, 0, free, '\0');
+            int firstPinnedOrigin = 1 + p.slotAlphabets.length;
+            for (int k = 0; k < pinned; k++) {
+                int at = resolved[k];
+                out[from + at] = p.positionAlphabets[k][p.positionSamplers[k].next(entropy)];
+                if (repairs) {
+                    origin[at] = firstPinnedOrigin + k;
+                }
+            }
+        }
+        if (repairs) {
+            repairRuns(out, from, len);
+        }
+    }
+
+    // Required class characters, then fill, then Fisher-Yates over dst[off, off + n)
+    private void composeFree(char[] dst, int off, int n, int[] org) {
+        CompiledPolicy p = plan;
+        int pos = off;
+        for (int s = 0; s < p.slotAlphabets.length; s++) {
+            char[] alphabet = p.slotAlphabets[s];
+            IndexSampler slotSampler = p.slotSamplers[s];
+            for (int j = 0; j < p.slotCounts[s]; j++) {
+                if (org != null) {
+                    org[pos - off] = 1 + s;
+                }
+                dst[pos++] = alphabet[slotSampler.next(entropy)];
+            }
+        }
+        if (org != null) {
+            Arrays.fill(org, pos - off, n, 0);
+        }
+        fill(dst, pos, off + n - pos);
+        if (p.requiredSlots == 0) {
+            // Nothing but independent fill draws; their order is already uniform
+            return;
+        }
+        // Fisher-Yates: every arrangement of the required characters is equally likely
+        for (int i = n - 1; i > 0; i--) {
+            int j = IndexSampler.nextIndex(entropy, i + 1);
+            char t = dst[off + i];
+            dst[off + i] = dst[off + j];
+            dst[off + j] = t;
+            if (org != null) {
+                int o = org[i];
+                org[i] = org[j];
+                org[j] = o;
+            }
+        }
+    }
+
+    // Breaks every run longer than maxRepeat with a character from the same alphabet as the one it replaces
+    private void repairRuns(char[] out, int from, int len) {
+        CompiledPolicy p = plan;
+        int run = 1;
+        for (int i = from + 1, end = from + len; i < end; i++) {
+            char c = out[i];
+            if (c != out[i - 1]) {
+                run = 1;
+            } else if (++run > p.maxRepeat) {
+                char[] alphabet = p.originAlphabets[origin[i - from]];
+                char next = i + 1 < end ? out[i + 1] : c;
+                char r;
+                do {
+                    r = alphabet[IndexSampler.nextIndex(entropy, alphabet.length)];
+                } while (r == c || r == next);
+                out[i] = r;
+                run = 1;
+            }
+        }
+    }
+
+    private void prepareLayout(int len) {
+        if (layoutLength == len) {
+            return;
+        }
+        int pinned = plan.positions.length;
+        int[] at = new int[pinned];
+        plan.resolvePositions(len, at);
+        boolean[] taken = new boolean[len];
+        for (int a : at) {
+            taken[a] = true;
+        }
+        int[] index = new int[len - pinned];
+        for (int i = 0, f = 0; i < len; i++) {
+            if (!taken[i]) {
+                index[f++] = i;
+            }
+        }
+        resolved = at;
+        freeIndex = index;
+        work = new char[index.length];
+        workOrigin = new int[index.length];
+        layoutLength = len;
+    }
+
+    private boolean rejected(boolean flagged, int attempts) {
+        if (flagged) {
+            breachRejections++;
+            if (attempts >= MAX_BREACH_ATTEMPTS) {
+                throw new IllegalStateException("Almost every password of this length and charset is in the"
+                        + " breach corpus; choose a longer length or more character types");
+            }
+        }
+        return flagged;
+    }
+
+    private void fill(char[] out, int from, int len) {
+        char[] pool = plan.alphabet;
+        IndexSampler sampler = plan.sampler;
+        for (int i = from, end = from + len; i < end; i++) {
+            out[i] = pool[sampler.next(entropy)];
+        }
+    }
+
+    private void checkRange(int bufLength, int offset, int count, int length, int stride) {
+        if (offset < 0 || count < 0 || length < 0 || stride < length) {
+            throw new IllegalArgumentException("Invalid batch layout");
+        }
+        if (length < plan.minimumLength()) {
+            throw new IllegalArgumentException("Length " + length + " is shorter than the " + plan.minimumLength()
+                    + " characters the policy requires");
+        }
+        if (plan.positions.length > 0) {
+            prepareLayout(length);
+        }
+        if (count > 0 && (long) offset + (long) (count - 1) * stride + length > bufLength) {
+            throw new IndexOutOfBoundsException("Buffer too small for " + count + " passwords");
+        }
+    }
+}
@@ -1,18 +1,54 @@
 import java.awt.*;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.StringSelection;
-import java.util.Random;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 import javax.swing.*;
+import javax.swing.border.Border;
 import javax.swing.border.TitledBorder;
 
 public class PasswordGenerator extends JFrame {
     private JCheckBox uppercaseCb, lowercaseCb, numbersCb, specialCb;
     private JSpinner lengthSpinner;
+    private JSpinner minUpperSpinner, minLowerSpinner, minNumbersSpinner, minSpecialSpinner;
+    private JCheckBox passphraseCb;
+    private JSpinner wordsSpinner;
     private JButton generateButton, copyButton, showHideButton;
-    private JTextField passwordField;
-    private JLabel strengthLabel;
+    private SecretField passwordField;
+    private JLabel strengthLabel, breachLabel;
     private JProgressBar strengthBar;
     private boolean isPasswordVisible = false;
+    private PasswordEngine engine;
+    // Opened on a background thread while the window is built; awaitResources() applies them once they
+    // load, or blocks on them first if a generate or pool build needs them sooner
+    private final CompletableFuture<Resources> resources;
+    private boolean resourcesApplied;
+    private BreachFilter breachFilter;
+    private WordList wordList;
+    private boolean painted;
+    private PassphraseGenerator passphraseGenerator;
+    private int passphraseWords;
+    // Option changes are coalesced and scored off the EDT; only the newest result is shown
+    private final StrengthUpdater strengthUpdater = new StrengthUpdater(this::showStrength, 80, 250);
+    // Ready-made passwords for the current options; rebuilt once the options settle
+    private PasswordPool passwordPool;
+    private long poolKey;
+    private Timer poolTimer;
+    private static final int POOL_CAPACITY = 16;
+    private static final int POOL_LOW_WATER = 4;
+    // Set by main when -Dpassgen.edtStats=true
+    private static EdtMonitor edtMonitor;
+    private long engineKey;
+    // Reused for every generated password and wiped as soon as it has been displayed
+    private char[] passwordBuffer = new char[0];
+    private SecretTransferable clipboardSecret;
+    private Timer clipboardTimer;
+
+    // The clipboard is cleared after this long unless something else was copied since
+    private static final int CLIPBOARD_CLEAR_MS = Integer.getInteger("passgen.clipboardSeconds", 30) * 1000;
 
     // Modern color scheme
     private static final Color DARK_BG = new Color(45, 45, 48);
@@ -24,8 +60,33 @@ public class PasswordGenerator extends JFrame {
     private static final Color TEXT_PRIMARY = new Color(240, 240, 240);
     private static final Color TEXT_SECONDARY = new Color(180, 180, 180);
 
+    // Shared look: one instance of each font, border and cursor instead of one per component
+    private static final String UI_FONT = "Segoe UI";
+    private static final Font TITLE_FONT = new Font(UI_FONT, Font.BOLD, 24);
+    private static final Font HEADING_FONT = new Font(UI_FONT, Font.BOLD, 12);
+    private static final Font LABEL_FONT = new Font(UI_FONT, Font.PLAIN, 12);
+    private static final Font SMALL_FONT = new Font(UI_FONT, Font.PLAIN, 11);
+    private static final Font PASSWORD_FONT = new Font("Consolas", Font.PLAIN, 14);
+    private static final Font ICON_FONT = new Font("Segoe UI Emoji", Font.PLAIN, 12);
+    private static final Border OUTLINE = BorderFactory.createLineBorder(TEXT_SECONDARY, 1);
+    private static final Cursor HAND_CURSOR = Cursor.getPredefinedCursor(Cursor.HAND_CURSOR);
+
+    // -Dpassgen.startupProbe=true prints the time to first paint and exits (see PasswordBenchmarks startup)
+    private static final boolean STARTUP_PROBE = Boolean.getBoolean("passgen.startupProbe");
+
+    /** Everything the window can show without; opened off the EDT. */
+    private static final class Resources {
+        final BreachFilter breachFilter = loadBreachFilter();
+        final WordList wordList = loadWordList();
+    }
+
     public PasswordGenerator() {
+        this(loadResources());
+    }
+
+    private PasswordGenerator(CompletableFuture<Resources> resources) {
         super("Password Generator Pro");
+        this.resources = resources;
         initializeUI();
         setupEventHandlers();
         setLocationRelativeTo(null);
@@ -36,14 +97,23 @@ public class PasswordGenerator extends JFrame {
         getContentPane().setBackground(DARK_BG);
         setLayout(new BorderLayout(10, 10));
 
-        // Create main container
-        JPanel mainPanel = new JPanel(new BorderLayout(15, 15));
+        // Create main container; its first paint is when the window becomes usable
+        JPanel mainPanel = new JPanel(new BorderLayout(15, 15)) {
+            @Override
+            public void paint(Graphics g) {
+                super.paint(g);
+                if (!painted) {
+                    painted = true;
+                    SwingUtilities.invokeLater(PasswordGenerator.this::afterFirstPaint);
+                }
+            }
+        };
         mainPanel.setBackground(DARK_BG);
         mainPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
 
         // Title
         JLabel titleLabel = new JLabel("Password Generator", SwingConstants.CENTER);
-        titleLabel.setFont(new Font("Segoe UI", Font.BOLD, 24));
+        titleLabel.setFont(TITLE_FONT);
         titleLabel.setForeground(TEXT_PRIMARY);
         titleLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 15, 0));
 
@@ -73,6 +143,23 @@ public class PasswordGenerator extends JFrame {
 
         pack();
         setMinimumSize(new Dimension(450, 380));
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                clearClipboard();
+                passwordField.clear();
+                strengthUpdater.close();
+                if (edtMonitor != null) {
+                    System.err.print(edtMonitor.report());
+                    System.err.println(strengthUpdater.stats());
+                    if (passwordPool != null) {
+                        System.err.println(passwordPool.stats());
+                    }
+                }
+                closePool();
+            }
+        });
     }
 
     private JPanel createOptionsPanel() {
@@ -80,16 +167,16 @@ public class PasswordGenerator extends JFrame {
         panel.setBackground(CARD_BG);
         panel.setBorder(BorderFactory.createCompoundBorder(
                 BorderFactory.createTitledBorder(
-                        BorderFactory.createLineBorder(TEXT_SECONDARY, 1),
+                        OUTLINE,
                         "Options",
                         TitledBorder.LEFT,
                         TitledBorder.TOP,
-                        new Font("Segoe UI", Font.BOLD, 12),
+                        HEADING_FONT,
                         TEXT_PRIMARY),
                 BorderFactory.createEmptyBorder(15, 15, 15, 15)));
 
         // Character set options
-        JPanel checkboxPanel = new JPanel(new GridLayout(4, 1, 5, 5));
+        JPanel checkboxPanel = new JPanel(new GridLayout(4, 2, 5, 5));
         checkboxPanel.setBackground(CARD_BG);
 
         uppercaseCb = createStyledCheckBox("Uppercase (A-Z)", false);
@@ -97,10 +184,20 @@ public class PasswordGenerator extends JFrame {
         numbersCb = createStyledCheckBox("Numbers (0-9)", false);
         specialCb = createStyledCheckBox("Special (!@#$%)", false);
 
+        // Minimum count per class, guaranteed by the engine; only active while the class is ticked
+        minUpperSpinner = createMinSpinner(uppercaseCb);
+        minLowerSpinner = createMinSpinner(lowercaseCb);
+        minNumbersSpinner = createMinSpinner(numbersCb);
+        minSpecialSpinner = createMinSpinner(specialCb);
+
         checkboxPanel.add(uppercaseCb);
+        checkboxPanel.add(createMinPanel(minUpperSpinner));
         checkboxPanel.add(lowercaseCb);
+        checkboxPanel.add(createMinPanel(minLowerSpinner));
         checkboxPanel.add(numbersCb);
+        checkboxPanel.add(createMinPanel(minNumbersSpinner));
         checkboxPanel.add(specialCb);
+        checkboxPanel.add(createMinPanel(minSpecialSpinner));
 
         // Length control
         JPanel lengthPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
@@ -108,7 +205,7 @@ public class PasswordGenerator extends JFrame {
 
         JLabel lengthLabel = new JLabel("Password Length:");
         lengthLabel.setForeground(TEXT_PRIMARY);
-        lengthLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        lengthLabel.setFont(LABEL_FONT);
 
         lengthSpinner = new JSpinner(new SpinnerNumberModel(12, 4, 128, 1));
         lengthSpinner.setPreferredSize(new Dimension(80, 30));
@@ -118,8 +215,38 @@ public class PasswordGenerator extends JFrame {
         lengthPanel.add(Box.createHorizontalStrut(10));
         lengthPanel.add(lengthSpinner);
 
+        // Passphrase mode: whole words from the memory-mapped wordlist instead of characters
+        JPanel passphrasePanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        passphrasePanel.setBackground(CARD_BG);
+
+        passphraseCb = createStyledCheckBox("Passphrase", false);
+        wordsSpinner = new JSpinner(new SpinnerNumberModel(6, 3, 20, 1));
+        wordsSpinner.setPreferredSize(new Dimension(60, 30));
+        styleSpinner(wordsSpinner);
+        wordsSpinner.setEnabled(false);
+        JLabel wordsLabel = new JLabel("words");
+        wordsLabel.setForeground(TEXT_SECONDARY);
+        wordsLabel.setFont(SMALL_FONT);
+        // Enabled by awaitResources once the word list is open
+        passphraseCb.setEnabled(false);
+        passphraseCb.setToolTipText("Loading the word list...");
+        passphraseCb.addItemListener(e -> {
+            boolean on = passphraseCb.isSelected();
+            wordsSpinner.setEnabled(on);
+            lengthSpinner.setEnabled(!on);
+        });
+
+        passphrasePanel.add(passphraseCb);
+        passphrasePanel.add(wordsSpinner);
+        passphrasePanel.add(wordsLabel);
+
+        JPanel rightPanel = new JPanel(new GridLayout(2, 1, 0, 5));
+        rightPanel.setBackground(CARD_BG);
+        rightPanel.add(lengthPanel);
+        rightPanel.add(passphrasePanel);
+
         panel.add(checkboxPanel);
-        panel.add(lengthPanel);
+        panel.add(rightPanel);
 
         return panel;
     }
@@ -129,18 +256,17 @@ public class PasswordGenerator extends JFrame {
         panel.setBackground(DARK_BG);
         panel.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
 
-        passwordField = new JTextField();
-        passwordField.setFont(new Font("Consolas", Font.PLAIN, 14));
+        passwordField = new SecretField(20);
+        passwordField.setFont(PASSWORD_FONT);
         passwordField.setBackground(CARD_BG);
         passwordField.setForeground(TEXT_PRIMARY);
-        passwordField.setCaretColor(PRIMARY_COLOR);
         passwordField.setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createLineBorder(TEXT_SECONDARY, 1),
+                OUTLINE,
                 BorderFactory.createEmptyBorder(8, 12, 8, 12)));
-        passwordField.setEditable(false);
+        passwordField.setMasked(!isPasswordVisible);
 
         showHideButton = new JButton("441");
-        showHideButton.setFont(new Font("Segoe UI Emoji", Font.PLAIN, 12));
+        showHideButton.setFont(ICON_FONT);
         showHideButton.setPreferredSize(new Dimension(40, 34));
         styleButton(showHideButton, TEXT_SECONDARY);
         showHideButton.setToolTipText("Show/Hide password");
@@ -156,12 +282,12 @@ public class PasswordGenerator extends JFrame {
         panel.setBackground(DARK_BG);
 
         generateButton = new JButton("Generate Password");
-        generateButton.setFont(new Font("Segoe UI", Font.BOLD, 12));
+        generateButton.setFont(HEADING_FONT);
         generateButton.setPreferredSize(new Dimension(150, 40));
         styleButton(generateButton, PRIMARY_COLOR);
 
         copyButton = new JButton("Copy to Clipboard");
-        copyButton.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        copyButton.setFont(LABEL_FONT);
         copyButton.setPreferredSize(new Dimension(150, 40));
         styleButton(copyButton, SUCCESS_COLOR);
         copyButton.setEnabled(false);
@@ -179,14 +305,23 @@ public class PasswordGenerator extends JFrame {
 
         strengthLabel = new JLabel("Password Strength: -");
         strengthLabel.setForeground(TEXT_SECONDARY);
-        strengthLabel.setFont(new Font("Segoe UI", Font.PLAIN, 11));
+        strengthLabel.setFont(SMALL_FONT);
 
         strengthBar = new JProgressBar(0, 100);
         strengthBar.setStringPainted(false);
         strengthBar.setBackground(CARD_BG);
         strengthBar.setPreferredSize(new Dimension(0, 8));
 
-        panel.add(strengthLabel, BorderLayout.NORTH);
+        breachLabel = new JLabel("Breach check: loading");
+        breachLabel.setForeground(TEXT_SECONDARY);
+        breachLabel.setFont(SMALL_FONT);
+
+        JPanel labelRow = new JPanel(new BorderLayout());
+        labelRow.setBackground(DARK_BG);
+        labelRow.add(strengthLabel, BorderLayout.WEST);
+        labelRow.add(breachLabel, BorderLayout.EAST);
+
+        panel.add(labelRow, BorderLayout.NORTH);
         panel.add(strengthBar, BorderLayout.CENTER);
 
         return panel;
@@ -196,17 +331,42 @@ public class PasswordGenerator extends JFrame {
         JCheckBox cb = new JCheckBox(text, selected);
         cb.setBackground(CARD_BG);
         cb.setForeground(TEXT_PRIMARY);
-        cb.setFont(new Font("Segoe UI", Font.PLAIN, 11));
+        cb.setFont(SMALL_FONT);
         cb.setFocusPainted(false);
         return cb;
     }
 
+    private JSpinner createMinSpinner(JCheckBox classCb) {
+        JSpinner spinner = new JSpinner(new SpinnerNumberModel(1, 0, 32, 1));
+        spinner.setPreferredSize(new Dimension(50, 24));
+        spinner.setToolTipText("Minimum number of characters from this class");
+        styleSpinner(spinner);
+        spinner.setEnabled(classCb.isSelected());
+        classCb.addItemListener(e -> spinner.setEnabled(classCb.isSelected()));
+        return spinner;
+    }
+
+    private JPanel createMinPanel(JSpinner spinner) {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        panel.setBackground(CARD_BG);
+        JLabel label = new JLabel("min");
+        label.setForeground(TEXT_SECONDARY);
+        label.setFont(SMALL_FONT);
+        panel.add(label);
+        panel.add(spinner);
+        return panel;
+    }
+
+    private static int minimum(JCheckBox classCb, JSpinner spinner) {
+        return classCb.isSelected() ? (Integer) spinner.getValue() : 0;
+    }
+
     private void styleButton(JButton button, Color bgColor) {
         button.setBackground(bgColor);
         button.setForeground(Color.WHITE);
         button.setFocusPainted(false);
         button.setBorderPainted(false);
-        button.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        button.setCursor(HAND_CURSOR);
         button.setBorder(BorderFactory.createEmptyBorder(8, 16, 8, 16));
 
         // Add curved edges to buttons
@@ -249,7 +409,7 @@ public class PasswordGenerator extends JFrame {
     }
 
     private void styleSpinner(JSpinner spinner) {
-        spinner.setBorder(BorderFactory.createLineBorder(TEXT_SECONDARY, 1));
+        spinner.setBorder(OUTLINE);
         JSpinner.DefaultEditor editor = (JSpinner.DefaultEditor) spinner.getEditor();
         editor.getTextField().setBackground(CARD_BG);
         editor.getTextField().setForeground(TEXT_PRIMARY);
@@ -266,14 +426,158 @@ public class PasswordGenerator extends JFrame {
         showHideButton.addActionListener(e -> togglePasswordVisibility());
 
         // Add change listeners for real-time strength calculation
-        lengthSpinner.addChangeListener(e -> updatePasswordStrength());
-        uppercaseCb.addActionListener(e -> updatePasswordStrength());
-        lowercaseCb.addActionListener(e -> updatePasswordStrength());
-        numbersCb.addActionListener(e -> updatePasswordStrength());
-        specialCb.addActionListener(e -> updatePasswordStrength());
+        lengthSpinner.addChangeListener(e -> optionsChanged());
+        uppercaseCb.addActionListener(e -> optionsChanged());
+        lowercaseCb.addActionListener(e -> optionsChanged());
+        numbersCb.addActionListener(e -> optionsChanged());
+        specialCb.addActionListener(e -> optionsChanged());
+        passphraseCb.addActionListener(e -> optionsChanged());
+        wordsSpinner.addChangeListener(e -> optionsChanged());
+        minUpperSpinner.addChangeListener(e -> schedulePool());
+        minLowerSpinner.addChangeListener(e -> schedulePool());
+        minNumbersSpinner.addChangeListener(e -> schedulePool());
+        minSpecialSpinner.addChangeListener(e -> schedulePool());
+    }
+
+    // Work the first frame does not need: it starts once the window is on screen
+    private void afterFirstPaint() {
+        if (STARTUP_PROBE) {
+            long launched = Long.getLong("passgen.launchMillis",
+                    ManagementFactory.getRuntimeMXBean().getStartTime());
+            System.out.println("Time to first paint: " + (System.currentTimeMillis() - launched) + " ms");
+            System.exit(0);
+        }
+        resources.thenAccept(r -> SwingUtilities.invokeLater(this::awaitResources));
+        schedulePool();
+    }
+
+    // Opens the breach filter and word list on their own thread, in parallel with building the window
+    private static CompletableFuture<Resources> loadResources() {
+        return CompletableFuture.supplyAsync(Resources::new, task -> {
+            Thread t = new Thread(task, "resource-loader");
+            t.setDaemon(true);
+            t.start();
+        });
+    }
+
+    // Waits for the resources if they are still loading (opening them only maps the files) and shows them
+    private void awaitResources() {
+        if (resourcesApplied) {
+            return;
+        }
+        Resources r = resources.join();
+        resourcesApplied = true;
+        breachFilter = r.breachFilter;
+        wordList = r.wordList;
+        if (wordList == null) {
+            passphraseCb.setToolTipText("Build wordlist.idx with --build-wordlist, or set -Dpassgen.wordlist=FILE");
+        } else {
+            passphraseCb.setEnabled(true);
+            passphraseCb.setToolTipText(String.format("%,d words, %.1f bits per word", wordList.size(),
+                    wordList.bitsPerWord()));
+        }
+        breachLabel.setText(breachFilter == null ? "Breach check: off" : "Breach check: ready");
+        breachLabel.setToolTipText(breachFilter == null
+                ? "Place breached.bloom next to the app or set -Dpassgen.breachFilter=FILE"
+                : "Generated passwords found in the breach corpus are regenerated");
+    }
+
+    private void optionsChanged() {
+        updatePasswordStrength();
+        schedulePool();
+    }
+
+    // Closes the pool of the old options now without waiting on its refill, which wipes it on the way out,
+    // and builds the next one when the options stop changing
+    private void schedulePool() {
+        closePool();
+        if (poolTimer == null) {
+            poolTimer = new Timer(300, evt -> createPool());
+            poolTimer.setRepeats(false);
+        }
+        poolTimer.restart();
+    }
+
+    private void closePool() {
+        if (passwordPool != null) {
+            passwordPool.close();
+            passwordPool = null;
+        }
+    }
+
+    private void createPool() {
+        awaitResources();
+        long key = optionsKey();
+        if (key < 0) {
+            return;
+        }
+        if (passphraseCb.isSelected()) {
+            PassphraseGenerator generator = new PassphraseGenerator(wordList, (Integer) wordsSpinner.getValue(), '-');
+            generator.setBreachFilter(breachFilter);
+            passwordPool = PasswordPool.forPassphrases(generator, POOL_CAPACITY, POOL_LOW_WATER);
+        } else {
+            int[] minimums = minimums();
+            PasswordEngine template = engineFor(uppercaseCb.isSelected(), lowercaseCb.isSelected(),
+                    numbersCb.isSelected(), specialCb.isSelected(), minimums);
+            passwordPool = PasswordPool.forEngine(template, (Integer) lengthSpinner.getValue(), POOL_CAPACITY,
+                    POOL_LOW_WATER);
+        }
+        poolKey = key;
+    }
+
+    // Identifies the current options; -1 when they cannot produce a password
+    private long optionsKey() {
+        if (passphraseCb.isSelected()) {
+            return wordList == null ? -1 : 1L << 62 | (Integer) wordsSpinner.getValue();
+        }
+        boolean upper = uppercaseCb.isSelected();
+        boolean lower = lowercaseCb.isSelected();
+        boolean numbers = numbersCb.isSelected();
+        boolean special = specialCb.isSelected();
+        int length = (Integer) lengthSpinner.getValue();
+        int[] minimums = minimums();
+        if ((!upper && !lower && !numbers && !special)
+                || minimums[0] + minimums[1] + minimums[2] + minimums[3] > length) {
+            return -1;
+        }
+        return charsetKey(upper, lower, numbers, special, minimums) | (long) length << 40;
+    }
+
+    private int[] minimums() {
+        return new int[] { minimum(uppercaseCb, minUpperSpinner), minimum(lowercaseCb, minLowerSpinner),
+                minimum(numbersCb, minNumbersSpinner), minimum(specialCb, minSpecialSpinner) };
+    }
+
+    // Copies a pooled password for the current options into out; -1 if none is ready
+    private int takePooled(char[] out) {
+        if (passwordPool == null || poolKey != optionsKey()) {
+            return -1;
+        }
+        return passwordPool.take(out, 0);
     }
 
     private void generatePassword() {
+        // Never generate without the breach filter the user configured
+        awaitResources();
+        if (passphraseCb.isSelected()) {
+            PassphraseGenerator generator = passphraseGenerator();
+            char[] buf = passwordBuffer(generator.maxLength());
+            try {
+                int len = takePooled(buf);
+                if (len < 0) {
+                    len = generator.generate(buf, 0);
+                }
+                showGenerated(buf, len);
+                // Dictionary words would fool the pattern detector; the real entropy is per word
+                double bits = generator.entropyBits();
+                strengthUpdater.requestNow(estimator -> bits);
+            } catch (IllegalStateException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "Breach Check", JOptionPane.WARNING_MESSAGE);
+            } finally {
+                Arrays.fill(buf, 0, generator.maxLength(), '\0');
+            }
+            return;
+        }
         int length = (Integer) lengthSpinner.getValue();
         boolean upper = uppercaseCb.isSelected();
         boolean lower = lowercaseCb.isSelected();
@@ -288,10 +592,46 @@ public class PasswordGenerator extends JFrame {
             return;
         }
 
-        String password = generatePassword(length, upper, lower, numbers, special);
-        passwordField.setText(password);
+        int[] minimums = minimums();
+        int required = minimums[0] + minimums[1] + minimums[2] + minimums[3];
+        if (required > length) {
+            JOptionPane.showMessageDialog(this,
+                    "The minimum counts add up to " + required + " characters, more than the password length.",
+                    "Minimums Too Large",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        char[] buf = passwordBuffer(length);
+        try {
+            if (takePooled(buf) < 0) {
+                generatePassword(buf, length, upper, lower, numbers, special, minimums);
+            } else {
+                // Pooled passwords were checked when they were made
+                showBreachResult(0);
+            }
+            showGenerated(buf, length);
+            updatePasswordStrength(buf, length);
+        } catch (IllegalStateException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Breach Check", JOptionPane.WARNING_MESSAGE);
+        } finally {
+            Arrays.fill(buf, 0, length, '\0');
+        }
+    }
+
+    // Grows the shared buffer, wiping the old one; callers wipe what they used
+    private char[] passwordBuffer(int length) {
+        if (passwordBuffer.length < length) {
+            Arrays.fill(passwordBuffer, '\0');
+            passwordBuffer = new char[length];
+        }
+        return passwordBuffer;
+    }
+
+    private void showGenerated(char[] password, int length) {
+        passwordField.setSecret(password, 0, length);
         copyButton.setEnabled(true);
-        updatePasswordStrength(); // Show success feedback
+        // Show success feedback
         generateButton.setText("Generated!");
         Timer timer = new Timer(1500, evt -> {
             evt.getActionCommand(); // suppress unused warning
@@ -303,14 +643,26 @@ public class PasswordGenerator extends JFrame {
     }
 
     private void copyToClipboard() {
-        String password = passwordField.getText();
-        if (password.isEmpty()) {
+        if (passwordField.isEmpty()) {
             return;
         }
 
-        StringSelection selection = new StringSelection(password);
+        char[] buf = passwordBuffer(passwordField.length());
+        int len = passwordField.copySecret(buf, 0);
+        SecretTransferable selection = new SecretTransferable(buf, 0, len);
+        Arrays.fill(buf, 0, len, '\0');
+        if (clipboardSecret != null) {
+            clipboardSecret.wipe();
+        }
+        clipboardSecret = selection;
         Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
-        clipboard.setContents(selection, null); // Show copy feedback
+        clipboard.setContents(selection, selection);
+        if (clipboardTimer == null) {
+            clipboardTimer = new Timer(CLIPBOARD_CLEAR_MS, evt -> clearClipboard());
+            clipboardTimer.setRepeats(false);
+        }
+        clipboardTimer.restart();
+        // Show copy feedback
         copyButton.setText("Copied!");
         Timer timer = new Timer(1500, evt -> {
             evt.getActionCommand(); // suppress unused warning
@@ -320,6 +672,21 @@ public class PasswordGenerator extends JFrame {
         timer.start();
     }
 
+    // Empties the system clipboard only while it still holds our password
+    private void clearClipboard() {
+        if (clipboardTimer != null) {
+            clipboardTimer.stop();
+        }
+        if (clipboardSecret == null) {
+            return;
+        }
+        if (!clipboardSecret.isWiped()) {
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(""), null);
+            clipboardSecret.wipe();
+        }
+        clipboardSecret = null;
+    }
+
     private void togglePasswordVisibility() {
         isPasswordVisible = !isPasswordVisible;
         if (isPasswordVisible) {
@@ -329,92 +696,146 @@ public class PasswordGenerator extends JFrame {
             showHideButton.setText("441");
             showHideButton.setToolTipText("Show password");
         }
-        // Toggle password field font (could implement actual masking if needed)
+        passwordField.setMasked(!isPasswordVisible);
     }
 
+    // Reads the options on the EDT; the scoring itself runs on the strength worker
     private void updatePasswordStrength() {
+        if (passphraseCb.isSelected()) {
+            int words = (Integer) wordsSpinner.getValue();
+            WordList list = wordList;
+            strengthUpdater.request(estimator -> words * list.bitsPerWord());
+            return;
+        }
         int length = (Integer) lengthSpinner.getValue();
         boolean upper = uppercaseCb.isSelected();
         boolean lower = lowercaseCb.isSelected();
         boolean numbers = numbersCb.isSelected();
         boolean special = specialCb.isSelected();
 
-        int score = calculatePasswordStrength(length, upper, lower, numbers, special);
+        strengthUpdater.request(estimator -> StrengthEstimator.poolEntropyBits(length,
+                PasswordEngine.poolSize(upper, lower, numbers, special)));
+    }
+
+    // Scores the generated password itself, so unlucky patterns lower the estimate
+    private void updatePasswordStrength(char[] password, int length) {
+        strengthUpdater.requestPassword(password, 0, length);
+    }
+
+    private void showStrength(double bits) {
+        int score = StrengthEstimator.scoreForBits(bits);
         strengthBar.setValue(score);
 
-        String strengthText;
+        int bucket = StrengthEstimator.bucket(score);
         Color barColor;
-
-        if (score < 30) {
-            strengthText = "Weak";
+        if (bucket == 0) {
             barColor = DANGER_COLOR;
-        } else if (score < 60) {
-            strengthText = "Moderate";
+        } else if (bucket == 1) {
             barColor = WARNING_COLOR;
-        } else if (score < 80) {
-            strengthText = "Strong";
-            barColor = SUCCESS_COLOR;
         } else {
-            strengthText = "Very Strong";
             barColor = SUCCESS_COLOR;
         }
 
-        strengthLabel.setText("Password Strength: " + strengthText);
+        strengthLabel.setText(String.format("Password Strength: %s (%.0f bits)", StrengthEstimator.LABELS[bucket], bits));
         strengthBar.setForeground(barColor);
     }
 
-    private int calculatePasswordStrength(int length, boolean upper, boolean lower, boolean numbers, boolean special) {
-        int score = 0;
+    static int calculatePasswordStrength(int length, boolean upper, boolean lower, boolean numbers, boolean special) {
+        int poolSize = PasswordEngine.poolSize(upper, lower, numbers, special);
+        return StrengthEstimator.scoreForBits(StrengthEstimator.poolEntropyBits(length, poolSize));
+    }
 
-        // Length scoring
-        if (length >= 8)
-            score += 20;
-        if (length >= 12)
-            score += 10;
-        if (length >= 16)
-            score += 10;
-        if (length >= 20)
-            score += 10;
+    private void generatePassword(char[] out, int length, boolean upper, boolean lower, boolean numbers,
+            boolean special, int[] minimums) {
+        PasswordEngine engine = engineFor(upper, lower, numbers, special, minimums);
+        long rejectedBefore = engine.breachRejections();
+        engine.generate(out, 0, length);
+        showBreachResult(engine.breachRejections() - rejectedBefore);
+    }
 
-        // Character type scoring
-        if (upper)
-            score += 15;
-        if (lower)
-            score += 15;
-        if (numbers)
-            score += 15;
-        if (special)
-            score += 15;
+    private void showBreachResult(long regenerated) {
+        if (breachFilter == null) {
+            return;
+        }
+        breachLabel.setText(regenerated == 0 ? "Breach check: not found"
+                : "Breach check: not found (" + regenerated + " breached regenerated)");
+        breachLabel.setForeground(SUCCESS_COLOR);
+    }
 
-        return Math.min(100, score);
+    private PassphraseGenerator passphraseGenerator() {
+        int words = (Integer) wordsSpinner.getValue();
+        if (passphraseGenerator == null || passphraseWords != words) {
+            passphraseGenerator = new PassphraseGenerator(wordList, words, '-');
+            passphraseGenerator.setBreachFilter(breachFilter);
+            passphraseWords = words;
+        }
+        return passphraseGenerator;
     }
 
-    @SuppressWarnings("unused")
-    private String generatePassword(int length, boolean upper, boolean lower, boolean numbers, boolean special) {
-        StringBuilder pool = new StringBuilder();
-        if (upper)
-            pool.append("ABCDEFGHIJKLMNOPQRSTUVWXYZ");
-        if (lower)
-            pool.append("abcdefghijklmnopqrstuvwxyz");
-        if (numbers)
-            pool.append("0123456789");
-        if (special)
-            pool.append("!@#$%^&*()-_=+[]{};:,.<>?");
+    // -Dpassgen.wordlist=FILE, else wordlist.idx in the working directory if present
+    private static WordList loadWordList() {
+        String configured = System.getProperty("passgen.wordlist");
+        java.nio.file.Path path = java.nio.file.Paths.get(configured != null ? configured : "wordlist.idx");
+        if (configured == null && !java.nio.file.Files.exists(path)) {
+            return null;
+        }
+        try {
+            return WordList.open(path);
+        } catch (java.io.IOException e) {
+            System.err.println("Passphrase mode disabled: " + e.getMessage());
+            return null;
+        }
+    }
 
-        if (pool.length() == 0) {
-            return "";
+    // -Dpassgen.breachFilter=FILE, else breached.bloom in the working directory if present
+    private static BreachFilter loadBreachFilter() {
+        String configured = System.getProperty("passgen.breachFilter");
+        java.nio.file.Path path = java.nio.file.Paths.get(configured != null ? configured : "breached.bloom");
+        if (configured == null && !java.nio.file.Files.exists(path)) {
+            return null;
+        }
+        try {
+            return BreachFilter.open(path);
+        } catch (java.io.IOException e) {
+            System.err.println("Breach filter disabled: " + e.getMessage());
+            return null;
         }
+    }
 
-        Random rand = new Random();
-        StringBuilder password = new StringBuilder();
-        for (int i = 0; i < length; i++) {
-            int idx = rand.nextInt(pool.length());
-            password.append(pool.charAt(idx));
+    // The pool is only rebuilt when the charset selection or the minimums change
+    private PasswordEngine engineFor(boolean upper, boolean lower, boolean numbers, boolean special,
+            int[] minimums) {
+        long key = charsetKey(upper, lower, numbers, special, minimums);
+        if (engine == null || engineKey != key) {
+            // The checkboxes and minimum spinners are the built-in policy
+            engine = new PasswordEngine(PasswordPolicy.builtIn(upper, lower, numbers, special, minimums)
+                    .compile(IndexSampler.DEFAULT_KIND), new SecureRandomSource());
+            engine.setBreachFilter(breachFilter);
+            engineKey = key;
         }
-        return password.toString();
+        return engine;
+    }
+
+    private static long charsetKey(boolean upper, boolean lower, boolean numbers, boolean special,
+            int[] minimums) {
+        long key = (upper ? 1 : 0) | (lower ? 2 : 0) | (numbers ? 4 : 0) | (special ? 8 : 0);
+        for (int i = 0; i < minimums.length; i++) {
+            key |= (long) minimums[i] << (8 + i * 8);
+        }
+        return key;
     }
 
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> new PasswordGenerator().setVisible(true));
+        if (args.length > 0) {
+            // Any argument selects the headless CLI, so servers never touch AWT
+            PasswordCli.main(args);
+            return;
+        }
+        if (Boolean.getBoolean("passgen.edtStats")) {
+            // Reports how long events blocked the EDT when the window closes
+            edtMonitor = EdtMonitor.install();
+        }
+        CompletableFuture<Resources> resources = loadResources();
+        SwingUtilities.invokeLater(() -> new PasswordGenerator(resources).setVisible(true));
     }
 }
@@ -0,0 +1,296 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PasswordLoadTest - load generator for a running {@link PasswordService}
+ * Usage:
+ * java PasswordLoadTest [--port N] [--connections C] [--seconds S] [--pipeline D]
+ *                       [--path "/passwords?count=100&length=16&upper&lower&numbers"]
+ *                       [--policy FILE]
+ * Each connection is one keep-alive socket that writes D requests back to
+ * back, then reads the D replies (HTTP/1.1 pipelining). Latency is measured
+ * per request from the moment its batch was written to the end of its reply,
+ * so queueing behind earlier pipelined requests is included. With --policy
+ * the file is POSTed as the request body. Every reply is checked for status
+ * 200 and the line count the path asks for; the first failure is printed.
+ */
+public class PasswordLoadTest {
+
+    private static final class Stats {
+        long[] latencies = new long[1 << 16];
+        int n;
+        long requests, passwords, bytes, failures;
+
+        void add(long nanos) {
+            if (n == latencies.length) {
+                latencies = Arrays.copyOf(latencies, n * 2);
+            }
+            latencies[n++] = nanos;
+        }
+    }
+
+    int port = PasswordService.DEFAULT_PORT;
+    int connections = 8;
+    double seconds = 10;
+    double warmupSeconds = 2;
+    int pipeline = 1;
+    String path = "/passwords?count=100&length=16&upper&lower&numbers";
+    byte[] policy;
+    private final AtomicLong firstFailure = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        PasswordLoadTest test = new PasswordLoadTest();
+        try {
+            test.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java PasswordLoadTest [--port N] [--connections C] [--seconds S]"
+                    + " [--warmup S] [--pipeline D] [--path PATH] [--policy FILE]");
+            System.exit(2);
+        }
+        System.exit(test.run() ? 0 : 1);
+    }
+
+    void parse(String[] args) throws IOException {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "--connections":
+                    connections = Integer.parseInt(value);
+                    break;
+                case "--seconds":
+                    seconds = Double.parseDouble(value);
+                    break;
+                case "--warmup":
+                    warmupSeconds = Double.parseDouble(value);
+                    break;
+                case "--pipeline":
+                    pipeline = Integer.parseInt(value);
+                    break;
+                case "--path":
+                    path = value;
+                    break;
+                case "--policy":
+                    policy = Files.readAllBytes(Paths.get(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (connections < 1 || pipeline < 1 || seconds <= 0) {
+            throw new IllegalArgumentException("--connections and --pipeline must be >= 1, --seconds > 0");
+        }
+    }
+
+    boolean run() throws InterruptedException {
+        byte[] request = request();
+        int expectedLines = expectedLines();
+        Stats[] stats = new Stats[connections];
+        CountDownLatch done = new CountDownLatch(connections);
+        long warmupEnd = System.nanoTime() + (long) (warmupSeconds * 1e9);
+        long end = warmupEnd + (long) (seconds * 1e9);
+        for (int c = 0; c < connections; c++) {
+            Stats s = stats[c] = new Stats();
+            Thread t = new Thread(() -> {
+                try {
+                    drive(request, expectedLines, warmupEnd, end, s);
+                } catch (IOException e) {
+                    s.failures++;
+                    fail("connection failed: " + e);
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + c);
+            t.setDaemon(true);
+            t.start();
+        }
+        done.await();
+
+        Stats all = new Stats();
+        for (Stats s : stats) {
+            for (int i = 0; i < s.n; i++) {
+                all.add(s.latencies[i]);
+            }
+            all.requests += s.requests;
+            all.passwords += s.passwords;
+            all.bytes += s.bytes;
+            all.failures += s.failures;
+        }
+        Arrays.sort(all.latencies, 0, all.n);
+        System.out.printf("%d connection(s), pipeline depth %d, %.0f s: %s%n", connections, pipeline, seconds,
+                policy != null ? "POST " + path : "GET " + path);
+        System.out.printf("  %,.0f requests/s, %,.0f passwords/s, %.1f MB/s%n", all.requests / seconds,
+                all.passwords / seconds, all.bytes / seconds / 1e6);
+        System.out.printf("  latency p50 %.3f ms, p99 %.3f ms, max %.3f ms over %,d requests%n",
+                percentile(all, 0.50), percentile(all, 0.99), all.n == 0 ? 0.0 : all.latencies[all.n - 1] / 1e6,
+                all.n);
+        System.out.printf("  %,d failure(s)%n", all.failures);
+        return all.failures == 0 && all.n > 0;
+    }
+
+    private void drive(byte[] request, int expectedLines, long warmupEnd, long end, Stats s) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            OutputStream out = socket.getOutputStream();
+            InputStream in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+            byte[] batch = new byte[request.length * pipeline];
+            for (int i = 0; i < pipeline; i++) {
+                System.arraycopy(request, 0, batch, i * request.length, request.length);
+            }
+            byte[] line = new byte[8192];
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                out.write(batch);
+                out.flush();
+                for (int i = 0; i < pipeline; i++) {
+                    long lines = readResponse(in, line, s);
+                    long finished = System.nanoTime();
+                    if (lines < 0 || (expectedLines >= 0 && lines != expectedLines)) {
+                        s.failures++;
+                        if (lines >= 0) {
+                            fail("expected " + expectedLines + " lines, got " + lines);
+                        }
+                    }
+                    if (now >= warmupEnd) {
+                        s.add(finished - now);
+                        s.requests++;
+                        s.passwords += Math.max(lines, 0);
+                    }
+                }
+            }
+        }
+    }
+
+    private byte[] request() {
+        String head = (policy != null ? "POST " : "GET ") + path + " HTTP/1.1\r\nHost: 127.0.0.1:" + port + "\r\n"
+                + (policy != null ? "Content-Type: text/plain\r\nContent-Length: " + policy.length + "\r\n" : "")
+                + "\r\n";
+        byte[] headBytes = head.getBytes(StandardCharsets.US_ASCII);
+        if (policy == null) {
+            return headBytes;
+        }
+        byte[] request = Arrays.copyOf(headBytes, headBytes.length + policy.length);
+        System.arraycopy(policy, 0, request, headBytes.length, policy.length);
+        return request;
+    }
+
+    /** The count= in the path, or -1 if the path does not say. */
+    private int expectedLines() {
+        int q = path.indexOf('?');
+        if (q < 0) {
+            return path.startsWith("/passwords") || path.startsWith("/passphrases") ? 1 : -1;
+        }
+        for (String pair : path.substring(q + 1).split("&")) {
+            if (pair.startsWith("count=")) {
+                return Integer.parseInt(pair.substring(6));
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Reads one reply, counting the newlines in its body. Returns the count,
+     * or -1 for a non-200 status (the body is still consumed).
+     */
+    private long readResponse(InputStream in, byte[] line, Stats s) throws IOException {
+        String status = readLine(in, line);
+        boolean ok = status.startsWith("HTTP/1.1 200");
+        long contentLength = -1;
+        boolean chunked = false;
+        String header;
+        while (!(header = readLine(in, line)).isEmpty()) {
+            int colon = header.indexOf(':');
+            String name = header.substring(0, colon).trim();
+            String value = header.substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Content-Length")) {
+                contentLength = Long.parseLong(value);
+            } else if (name.equalsIgnoreCase("Transfer-Encoding") && value.equalsIgnoreCase("chunked")) {
+                chunked = true;
+            }
+        }
+        long lines = 0;
+        if (chunked) {
+            long size;
+            while ((size = Long.parseLong(readLine(in, line).split(";")[0].trim(), 16)) > 0) {
+                lines += skip(in, size, line, s);
+                readLine(in, line);
+            }
+            readLine(in, line);
+        } else if (contentLength > 0) {
+            lines = skip(in, contentLength, line, s);
+        }
+        if (!ok) {
+            fail(status);
+            return -1;
+        }
+        return lines;
+    }
+
+    /** Consumes n body bytes and returns how many of them were newlines. */
+    private static long skip(InputStream in, long n, byte[] buf, Stats s) throws IOException {
+        long lines = 0;
+        while (n > 0) {
+            int read = in.read(buf, 0, (int) Math.min(buf.length, n));
+            if (read < 0) {
+                throw new IOException("Connection closed mid-reply");
+            }
+            for (int i = 0; i < read; i++) {
+                if (buf[i] == '\n') {
+                    lines++;
+                }
+            }
+            n -= read;
+            s.bytes += read;
+        }
+        // The passwords themselves are of no use here
+        Arrays.fill(buf, (byte) 0);
+        return lines;
+    }
+
+    private static String readLine(InputStream in, byte[] buf) throws IOException {
+        int n = 0;
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("Connection closed mid-reply");
+            }
+            if (b != '\r' && n < buf.length) {
+                buf[n++] = (byte) b;
+            }
+        }
+        return new String(buf, 0, n, StandardCharsets.ISO_8859_1);
+    }
+
+    private static double percentile(Stats s, double p) {
+        if (s.n == 0) {
+            return 0;
+        }
+        int i = (int) Math.ceil(p * s.n) - 1;
+        return s.latencies[Math.max(0, Math.min(i, s.n - 1))] / 1e6;
+    }
+
+    private void fail(String message) {
+        if (firstFailure.getAndIncrement() == 0) {
+            System.err.println("First failure: " + message);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PasswordPolicy - declarative password rules, compiled into a sampling plan
+ * A policy file has one rule per line; '#' starts a comment:
+ * <pre>
+ * length      16
+ * allow       upper lower digits special
+ * exclude     lookalike "{}"
+ * min upper   2
+ * min digits  2
+ * max-repeat  1
+ * position 0  upper
+ * position -1 digits
+ * </pre>
+ * Sets are upper, lower, digits, special, lookalike or a quoted ASCII literal.
+ * Without an allow rule every named class is allowed. min applies to the
+ * four named classes. max-repeat N allows at most N identical characters in
+ * a row. position pins a set to an index; negative indexes count from the
+ * end. Pinned sets are intersected with the allowed characters.
+ * {@link #compile(IndexSampler.Kind)} turns the rules into a
+ * {@link CompiledPolicy}, so the generator never re-checks them per character.
+ * The GUI checkboxes are the built-in policy {@link #builtIn}.
+ */
+public final class PasswordPolicy {
+
+    public static final String LOOKALIKE = "Il1|O0o";
+    static final String[] CLASS_NAMES = { "upper", "lower", "digits", "special" };
+    static final String[] CLASS_CHARS = { PasswordEngine.UPPERCASE, PasswordEngine.LOWERCASE,
+            PasswordEngine.NUMBERS, PasswordEngine.SPECIAL };
+
+    private final int length;
+    private final char[] allowed;
+    private final int[] minimums;
+    private final int maxRepeat;
+    private final int[] positions;
+    private final char[][] positionSets;
+
+    private PasswordPolicy(int length, char[] allowed, int[] minimums, int maxRepeat, int[] positions,
+            char[][] positionSets) {
+        this.length = length;
+        this.allowed = allowed;
+        this.minimums = minimums;
+        this.maxRepeat = maxRepeat;
+        this.positions = positions;
+        this.positionSets = positionSets;
+    }
+
+    /** The policy behind the four GUI checkboxes and their minimum spinners. */
+    public static PasswordPolicy builtIn(boolean upper, boolean lower, boolean numbers, boolean special,
+            int[] minimums) {
+        boolean[] enabled = { upper, lower, numbers, special };
+        for (int c = 0; c < 4; c++) {
+            if (minimums[c] < 0 || (minimums[c] > 0 && !enabled[c])) {
+                throw new IllegalArgumentException("Minimum for a disabled or negative class: " + CLASS_NAMES[c]);
+            }
+        }
+        return new PasswordPolicy(0, PasswordEngine.buildPool(upper, lower, numbers, special), minimums.clone(),
+                0, new int[0], new char[0][]);
+    }
+
+    /** Policy allowing exactly the given characters, with no other rules. */
+    public static PasswordPolicy ofAlphabet(char[] alphabet) {
+        return new PasswordPolicy(0, alphabet.clone(), new int[4], 0, new int[0], new char[0][]);
+    }
+
+    public static PasswordPolicy load(Path file) throws IOException {
+        return parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    public static PasswordPolicy parse(String text) {
+        int length = 0;
+        StringBuilder allow = null;
+        StringBuilder exclude = new StringBuilder();
+        int[] minimums = new int[4];
+        int maxRepeat = 0;
+        Map<Integer, String> pinned = new LinkedHashMap<>();
+
+        String[] lines = text.split("\r?\n");
+        for (int n = 0; n < lines.length; n++) {
+            List<String> tokens = tokenize(lines[n], n + 1);
+            if (tokens.isEmpty()) {
+                continue;
+            }
+            String key = tokens.get(0);
+            try {
+                switch (key) {
+                    case "length":
+                        length = positive(single(tokens), "length");
+                        break;
+                    case "allow":
+                        allow = allow == null ? new StringBuilder() : allow;
+                        for (String set : tokens.subList(1, tokens.size())) {
+                            allow.append(set(set));
+                        }
+                        break;
+                    case "exclude":
+                        for (String set : tokens.subList(1, tokens.size())) {
+                            exclude.append(set(set));
+                        }
+                        break;
+                    case "min":
+                        if (tokens.size() != 3) {
+                            throw new IllegalArgumentException("expected: min <class> <count>");
+                        }
+                        int c = Arrays.asList(CLASS_NAMES).indexOf(canonical(tokens.get(1)));
+                        if (c < 0) {
+                            throw new IllegalArgumentException("min needs upper, lower, digits or special");
+                        }
+                        minimums[c] = Integer.parseInt(tokens.get(2));
+                        if (minimums[c] < 0) {
+                            throw new IllegalArgumentException("negative minimum");
+                        }
+                        break;
+                    case "max-repeat":
+                        maxRepeat = positive(single(tokens), "max-repeat");
+                        break;
+                    case "position":
+                        if (tokens.size() < 3) {
+                            throw new IllegalArgumentException("expected: position <index> <set>...");
+                        }
+                        int index = Integer.parseInt(tokens.get(1));
+                        StringBuilder set = new StringBuilder();
+                        for (String s : tokens.subList(2, tokens.size())) {
+                            set.append(set(s));
+                        }
+                        if (pinned.put(index, set.toString()) != null) {
+                            throw new IllegalArgumentException("position " + index + " given twice");
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown rule '" + key + "'");
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("policy line " + (n + 1) + ": not a number: " + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("policy line " + (n + 1) + ": " + e.getMessage());
+            }
+        }
+
+        String excluded = exclude.toString();
+        char[] allowed = without(distinct(allow == null ? String.join("", CLASS_CHARS) : allow.toString()), excluded);
+        int[] positions = new int[pinned.size()];
+        char[][] positionSets = new char[pinned.size()][];
+        int k = 0;
+        for (Map.Entry<Integer, String> e : pinned.entrySet()) {
+            positions[k] = e.getKey();
+            positionSets[k] = intersect(distinct(e.getValue()), allowed);
+            k++;
+        }
+        return new PasswordPolicy(length, allowed, minimums, maxRepeat, positions, positionSets);
+    }
+
+    /** Default length from the policy file, or 0 if it does not set one. */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Naive check of one password against every rule. Only the benchmarks
+     * and the generate-and-validate baseline use it; compiled policies do
+     * not need it.
+     */
+    public boolean validate(char[] pw, int off, int len) {
+        int[] counts = new int[4];
+        int run = 0;
+        for (int i = 0; i < len; i++) {
+            char c = pw[off + i];
+            if (indexOf(allowed, c) < 0) {
+                return false;
+            }
+            for (int k = 0; k < 4; k++) {
+                if (CLASS_CHARS[k].indexOf(c) >= 0) {
+                    counts[k]++;
+                }
+            }
+            run = i > 0 && pw[off + i - 1] == c ? run + 1 : 1;
+            if (maxRepeat > 0 && run > maxRepeat) {
+                return false;
+            }
+        }
+        for (int k = 0; k < 4; k++) {
+            if (counts[k] < minimums[k]) {
+                return false;
+            }
+        }
+        for (int p = 0; p < positions.length; p++) {
+            int at = positions[p] >= 0 ? positions[p] : len + positions[p];
+            if (at < 0 || at >= len || indexOf(positionSets[p], pw[off + at]) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Characters any rule-conforming password draws from. */
+    public char[] allowed() {
+        return allowed.clone();
+    }
+
+    /**
+     * Builds the sampling plan: one alphabet and sampler per required class
+     * slot, per pinned position and for the free fill, with the exclusions
+     * already applied. Rejects rules that can never be met.
+     */
+    public CompiledPolicy compile(IndexSampler.Kind samplerKind) {
+        if (allowed.length == 0) {
+            throw new IllegalArgumentException("The policy allows no characters");
+        }
+        // A pinned set that lies inside one class counts towards that class's minimum
+        int[] remaining = minimums.clone();
+        for (char[] set : positionSets) {
+            if (set.length == 0) {
+                throw new IllegalArgumentException("A pinned position allows no characters");
+            }
+            int c = classOf(set);
+            if (c >= 0 && remaining[c] > 0) {
+                remaining[c]--;
+            }
+        }
+        List<char[]> slotAlphabets = new ArrayList<>();
+        List<Integer> slotCounts = new ArrayList<>();
+        for (int c = 0; c < 4; c++) {
+            if (remaining[c] > 0) {
+                char[] alphabet = intersect(CLASS_CHARS[c].toCharArray(), allowed);
+                if (alphabet.length == 0) {
+                    throw new IllegalArgumentException("min " + CLASS_NAMES[c] + " needs characters the policy excludes");
+                }
+                slotAlphabets.add(alphabet);
+                slotCounts.add(remaining[c]);
+            }
+        }
+        if (maxRepeat > 0) {
+            // Repairing a run swaps a character for another from the same alphabet, avoiding both neighbours
+            List<char[]> all = new ArrayList<>(slotAlphabets);
+            all.add(allowed);
+            all.addAll(Arrays.asList(positionSets));
+            for (char[] alphabet : all) {
+                if (alphabet.length < 3) {
+                    throw new IllegalArgumentException("max-repeat needs at least 3 characters in every set, got \""
+                            + new String(alphabet) + "\"");
+                }
+            }
+        }
+        int[] counts = new int[slotCounts.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = slotCounts.get(i);
+        }
+        return new CompiledPolicy(samplerKind, allowed, slotAlphabets.toArray(new char[0][]), counts,
+                positions.clone(), positionSets, maxRepeat);
+    }
+
+    // Index of the named class that contains every char of set, or -1
+    private static int classOf(char[] set) {
+        for (int c = 0; c < 4; c++) {
+            boolean all = true;
+            for (char ch : set) {
+                all &= CLASS_CHARS[c].indexOf(ch) >= 0;
+            }
+            if (all) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private static List<String> tokenize(String line, int lineNo) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (c == '#') {
+                break;
+            }
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                int end = line.indexOf('"', i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("policy line " + lineNo + ": unterminated quote");
+                }
+                // Keep the quotes so set() can tell a literal from a set name
+                tokens.add(line.substring(i, end + 1));
+                i = end + 1;
+            } else {
+                int start = i;
+                while (i < line.length() && !Character.isWhitespace(line.charAt(i)) && line.charAt(i) != '#') {
+                    i++;
+                }
+                tokens.add(line.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+
+    private static String set(String token) {
+        if (token.length() >= 2 && token.startsWith("\"") && token.endsWith("\"")) {
+            String literal = token.substring(1, token.length() - 1);
+            // The CLI and the service write passwords as ASCII bytes
+            for (int i = 0; i < literal.length(); i++) {
+                if (literal.charAt(i) > 0x7F) {
+                    throw new IllegalArgumentException("set " + token + " has non-ASCII characters");
+                }
+            }
+            return literal;
+        }
+        String name = canonical(token);
+        int c = Arrays.asList(CLASS_NAMES).indexOf(name);
+        if (c >= 0) {
+            return CLASS_CHARS[c];
+        }
+        if (name.equals("lookalike")) {
+            return LOOKALIKE;
+        }
+        throw new IllegalArgumentException("unknown set '" + token + "'");
+    }
+
+    private static String canonical(String name) {
+        return name.equals("numbers") ? "digits" : name;
+    }
+
+    private static String single(List<String> tokens) {
+        if (tokens.size() != 2) {
+            throw new IllegalArgumentException("expected: " + tokens.get(0) + " <value>");
+        }
+        return tokens.get(1);
+    }
+
+    private static int positive(String value, String what) {
+        int v = Integer.parseInt(value);
+        if (v < 1) {
+            throw new IllegalArgumentException(what + " must be positive");
+        }
+        return v;
+    }
+
+    private static char[] distinct(String chars) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < chars.length(); i++) {
+            if (sb.indexOf(String.valueOf(chars.charAt(i))) < 0) {
+                sb.append(chars.charAt(i));
+            }
+        }
+        return sb.toString().toCharArray();
+    }
+
+    private static char[] without(char[] chars, String excluded) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : chars) {
+            if (excluded.indexOf(c) < 0) {
+                sb.append(c);
+            }
+        }
+        return sb.toString().toCharArray();
+    }
+
+    private static char[] intersect(char[] chars, char[] allowed) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : chars) {
+            if (indexOf(allowed, c) >= 0) {
+                sb.append(c);
+            }
+        }
+        return sb.toString().toCharArray();
+    }
+
+    private static int indexOf(char[] chars, char c) {
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
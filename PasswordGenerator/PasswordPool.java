@@ -0,0 +1,231 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * PasswordPool - bounded pool of ready-made passwords for one configuration
+ * A background thread keeps the pool filled, so a take is a copy out of a
+ * preallocated slab instead of a generation, however expensive the policy
+ * (passphrases, breach checks). The slab is a ring of fixed-size char slots
+ * with a sequence number per slot (a bounded MPMC queue in the style of
+ * Vyukov): takers claim a slot with one CAS and never block, and the single
+ * refill thread is woken only when the pool drops to its low-water mark.
+ * A slot is wiped as soon as it has been copied out, and once a pool is
+ * closed everything still pooled is wiped as soon as the refill thread has
+ * stopped writing, so an evicted pool leaves no passwords behind. A pool
+ * never changes its configuration; build a new one instead.
+ */
+public final class PasswordPool implements AutoCloseable {
+
+    /** Writes one password at out[off] and returns its length. Only the refill thread calls it. */
+    public interface Source {
+        int generate(char[] out, int off);
+    }
+
+    private final Source source;
+    private final int capacity;
+    private final int mask;
+    private final int slotSize;
+    private final int lowWater;
+    private final char[] slab;
+    private final int[] lengths;
+    // Slot s is free for the producer at position p when sequence == p, full when sequence == p + 1
+    private final AtomicLongArray sequence;
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail;
+    private final AtomicBoolean refilling = new AtomicBoolean(true);
+    private final Thread refiller;
+    private volatile boolean closed;
+    // Set by the refill thread after its last write into the slab
+    private volatile boolean stopped;
+    private volatile RuntimeException failure;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong refills = new AtomicLong();
+    private final AtomicLong refillNanos = new AtomicLong();
+    private final AtomicLong maxRefillNanos = new AtomicLong();
+    private volatile long signalledAt = System.nanoTime();
+
+    /**
+     * capacity is rounded up to a power of two; slotSize must cover the
+     * longest password the source can write. The refill thread starts
+     * filling immediately.
+     */
+    public PasswordPool(Source source, int capacity, int slotSize, int lowWater) {
+        if (capacity < 1 || slotSize < 1 || lowWater < 0 || lowWater >= capacity) {
+            throw new IllegalArgumentException("Need capacity >= 1, slotSize >= 1 and 0 <= lowWater < capacity");
+        }
+        this.source = source;
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.slotSize = slotSize;
+        this.lowWater = lowWater;
+        this.slab = new char[this.capacity * slotSize];
+        this.lengths = new int[this.capacity];
+        this.sequence = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequence.set(i, i);
+        }
+        this.refiller = new Thread(this::refillLoop, "password-pool-refill");
+        refiller.setDaemon(true);
+        refiller.setPriority(Thread.MIN_PRIORITY);
+        refiller.start();
+    }
+
+    /** Pool of fixed-length passwords drawn from its own copy of template, with a fresh CSPRNG. */
+    public static PasswordPool forEngine(PasswordEngine template, int length, int capacity, int lowWater) {
+        PasswordEngine engine = template.withSource(new SecureRandomSource());
+        return new PasswordPool((out, off) -> {
+            engine.generate(out, off, length);
+            return length;
+        }, capacity, length, lowWater);
+    }
+
+    /** Pool of passphrases; the generator must not be used by anyone else afterwards. */
+    public static PasswordPool forPassphrases(PassphraseGenerator generator, int capacity, int lowWater) {
+        return new PasswordPool(generator::generate, capacity, generator.maxLength(), lowWater);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /** Longest password a take can return. */
+    public int slotSize() {
+        return slotSize;
+    }
+
+    /** Passwords ready right now (a snapshot). */
+    public int size() {
+        return (int) Math.max(0, tail - head.get());
+    }
+
+    /**
+     * Copies a ready password into out[off] and returns its length, or -1
+     * when the pool is empty (or closed) and the caller should generate one
+     * itself. Never blocks. Throws whatever stopped the refill thread, for
+     * example the breach filter giving up on this configuration.
+     */
+    public int take(char[] out, int off) {
+        if (closed) {
+            return -1;
+        }
+        while (true) {
+            long pos = head.get();
+            int slot = (int) (pos & mask);
+            long seq = sequence.get(slot);
+            long diff = seq - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    int base = slot * slotSize;
+                    int len = lengths[slot];
+                    System.arraycopy(slab, base, out, off, len);
+                    Arrays.fill(slab, base, base + len, '\0');
+                    sequence.set(slot, pos + capacity);
+                    hits.increment();
+                    signalIfLow();
+                    return len;
+                }
+            } else if (diff < 0) {
+                misses.increment();
+                signalIfLow();
+                if (failure != null) {
+                    throw failure;
+                }
+                return -1;
+            }
+            // Another taker claimed this slot first; retry with the new head
+        }
+    }
+
+    private void signalIfLow() {
+        if (tail - head.get() <= lowWater && refilling.compareAndSet(false, true)) {
+            signalledAt = System.nanoTime();
+            LockSupport.unpark(refiller);
+        }
+    }
+
+    private void refillLoop() {
+        try {
+            while (!closed) {
+                long started = signalledAt;
+                int made = 0;
+                while (!closed && tail - head.get() < capacity) {
+                    long pos = tail;
+                    int slot = (int) (pos & mask);
+                    if (sequence.get(slot) != pos) {
+                        // A taker has claimed this slot but is still copying out of it
+                        Thread.yield();
+                        continue;
+                    }
+                    int len = source.generate(slab, slot * slotSize);
+                    lengths[slot] = len;
+                    sequence.set(slot, pos + 1);
+                    tail = pos + 1;
+                    made++;
+                }
+                if (made > 0) {
+                    long nanos = System.nanoTime() - started;
+                    generated.addAndGet(made);
+                    refills.incrementAndGet();
+                    refillNanos.addAndGet(nanos);
+                    maxRefillNanos.accumulateAndGet(nanos, Math::max);
+                }
+                refilling.set(false);
+                // A take may have seen refilling == true just before it was cleared
+                if (tail - head.get() <= lowWater && refilling.compareAndSet(false, true)) {
+                    signalledAt = System.nanoTime();
+                    continue;
+                }
+                LockSupport.park(this);
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+        } finally {
+            stopped = true;
+            if (closed) {
+                wipe();
+            }
+        }
+    }
+
+    /**
+     * Stops the refill thread and wipes every pooled password. Does not wait:
+     * if a refill is still generating, the refill thread wipes the slab when
+     * it exits. Must not race with take.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(refiller);
+        // Whichever of this and the refill thread's exit sees the other's flag wipes; perhaps both do
+        if (stopped) {
+            wipe();
+        }
+    }
+
+    private void wipe() {
+        Arrays.fill(slab, '\0');
+        Arrays.fill(lengths, 0);
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public String stats() {
+        long h = hits.sum(), m = misses.sum(), r = refills.get();
+        return String.format("pool: %,d hits, %,d misses (%.1f%% hit rate), %,d generated in %,d refills,"
+                + " %.2f ms avg / %.2f ms max refill latency", h, m, h + m == 0 ? 0.0 : h * 100.0 / (h + m),
+                generated.get(), r, r == 0 ? 0.0 : refillNanos.get() / 1e6 / r, maxRefillNanos.get() / 1e6);
+    }
+}
@@ -0,0 +1,403 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PasswordService - long-running local password service over loopback HTTP
+ * Saves other programs a JVM start per password. Endpoints (HTTP/1.1,
+ * keep-alive and pipelining work as usual):
+ * GET  /passwords?count=N&length=L&upper&lower&numbers&special&min-upper=N...
+ *      the same options as the CLI flags
+ * POST /passwords?count=N[&length=L]  with a {@link PasswordPolicy} as the body
+ * GET  /passphrases?count=N&words=W&separator=C  (when started with a word list)
+ * GET  /stats
+ * Passwords come back as text/plain, one per line. Each reply is generated
+ * chunk by chunk into one byte buffer and written straight to the socket;
+ * nothing is ever held as a String, and the buffer is zeroed afterwards.
+ * Compiled policies are cached, and each one keeps a stack of idle engines so
+ * a request only borrows a ready engine and CSPRNG. Requests run on virtual
+ * threads when the runtime has them (Java 21+), otherwise on a cached pool.
+ * Binds to the loopback address only.
+ */
+public final class PasswordService implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 8765;
+    private static final int MAX_COUNT = 100_000;
+    private static final int MAX_LENGTH = 1024;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int MAX_CACHED_PLANS = 256;
+    private static final int CHUNK_BYTES = 16 * 1024;
+
+    /** A compiled policy and the engines that are not serving a request right now. */
+    private static final class Plan {
+        final PasswordEngine template;
+        final int defaultLength;
+        final Queue<PasswordEngine> idle = new ConcurrentLinkedQueue<>();
+
+        Plan(PasswordEngine template, int defaultLength) {
+            this.template = template;
+            this.defaultLength = defaultLength;
+        }
+
+        PasswordEngine borrow() {
+            PasswordEngine engine = idle.poll();
+            return engine != null ? engine : template.withSource(new SecureRandomSource());
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String executorName;
+    private final IndexSampler.Kind samplerKind;
+    private final BreachFilter breachFilter;
+    private final WordList wordList;
+    private final Map<String, Plan> plans = new ConcurrentHashMap<>();
+    private final Map<String, Queue<PassphraseGenerator>> passphraseGenerators = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * Binds to the loopback address; port 0 picks a free one. breachFilter
+     * and wordList may be null. Call {@link #start()} to begin serving.
+     */
+    public PasswordService(int port, IndexSampler.Kind samplerKind, BreachFilter breachFilter, WordList wordList)
+            throws IOException {
+        this.samplerKind = samplerKind;
+        this.breachFilter = breachFilter;
+        this.wordList = wordList;
+        // Headers and body go out as separate writes; with Nagle on, every reply waits for a delayed ACK (~40 ms)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 128);
+        ExecutorService virtual = virtualThreadExecutor();
+        if (virtual != null) {
+            this.executor = virtual;
+            this.executorName = "virtual threads";
+        } else {
+            this.executor = Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "password-service");
+                t.setDaemon(true);
+                return t;
+            });
+            this.executorName = "cached thread pool";
+        }
+        server.setExecutor(executor);
+        server.createContext("/passwords", exchange -> handle(exchange, this::passwords));
+        server.createContext("/passphrases", exchange -> handle(exchange, this::passphrases));
+        server.createContext("/stats", exchange -> handle(exchange, this::stats));
+    }
+
+    /** Executors.newVirtualThreadPerTaskExecutor() when the runtime has it; still compiles for Java 8. */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public String executorName() {
+        return executorName;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange, Map<String, String> query) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        requests.increment();
+        active.incrementAndGet();
+        try {
+            String path = exchange.getRequestURI().getPath();
+            if (!path.equals(exchange.getHttpContext().getPath())) {
+                sendError(exchange, 404, "No such endpoint: " + path);
+                return;
+            }
+            handler.handle(exchange, parseQuery(exchange.getRequestURI().getRawQuery()));
+        } catch (IllegalArgumentException e) {
+            sendErrorIfPossible(exchange, 400, e);
+        } catch (IllegalStateException e) {
+            // The breach filter gave up on this configuration
+            sendErrorIfPossible(exchange, 409, e);
+        } finally {
+            active.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private void passwords(HttpExchange exchange, Map<String, String> query) throws IOException {
+        Plan plan;
+        switch (exchange.getRequestMethod()) {
+            case "GET":
+                plan = builtInPlan(query);
+                break;
+            case "POST":
+                plan = policyPlan(readBody(exchange));
+                break;
+            default:
+                sendError(exchange, 405, "Use GET or POST");
+                return;
+        }
+        int count = intParam(query, "count", 1, 0, MAX_COUNT);
+        int length = intParam(query, "length", plan.defaultLength, 1, MAX_LENGTH);
+        int stride = length + 1;
+        int perChunk = Math.max(1, Math.min(count, CHUNK_BYTES / stride));
+        byte[] buffer = new byte[perChunk * stride];
+        for (int i = stride - 1; i < buffer.length; i += stride) {
+            buffer[i] = '\n';
+        }
+        PasswordEngine engine = plan.borrow();
+        try {
+            // The first chunk is generated before the headers go out, so a policy that
+            // cannot produce this length still gets a proper 400
+            int remaining = count;
+            int n = Math.min(perChunk, remaining);
+            if (n > 0) {
+                engine.generateBatch(buffer, 0, n, length, stride);
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=US-ASCII");
+            exchange.sendResponseHeaders(200, count == 0 ? -1 : (long) count * stride);
+            OutputStream out = exchange.getResponseBody();
+            while (n > 0) {
+                out.write(buffer, 0, n * stride);
+                remaining -= n;
+                n = Math.min(perChunk, remaining);
+                if (n > 0) {
+                    engine.generateBatch(buffer, 0, n, length, stride);
+                }
+            }
+            out.close();
+            generated.add(count);
+            bytesOut.add((long) count * stride);
+        } finally {
+            Arrays.fill(buffer, (byte) 0);
+            plan.idle.offer(engine);
+        }
+    }
+
+    private void passphrases(HttpExchange exchange, Map<String, String> query) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            sendError(exchange, 405, "Use GET");
+            return;
+        }
+        if (wordList == null) {
+            sendError(exchange, 404, "No word list loaded; start the service with --wordlist INDEX");
+            return;
+        }
+        int count = intParam(query, "count", 1, 0, MAX_COUNT);
+        int words = intParam(query, "words", 6, 1, 64);
+        String sep = query.getOrDefault("separator", "-");
+        if (sep.length() != 1 || sep.charAt(0) > 0x7F) {
+            throw new IllegalArgumentException("separator must be a single ASCII character");
+        }
+        char separator = sep.charAt(0);
+        Queue<PassphraseGenerator> idle = passphraseGenerators.computeIfAbsent(words + "/" + separator,
+                k -> new ConcurrentLinkedQueue<>());
+        PassphraseGenerator generator = idle.poll();
+        if (generator == null) {
+            generator = new PassphraseGenerator(wordList, words, separator);
+            generator.setBreachFilter(breachFilter);
+        }
+        int line = generator.maxLength() + 1;
+        int perChunk = Math.max(1, Math.min(count, CHUNK_BYTES / line));
+        byte[] buffer = new byte[perChunk * line];
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+            // Passphrase lengths vary, so the reply is chunked
+            exchange.sendResponseHeaders(200, count == 0 ? -1 : 0);
+            OutputStream out = exchange.getResponseBody();
+            for (int remaining = count; remaining > 0;) {
+                int n = Math.min(perChunk, remaining);
+                int end = generator.generateLines(buffer, 0, n);
+                out.write(buffer, 0, end);
+                bytesOut.add(end);
+                remaining -= n;
+            }
+            out.close();
+            generated.add(count);
+        } finally {
+            Arrays.fill(buffer, (byte) 0);
+            idle.offer(generator);
+        }
+    }
+
+    private void stats(HttpExchange exchange, Map<String, String> query) throws IOException {
+        byte[] body = stats().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    public String stats() {
+        return String.format("service: %,d requests (%,d rejected, %d active), %,d passwords, %.1f MB sent,"
+                + " %d cached policies, %s%n", requests.sum(), rejected.sum(), active.get(), generated.sum(),
+                bytesOut.sum() / 1e6, plans.size(), executorName);
+    }
+
+    private Plan builtInPlan(Map<String, String> query) {
+        boolean upper = query.containsKey("upper"), lower = query.containsKey("lower");
+        boolean numbers = query.containsKey("numbers"), special = query.containsKey("special");
+        int[] minimums = new int[4];
+        String[] names = { "min-upper", "min-lower", "min-numbers", "min-special" };
+        for (int i = 0; i < 4; i++) {
+            minimums[i] = intParam(query, names[i], 0, 0, MAX_LENGTH);
+        }
+        upper |= minimums[0] > 0;
+        lower |= minimums[1] > 0;
+        numbers |= minimums[2] > 0;
+        special |= minimums[3] > 0;
+        if (!upper && !lower && !numbers && !special) {
+            lower = true;
+        }
+        String key = "builtin:" + (upper ? "U" : "") + (lower ? "L" : "") + (numbers ? "N" : "")
+                + (special ? "S" : "") + Arrays.toString(minimums);
+        boolean u = upper, l = lower, n = numbers, s = special;
+        return cachedPlan(key, () -> new Plan(engine(PasswordPolicy.builtIn(u, l, n, s, minimums)), 12));
+    }
+
+    private Plan policyPlan(String text) {
+        return cachedPlan("policy:" + text, () -> {
+            PasswordPolicy policy = PasswordPolicy.parse(text);
+            return new Plan(engine(policy), policy.length() > 0 ? policy.length() : 12);
+        });
+    }
+
+    private interface PlanFactory {
+        Plan create();
+    }
+
+    private Plan cachedPlan(String key, PlanFactory factory) {
+        Plan plan = plans.get(key);
+        if (plan == null) {
+            // Compile outside the map so a bad policy never leaves an entry behind
+            plan = factory.create();
+            if (plans.size() >= MAX_CACHED_PLANS) {
+                plans.clear();
+            }
+            Plan raced = plans.putIfAbsent(key, plan);
+            if (raced != null) {
+                plan = raced;
+            }
+        }
+        return plan;
+    }
+
+    private PasswordEngine engine(PasswordPolicy policy) {
+        PasswordEngine engine = new PasswordEngine(policy.compile(samplerKind), new SecureRandomSource());
+        engine.setBreachFilter(breachFilter);
+        return engine;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        try (InputStream in = exchange.getRequestBody()) {
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                if (body.size() + n > MAX_BODY_BYTES) {
+                    throw new IllegalArgumentException("Policy is larger than " + MAX_BODY_BYTES + " bytes");
+                }
+                body.write(chunk, 0, n);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void sendErrorIfPossible(HttpExchange exchange, int status, RuntimeException e) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            // Already streaming a 200; closing early leaves the client a short body
+            rejected.increment();
+            return;
+        }
+        sendError(exchange, status, e.getMessage());
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        rejected.increment();
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String raw) {
+        Map<String, String> query = new HashMap<>();
+        if (raw == null || raw.isEmpty()) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = decode(eq < 0 ? pair : pair.substring(0, eq));
+            query.put(key, eq < 0 ? "" : decode(pair.substring(eq + 1)));
+        }
+        return query;
+    }
+
+    private static String decode(String s) {
+        try {
+            return URLDecoder.decode(s, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static int intParam(Map<String, String> query, String name, int fallback, int min, int max) {
+        String value = query.get(name);
+        if (value == null) {
+            return fallback;
+        }
+        int n;
+        try {
+            n = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " is not a number: " + value);
+        }
+        if (n < min || n > max) {
+            throw new IllegalArgumentException(name + " must be between " + min + " and " + max);
+        }
+        return n;
+    }
+}
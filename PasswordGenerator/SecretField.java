@@ -0,0 +1,103 @@
+import java.awt.*;
+import java.util.Arrays;
+import javax.swing.*;
+
+/**
+ * SecretField - read-only display for a password held in a char[]
+ * A JTextField keeps its text in a Document and hands out Strings, so every
+ * shown password would linger on the heap. This component copies the secret
+ * into one private buffer, paints it with Graphics.drawChars and zeroes the
+ * buffer when the secret is replaced or cleared. While masked it paints
+ * bullets and never reads the real characters.
+ */
+public class SecretField extends JComponent {
+
+    private static final char MASK = '\u2022';
+
+    private final int columns;
+    private char[] secret = new char[0];
+    private char[] bullets = new char[0];
+    private int length;
+    private boolean masked = true;
+
+    public SecretField(int columns) {
+        this.columns = columns;
+        setOpaque(true);
+    }
+
+    /** Copies src[off, off + len) into the field, wiping whatever it showed before. */
+    public void setSecret(char[] src, int off, int len) {
+        if (secret.length < len) {
+            Arrays.fill(secret, '\0');
+            secret = new char[len];
+            bullets = new char[len];
+            Arrays.fill(bullets, MASK);
+        }
+        System.arraycopy(src, off, secret, 0, len);
+        if (len < length) {
+            Arrays.fill(secret, len, length, '\0');
+        }
+        length = len;
+        repaint();
+    }
+
+    /** Copies the secret into dst[off]; returns its length. The caller wipes dst. */
+    public int copySecret(char[] dst, int off) {
+        System.arraycopy(secret, 0, dst, off, length);
+        return length;
+    }
+
+    public void clear() {
+        Arrays.fill(secret, 0, length, '\0');
+        length = 0;
+        repaint();
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    public boolean isMasked() {
+        return masked;
+    }
+
+    public void setMasked(boolean masked) {
+        this.masked = masked;
+        repaint();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        FontMetrics fm = getFontMetrics(getFont());
+        Insets insets = getInsets();
+        return new Dimension(columns * fm.charWidth('W') + insets.left + insets.right,
+                fm.getHeight() + insets.top + insets.bottom);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        if (length == 0) {
+            return;
+        }
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setFont(getFont());
+        g2.setColor(getForeground());
+        FontMetrics fm = g2.getFontMetrics();
+        Insets insets = getInsets();
+        int innerHeight = getHeight() - insets.top - insets.bottom;
+        int baseline = insets.top + (innerHeight - fm.getHeight()) / 2 + fm.getAscent();
+        g2.clipRect(insets.left, insets.top, getWidth() - insets.left - insets.right, innerHeight);
+        g2.drawChars(masked ? bullets : secret, 0, length, insets.left, baseline);
+        g2.dispose();
+    }
+}
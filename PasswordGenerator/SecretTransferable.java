@@ -0,0 +1,62 @@
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.ClipboardOwner;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * SecretTransferable - clipboard contents backed by a wipeable char[]
+ * StringSelection holds a String for as long as it sits on the clipboard.
+ * This keeps a private char copy instead and only builds a String when a
+ * paste asks for one, since the clipboard API cannot do without it (on
+ * platforms that render clipboard data eagerly that happens once, at copy
+ * time). The copy is zeroed as soon as another owner takes the clipboard
+ * or {@link #wipe()} is called; later pastes then fail instead of leaking.
+ */
+public final class SecretTransferable implements Transferable, ClipboardOwner {
+
+    private final char[] secret;
+    private boolean wiped;
+
+    public SecretTransferable(char[] src, int off, int len) {
+        this.secret = Arrays.copyOfRange(src, off, off + len);
+    }
+
+    @Override
+    public DataFlavor[] getTransferDataFlavors() {
+        return new DataFlavor[] { DataFlavor.stringFlavor };
+    }
+
+    @Override
+    public boolean isDataFlavorSupported(DataFlavor flavor) {
+        return DataFlavor.stringFlavor.equals(flavor);
+    }
+
+    @Override
+    public synchronized Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException, IOException {
+        if (!isDataFlavorSupported(flavor)) {
+            throw new UnsupportedFlavorException(flavor);
+        }
+        if (wiped) {
+            throw new IOException("The copied password has been cleared");
+        }
+        return new String(secret);
+    }
+
+    @Override
+    public void lostOwnership(Clipboard clipboard, Transferable contents) {
+        wipe();
+    }
+
+    public synchronized void wipe() {
+        Arrays.fill(secret, '\0');
+        wiped = true;
+    }
+
+    /** True once wiped, which also means the clipboard no longer holds this secret. */
+    public synchronized boolean isWiped() {
+        return wiped;
+    }
+}
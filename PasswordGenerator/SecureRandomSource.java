@@ -0,0 +1,52 @@
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * SecureRandomSource - bytes from the platform CSPRNG
+ * Prefers the NIST DRBG provider (Java 9+) and falls back to the default
+ * SecureRandom on older runtimes.
+ */
+public final class SecureRandomSource implements EntropySource {
+
+    private final SecureRandom random;
+    private final String name;
+    private byte[] scratch;
+
+    public SecureRandomSource() {
+        SecureRandom r;
+        try {
+            r = SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            r = new SecureRandom();
+        }
+        this.random = r;
+        this.name = "SecureRandom/" + r.getAlgorithm();
+    }
+
+    public SecureRandomSource(SecureRandom random) {
+        this.random = random;
+        this.name = "SecureRandom/" + random.getAlgorithm();
+    }
+
+    @Override
+    public void nextBytes(byte[] buf, int off, int len) {
+        if (off == 0 && len == buf.length) {
+            random.nextBytes(buf);
+            return;
+        }
+        // SecureRandom only fills whole arrays; partial requests go through a scratch block
+        if (scratch == null || scratch.length < len) {
+            scratch = new byte[len];
+        }
+        random.nextBytes(scratch);
+        System.arraycopy(scratch, 0, buf, off, len);
+        // The caller wipes buf once the bytes are used; wipe this copy too, all of it was filled
+        Arrays.fill(scratch, (byte) 0);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+}
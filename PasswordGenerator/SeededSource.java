@@ -0,0 +1,33 @@
+/**
+ * SeededSource - deterministic SplitMix64 byte stream
+ * Reproducible output for tests and benchmarks. Not suitable for real
+ * passwords.
+ */
+public final class SeededSource implements EntropySource {
+
+    private long state;
+
+    public SeededSource(long seed) {
+        this.state = seed;
+    }
+
+    @Override
+    public void nextBytes(byte[] buf, int off, int len) {
+        int end = off + len;
+        int i = off;
+        while (i < end) {
+            long z = (state += 0x9E3779B97F4A7C15L);
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            z ^= z >>> 31;
+            for (int b = 0; b < 8 && i < end; b++, z >>>= 8) {
+                buf[i++] = (byte) z;
+            }
+        }
+    }
+
+    @Override
+    public String name() {
+        return "Seeded/SplitMix64";
+    }
+}
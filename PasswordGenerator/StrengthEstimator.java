@@ -0,0 +1,270 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * StrengthEstimator - entropy-based password strength
+ * Estimates bits of entropy from the character classes actually present and
+ * the length, then discounts predictable parts found in one left-to-right
+ * pass: repeats and sequences (aaa, abc, 987), keyboard walks (qwer, asdf)
+ * and dictionary words (with common leet substitutions). All lookups use
+ * tables built once at class load; nothing is allocated per password.
+ * Instances hold a small scratch buffer and are not thread-safe.
+ */
+public final class StrengthEstimator {
+
+    public static final int PATTERN_REPEAT = 1;
+    public static final int PATTERN_SEQUENCE = 2;
+    public static final int PATTERN_KEYBOARD = 4;
+    public static final int PATTERN_DICTIONARY = 8;
+
+    public static final String[] LABELS = { "Weak", "Moderate", "Strong", "Very Strong" };
+
+    // A predictable character still leaves the attacker a little work
+    private static final double PATTERN_BITS = 1.0;
+    private static final int MIN_WORD = 4;
+
+    private static final int CLASS_UPPER = 1, CLASS_LOWER = 2, CLASS_DIGIT = 4, CLASS_SYMBOL = 8, CLASS_OTHER = 16;
+    private static final byte[] CHAR_CLASS = new byte[128];
+    // Letter index 1..26 after leet normalization, 0 if the char cannot be part of a word
+    private static final byte[] LETTER = new byte[128];
+    private static final boolean[] KEY_ADJACENT = new boolean[128 * 128];
+    private static final double[] POOL_BITS = new double[32];
+
+    private static final String WORDS = "password passwd admin login welcome letmein master monkey dragon "
+            + "shadow sunshine princess football baseball soccer hockey batman superman trustno iloveyou "
+            + "love lover secret qwerty azerty abc abcd hello freedom whatever michael jennifer jordan "
+            + "hunter ranger buster thomas tigger robert charlie andrew daniel george harley summer winter "
+            + "spring autumn flower cookie cheese pepper ginger orange banana apple chocolate computer "
+            + "internet google yahoo starwars pokemon matrix killer hacker ninja pirate cowboy soldier "
+            + "angel devil heaven jesus christ god family friend friends mother father sister brother "
+            + "money banking access default guest user root test testing changeme temp pass word "
+            + "blink blue green yellow purple silver golden diamond crystal phoenix thunder lightning "
+            + "tiger lion eagle falcon wolf bear shark dolphin horse puppy kitty kitten dog cat "
+            + "london paris berlin madrid tokyo america canada mexico china india europe "
+            + "january february march april june july august september october november december "
+            + "monday tuesday friday sunday samsung apple iphone android windows linux oracle "
+            + "master mustang ferrari porsche corvette camaro yamaha honda toyota nissan "
+            + "rock music guitar piano metal dance party beach ocean river mountain forest";
+
+    // Trie over letters 1..26: child index = node * 27 + letter
+    private static final int[] TRIE;
+    private static final boolean[] TERMINAL;
+    private static final double WORD_BITS;
+
+    static {
+        for (int c = 'A'; c <= 'Z'; c++) {
+            CHAR_CLASS[c] = CLASS_UPPER;
+            LETTER[c] = (byte) (c - 'A' + 1);
+        }
+        for (int c = 'a'; c <= 'z'; c++) {
+            CHAR_CLASS[c] = CLASS_LOWER;
+            LETTER[c] = (byte) (c - 'a' + 1);
+        }
+        for (int c = '0'; c <= '9'; c++) {
+            CHAR_CLASS[c] = CLASS_DIGIT;
+        }
+        for (int c = 0x21; c < 0x7F; c++) {
+            if (CHAR_CLASS[c] == 0) {
+                CHAR_CLASS[c] = CLASS_SYMBOL;
+            }
+        }
+        CHAR_CLASS[' '] = CLASS_SYMBOL;
+        String leet = "0o1i3e4a5s7t8b9g@a$s!i|l+t";
+        for (int i = 0; i < leet.length(); i += 2) {
+            LETTER[leet.charAt(i)] = (byte) (leet.charAt(i + 1) - 'a' + 1);
+        }
+
+        String[] rows = { "`1234567890-=", "qwertyuiop[]\\", "asdfghjkl;'", "zxcvbnm,./" };
+        String[] shifted = { "~!@#$%^&*()_+", "QWERTYUIOP{}|", "ASDFGHJKL:\"", "ZXCVBNM<>?" };
+        for (int r = 0; r < rows.length; r++) {
+            for (int c = 0; c < rows[r].length(); c++) {
+                // Rows are staggered: a key touches c-1..c+1 on its row, c..c+1 above, c-1..c below
+                int[][] neighbours = { { r, c - 1 }, { r, c + 1 }, { r - 1, c }, { r - 1, c + 1 },
+                        { r + 1, c - 1 }, { r + 1, c } };
+                for (int[] n : neighbours) {
+                    if (n[0] < 0 || n[0] >= rows.length || n[1] < 0 || n[1] >= rows[n[0]].length()) {
+                        continue;
+                    }
+                    char[] from = { rows[r].charAt(c), shifted[r].charAt(c) };
+                    char[] to = { rows[n[0]].charAt(n[1]), shifted[n[0]].charAt(n[1]) };
+                    for (char a : from) {
+                        for (char b : to) {
+                            KEY_ADJACENT[a * 128 + b] = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int mask = 0; mask < 32; mask++) {
+            int size = ((mask & CLASS_UPPER) != 0 ? 26 : 0) + ((mask & CLASS_LOWER) != 0 ? 26 : 0)
+                    + ((mask & CLASS_DIGIT) != 0 ? 10 : 0) + ((mask & CLASS_SYMBOL) != 0 ? 33 : 0)
+                    + ((mask & CLASS_OTHER) != 0 ? 100 : 0);
+            POOL_BITS[mask] = size == 0 ? 0 : Math.log(size) / Math.log(2);
+        }
+
+        String[] words = WORDS.split(" ");
+        int[] trie = new int[27 * 1024];
+        boolean[] terminal = new boolean[1024];
+        int nodes = 1;
+        int distinct = 0;
+        for (String word : words) {
+            if (word.length() < MIN_WORD) {
+                continue;
+            }
+            int node = 0;
+            for (int i = 0; i < word.length(); i++) {
+                int slot = node * 27 + (word.charAt(i) - 'a' + 1);
+                if (trie[slot] == 0) {
+                    if (nodes == terminal.length) {
+                        trie = Arrays.copyOf(trie, trie.length * 2);
+                        terminal = Arrays.copyOf(terminal, terminal.length * 2);
+                    }
+                    trie[slot] = nodes++;
+                }
+                node = trie[slot];
+            }
+            if (!terminal[node]) {
+                terminal[node] = true;
+                distinct++;
+            }
+        }
+        TRIE = trie;
+        TERMINAL = terminal;
+        WORD_BITS = Math.log(distinct) / Math.log(2);
+    }
+
+    private char[] scratch = new char[64];
+    private int patterns;
+
+    /** Entropy of a password drawn uniformly from poolSize characters. */
+    public static double poolEntropyBits(int length, int poolSize) {
+        return poolSize <= 1 ? 0 : length * (Math.log(poolSize) / Math.log(2));
+    }
+
+    /** Maps bits of entropy onto the 0-100 scale used by the strength bar. */
+    public static int scoreForBits(double bits) {
+        return (int) Math.max(0, Math.min(100, Math.round(bits)));
+    }
+
+    /** Index into {@link #LABELS}: below 30 weak, below 60 moderate, below 80 strong. */
+    public static int bucket(int score) {
+        if (score < 30)
+            return 0;
+        if (score < 60)
+            return 1;
+        if (score < 80)
+            return 2;
+        return 3;
+    }
+
+    /** Pattern flags (PATTERN_*) found by the last estimate. */
+    public int lastPatterns() {
+        return patterns;
+    }
+
+    public int score(char[] pw, int off, int len) {
+        return scoreForBits(entropyBits(pw, off, len));
+    }
+
+    /** Scores bytes as Latin-1 characters, for audits of raw files. */
+    public int score(byte[] pw, int off, int len) {
+        if (scratch.length < len) {
+            scratch = new char[Math.max(len, scratch.length * 2)];
+        }
+        for (int i = 0; i < len; i++) {
+            scratch[i] = (char) (pw[off + i] & 0xFF);
+        }
+        return score(scratch, 0, len);
+    }
+
+    /** Scores buf[off, off + len) as Latin-1 characters without moving the buffer's position. */
+    public int score(ByteBuffer buf, int off, int len) {
+        if (scratch.length < len) {
+            scratch = new char[Math.max(len, scratch.length * 2)];
+        }
+        for (int i = 0; i < len; i++) {
+            scratch[i] = (char) (buf.get(off + i) & 0xFF);
+        }
+        return score(scratch, 0, len);
+    }
+
+    public double entropyBits(char[] pw, int off, int len) {
+        int end = off + len;
+        int classes = 0;
+        for (int i = off; i < end; i++) {
+            char c = pw[i];
+            classes |= c < 128 ? CHAR_CLASS[c] : CLASS_OTHER;
+        }
+        double base = POOL_BITS[classes];
+
+        double bits = 0;
+        int found = 0;
+        int prev = -1;
+        int prevDelta = Integer.MIN_VALUE;
+        boolean prevWalk = false;
+        for (int i = off; i < end;) {
+            int word = longestWord(pw, i, end);
+            if (word > 0) {
+                // A dictionary word costs one guess from the list, plus a bit for casing or leet
+                bits += WORD_BITS + (isPlainLower(pw, i, word) ? 0 : 1);
+                found |= PATTERN_DICTIONARY;
+                i += word;
+                prev = -1;
+                prevDelta = Integer.MIN_VALUE;
+                prevWalk = false;
+                continue;
+            }
+
+            char c = pw[i];
+            double cost = base;
+            if (prev >= 0) {
+                int delta = c - prev;
+                boolean walk = c < 128 && prev < 128 && delta != 0 && KEY_ADJACENT[prev * 128 + c];
+                if (delta == prevDelta && delta >= -1 && delta <= 1) {
+                    cost = PATTERN_BITS;
+                    found |= delta == 0 ? PATTERN_REPEAT : PATTERN_SEQUENCE;
+                } else if (walk && prevWalk) {
+                    cost = PATTERN_BITS;
+                    found |= PATTERN_KEYBOARD;
+                }
+                prevDelta = delta;
+                prevWalk = walk;
+            }
+            bits += cost;
+            prev = c;
+            i++;
+        }
+        patterns = found;
+        return bits;
+    }
+
+    private static int longestWord(char[] pw, int from, int end) {
+        int node = 0;
+        int best = 0;
+        for (int i = from; i < end; i++) {
+            char c = pw[i];
+            int letter = c < 128 ? LETTER[c] : 0;
+            if (letter == 0) {
+                break;
+            }
+            node = TRIE[node * 27 + letter];
+            if (node == 0) {
+                break;
+            }
+            if (TERMINAL[node]) {
+                best = i - from + 1;
+            }
+        }
+        return best;
+    }
+
+    private static boolean isPlainLower(char[] pw, int from, int len) {
+        for (int i = from; i < from + len; i++) {
+            if (pw[i] < 'a' || pw[i] > 'z') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,149 @@
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleConsumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * StrengthUpdater - debounced strength evaluation off the Event Dispatch Thread
+ * Option changes arrive in bursts (holding a spinner arrow fires an event
+ * per tick). Each request replaces the pending one and runs on a single
+ * worker once the options have been quiet for a moment, or at the latest
+ * after a bounded wait so the bar still moves during a long burst. Every
+ * request gets a generation number and only the newest generation is
+ * published back on the EDT, so a slow evaluation can never overwrite a
+ * newer result.
+ * The request methods must be called on the EDT.
+ */
+public final class StrengthUpdater {
+
+    /** Work done on the worker thread; the estimator is confined to it. */
+    public interface Evaluation {
+        double bits(StrengthEstimator estimator);
+
+        /** Called once the evaluation has run or was superseded; releases any secret it holds. */
+        default void discard() {
+        }
+    }
+
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "strength-worker");
+        t.setDaemon(true);
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+    // Created by the worker on first use, so constructing the updater costs the window nothing
+    private StrengthEstimator estimator;
+    private final DoubleConsumer publisher;
+    private final long quietNanos;
+    private final long maxWaitNanos;
+    private final AtomicLong latest = new AtomicLong();
+
+    // EDT-confined: the request that has not started yet
+    private ScheduledFuture<?> pending;
+    private Evaluation pendingEvaluation;
+    private long burstStart;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong computeNanos = new AtomicLong();
+
+    /**
+     * publisher receives the bits on the EDT. quietMillis is the debounce
+     * period; maxWaitMillis bounds how long a burst can postpone evaluation.
+     */
+    public StrengthUpdater(DoubleConsumer publisher, long quietMillis, long maxWaitMillis) {
+        this.publisher = publisher;
+        this.quietNanos = TimeUnit.MILLISECONDS.toNanos(quietMillis);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    }
+
+    /** Debounced evaluation, for option changes. */
+    public void request(Evaluation evaluation) {
+        long now = System.nanoTime();
+        if (pending == null) {
+            burstStart = now;
+        }
+        long delay = Math.max(0, Math.min(quietNanos, burstStart + maxWaitNanos - now));
+        schedule(evaluation, delay);
+    }
+
+    /** Evaluates without debouncing, for values that are final (a generated password). */
+    public void requestNow(Evaluation evaluation) {
+        schedule(evaluation, 0);
+    }
+
+    /** Scores a generated password right away. The chars are copied; the copy is wiped after scoring. */
+    public void requestPassword(char[] password, int off, int len) {
+        char[] copy = Arrays.copyOfRange(password, off, off + len);
+        schedule(new Evaluation() {
+            @Override
+            public double bits(StrengthEstimator estimator) {
+                return estimator.entropyBits(copy, 0, copy.length);
+            }
+
+            @Override
+            public void discard() {
+                Arrays.fill(copy, '\0');
+            }
+        }, 0);
+    }
+
+    private void schedule(Evaluation evaluation, long delayNanos) {
+        long generation = latest.incrementAndGet();
+        requests.incrementAndGet();
+        if (pending != null && pending.cancel(false)) {
+            // Never started, so nobody else will release it
+            pendingEvaluation.discard();
+        }
+        pendingEvaluation = evaluation;
+        pending = worker.schedule(() -> evaluate(generation, evaluation), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void evaluate(long generation, Evaluation evaluation) {
+        try {
+            if (generation != latest.get()) {
+                return;
+            }
+            long start = System.nanoTime();
+            if (estimator == null) {
+                estimator = new StrengthEstimator();
+            }
+            double bits = evaluation.bits(estimator);
+            computeNanos.addAndGet(System.nanoTime() - start);
+            evaluations.incrementAndGet();
+            SwingUtilities.invokeLater(() -> {
+                if (generation == latest.get()) {
+                    pending = null;
+                    published.incrementAndGet();
+                    publisher.accept(bits);
+                }
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Strength evaluation failed: " + e);
+            // Nothing to publish, but the next request must start a new burst instead of running at once
+            SwingUtilities.invokeLater(() -> {
+                if (generation == latest.get()) {
+                    pending = null;
+                }
+            });
+        } finally {
+            evaluation.discard();
+        }
+    }
+
+    public String stats() {
+        long evaluated = evaluations.get();
+        return String.format("strength: %,d requests, %,d evaluated, %,d published, %.1f us avg compute",
+                requests.get(), evaluated, published.get(),
+                evaluated == 0 ? 0.0 : computeNanos.get() / 1e3 / evaluated);
+    }
+
+    public void close() {
+        worker.shutdownNow();
+    }
+}
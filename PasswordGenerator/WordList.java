@@ -0,0 +1,158 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * WordList - compact memory-mapped wordlist index for passphrases
+ * File layout (little-endian): 8-byte magic, int word count, int longest
+ * word in bytes, (count + 1) int offsets into the data area, then the UTF-8 words back to
+ * back. Opening maps the file read-only; word i is found with two offset
+ * reads, so there is no parsing at startup and no String per word on the heap.
+ * Build the index once from a text list with {@link #build(Path, Path)}.
+ */
+public final class WordList {
+
+    private static final byte[] MAGIC = { 'P', 'G', 'W', 'O', 'R', 'D', 'S', '1' };
+    private static final int HEADER_BYTES = 16;
+
+    private final MappedByteBuffer buf;
+    private final int count;
+    private final int dataStart;
+    private final int maxWordBytes;
+
+    private WordList(MappedByteBuffer buf) throws IOException {
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buf.get(i) != MAGIC[i]) {
+                throw new IOException("Not a wordlist index");
+            }
+        }
+        this.buf = buf;
+        this.count = buf.getInt(8);
+        this.maxWordBytes = buf.getInt(12);
+        this.dataStart = HEADER_BYTES + (count + 1) * 4;
+        if (count < 2 || dataStart > buf.limit() || dataStart + offset(count) > buf.limit()) {
+            throw new IOException("Corrupt wordlist index");
+        }
+    }
+
+    public static WordList open(Path index) throws IOException {
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            return new WordList(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /** Longest word in UTF-8 bytes, which bounds its length in chars too. */
+    public int maxWordBytes() {
+        return maxWordBytes;
+    }
+
+    /** Bits of entropy contributed by one uniformly chosen word. */
+    public double bitsPerWord() {
+        return Math.log(count) / Math.log(2);
+    }
+
+    private int offset(int i) {
+        return buf.getInt(HEADER_BYTES + i * 4);
+    }
+
+    /** Copies word i as UTF-8 into out[off]; returns the number of bytes written. */
+    public int copyWord(int i, byte[] out, int off) {
+        int start = dataStart + offset(i);
+        int len = dataStart + offset(i + 1) - start;
+        for (int j = 0; j < len; j++) {
+            out[off + j] = buf.get(start + j);
+        }
+        return len;
+    }
+
+    /** Decodes word i into out[off]; returns the number of chars written. */
+    public int copyWord(int i, char[] out, int off) {
+        int p = dataStart + offset(i);
+        int end = dataStart + offset(i + 1);
+        int n = off;
+        while (p < end) {
+            int b = buf.get(p++) & 0xFF;
+            if (b < 0x80) {
+                out[n++] = (char) b;
+            } else if (b < 0xE0) {
+                out[n++] = (char) (((b & 0x1F) << 6) | (buf.get(p++) & 0x3F));
+            } else if (b < 0xF0) {
+                out[n++] = (char) (((b & 0x0F) << 12) | ((buf.get(p++) & 0x3F) << 6) | (buf.get(p++) & 0x3F));
+            } else {
+                int cp = ((b & 0x07) << 18) | ((buf.get(p++) & 0x3F) << 12) | ((buf.get(p++) & 0x3F) << 6)
+                        | (buf.get(p++) & 0x3F);
+                n += Character.toChars(cp, out, n);
+            }
+        }
+        return n - off;
+    }
+
+    /**
+     * Builds an index from a text list with one word per line. Dice-numbered
+     * lists such as the EFF long list ("11111 abacus") are accepted: only
+     * the last whitespace-separated token of a line is used. A repeated word
+     * is kept once, so bitsPerWord() is not overstated. Returns the number
+     * of distinct words.
+     */
+    public static int build(Path text, Path index) throws IOException {
+        List<byte[]> words = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        long dataBytes = 0;
+        int maxBytes = 0;
+        try (BufferedReader in = Files.newBufferedReader(text, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] tokens = line.trim().split("\\s+");
+                String word = tokens[tokens.length - 1];
+                if (word.isEmpty() || !seen.add(word)) {
+                    continue;
+                }
+                byte[] utf8 = word.getBytes(StandardCharsets.UTF_8);
+                words.add(utf8);
+                dataBytes += utf8.length;
+                maxBytes = Math.max(maxBytes, utf8.length);
+            }
+        }
+        if (words.size() < 2) {
+            throw new IOException("A wordlist needs at least two words: " + text);
+        }
+        if (HEADER_BYTES + (words.size() + 1) * 4L + dataBytes > Integer.MAX_VALUE) {
+            throw new IOException("Wordlist too large for a single index file");
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + (words.size() + 1) * 4)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).putInt(words.size()).putInt(maxBytes);
+        int offset = 0;
+        for (byte[] w : words) {
+            header.putInt(offset);
+            offset += w.length;
+        }
+        header.putInt(offset);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(index), 1 << 16)) {
+            out.write(header.array());
+            for (byte[] w : words) {
+                out.write(w);
+            }
+        }
+        return words.size();
+    }
+}
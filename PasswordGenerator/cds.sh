@@ -0,0 +1,16 @@
+#!/bin/sh
+# cds.sh - builds passgen.jar and records a class-data-sharing archive for it
+# The training run opens the window, waits for its first paint and exits. Every class it
+# loaded is then dumped into passgen.jsa. This needs JDK 13+ (-XX:ArchiveClassesAtExit) and a display.
+# Archived classes must come from a jar, not a directory. Launch with:
+#   java -XX:SharedArchiveFile=passgen.jsa -cp passgen.jar PasswordGenerator
+# The archive only matches the JDK and class path it was built with; rerun after changing either.
+set -e
+cd "$(dirname "$0")"
+rm -rf build passgen.jar passgen.jsa
+mkdir build
+javac --release 8 -d build *.java
+jar cfe passgen.jar PasswordGenerator -C build .
+rm -rf build
+java -XX:ArchiveClassesAtExit=passgen.jsa -Dpassgen.startupProbe=true -cp passgen.jar PasswordGenerator
+echo "Wrote passgen.jsa; compare with: java -cp passgen.jar PasswordBenchmarks startup"
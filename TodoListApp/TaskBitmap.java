@@ -0,0 +1,526 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * TaskBitmap - compressed set of task ids, in the style of a roaring bitmap
+ * Ids are split into 65,536-wide chunks by their high 16 bits. A sorted
+ * char[] key array finds the chunk, and each chunk holds its low 16 bits
+ * in whichever container is smaller. A sparse chunk is a sorted char[] of
+ * up to 4,096 values, two bytes per id. A dense chunk is a 1,024-word
+ * bitmap, a fixed 8 KiB. A tag on a handful of tasks therefore costs a few
+ * bytes, and one on most of a million tasks costs about 128 KiB.
+ * Intersections, unions and differences work chunk by chunk. They merge
+ * arrays, probe arrays against bitmaps, or AND whole words, and never
+ * expand a sparse chunk. The cardinality is kept, so counts are O(1), and
+ * {@link #andCardinality} counts an intersection without building it.
+ */
+public final class TaskBitmap {
+    // A chunk with more values than this is stored as a bitmap
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+
+    private char[] keys;
+    private Container[] chunks;
+    private int size;
+    private int cardinality;
+
+    /** The low 16 bits of one chunk's ids: values while sparse, words once dense. */
+    private static final class Container {
+        char[] values;
+        long[] words;
+        int cardinality;
+
+        Container(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        Container(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        boolean contains(char low) {
+            if (words != null) {
+                return (words[low >>> 6] & 1L << low) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        boolean add(char low) {
+            if (words != null) {
+                long bit = 1L << low;
+                if ((words[low >>> 6] & bit) != 0) {
+                    return false;
+                }
+                words[low >>> 6] |= bit;
+                cardinality++;
+                return true;
+            }
+            int i = Arrays.binarySearch(values, 0, cardinality, low);
+            if (i >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX) {
+                words = toWords(values, cardinality);
+                values = null;
+                words[low >>> 6] |= 1L << low;
+                cardinality++;
+                return true;
+            }
+            i = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = low;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char low) {
+            if (words != null) {
+                long bit = 1L << low;
+                if ((words[low >>> 6] & bit) == 0) {
+                    return false;
+                }
+                words[low >>> 6] &= ~bit;
+                // Back to an array only well below the limit, so a chunk near it does not flip on every change
+                if (--cardinality <= ARRAY_MAX / 2) {
+                    values = toValues(words, cardinality);
+                    words = null;
+                }
+                return true;
+            }
+            int i = Arrays.binarySearch(values, 0, cardinality, low);
+            if (i < 0) {
+                return false;
+            }
+            System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+            cardinality--;
+            return true;
+        }
+
+        long bytes() {
+            return words != null ? 8L * WORDS : 2L * values.length;
+        }
+    }
+
+    public TaskBitmap() {
+        keys = new char[4];
+        chunks = new Container[4];
+    }
+
+    private TaskBitmap(int capacity) {
+        keys = new char[Math.max(1, capacity)];
+        chunks = new Container[Math.max(1, capacity)];
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int id) {
+        int i = find((char) (id >>> 16));
+        return i >= 0 && chunks[i].contains((char) id);
+    }
+
+    /** Adds a non-negative id; false if it was already there. */
+    public boolean add(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("negative id " + id);
+        }
+        char key = (char) (id >>> 16);
+        // Ids mostly arrive in increasing order, so check the last chunk first
+        int i = size > 0 && keys[size - 1] == key ? size - 1 : find(key);
+        if (i < 0) {
+            i = -i - 1;
+            insert(i, key, new Container(new char[4], 0));
+        }
+        if (!chunks[i].add((char) id)) {
+            return false;
+        }
+        cardinality++;
+        return true;
+    }
+
+    /** Removes an id; false if it was not there. */
+    public boolean remove(int id) {
+        int i = find((char) (id >>> 16));
+        if (i < 0 || !chunks[i].remove((char) id)) {
+            return false;
+        }
+        cardinality--;
+        if (chunks[i].cardinality == 0) {
+            System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+            System.arraycopy(chunks, i + 1, chunks, i, size - i - 1);
+            chunks[--size] = null;
+        }
+        return true;
+    }
+
+    /** Calls action with every id, in increasing order. */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            int high = keys[i] << 16;
+            Container c = chunks[i];
+            if (c.words != null) {
+                for (int w = 0; w < WORDS; w++) {
+                    for (long word = c.words[w]; word != 0; word &= word - 1) {
+                        action.accept(high | w << 6 | Long.numberOfTrailingZeros(word));
+                    }
+                }
+            } else {
+                for (int j = 0; j < c.cardinality; j++) {
+                    action.accept(high | c.values[j]);
+                }
+            }
+        }
+    }
+
+    /** The ids in increasing order. */
+    public int[] toArray() {
+        int[] out = new int[cardinality];
+        int[] n = { 0 };
+        forEach(id -> out[n[0]++] = id);
+        return out;
+    }
+
+    /** Approximate heap used by the containers, for comparing layouts. */
+    public long bytes() {
+        long bytes = 3L * keys.length + 16;
+        for (int i = 0; i < size; i++) {
+            bytes += chunks[i].bytes() + 24;
+        }
+        return bytes;
+    }
+
+    public TaskBitmap copy() {
+        TaskBitmap out = new TaskBitmap(size);
+        for (int i = 0; i < size; i++) {
+            out.append(keys[i], copy(chunks[i]));
+        }
+        return out;
+    }
+
+    /** Ids in both this and other. */
+    public TaskBitmap and(TaskBitmap other) {
+        TaskBitmap out = new TaskBitmap(Math.min(size, other.size));
+        for (int i = 0, j = 0; i < size && j < other.size;) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                out.append(keys[i], and(chunks[i++], other.chunks[j++]));
+            }
+        }
+        return out;
+    }
+
+    /** Ids in this, other or both. */
+    public TaskBitmap or(TaskBitmap other) {
+        TaskBitmap out = new TaskBitmap(size + other.size);
+        int i = 0, j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || i < size && keys[i] < other.keys[j]) {
+                out.append(keys[i], copy(chunks[i++]));
+            } else if (i == size || keys[i] > other.keys[j]) {
+                out.append(other.keys[j], copy(other.chunks[j++]));
+            } else {
+                out.append(keys[i], or(chunks[i++], other.chunks[j++]));
+            }
+        }
+        return out;
+    }
+
+    /** Ids in this but not in other. */
+    public TaskBitmap andNot(TaskBitmap other) {
+        TaskBitmap out = new TaskBitmap(size);
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            out.append(keys[i], j < other.size && other.keys[j] == keys[i] ? andNot(chunks[i], other.chunks[j])
+                    : copy(chunks[i]));
+        }
+        return out;
+    }
+
+    /** Size of the intersection with other, without building it. */
+    public int andCardinality(TaskBitmap other) {
+        int n = 0;
+        for (int i = 0, j = 0; i < size && j < other.size;) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                n += andCardinality(chunks[i++], other.chunks[j++]);
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof TaskBitmap)) {
+            return false;
+        }
+        TaskBitmap b = (TaskBitmap) o;
+        return cardinality == b.cardinality && andCardinality(b) == cardinality;
+    }
+
+    @Override
+    public int hashCode() {
+        int[] h = { cardinality };
+        forEach(id -> h[0] = h[0] * 31 + id);
+        return h[0];
+    }
+
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int i, char key, Container c) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            chunks = Arrays.copyOf(chunks, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(chunks, i, chunks, i + 1, size - i);
+        keys[i] = key;
+        chunks[i] = c;
+        size++;
+    }
+
+    // Adds a chunk after every existing one; empty results are dropped
+    private void append(char key, Container c) {
+        if (c == null) {
+            return;
+        }
+        insert(size, key, c);
+        cardinality += c.cardinality;
+    }
+
+    private static Container copy(Container c) {
+        return c.words != null ? new Container(c.words.clone(), c.cardinality)
+                : new Container(Arrays.copyOf(c.values, c.cardinality), c.cardinality);
+    }
+
+    private static Container and(Container a, Container b) {
+        if (a.words != null && b.words != null) {
+            long[] words = new long[WORDS];
+            int n = 0;
+            for (int w = 0; w < WORDS; w++) {
+                words[w] = a.words[w] & b.words[w];
+                n += Long.bitCount(words[w]);
+            }
+            return fromWords(words, n);
+        }
+        if (a.words != null) {
+            return and(b, a);
+        }
+        char[] out = new char[Math.min(a.cardinality, b.cardinality)];
+        int n = 0;
+        if (b.words != null) {
+            for (int i = 0; i < a.cardinality; i++) {
+                char v = a.values[i];
+                if ((b.words[v >>> 6] & 1L << v) != 0) {
+                    out[n++] = v;
+                }
+            }
+        } else if (lopsided(a, b)) {
+            Container small = a.cardinality < b.cardinality ? a : b, big = small == a ? b : a;
+            for (int i = 0, j = 0; i < small.cardinality && j < big.cardinality; i++) {
+                j = advance(big, j, small.values[i]);
+                if (j < big.cardinality && big.values[j] == small.values[i]) {
+                    out[n++] = small.values[i];
+                }
+            }
+        } else {
+            for (int i = 0, j = 0; i < a.cardinality && j < b.cardinality;) {
+                if (a.values[i] < b.values[j]) {
+                    i++;
+                } else if (a.values[i] > b.values[j]) {
+                    j++;
+                } else {
+                    out[n++] = a.values[i++];
+                    j++;
+                }
+            }
+        }
+        return n == 0 ? null : new Container(out, n);
+    }
+
+    private static Container or(Container a, Container b) {
+        if (a.words == null && b.words == null) {
+            char[] out = new char[a.cardinality + b.cardinality];
+            int n = 0, i = 0, j = 0;
+            while (i < a.cardinality && j < b.cardinality) {
+                char x = a.values[i], y = b.values[j];
+                out[n++] = x <= y ? x : y;
+                i += x <= y ? 1 : 0;
+                j += y <= x ? 1 : 0;
+            }
+            while (i < a.cardinality) {
+                out[n++] = a.values[i++];
+            }
+            while (j < b.cardinality) {
+                out[n++] = b.values[j++];
+            }
+            return n <= ARRAY_MAX ? new Container(out, n) : new Container(toWords(out, n), n);
+        }
+        if (a.words == null) {
+            return or(b, a);
+        }
+        long[] words = a.words.clone();
+        if (b.words != null) {
+            for (int w = 0; w < WORDS; w++) {
+                words[w] |= b.words[w];
+            }
+        } else {
+            for (int i = 0; i < b.cardinality; i++) {
+                words[b.values[i] >>> 6] |= 1L << b.values[i];
+            }
+        }
+        int n = 0;
+        for (long word : words) {
+            n += Long.bitCount(word);
+        }
+        return new Container(words, n);
+    }
+
+    private static Container andNot(Container a, Container b) {
+        if (a.words != null) {
+            long[] words = a.words.clone();
+            if (b.words != null) {
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] &= ~b.words[w];
+                }
+            } else {
+                for (int i = 0; i < b.cardinality; i++) {
+                    words[b.values[i] >>> 6] &= ~(1L << b.values[i]);
+                }
+            }
+            int n = 0;
+            for (long word : words) {
+                n += Long.bitCount(word);
+            }
+            return fromWords(words, n);
+        }
+        char[] out = new char[a.cardinality];
+        int n = 0;
+        if (b.words != null) {
+            for (int i = 0; i < a.cardinality; i++) {
+                char v = a.values[i];
+                if ((b.words[v >>> 6] & 1L << v) == 0) {
+                    out[n++] = v;
+                }
+            }
+        } else {
+            for (int i = 0, j = 0; i < a.cardinality; i++) {
+                char v = a.values[i];
+                while (j < b.cardinality && b.values[j] < v) {
+                    j++;
+                }
+                if (j == b.cardinality || b.values[j] != v) {
+                    out[n++] = v;
+                }
+            }
+        }
+        return n == 0 ? null : new Container(out, n);
+    }
+
+    private static int andCardinality(Container a, Container b) {
+        if (a.words != null && b.words != null) {
+            int n = 0;
+            for (int w = 0; w < WORDS; w++) {
+                n += Long.bitCount(a.words[w] & b.words[w]);
+            }
+            return n;
+        }
+        if (a.words != null) {
+            return andCardinality(b, a);
+        }
+        int n = 0;
+        if (b.words != null) {
+            for (int i = 0; i < a.cardinality; i++) {
+                char v = a.values[i];
+                if ((b.words[v >>> 6] & 1L << v) != 0) {
+                    n++;
+                }
+            }
+        } else if (lopsided(a, b)) {
+            Container small = a.cardinality < b.cardinality ? a : b, big = small == a ? b : a;
+            for (int i = 0, j = 0; i < small.cardinality && j < big.cardinality; i++) {
+                j = advance(big, j, small.values[i]);
+                if (j < big.cardinality && big.values[j] == small.values[i]) {
+                    n++;
+                }
+            }
+        } else {
+            for (int i = 0, j = 0; i < a.cardinality && j < b.cardinality;) {
+                if (a.values[i] < b.values[j]) {
+                    i++;
+                } else if (a.values[i] > b.values[j]) {
+                    j++;
+                } else {
+                    n++;
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return n;
+    }
+
+    // A rare tag against a common one: stepping through both arrays would mostly skip the long one
+    private static boolean lopsided(Container a, Container b) {
+        return a.cardinality * 32 < b.cardinality || b.cardinality * 32 < a.cardinality;
+    }
+
+    // First index at or after from whose value is at least v, by galloping then binary search
+    private static int advance(Container c, int from, char v) {
+        int step = 1, lo = from, hi = from;
+        while (hi < c.cardinality && c.values[hi] < v) {
+            lo = hi + 1;
+            hi = from + step;
+            step <<= 1;
+        }
+        int i = Arrays.binarySearch(c.values, lo, Math.min(hi + 1, c.cardinality), v);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    // A computed bitmap chunk, stored as an array if it came out sparse
+    private static Container fromWords(long[] words, int n) {
+        if (n == 0) {
+            return null;
+        }
+        return n <= ARRAY_MAX ? new Container(toValues(words, n), n) : new Container(words, n);
+    }
+
+    private static long[] toWords(char[] values, int n) {
+        long[] words = new long[WORDS];
+        for (int i = 0; i < n; i++) {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+        return words;
+    }
+
+    private static char[] toValues(long[] words, int n) {
+        char[] values = new char[Math.max(4, n)];
+        int k = 0;
+        for (int w = 0; w < WORDS; w++) {
+            for (long word = words[w]; word != 0; word &= word - 1) {
+                values[k++] = (char) (w << 6 | Long.numberOfTrailingZeros(word));
+            }
+        }
+        return values;
+    }
+}
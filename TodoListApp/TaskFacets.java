@@ -0,0 +1,247 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.swing.RowFilter;
+
+/**
+ * TaskFacets - tag, priority and completion bitmaps for faceted filtering
+ * Each distinct tag is interned once into a dictionary that gives it a
+ * {@link TaskBitmap} of the ids of the tasks carrying it. Tags are split and
+ * normalized as in {@link TaskStats}. There is also one bitmap per
+ * priority and one of completed tasks. {@link TaskTableModel} keeps them
+ * current from the same mutation paths as its stats. A filter such as
+ * "#work AND #q3, not completed, priority High or above" is then a few
+ * bitmap intersections instead of a scan of every tags cell. Per-tag counts
+ * within a selection are intersection counts. Tags whose bitmap changed
+ * are remembered until {@link #drainChanged()}, so a sidebar can update
+ * just those rows.
+ */
+public class TaskFacets {
+    private static final String[] NO_TAGS = {};
+
+    private final Map<String, TaskBitmap> tags = new HashMap<>();
+    private final TaskBitmap[] priorities = new TaskBitmap[TaskTableModel.PRIORITIES.length];
+    private final TaskBitmap completed = new TaskBitmap();
+    // Parsed tags fields; the model deduplicates them, so a small cache covers bulk changes
+    private final Map<String, String[]> parsed = new HashMap<>();
+    private Set<String> changed = new HashSet<>();
+    private int version;
+
+    /** What to show: tasks with every one of tags, optionally open only, at minPriority or above. */
+    public static final class Selection {
+        public static final Selection ALL = new Selection(Collections.emptyList(), false, 0);
+
+        private final List<String> tags;
+        private final boolean openOnly;
+        private final int minPriority;
+
+        public Selection(Collection<String> tags, boolean openOnly, int minPriority) {
+            List<String> normalized = new ArrayList<>();
+            for (String tag : tags) {
+                String t = TaskStats.normalizeTag(tag);
+                if (!t.isEmpty() && !normalized.contains(t)) {
+                    normalized.add(t);
+                }
+            }
+            this.tags = Collections.unmodifiableList(normalized);
+            this.openOnly = openOnly;
+            this.minPriority = minPriority;
+        }
+
+        public List<String> tags() {
+            return tags;
+        }
+
+        public boolean openOnly() {
+            return openOnly;
+        }
+
+        public int minPriority() {
+            return minPriority;
+        }
+
+        /** True if this selects every task. */
+        public boolean isAll() {
+            return tags.isEmpty() && !openOnly && minPriority == 0;
+        }
+    }
+
+    public TaskFacets() {
+        for (int i = 0; i < priorities.length; i++) {
+            priorities[i] = new TaskBitmap();
+        }
+    }
+
+    /** Changes whenever any bitmap does; cached selections compare against it. */
+    public int version() {
+        return version;
+    }
+
+    public int distinctTags() {
+        return tags.size();
+    }
+
+    /** Tasks carrying the tag. O(1). */
+    public int tagCount(String tag) {
+        TaskBitmap b = tags.get(TaskStats.normalizeTag(tag));
+        return b == null ? 0 : b.cardinality();
+    }
+
+    /** Ids of the tasks carrying the tag; do not modify. */
+    public TaskBitmap tag(String tag) {
+        TaskBitmap b = tags.get(TaskStats.normalizeTag(tag));
+        return b == null ? new TaskBitmap() : b;
+    }
+
+    /** Ids of the tasks the selection keeps. */
+    public TaskBitmap select(Selection selection) {
+        // Intersect the smallest tag bitmaps first, so every later step works on the fewest ids
+        List<TaskBitmap> parts = new ArrayList<>();
+        for (String tag : selection.tags) {
+            TaskBitmap b = tags.get(tag);
+            if (b == null) {
+                return new TaskBitmap();
+            }
+            parts.add(b);
+        }
+        parts.sort((a, b) -> Integer.compare(a.cardinality(), b.cardinality()));
+        TaskBitmap result = null;
+        for (TaskBitmap b : parts) {
+            result = result == null ? b.copy() : result.and(b);
+        }
+        if (result == null || selection.minPriority > 0) {
+            TaskBitmap atLeast = priorities[priorities.length - 1];
+            for (int p = priorities.length - 2; p >= selection.minPriority; p--) {
+                atLeast = atLeast.or(priorities[p]);
+            }
+            result = result == null ? atLeast.copy() : result.and(atLeast);
+        }
+        return selection.openOnly ? result.andNot(completed) : result;
+    }
+
+    /** Every tag with its tasks within within (all tasks if null); counts may be 0. */
+    public Map<String, Integer> counts(TaskBitmap within) {
+        Map<String, Integer> out = new HashMap<>(tags.size() * 2);
+        for (Map.Entry<String, TaskBitmap> e : tags.entrySet()) {
+            out.put(e.getKey(), within == null ? e.getValue().cardinality() : e.getValue().andCardinality(within));
+        }
+        return out;
+    }
+
+    /** Tasks carrying the tag within within (every task if null). */
+    public int count(String tag, TaskBitmap within) {
+        TaskBitmap b = tags.get(TaskStats.normalizeTag(tag));
+        return b == null ? 0 : within == null ? b.cardinality() : b.andCardinality(within);
+    }
+
+    /** Tags whose task set changed since the last call. */
+    public Set<String> drainChanged() {
+        Set<String> out = changed;
+        changed = new HashSet<>();
+        return out;
+    }
+
+    /** Filters a sorter down to the selection, re-evaluating it only after the facets changed. */
+    public RowFilter<TaskTableModel, Integer> filter(Selection selection) {
+        return new RowFilter<TaskTableModel, Integer>() {
+            private TaskBitmap matches;
+            private int seen;
+
+            @Override
+            public boolean include(Entry<? extends TaskTableModel, ? extends Integer> entry) {
+                if (matches == null || seen != version) {
+                    matches = select(selection);
+                    seen = version;
+                }
+                return matches.contains((int) entry.getModel().id(entry.getIdentifier()));
+            }
+        };
+    }
+
+    void added(long id, int priority, boolean done, String tagText) {
+        int doc = Math.toIntExact(id);
+        priorities[priority].add(doc);
+        if (done) {
+            completed.add(doc);
+        }
+        for (String tag : parse(tagText)) {
+            tags.computeIfAbsent(tag, k -> new TaskBitmap()).add(doc);
+            changed.add(tag);
+        }
+        version++;
+    }
+
+    void removed(long id, int priority, boolean done, String tagText) {
+        int doc = Math.toIntExact(id);
+        priorities[priority].remove(doc);
+        if (done) {
+            completed.remove(doc);
+        }
+        for (String tag : parse(tagText)) {
+            removeTag(tag, doc);
+        }
+        version++;
+    }
+
+    void changed(long id, int oldPriority, boolean oldDone, String oldTags, int priority, boolean done,
+            String tagText) {
+        int doc = Math.toIntExact(id);
+        if (oldPriority != priority) {
+            priorities[oldPriority].remove(doc);
+            priorities[priority].add(doc);
+        }
+        if (oldDone != done) {
+            if (done) {
+                completed.add(doc);
+            } else {
+                completed.remove(doc);
+            }
+        }
+        if (!oldTags.equals(tagText)) {
+            String[] before = parse(oldTags), after = parse(tagText);
+            for (String tag : before) {
+                if (!Arrays.asList(after).contains(tag)) {
+                    removeTag(tag, doc);
+                }
+            }
+            for (String tag : after) {
+                if (!Arrays.asList(before).contains(tag)) {
+                    tags.computeIfAbsent(tag, k -> new TaskBitmap()).add(doc);
+                    changed.add(tag);
+                }
+            }
+        }
+        version++;
+    }
+
+    private void removeTag(String tag, int doc) {
+        TaskBitmap b = tags.get(tag);
+        if (b != null && b.remove(doc)) {
+            changed.add(tag);
+            if (b.isEmpty()) {
+                tags.remove(tag);
+            }
+        }
+    }
+
+    private String[] parse(String tagText) {
+        if (tagText.isEmpty()) {
+            return NO_TAGS;
+        }
+        String[] list = parsed.get(tagText);
+        if (list == null) {
+            if (parsed.size() >= 4096) {
+                parsed.clear();
+            }
+            list = TaskStats.parseTags(tagText);
+            parsed.put(tagText, list);
+        }
+        return list;
+    }
+}
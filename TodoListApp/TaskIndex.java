@@ -0,0 +1,315 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.swing.RowFilter;
+
+/**
+ * TaskIndex - inverted index over task text, tags and priority
+ * The fields are split into lower-case tokens, the runs of letters and
+ * digits, so "#work" and "Work," both index as "work". Indexing the
+ * priority name means "urgent" still finds Urgent tasks, as it did when
+ * search was a regex over every column. Each token maps to a sorted int[]
+ * posting list of task ids. {@link TaskTableModel} keeps the index current
+ * from its add, edit and remove paths.
+ *
+ * A query is split the same way, and every query term must match one of
+ * the task's tokens: terms of one or two characters match a token prefix,
+ * and longer terms match anywhere inside a token. Candidate tokens are
+ * found on the token dictionary rather than on the tasks. Prefixes use a
+ * sorted set, and longer terms use a trigram-to-token map, so the cost of a
+ * query grows with the matching postings, not with the number of tasks.
+ */
+public class TaskIndex {
+    private final Map<String, Posting> postings = new HashMap<>();
+    private final TreeSet<String> tokens = new TreeSet<>();
+    // trigram -> tokens containing it
+    private final Map<String, Set<String>> trigrams = new HashMap<>();
+    private int maxId;
+    private int version;
+    // Postings with queued changes while a batch is open
+    private Map<Posting, int[][]> batch;
+
+    /** Sorted task ids carrying one token. */
+    private static final class Posting {
+        int[] ids = new int[2];
+        int size;
+        // Ids queued by a batch: { adds, removes }, each with its count in slot 0
+        int[][] pending;
+        String token;
+
+        void add(int id) {
+            if (size == 0 || ids[size - 1] < id) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+                ids[size++] = id;
+                return;
+            }
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i >= 0) {
+                return;
+            }
+            i = -i - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, i, ids, i + 1, size - i);
+            ids[i] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i >= 0) {
+                System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                size--;
+            }
+        }
+    }
+
+    /** Distinct lower-case letter/digit runs of the given fields. */
+    public static List<String> tokenize(String... fields) {
+        List<String> out = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (String field : fields) {
+            for (int i = 0, n = field.length(); i <= n; i++) {
+                char c = i < n ? field.charAt(i) : ' ';
+                if (Character.isLetterOrDigit(c)) {
+                    token.append(Character.toLowerCase(c));
+                } else if (token.length() > 0) {
+                    String t = token.toString();
+                    if (!out.contains(t)) {
+                        out.add(t);
+                    }
+                    token.setLength(0);
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Queues posting changes until {@link #endBatch()}, so a bulk change
+     * merges each touched posting list once instead of shifting it for every
+     * row. Within a batch each id may change at most once, which holds for
+     * the model's single-pass bulk methods. Queries must wait for endBatch.
+     */
+    void beginBatch() {
+        batch = new HashMap<>();
+    }
+
+    void endBatch() {
+        Map<Posting, int[][]> queued = batch;
+        batch = null;
+        for (Map.Entry<Posting, int[][]> e : queued.entrySet()) {
+            Posting p = e.getKey();
+            int[] adds = e.getValue()[0], removes = e.getValue()[1];
+            Arrays.sort(adds, 1, adds[0] + 1);
+            Arrays.sort(removes, 1, removes[0] + 1);
+            // One merge pass: existing ids minus the removes, plus the adds
+            int[] out = new int[p.size + adds[0]];
+            int n = 0, a = 1, r = 1;
+            for (int i = 0; i < p.size; i++) {
+                int id = p.ids[i];
+                while (r <= removes[0] && removes[r] < id) {
+                    r++;
+                }
+                if (r <= removes[0] && removes[r] == id) {
+                    continue;
+                }
+                while (a <= adds[0] && adds[a] < id) {
+                    out[n++] = adds[a++];
+                }
+                if (a <= adds[0] && adds[a] == id) {
+                    a++;
+                }
+                out[n++] = id;
+            }
+            while (a <= adds[0]) {
+                out[n++] = adds[a++];
+            }
+            p.ids = out.length == 0 ? new int[2] : out;
+            p.size = n;
+            p.pending = null;
+        }
+        for (Map.Entry<Posting, int[][]> e : queued.entrySet()) {
+            if (e.getKey().size == 0) {
+                dropToken(e.getKey());
+            }
+        }
+        version++;
+    }
+
+    /** Changes whenever the index does; cached query results compare against it. */
+    public int version() {
+        return version;
+    }
+
+    public int tokenCount() {
+        return postings.size();
+    }
+
+    void add(long id, String... fields) {
+        int doc = Math.toIntExact(id);
+        for (String token : tokenize(fields)) {
+            addToken(token, doc);
+        }
+        maxId = Math.max(maxId, doc);
+        version++;
+    }
+
+    void remove(long id, String... fields) {
+        int doc = Math.toIntExact(id);
+        for (String token : tokenize(fields)) {
+            removeToken(token, doc);
+        }
+        version++;
+    }
+
+    void update(long id, String[] oldFields, String[] fields) {
+        int doc = Math.toIntExact(id);
+        List<String> before = tokenize(oldFields);
+        List<String> after = tokenize(fields);
+        for (String token : before) {
+            if (!after.contains(token)) {
+                removeToken(token, doc);
+            }
+        }
+        for (String token : after) {
+            if (!before.contains(token)) {
+                addToken(token, doc);
+            }
+        }
+        version++;
+    }
+
+    /** Ids of the tasks matching every term of the query; a query without terms matches nothing. */
+    public BitSet search(String query) {
+        List<String> terms = tokenize(query);
+        BitSet result = null;
+        for (String term : terms) {
+            BitSet matches = new BitSet(maxId + 1);
+            for (String token : matchingTokens(term)) {
+                Posting p = postings.get(token);
+                for (int i = 0; i < p.size; i++) {
+                    matches.set(p.ids[i]);
+                }
+            }
+            if (result == null) {
+                result = matches;
+            } else {
+                result.and(matches);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result == null ? new BitSet() : result;
+    }
+
+    /** Filters a sorter down to the search results, re-running the query only after the index changed. */
+    public RowFilter<TaskTableModel, Integer> filter(String query) {
+        return new RowFilter<TaskTableModel, Integer>() {
+            private BitSet matches;
+            private int seen;
+
+            @Override
+            public boolean include(Entry<? extends TaskTableModel, ? extends Integer> entry) {
+                if (matches == null || seen != version) {
+                    matches = search(query);
+                    seen = version;
+                }
+                return matches.get((int) entry.getModel().id(entry.getIdentifier()));
+            }
+        };
+    }
+
+    private Iterable<String> matchingTokens(String term) {
+        if (term.length() < 3) {
+            return tokens.subSet(term, true, term + Character.MAX_VALUE, false);
+        }
+        // The rarest trigram of the term bounds the candidates; each is then checked for the whole term
+        Set<String> rarest = null;
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            Set<String> candidates = trigrams.get(term.substring(i, i + 3));
+            if (candidates == null) {
+                return new ArrayList<>();
+            }
+            if (rarest == null || candidates.size() < rarest.size()) {
+                rarest = candidates;
+            }
+        }
+        List<String> out = new ArrayList<>();
+        for (String token : rarest) {
+            if (token.contains(term)) {
+                out.add(token);
+            }
+        }
+        return out;
+    }
+
+    private void addToken(String token, int doc) {
+        Posting p = postings.get(token);
+        if (p == null) {
+            p = new Posting();
+            postings.put(token, p);
+            tokens.add(token);
+            for (int i = 0; i + 3 <= token.length(); i++) {
+                trigrams.computeIfAbsent(token.substring(i, i + 3), k -> new HashSet<>()).add(token);
+            }
+            p.token = token;
+        }
+        if (batch != null) {
+            queue(p, 0, doc);
+        } else {
+            p.add(doc);
+        }
+    }
+
+    private void queue(Posting p, int kind, int doc) {
+        if (p.pending == null) {
+            p.pending = new int[][] { new int[4], new int[4] };
+            batch.put(p, p.pending);
+        }
+        int[] list = p.pending[kind];
+        if (list[0] + 1 == list.length) {
+            list = p.pending[kind] = Arrays.copyOf(list, list.length * 2);
+        }
+        list[++list[0]] = doc;
+    }
+
+    private void removeToken(String token, int doc) {
+        Posting p = postings.get(token);
+        if (p == null) {
+            return;
+        }
+        if (batch != null) {
+            queue(p, 1, doc);
+            return;
+        }
+        p.remove(doc);
+        if (p.size == 0) {
+            dropToken(p);
+        }
+    }
+
+    private void dropToken(Posting p) {
+        String token = p.token;
+        postings.remove(token);
+        tokens.remove(token);
+        for (int i = 0; i + 3 <= token.length(); i++) {
+            String gram = token.substring(i, i + 3);
+            Set<String> set = trigrams.get(gram);
+            // A token like "11111" repeats a trigram, whose set may already be gone
+            if (set != null && set.remove(token) && set.isEmpty()) {
+                trigrams.remove(gram);
+            }
+        }
+    }
+}
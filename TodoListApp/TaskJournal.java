@@ -0,0 +1,812 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * TaskJournal - write-ahead journal and snapshots for the task list
+ * Every mutation is appended as one compact binary record: a frame of
+ * length and CRC32, then a sequence number, a type byte and varint/UTF-8
+ * fields. Appends only encode into an in-memory buffer. A single writer
+ * thread hands everything that piled up to one FileChannel.write and one
+ * force, so a burst of mutations costs one fsync (group commit), and the
+ * caller never waits on the disk unless it asks to with
+ * {@link #awaitDurable(long)}.
+ * The journal is a series of segment files named after their first sequence
+ * number. A snapshot is the full task list written as ADD records to a
+ * temporary file, forced and renamed into place; the segments it covers are
+ * then deleted. Opening replays the newest snapshot and the segments after
+ * it, so startup costs O(snapshot + tail). A torn record at the end of the
+ * last segment (a crash mid-write) is cut off; damage anywhere else is an
+ * error.
+ * Appends and {@link #snapshot(Snapshot)} must come from one thread (the
+ * EDT in the app), so a snapshot always matches its sequence number.
+ */
+public final class TaskJournal implements AutoCloseable {
+
+    /** Receives the replayed history, oldest first. */
+    public interface Replay {
+        void add(long id, long created, int priority, boolean completed, String text, String tags);
+
+        void edit(long id, int priority, String text, String tags);
+
+        void setCompleted(long id, boolean completed);
+
+        /** due is epoch milliseconds, or {@link TaskTableModel#NO_DUE} to clear it. */
+        void setDue(long id, long due);
+
+        void delete(long id);
+
+        void completeAll();
+
+        void deleteCompleted();
+    }
+
+    /** The whole task list at one sequence number; filled by the caller, then owned by the journal. */
+    public static final class Snapshot {
+        long seq;
+        int size;
+        long[] ids;
+        long[] created;
+        long[] due;
+        byte[] priorities;
+        boolean[] completed;
+        String[] texts;
+        String[] tags;
+
+        public Snapshot(int capacity) {
+            capacity = Math.max(capacity, 16);
+            ids = new long[capacity];
+            created = new long[capacity];
+            due = new long[capacity];
+            priorities = new byte[capacity];
+            completed = new boolean[capacity];
+            texts = new String[capacity];
+            tags = new String[capacity];
+        }
+
+        public void add(long id, long createdAt, int priority, boolean done, String text, String tagText) {
+            add(id, createdAt, priority, done, text, tagText, TaskTableModel.NO_DUE);
+        }
+
+        public void add(long id, long createdAt, int priority, boolean done, String text, String tagText,
+                long dueAt) {
+            if (size == ids.length) {
+                int n = size * 2;
+                ids = Arrays.copyOf(ids, n);
+                created = Arrays.copyOf(created, n);
+                due = Arrays.copyOf(due, n);
+                priorities = Arrays.copyOf(priorities, n);
+                completed = Arrays.copyOf(completed, n);
+                texts = Arrays.copyOf(texts, n);
+                tags = Arrays.copyOf(tags, n);
+            }
+            ids[size] = id;
+            created[size] = createdAt;
+            due[size] = dueAt;
+            priorities[size] = (byte) priority;
+            completed[size] = done;
+            texts[size] = text;
+            tags[size] = tagText;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    static final byte ADD = 1, EDIT = 2, SET_COMPLETED = 3, DELETE = 4, COMPLETE_ALL = 5, DELETE_COMPLETED = 6;
+    // Added with due dates; older journals and snapshots simply never contain them
+    static final byte SET_DUE = 7, ADD_DUE = 8;
+
+    private static final byte[] SEGMENT_MAGIC = { 'T', 'O', 'D', 'O', 'J', 'R', 'N', '1' };
+    private static final byte[] SNAPSHOT_MAGIC = { 'T', 'O', 'D', 'O', 'S', 'N', 'P', '1' };
+    private static final String SEGMENT_PREFIX = "journal-", SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-", SNAPSHOT_SUFFIX = ".bin";
+    private static final String SNAPSHOT_TEMP = "snapshot.tmp";
+    // length + CRC32 of the body
+    private static final int FRAME_HEADER = 8;
+    // seq + type
+    private static final int MIN_BODY = 9;
+    private static final int MAX_BODY = 1 << 20;
+    // Appenders wait once this much is queued for the writer
+    private static final int MAX_PENDING = 32 << 20;
+    private static final int IO_BUFFER = 1 << 20;
+
+    private final Path dir;
+    private final boolean fsync;
+    private final Thread writer;
+    private final CRC32 crc = new CRC32();
+
+    // Guarded by this
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    private ByteBuffer spare = ByteBuffer.allocate(1 << 16);
+    private long lastSeq;
+    private long durableSeq;
+    private long sinceSnapshot;
+    private Snapshot snapshotRequest;
+    private int rollAt;
+    private boolean closed;
+    private IOException failure;
+
+    // Writer thread only (and open, before it starts)
+    private FileChannel segment;
+    private long segmentStart;
+    private final CRC32 writerCrc = new CRC32();
+
+    // Written by the writer thread, read by stats()
+    private volatile long records, bytes, commits, snapshots, snapshotNanos;
+    private volatile long replayedRecords, replayNanos;
+    private volatile int snapshotSize;
+
+    private TaskJournal(Path dir, boolean fsync) {
+        this.dir = dir;
+        this.fsync = fsync;
+        this.writer = new Thread(this::writeLoop, "journal-writer");
+        writer.setDaemon(true);
+    }
+
+    /**
+     * Opens (or creates) the journal in dir and replays its contents into
+     * replay before returning. With fsync off, records reach the OS but are
+     * not forced to the device (tests and benchmarks).
+     */
+    public static TaskJournal open(Path dir, boolean fsync, Replay replay) throws IOException {
+        Files.createDirectories(dir);
+        TaskJournal journal = new TaskJournal(dir, fsync);
+        journal.recover(replay);
+        journal.writer.start();
+        return journal;
+    }
+
+    // ---- appending ----
+
+    public long add(long id, long created, int priority, boolean completed, String text, String tags)
+            throws IOException {
+        return add(id, created, priority, completed, text, tags, TaskTableModel.NO_DUE);
+    }
+
+    public long add(long id, long created, int priority, boolean completed, String text, String tags, long due)
+            throws IOException {
+        return append(due == TaskTableModel.NO_DUE ? ADD : ADD_DUE, id, created, due, priority, completed,
+                utf8(text), utf8(tags));
+    }
+
+    public long edit(long id, int priority, String text, String tags) throws IOException {
+        return append(EDIT, id, 0, 0, priority, false, utf8(text), utf8(tags));
+    }
+
+    public long setCompleted(long id, boolean completed) throws IOException {
+        return append(SET_COMPLETED, id, 0, 0, 0, completed, null, null);
+    }
+
+    public long setDue(long id, long due) throws IOException {
+        return append(SET_DUE, id, 0, due, 0, false, null, null);
+    }
+
+    public long delete(long id) throws IOException {
+        return append(DELETE, id, 0, 0, 0, false, null, null);
+    }
+
+    public long completeAll() throws IOException {
+        return append(COMPLETE_ALL, 0, 0, 0, 0, false, null, null);
+    }
+
+    public long deleteCompleted() throws IOException {
+        return append(DELETE_COMPLETED, 0, 0, 0, 0, false, null, null);
+    }
+
+    private synchronized long append(byte type, long id, long created, long due, int priority, boolean flag,
+            byte[] text, byte[] tags) throws IOException {
+        checkUsable();
+        while (pending.position() > MAX_PENDING) {
+            waitForWriter();
+            checkUsable();
+        }
+        int need = FRAME_HEADER + MIN_BODY + 4 * 10 + 2 + (text == null ? 0 : text.length + 5)
+                + (tags == null ? 0 : tags.length + 5);
+        if (need - FRAME_HEADER > MAX_BODY) {
+            throw new IOException("Task too large for one journal record");
+        }
+        if (pending.remaining() < need) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + need));
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+        long seq = ++lastSeq;
+        encode(pending, crc, seq, type, id, created, due, priority, flag, text, tags);
+        sinceSnapshot++;
+        notifyAll();
+        return seq;
+    }
+
+    private void checkUsable() throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal writer failed", failure);
+        }
+        if (closed) {
+            throw new IOException("Journal is closed");
+        }
+    }
+
+    private void waitForWriter() throws InterruptedIOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the journal");
+        }
+    }
+
+    /** Blocks until every record up to seq has been written (and forced, with fsync on). */
+    public synchronized void awaitDurable(long seq) throws IOException {
+        while (durableSeq < seq) {
+            if (failure != null) {
+                throw new IOException("Journal writer failed", failure);
+            }
+            if (closed && !writer.isAlive()) {
+                throw new IOException("Journal is closed");
+            }
+            waitForWriter();
+        }
+    }
+
+    /** Waits for everything appended so far. */
+    public void sync() throws IOException {
+        long seq;
+        synchronized (this) {
+            seq = lastSeq;
+        }
+        awaitDurable(seq);
+    }
+
+    public synchronized long lastSeq() {
+        return lastSeq;
+    }
+
+    /** Records appended since the last snapshot was requested (or since opening). */
+    public synchronized long recordsSinceSnapshot() {
+        return sinceSnapshot;
+    }
+
+    /**
+     * Hands a snapshot of the current task list to the writer thread. It
+     * must reflect every record appended so far and nothing later. The
+     * caller must not touch it afterwards.
+     */
+    public synchronized void snapshot(Snapshot snapshot) throws IOException {
+        checkUsable();
+        snapshot.seq = lastSeq;
+        snapshotRequest = snapshot;
+        // Records queued so far belong before the snapshot, the rest in the next segment
+        rollAt = pending.position();
+        sinceSnapshot = 0;
+        notifyAll();
+    }
+
+    /** Writes out and forces everything, then stops the writer thread. */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the journal");
+        }
+        segment.force(true);
+        segment.close();
+        synchronized (this) {
+            if (failure != null) {
+                throw new IOException("Journal writer failed", failure);
+            }
+        }
+    }
+
+    // ---- writer thread ----
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                ByteBuffer batch;
+                long batchSeq;
+                int roll;
+                Snapshot snap;
+                synchronized (this) {
+                    while (pending.position() == 0 && snapshotRequest == null && !closed) {
+                        wait();
+                    }
+                    if (pending.position() == 0 && snapshotRequest == null) {
+                        return;
+                    }
+                    // Everything queued while the last batch was being forced goes out as one group
+                    batch = pending;
+                    pending = spare;
+                    pending.clear();
+                    spare = batch;
+                    batchSeq = lastSeq;
+                    snap = snapshotRequest;
+                    roll = rollAt;
+                    snapshotRequest = null;
+                    notifyAll();
+                }
+                batch.flip();
+                if (snap != null) {
+                    ByteBuffer before = batch.duplicate();
+                    before.limit(roll);
+                    writeBatch(before);
+                    batch.position(roll);
+                    if (segmentStart < snap.seq + 1) {
+                        startSegment(snap.seq + 1);
+                    }
+                }
+                writeBatch(batch);
+                synchronized (this) {
+                    durableSeq = batchSeq;
+                    notifyAll();
+                }
+                if (snap != null) {
+                    writeSnapshot(snap);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                notifyAll();
+            }
+        } catch (InterruptedException e) {
+            synchronized (this) {
+                failure = new InterruptedIOException("Journal writer interrupted");
+                notifyAll();
+            }
+        }
+    }
+
+    private void writeBatch(ByteBuffer batch) throws IOException {
+        if (!batch.hasRemaining()) {
+            return;
+        }
+        int n = batch.remaining();
+        while (batch.hasRemaining()) {
+            segment.write(batch);
+        }
+        if (fsync) {
+            segment.force(false);
+        }
+        commits++;
+        bytes += n;
+        records += countFrames(batch, n);
+    }
+
+    private static int countFrames(ByteBuffer written, int n) {
+        int count = 0;
+        for (int p = written.position() - n; p < written.position(); p += FRAME_HEADER + written.getInt(p)) {
+            count++;
+        }
+        return count;
+    }
+
+    private void startSegment(long firstSeq) throws IOException {
+        if (segment != null) {
+            segment.force(true);
+            segment.close();
+        }
+        segment = FileChannel.open(dir.resolve(segmentName(firstSeq)), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        segment.write(ByteBuffer.wrap(SEGMENT_MAGIC));
+        segmentStart = firstSeq;
+    }
+
+    private void writeSnapshot(Snapshot snap) throws IOException {
+        long started = System.nanoTime();
+        Path temp = dir.resolve(SNAPSHOT_TEMP);
+        ByteBuffer buf = ByteBuffer.allocate(IO_BUFFER);
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            buf.put(SNAPSHOT_MAGIC).putLong(snap.seq).putInt(snap.size);
+            for (int i = 0; i < snap.size; i++) {
+                byte[] text = utf8(snap.texts[i]);
+                byte[] tags = utf8(snap.tags[i]);
+                int need = FRAME_HEADER + MIN_BODY + 42 + text.length + tags.length;
+                if (buf.remaining() < need) {
+                    flush(out, buf);
+                    if (buf.capacity() < need) {
+                        buf = ByteBuffer.allocate(need);
+                    }
+                }
+                encode(buf, writerCrc, snap.seq, snap.due[i] == TaskTableModel.NO_DUE ? ADD : ADD_DUE, snap.ids[i],
+                        snap.created[i], snap.due[i], snap.priorities[i], snap.completed[i], text, tags);
+            }
+            flush(out, buf);
+            out.force(true);
+        }
+        Files.move(temp, dir.resolve(snapshotName(snap.seq)), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        // Only now is the history before the snapshot redundant
+        for (Path p : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).values()) {
+            if (!p.getFileName().toString().equals(snapshotName(snap.seq))) {
+                Files.deleteIfExists(p);
+            }
+        }
+        for (Path p : list(SEGMENT_PREFIX, SEGMENT_SUFFIX).headMap(segmentStart).values()) {
+            Files.deleteIfExists(p);
+        }
+        snapshots++;
+        snapshotSize = snap.size;
+        snapshotNanos += System.nanoTime() - started;
+    }
+
+    private static void flush(FileChannel out, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+        buf.clear();
+    }
+
+    // ---- recovery ----
+
+    private void recover(Replay replay) throws IOException {
+        long started = System.nanoTime();
+        Files.deleteIfExists(dir.resolve(SNAPSHOT_TEMP));
+        TreeMap<Long, Path> snapshotFiles = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        if (!snapshotFiles.isEmpty()) {
+            lastSeq = readSnapshot(snapshotFiles.lastEntry().getValue(), replay);
+        }
+        long covered = lastSeq;
+        TreeMap<Long, Path> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        List<Long> starts = new ArrayList<>(segments.keySet());
+        for (int i = 0; i < starts.size(); i++) {
+            long start = starts.get(i);
+            boolean last = i == starts.size() - 1;
+            if (!last && starts.get(i + 1) <= covered + 1) {
+                // Entirely inside the snapshot; left behind by a crash before cleanup
+                Files.deleteIfExists(segments.get(start));
+                continue;
+            }
+            replaySegment(segments.get(start), last, replay);
+            if (last) {
+                segment = FileChannel.open(segments.get(start), StandardOpenOption.WRITE);
+                segment.position(segment.size());
+                segmentStart = start;
+            }
+        }
+        if (segment == null) {
+            startSegment(lastSeq + 1);
+        }
+        durableSeq = lastSeq;
+        replayNanos = System.nanoTime() - started;
+    }
+
+    private long readSnapshot(Path file, Replay replay) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_MAGIC.length + 12);
+            while (header.hasRemaining() && in.read(header) >= 0) {
+                // keep reading
+            }
+            header.flip();
+            if (header.remaining() < header.capacity() || !hasMagic(header, SNAPSHOT_MAGIC)) {
+                throw new IOException("Not a task snapshot: " + file);
+            }
+            long seq = header.getLong();
+            int size = header.getInt();
+            FrameReader reader = new FrameReader(in, header.capacity());
+            for (int i = 0; i < size; i++) {
+                ByteBuffer body = reader.next();
+                byte type = body == null || body.getLong() != seq ? 0 : body.get();
+                if (type != ADD && type != ADD_DUE) {
+                    throw new IOException("Snapshot " + file + " is damaged at task " + i);
+                }
+                decode(type, body, replay);
+                replayedRecords++;
+            }
+            snapshotSize = size;
+            return seq;
+        }
+    }
+
+    private void replaySegment(Path file, boolean last, Replay replay) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_MAGIC.length);
+            while (header.hasRemaining() && in.read(header) >= 0) {
+                // keep reading
+            }
+            header.flip();
+            if (header.remaining() < SEGMENT_MAGIC.length && last) {
+                // Crashed while creating it
+                in.truncate(0);
+                in.write(ByteBuffer.wrap(SEGMENT_MAGIC), 0);
+                return;
+            }
+            if (!hasMagic(header, SEGMENT_MAGIC)) {
+                throw new IOException("Not a task journal: " + file);
+            }
+            FrameReader reader = new FrameReader(in, SEGMENT_MAGIC.length);
+            ByteBuffer body;
+            while ((body = reader.next()) != null) {
+                long seq = body.getLong();
+                byte type = body.get();
+                if (seq <= lastSeq) {
+                    continue;
+                }
+                if (seq != lastSeq + 1) {
+                    throw new IOException("Journal " + file + " skips from record " + lastSeq + " to " + seq);
+                }
+                decode(type, body, replay);
+                lastSeq = seq;
+                replayedRecords++;
+            }
+            if (reader.torn) {
+                if (!last) {
+                    throw new IOException("Journal " + file + " is damaged at byte " + reader.frameStart);
+                }
+                // The tail of the last segment was being written when the process died
+                in.truncate(reader.frameStart);
+                in.force(true);
+            }
+        }
+    }
+
+    private static boolean hasMagic(ByteBuffer header, byte[] magic) {
+        for (byte b : magic) {
+            if (header.get() != b) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Reads CRC-checked frames from a channel through one reusable buffer. */
+    private static final class FrameReader {
+        private final FileChannel in;
+        private ByteBuffer buf = ByteBuffer.allocate(IO_BUFFER);
+        private final CRC32 crc = new CRC32();
+        private long filePos;
+        long frameStart;
+        boolean torn;
+
+        FrameReader(FileChannel in, long start) throws IOException {
+            this.in = in;
+            in.position(start);
+            filePos = start;
+            buf.limit(0);
+        }
+
+        private boolean fill(int n) throws IOException {
+            if (buf.remaining() >= n) {
+                return true;
+            }
+            if (buf.capacity() < n) {
+                ByteBuffer bigger = ByteBuffer.allocate(n);
+                bigger.put(buf);
+                buf = bigger;
+            } else {
+                buf.compact();
+            }
+            while (buf.position() < n) {
+                int read = in.read(buf);
+                if (read < 0) {
+                    buf.flip();
+                    return false;
+                }
+                filePos += read;
+            }
+            buf.flip();
+            return true;
+        }
+
+        /** The next intact frame's body, positioned at its sequence number; null at the end or at damage. */
+        ByteBuffer next() throws IOException {
+            frameStart = filePos - buf.remaining();
+            if (!fill(FRAME_HEADER)) {
+                torn = buf.hasRemaining();
+                return null;
+            }
+            int p = buf.position();
+            int len = buf.getInt(p);
+            int expected = buf.getInt(p + 4);
+            if (len < MIN_BODY || len > MAX_BODY || !fill(FRAME_HEADER + len)) {
+                torn = true;
+                return null;
+            }
+            p = buf.position();
+            crc.reset();
+            crc.update(buf.array(), buf.arrayOffset() + p + FRAME_HEADER, len);
+            if ((int) crc.getValue() != expected) {
+                torn = true;
+                return null;
+            }
+            ByteBuffer body = buf.duplicate();
+            body.position(p + FRAME_HEADER).limit(p + FRAME_HEADER + len);
+            buf.position(p + FRAME_HEADER + len);
+            return body;
+        }
+    }
+
+    // ---- record format ----
+
+    private static void encode(ByteBuffer buf, CRC32 crc, long seq, byte type, long id, long created, long due,
+            int priority, boolean flag, byte[] text, byte[] tags) {
+        int start = buf.position();
+        buf.position(start + FRAME_HEADER);
+        buf.putLong(seq).put(type);
+        switch (type) {
+            case ADD:
+            case ADD_DUE:
+                putVarLong(buf, id);
+                putVarLong(buf, created);
+                if (type == ADD_DUE) {
+                    putVarLong(buf, due);
+                }
+                buf.put((byte) priority).put((byte) (flag ? 1 : 0));
+                putBytes(buf, text);
+                putBytes(buf, tags);
+                break;
+            case EDIT:
+                putVarLong(buf, id);
+                buf.put((byte) priority);
+                putBytes(buf, text);
+                putBytes(buf, tags);
+                break;
+            case SET_COMPLETED:
+                putVarLong(buf, id);
+                buf.put((byte) (flag ? 1 : 0));
+                break;
+            case SET_DUE:
+                putVarLong(buf, id);
+                putVarLong(buf, due);
+                break;
+            case DELETE:
+                putVarLong(buf, id);
+                break;
+            default:
+                break;
+        }
+        int len = buf.position() - start - FRAME_HEADER;
+        crc.reset();
+        crc.update(buf.array(), buf.arrayOffset() + start + FRAME_HEADER, len);
+        buf.putInt(start, len).putInt(start + 4, (int) crc.getValue());
+    }
+
+    private static void decode(byte type, ByteBuffer body, Replay replay) throws IOException {
+        switch (type) {
+            case ADD:
+            case ADD_DUE: {
+                long id = getVarLong(body);
+                long created = getVarLong(body);
+                long due = type == ADD_DUE ? getVarLong(body) : TaskTableModel.NO_DUE;
+                int priority = getPriority(body);
+                boolean completed = body.get() != 0;
+                replay.add(id, created, priority, completed, getString(body), getString(body));
+                if (type == ADD_DUE) {
+                    replay.setDue(id, due);
+                }
+                break;
+            }
+            case EDIT: {
+                long id = getVarLong(body);
+                int priority = getPriority(body);
+                replay.edit(id, priority, getString(body), getString(body));
+                break;
+            }
+            case SET_COMPLETED: {
+                long id = getVarLong(body);
+                replay.setCompleted(id, body.get() != 0);
+                break;
+            }
+            case SET_DUE: {
+                long id = getVarLong(body);
+                replay.setDue(id, getVarLong(body));
+                break;
+            }
+            case DELETE:
+                replay.delete(getVarLong(body));
+                break;
+            case COMPLETE_ALL:
+                replay.completeAll();
+                break;
+            case DELETE_COMPLETED:
+                replay.deleteCompleted();
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    private static void putVarLong(ByteBuffer buf, long v) {
+        while ((v & ~0x7FL) != 0) {
+            buf.put((byte) (v & 0x7F | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+    }
+
+    private static long getVarLong(ByteBuffer buf) {
+        long v = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = buf.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return v;
+            }
+        }
+    }
+
+    // A priority the table has no column value for would only fail later, inside the model
+    private static int getPriority(ByteBuffer buf) throws IOException {
+        int priority = buf.get();
+        if (priority < 0 || priority >= TaskTableModel.PRIORITIES.length) {
+            throw new IOException("Damaged journal record: priority " + priority);
+        }
+        return priority;
+    }
+
+    private static void putBytes(ByteBuffer buf, byte[] bytes) {
+        putVarLong(buf, bytes.length);
+        buf.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int n = (int) getVarLong(buf);
+        String s = new String(buf.array(), buf.arrayOffset() + buf.position(), n, StandardCharsets.UTF_8);
+        buf.position(buf.position() + n);
+        return s;
+    }
+
+    private static byte[] utf8(String s) {
+        return s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // ---- files ----
+
+    private static String segmentName(long firstSeq) {
+        return String.format("%s%016x%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX);
+    }
+
+    private static String snapshotName(long seq) {
+        return String.format("%s%016x%s", SNAPSHOT_PREFIX, seq, SNAPSHOT_SUFFIX);
+    }
+
+    private TreeMap<Long, Path> list(String prefix, String suffix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, prefix + "*" + suffix)) {
+            for (Path p : stream) {
+                String name = p.getFileName().toString();
+                String hex = name.substring(prefix.length(), name.length() - suffix.length());
+                try {
+                    files.put(Long.parseUnsignedLong(hex, 16), p);
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        return files;
+    }
+
+    public String stats() {
+        long c = commits;
+        return String.format("journal: %,d records in %,d commits (%.1f per commit), %.1f MB written, %,d snapshots"
+                + " (last %,d tasks, %.1f ms avg), replayed %,d records in %.1f ms", records, c,
+                c == 0 ? 0.0 : (double) records / c, bytes / 1e6, snapshots, snapshotSize,
+                snapshots == 0 ? 0.0 : snapshotNanos / 1e6 / snapshots, replayedRecords, replayNanos / 1e6);
+    }
+}
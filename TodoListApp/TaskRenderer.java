@@ -0,0 +1,238 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Toolkit;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.JComponent;
+import javax.swing.JTable;
+import javax.swing.UIManager;
+import javax.swing.border.Border;
+import javax.swing.table.TableCellRenderer;
+
+/**
+ * TaskRenderer - one shared renderer for every cell of the task table
+ * The stock renderers are a JLabel and a JCheckBox. For each cell they
+ * resolve the font, colors and focus border again, often through
+ * UIManager lookups, and lay out the text glyph by glyph. This renderer
+ * resolves the look-and-feel values once, when installed. It keeps an LRU
+ * cache of laid-out GlyphVectors keyed by cell text and column width, so
+ * scrolling back over rows reuses their layout. It draws the completion
+ * box once per color into an image, so each cell is a single blit. Like
+ * DefaultTableCellRenderer, it stubs out the property-change and
+ * revalidation calls that would otherwise run on every cell. Call
+ * {@link #install(JTable)} after the table's font is set.
+ */
+public class TaskRenderer extends JComponent implements TableCellRenderer {
+    private static final int LAYOUT_CACHE = 4096;
+    private static final int PAD = 6;
+    private static final int CHECK_SIZE = 17;
+    private static final BasicStroke TICK = new BasicStroke(2f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+
+    private final Color alternateRow;
+    private final Border focusBorder;
+    private final Map<?, ?> textHints;
+    private final Map<LayoutKey, GlyphVector> layouts = new LinkedHashMap<LayoutKey, GlyphVector>(LAYOUT_CACHE, 0.75f,
+            true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LayoutKey, GlyphVector> eldest) {
+            return size() > LAYOUT_CACHE;
+        }
+    };
+    private Font layoutFont;
+    private FontRenderContext layoutContext;
+    private int ascent, descent;
+    // foreground -> { unchecked, checked } box images at checkScale
+    private final Map<Color, BufferedImage[]> checkImages = new HashMap<>();
+    private double checkScale;
+
+    // The cell being painted, set by getTableCellRendererComponent
+    private Object value;
+    private Color background, foreground;
+    private boolean focused;
+
+    private static final class LayoutKey {
+        final String text;
+        final int width;
+
+        LayoutKey(String text, int width) {
+            this.text = text;
+            this.width = width;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof LayoutKey && ((LayoutKey) o).width == width && ((LayoutKey) o).text.equals(text);
+        }
+
+        @Override
+        public int hashCode() {
+            return text.hashCode() * 31 + width;
+        }
+    }
+
+    TaskRenderer() {
+        alternateRow = UIManager.getColor("Table.alternateRowColor");
+        focusBorder = UIManager.getBorder("Table.focusCellHighlightBorder");
+        textHints = (Map<?, ?>) Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+        setOpaque(true);
+    }
+
+    /** Renders every column of the table with one shared instance. */
+    public static TaskRenderer install(JTable table) {
+        TaskRenderer renderer = new TaskRenderer();
+        table.setDefaultRenderer(Object.class, renderer);
+        table.setDefaultRenderer(String.class, renderer);
+        table.setDefaultRenderer(Boolean.class, renderer);
+        return renderer;
+    }
+
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus,
+            int row, int column) {
+        this.value = value;
+        if (isSelected) {
+            background = table.getSelectionBackground();
+            foreground = table.getSelectionForeground();
+        } else {
+            background = alternateRow != null && row % 2 == 1 ? alternateRow : table.getBackground();
+            foreground = table.getForeground();
+        }
+        focused = hasFocus;
+        Font font = table.getFont();
+        if (font != layoutFont) {
+            FontMetrics metrics = table.getFontMetrics(font);
+            ascent = metrics.getAscent();
+            descent = metrics.getDescent();
+            layoutFont = font;
+            layouts.clear();
+        }
+        return this;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        int w = getWidth(), h = getHeight();
+        g2.setColor(background);
+        g2.fillRect(0, 0, w, h);
+        g2.setColor(foreground);
+        if (value instanceof Boolean) {
+            paintCheck(g2, w, h, (Boolean) value);
+        } else if (value != null) {
+            if (textHints != null) {
+                g2.addRenderingHints(textHints);
+            }
+            GlyphVector glyphs = layout(g2, value.toString(), w - 2 * PAD);
+            g2.drawGlyphVector(glyphs, PAD, (h - ascent - descent) / 2 + ascent);
+        }
+        if (focused && focusBorder != null) {
+            focusBorder.paintBorder(this, g, 0, 0, w, h);
+        }
+    }
+
+    // Antialiased strokes cost more than the rest of a row, so each box is drawn once per color and scale
+    private void paintCheck(Graphics2D g2, int w, int h, boolean checked) {
+        double scale = g2.getTransform().getScaleX();
+        if (scale != checkScale) {
+            checkImages.clear();
+            checkScale = scale;
+        }
+        BufferedImage[] images = checkImages.get(foreground);
+        if (images == null) {
+            images = new BufferedImage[2];
+            checkImages.put(foreground, images);
+        }
+        int i = checked ? 1 : 0;
+        if (images[i] == null) {
+            int pixels = (int) Math.ceil(CHECK_SIZE * scale);
+            images[i] = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D ig = images[i].createGraphics();
+            ig.scale(scale, scale);
+            ig.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            ig.setColor(foreground);
+            ig.drawRoundRect(1, 1, 14, 14, 4, 4);
+            if (checked) {
+                ig.setStroke(TICK);
+                ig.drawLine(4, 8, 7, 11);
+                ig.drawLine(7, 11, 12, 5);
+            }
+            ig.dispose();
+        }
+        g2.drawImage(images[i], (w - CHECK_SIZE) / 2, (h - CHECK_SIZE) / 2, CHECK_SIZE, CHECK_SIZE, null);
+    }
+
+    // The laid-out glyphs of text, cut with an ellipsis to fit width
+    private GlyphVector layout(Graphics2D g2, String text, int width) {
+        FontRenderContext frc = g2.getFontRenderContext();
+        if (!frc.equals(layoutContext)) {
+            layoutContext = frc;
+            layouts.clear();
+        }
+        LayoutKey key = new LayoutKey(text, width);
+        GlyphVector glyphs = layouts.get(key);
+        if (glyphs == null) {
+            glyphs = layoutFont.createGlyphVector(frc, text);
+            if (advance(glyphs) > width && !text.isEmpty()) {
+                // Longest prefix that fits with the ellipsis, by binary search on the prefix length
+                int lo = 0, hi = text.length();
+                while (lo < hi) {
+                    int mid = (lo + hi + 1) >>> 1;
+                    if (advance(layoutFont.createGlyphVector(frc, text.substring(0, mid) + "...")) <= width) {
+                        lo = mid;
+                    } else {
+                        hi = mid - 1;
+                    }
+                }
+                glyphs = layoutFont.createGlyphVector(frc, text.substring(0, lo) + "...");
+            }
+            layouts.put(key, glyphs);
+        }
+        return glyphs;
+    }
+
+    private static double advance(GlyphVector glyphs) {
+        Rectangle2D bounds = glyphs.getLogicalBounds();
+        return bounds.getWidth();
+    }
+
+    // Cell renderers are stamped, not laid out; skip the bookkeeping JComponent would do per cell
+
+    @Override
+    public void invalidate() {
+    }
+
+    @Override
+    public void validate() {
+    }
+
+    @Override
+    public void revalidate() {
+    }
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+    }
+
+    @Override
+    public void repaint() {
+    }
+
+    @Override
+    protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+    }
+
+    @Override
+    public void firePropertyChange(String propertyName, boolean oldValue, boolean newValue) {
+    }
+}
@@ -0,0 +1,76 @@
+import java.util.Comparator;
+import javax.swing.table.TableRowSorter;
+
+/**
+ * TaskRowSorter - sorts the task table by typed values instead of cell text
+ * Priority cells show the names Low to Urgent, and Created and Due cells
+ * show "MM/dd HH:mm". TableRowSorter compares String columns with a
+ * Collator. That puts High before Low, mixes up dates from different
+ * years, and costs a collation per comparison. This sorter gives the
+ * comparator the values behind those cells: the priority index (highest
+ * first when descending) and epoch milliseconds, with tasks that have no
+ * due date last. Task and Tags keep locale-aware collation, and regex
+ * filters still see the cell text.
+ */
+public class TaskRowSorter<M extends TaskTableModel> extends TableRowSorter<M> {
+    private static final Comparator<Comparable<Object>> NATURAL = Comparator.naturalOrder();
+
+    public TaskRowSorter(M model) {
+        super(model);
+    }
+
+    @Override
+    public void setModel(M model) {
+        super.setModel(model);
+        ModelWrapper<M, Integer> cells = getModelWrapper();
+        setModelWrapper(new ModelWrapper<M, Integer>() {
+            @Override
+            public M getModel() {
+                return cells.getModel();
+            }
+
+            @Override
+            public int getColumnCount() {
+                return cells.getColumnCount();
+            }
+
+            @Override
+            public int getRowCount() {
+                return cells.getRowCount();
+            }
+
+            @Override
+            public Object getValueAt(int row, int column) {
+                M m = cells.getModel();
+                switch (column) {
+                    case TaskTableModel.PRIORITY:
+                        return m.priority(row);
+                    case TaskTableModel.CREATED:
+                        return m.created(row);
+                    case TaskTableModel.DUE:
+                        return m.due(row);
+                    default:
+                        return cells.getValueAt(row, column);
+                }
+            }
+
+            @Override
+            public String getStringValueAt(int row, int column) {
+                return cells.getStringValueAt(row, column);
+            }
+
+            @Override
+            public Integer getIdentifier(int row) {
+                return cells.getIdentifier(row);
+            }
+        });
+    }
+
+    @Override
+    public Comparator<?> getComparator(int column) {
+        if (column == TaskTableModel.PRIORITY || column == TaskTableModel.CREATED || column == TaskTableModel.DUE) {
+            return NATURAL;
+        }
+        return super.getComparator(column);
+    }
+}
@@ -0,0 +1,228 @@
+import java.util.Arrays;
+
+/**
+ * TaskSchedule - the open tasks in "what to do next" order
+ * Tasks are ordered by due date (tasks without one last), then priority
+ * (Urgent first), then creation time, then id. {@link TaskTableModel}
+ * keeps the schedule current: a task is in it while it is not completed.
+ * The schedule is a treap, a binary search tree kept balanced by random
+ * heap priorities, that stores each subtree's size. Its nodes live in
+ * parallel arrays, like the model's columns, so there is no object per
+ * task. Adding and removing a task take O(log n) expected time. So does
+ * counting the tasks due before a time, which is how overdue tasks are
+ * counted. The first k tasks in order take O(log n + k).
+ */
+public class TaskSchedule {
+    // Slot 0 is the empty tree; its count stays 0
+    private static final int NIL = 0;
+
+    private int root = NIL;
+    private int[] left = new int[16];
+    private int[] right = new int[16];
+    private int[] count = new int[16];
+    private int[] heap = new int[16];
+    private long[] ids = new long[16];
+    private long[] due = new long[16];
+    private long[] created = new long[16];
+    private byte[] priorities = new byte[16];
+    // Next never-used slot, and the head of the freed slots (chained through left)
+    private int used = 1;
+    private int free = NIL;
+    private int seed = 0x2545F491;
+    // Results of split()
+    private int splitLeft, splitRight;
+
+    /** Open tasks scheduled. */
+    public int size() {
+        return count[root];
+    }
+
+    /** Tasks due strictly before time; with time = now, the overdue tasks. O(log n). */
+    public int countDueBefore(long time) {
+        int n = 0;
+        for (int t = root; t != NIL;) {
+            if (due[t] < time) {
+                n += count[left[t]] + 1;
+                t = right[t];
+            } else {
+                t = left[t];
+            }
+        }
+        return n;
+    }
+
+    /** Ids of the first n tasks in schedule order (fewer if there are fewer). */
+    public long[] first(int n) {
+        long[] out = new long[Math.max(0, Math.min(n, size()))];
+        int[] stack = new int[32];
+        int depth = 0, k = 0;
+        int t = root;
+        while (k < out.length) {
+            while (t != NIL) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = t;
+                t = left[t];
+            }
+            t = stack[--depth];
+            out[k++] = ids[t];
+            t = right[t];
+        }
+        return out;
+    }
+
+    /** Ids of the overdue tasks, most overdue first, at most limit of them. */
+    public long[] overdue(long now, int limit) {
+        return first(Math.min(limit, countDueBefore(now)));
+    }
+
+    void add(long id, long dueAt, int priority, long createdAt) {
+        int node = allocate();
+        ids[node] = id;
+        due[node] = dueAt;
+        priorities[node] = (byte) priority;
+        created[node] = createdAt;
+        root = insert(root, node);
+    }
+
+    /** Removes the task with exactly this key; false if it is not scheduled. */
+    boolean remove(long id, long dueAt, int priority, long createdAt) {
+        int before = size();
+        root = remove(root, id, dueAt, priority, createdAt);
+        return size() < before;
+    }
+
+    private int insert(int t, int node) {
+        if (t == NIL) {
+            return node;
+        }
+        if (heap[node] > heap[t]) {
+            split(t, node);
+            left[node] = splitLeft;
+            right[node] = splitRight;
+            update(node);
+            return node;
+        }
+        if (compare(node, t) < 0) {
+            left[t] = insert(left[t], node);
+        } else {
+            right[t] = insert(right[t], node);
+        }
+        update(t);
+        return t;
+    }
+
+    // Splits t into the nodes ordered before node (splitLeft) and the rest (splitRight)
+    private void split(int t, int node) {
+        if (t == NIL) {
+            splitLeft = splitRight = NIL;
+            return;
+        }
+        if (compare(t, node) < 0) {
+            split(right[t], node);
+            right[t] = splitLeft;
+            update(t);
+            splitLeft = t;
+        } else {
+            split(left[t], node);
+            left[t] = splitRight;
+            update(t);
+            splitRight = t;
+        }
+    }
+
+    private int remove(int t, long id, long dueAt, int priority, long createdAt) {
+        if (t == NIL) {
+            return NIL;
+        }
+        int c = compare(dueAt, priority, createdAt, id, t);
+        if (c == 0) {
+            int merged = merge(left[t], right[t]);
+            release(t);
+            return merged;
+        }
+        if (c < 0) {
+            left[t] = remove(left[t], id, dueAt, priority, createdAt);
+        } else {
+            right[t] = remove(right[t], id, dueAt, priority, createdAt);
+        }
+        update(t);
+        return t;
+    }
+
+    // Joins two trees where every node of a comes before every node of b
+    private int merge(int a, int b) {
+        if (a == NIL) {
+            return b;
+        }
+        if (b == NIL) {
+            return a;
+        }
+        if (heap[a] > heap[b]) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+
+    private void update(int t) {
+        count[t] = count[left[t]] + count[right[t]] + 1;
+    }
+
+    private int compare(int a, int b) {
+        return compare(due[a], priorities[a], created[a], ids[a], b);
+    }
+
+    private int compare(long dueAt, int priority, long createdAt, long id, int t) {
+        if (dueAt != due[t]) {
+            return dueAt < due[t] ? -1 : 1;
+        }
+        if (priority != priorities[t]) {
+            return priority > priorities[t] ? -1 : 1;
+        }
+        if (createdAt != created[t]) {
+            return createdAt < created[t] ? -1 : 1;
+        }
+        return Long.compare(id, ids[t]);
+    }
+
+    private int allocate() {
+        int node;
+        if (free != NIL) {
+            node = free;
+            free = left[node];
+        } else {
+            if (used == ids.length) {
+                int n = used * 2;
+                left = Arrays.copyOf(left, n);
+                right = Arrays.copyOf(right, n);
+                count = Arrays.copyOf(count, n);
+                heap = Arrays.copyOf(heap, n);
+                ids = Arrays.copyOf(ids, n);
+                due = Arrays.copyOf(due, n);
+                created = Arrays.copyOf(created, n);
+                priorities = Arrays.copyOf(priorities, n);
+            }
+            node = used++;
+        }
+        // xorshift; the heap order only has to look random
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        heap[node] = seed;
+        left[node] = right[node] = NIL;
+        count[node] = 1;
+        return node;
+    }
+
+    private void release(int node) {
+        left[node] = free;
+        right[node] = NIL;
+        count[node] = 0;
+        free = node;
+    }
+}
@@ -0,0 +1,165 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * TaskStats - running totals for a {@link TaskTableModel}
+ * The model calls this class from every mutation, while it still knows the
+ * row's old values, so the counts never need a scan of the table. It tracks
+ * tasks and completed tasks overall, per priority, and per tag. A row
+ * change costs O(1) plus the number of tags involved, and every read is
+ * O(1). Tags are the words of the tags field, split on spaces, commas and
+ * semicolons, without a leading '#', and compared case-insensitively.
+ */
+public class TaskStats {
+    private int total;
+    private int completed;
+    private final int[] priorityTotal = new int[TaskTableModel.PRIORITIES.length];
+    private final int[] priorityCompleted = new int[TaskTableModel.PRIORITIES.length];
+    // tag -> { tasks, completed tasks }; a tag is dropped when no task carries it
+    private final Map<String, int[]> tags = new HashMap<>();
+    // Parsed tags fields; the model deduplicates them, so a small cache covers bulk changes
+    private final Map<String, String[]> parsed = new HashMap<>();
+
+    public int total() {
+        return total;
+    }
+
+    public int completed() {
+        return completed;
+    }
+
+    public int remaining() {
+        return total - completed;
+    }
+
+    public int total(int priority) {
+        return priorityTotal[priority];
+    }
+
+    public int completed(int priority) {
+        return priorityCompleted[priority];
+    }
+
+    /** Tasks carrying the tag, completed or not. */
+    public int tagTotal(String tag) {
+        int[] c = tags.get(normalizeTag(tag));
+        return c == null ? 0 : c[0];
+    }
+
+    public int tagCompleted(String tag) {
+        int[] c = tags.get(normalizeTag(tag));
+        return c == null ? 0 : c[1];
+    }
+
+    public int distinctTags() {
+        return tags.size();
+    }
+
+    /** Task count per tag, sorted by tag; a copy, O(distinct tags). */
+    public Map<String, Integer> tagTotals() {
+        Map<String, Integer> copy = new TreeMap<>();
+        for (Map.Entry<String, int[]> e : tags.entrySet()) {
+            copy.put(e.getKey(), e.getValue()[0]);
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /** Splits a tags field into distinct normalized tags. */
+    public static String[] parseTags(String tagText) {
+        String[] words = tagText.trim().split("[\\s,;]+");
+        int n = 0;
+        outer:
+        for (String word : words) {
+            String tag = normalizeTag(word);
+            if (tag.isEmpty()) {
+                continue;
+            }
+            for (int i = 0; i < n; i++) {
+                if (words[i].equals(tag)) {
+                    continue outer;
+                }
+            }
+            words[n++] = tag;
+        }
+        return n == words.length ? words : Arrays.copyOf(words, n);
+    }
+
+    static String normalizeTag(String word) {
+        String tag = word.trim();
+        while (tag.startsWith("#")) {
+            tag = tag.substring(1);
+        }
+        return tag.toLowerCase(Locale.ROOT);
+    }
+
+    void added(int priority, boolean done, String tagText) {
+        count(priority, done, tagText, 1);
+    }
+
+    void removed(int priority, boolean done, String tagText) {
+        count(priority, done, tagText, -1);
+    }
+
+    void changed(int oldPriority, boolean oldDone, String oldTags, int priority, boolean done, String tagText) {
+        if (oldPriority == priority && oldDone == done) {
+            if (!oldTags.equals(tagText)) {
+                countTags(oldTags, oldDone, -1);
+                countTags(tagText, done, 1);
+            }
+            return;
+        }
+        if (oldTags.equals(tagText) && oldDone == done) {
+            priorityTotal[oldPriority]--;
+            priorityTotal[priority]++;
+            if (done) {
+                priorityCompleted[oldPriority]--;
+                priorityCompleted[priority]++;
+            }
+            return;
+        }
+        count(oldPriority, oldDone, oldTags, -1);
+        count(priority, done, tagText, 1);
+    }
+
+    private void count(int priority, boolean done, String tagText, int delta) {
+        total += delta;
+        priorityTotal[priority] += delta;
+        if (done) {
+            completed += delta;
+            priorityCompleted[priority] += delta;
+        }
+        countTags(tagText, done, delta);
+    }
+
+    private void countTags(String tagText, boolean done, int delta) {
+        if (tagText.isEmpty()) {
+            return;
+        }
+        String[] list = parsed.get(tagText);
+        if (list == null) {
+            if (parsed.size() >= 4096) {
+                parsed.clear();
+            }
+            list = parseTags(tagText);
+            parsed.put(tagText, list);
+        }
+        for (String tag : list) {
+            int[] c = tags.get(tag);
+            if (c == null) {
+                c = new int[2];
+                tags.put(tag, c);
+            }
+            c[0] += delta;
+            if (done) {
+                c[1] += delta;
+            }
+            if (c[0] == 0) {
+                tags.remove(tag);
+            }
+        }
+    }
+}
@@ -0,0 +1,633 @@
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * TaskTableModel - column-oriented table model for the task list
+ * Each attribute lives in its own array indexed by model row. Ids and
+ * creation times are long[] epoch values, priorities a byte[] index into
+ * {@link #PRIORITIES}, completion a BitSet, and text and tags int handles
+ * into a deduplicated {@link Strings} table. DefaultTableModel keeps a
+ * Vector of boxed values per row; this keeps a few primitives per row and
+ * builds cell values only when the table asks for them. The first five
+ * columns match the ones the table has always shown (Task, Priority,
+ * Tags, Created, Completed), so the checkbox editor sees the same types
+ * as before; the sixth is the optional due date. Cells are display
+ * strings; {@link TaskRowSorter} sorts by the typed values behind them.
+ * Every mutation also updates {@link #stats()}, the search
+ * {@link #index()}, the {@link #schedule()} of open tasks and the tag
+ * {@link #facets()} before its event fires, so listeners see them all up
+ * to date. The bulk methods change every matching row in one pass and
+ * fire a single event, instead of one event per row.
+ */
+public class TaskTableModel extends AbstractTableModel {
+    public static final String[] PRIORITIES = { "Low", "Medium", "High", "Urgent" };
+    public static final int TEXT = 0, PRIORITY = 1, TAGS = 2, CREATED = 3, COMPLETED = 4, DUE = 5;
+    /** Due date of a task without one; sorts after every real date. */
+    public static final long NO_DUE = Long.MAX_VALUE;
+
+    private static final String[] COLUMNS = { "Task", "Priority", "Tags", "Created", "Completed", "Due" };
+    private static final DateTimeFormatter MINUTE_FORMAT = DateTimeFormatter.ofPattern("MM/dd HH:mm");
+    private static final int MINUTE_CACHE = 1024;
+
+    private int size;
+    private long[] ids = new long[16];
+    private long[] created = new long[16];
+    private long[] due = new long[16];
+    private byte[] priorities = new byte[16];
+    private int[] texts = new int[16];
+    private int[] tags = new int[16];
+    private final BitSet completed = new BitSet();
+    private final Strings strings = new Strings();
+    private final TaskStats stats = new TaskStats();
+    private final TaskIndex index = new TaskIndex();
+    private final TaskSchedule schedule = new TaskSchedule();
+    private final TaskFacets facets = new TaskFacets();
+    // "Created" and "Due" cells by minute, so painting and sorting do not format the same minute over and over
+    private final long[] minuteKeys = new long[MINUTE_CACHE];
+    private final String[] minuteTexts = new String[MINUTE_CACHE];
+
+    public TaskTableModel() {
+        Arrays.fill(minuteKeys, Long.MIN_VALUE);
+    }
+
+    /** Index of a priority name in {@link #PRIORITIES}; unknown names are Low. */
+    public static int priorityIndex(String priority) {
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            if (PRIORITIES[i].equals(priority)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public int getRowCount() {
+        return size;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == COMPLETED ? Boolean.class : String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column == COMPLETED; // Only completion checkbox is editable
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        checkRow(row);
+        switch (column) {
+            case TEXT:
+                return strings.get(texts[row]);
+            case PRIORITY:
+                return PRIORITIES[priorities[row]];
+            case TAGS:
+                return strings.get(tags[row]);
+            case CREATED:
+                return formatMinute(created[row]);
+            case COMPLETED:
+                return completed.get(row);
+            case DUE:
+                return due[row] == NO_DUE ? "" : formatMinute(due[row]);
+            default:
+                throw new IndexOutOfBoundsException("column " + column);
+        }
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        checkRow(row);
+        int priority = priorities[row];
+        boolean done = completed.get(row);
+        String text = strings.get(texts[row]);
+        String tagText = strings.get(tags[row]);
+        unscheduleRow(row);
+        switch (column) {
+            case TEXT:
+                texts[row] = strings.replace(texts[row], (String) value);
+                break;
+            case PRIORITY:
+                priorities[row] = (byte) priorityIndex((String) value);
+                break;
+            case TAGS:
+                tags[row] = strings.replace(tags[row], (String) value);
+                break;
+            case COMPLETED:
+                completed.set(row, (Boolean) value);
+                break;
+            default:
+                scheduleRow(row);
+                throw new IllegalArgumentException("Column " + COLUMNS[column] + " is read-only");
+        }
+        scheduleRow(row);
+        if (column != TEXT) {
+            stats.changed(priority, done, tagText, priorities[row], completed.get(row), strings.get(tags[row]));
+            facets.changed(ids[row], priority, done, tagText, priorities[row], completed.get(row),
+                    strings.get(tags[row]));
+        }
+        if (column != COMPLETED) {
+            index.update(ids[row], new String[] { text, tagText, PRIORITIES[priority] }, searchFields(row));
+        }
+        fireTableCellUpdated(row, column);
+    }
+
+    /** Running totals of this model's rows. */
+    public TaskStats stats() {
+        return stats;
+    }
+
+    /** Search index over the text and tags of this model's rows. */
+    public TaskIndex index() {
+        return index;
+    }
+
+    /** The open tasks in due-date and priority order. */
+    public TaskSchedule schedule() {
+        return schedule;
+    }
+
+    /** Tag, priority and completion bitmaps of this model's rows, for faceted filters. */
+    public TaskFacets facets() {
+        return facets;
+    }
+
+    public long id(int row) {
+        checkRow(row);
+        return ids[row];
+    }
+
+    public long created(int row) {
+        checkRow(row);
+        return created[row];
+    }
+
+    public int priority(int row) {
+        checkRow(row);
+        return priorities[row];
+    }
+
+    /** Due date in epoch milliseconds, or {@link #NO_DUE}. */
+    public long due(int row) {
+        checkRow(row);
+        return due[row];
+    }
+
+    public boolean isCompleted(int row) {
+        checkRow(row);
+        return completed.get(row);
+    }
+
+    public String text(int row) {
+        checkRow(row);
+        return strings.get(texts[row]);
+    }
+
+    public String tags(int row) {
+        checkRow(row);
+        return strings.get(tags[row]);
+    }
+
+    /** Appends a task without a due date and returns its row. */
+    public int addTask(long id, long createdAt, int priority, boolean done, String text, String tagText) {
+        return addTask(id, createdAt, priority, done, text, tagText, NO_DUE);
+    }
+
+    /** Appends a task and returns its row. */
+    public int addTask(long id, long createdAt, int priority, boolean done, String text, String tagText,
+            long dueAt) {
+        ensureCapacity(size + 1);
+        int row = size++;
+        ids[row] = id;
+        created[row] = createdAt;
+        due[row] = dueAt;
+        priorities[row] = (byte) priority;
+        completed.set(row, done);
+        texts[row] = strings.intern(text);
+        tags[row] = strings.intern(tagText);
+        stats.added(priority, done, tagText);
+        facets.added(id, priority, done, tagText);
+        index.add(id, searchFields(row));
+        scheduleRow(row);
+        fireTableRowsInserted(row, row);
+        return row;
+    }
+
+    /** Appends imported tasks, numbered from firstId, with a single insert event; returns the first new row. */
+    public int addTasks(long firstId, TaskTransfer.Batch batch) {
+        int first = size;
+        if (batch.size() == 0) {
+            return first;
+        }
+        ensureCapacity(size + batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            int row = size++;
+            ids[row] = firstId + i;
+            created[row] = batch.created(i);
+            due[row] = batch.due(i);
+            priorities[row] = (byte) batch.priority(i);
+            completed.set(row, batch.isCompleted(i));
+            texts[row] = strings.intern(batch.text(i));
+            tags[row] = strings.intern(batch.tags(i));
+            stats.added(batch.priority(i), batch.isCompleted(i), batch.tags(i));
+            facets.added(ids[row], batch.priority(i), batch.isCompleted(i), batch.tags(i));
+            index.add(ids[row], searchFields(row));
+            scheduleRow(row);
+        }
+        fireTableRowsInserted(first, size - 1);
+        return first;
+    }
+
+    /** Replaces the editable fields of one row with a single update event. */
+    public void edit(int row, int priority, String text, String tagText) {
+        checkRow(row);
+        stats.changed(priorities[row], completed.get(row), strings.get(tags[row]), priority, completed.get(row),
+                tagText);
+        facets.changed(ids[row], priorities[row], completed.get(row), strings.get(tags[row]), priority,
+                completed.get(row), tagText);
+        index.update(ids[row], searchFields(row), new String[] { text, tagText, PRIORITIES[priority] });
+        unscheduleRow(row);
+        priorities[row] = (byte) priority;
+        scheduleRow(row);
+        texts[row] = strings.replace(texts[row], text);
+        tags[row] = strings.replace(tags[row], tagText);
+        fireTableRowsUpdated(row, row);
+    }
+
+    /** Sets or, with {@link #NO_DUE}, clears the due date of one row. */
+    public void setDue(int row, long dueAt) {
+        checkRow(row);
+        unscheduleRow(row);
+        due[row] = dueAt;
+        scheduleRow(row);
+        fireTableCellUpdated(row, DUE);
+    }
+
+    /** Model row of the task with this id, or -1. Rows are appended in id order, so this is a binary search. */
+    public int rowOf(long id) {
+        int row = Arrays.binarySearch(ids, 0, size, id);
+        if (row >= 0 && ids[row] == id) {
+            return row;
+        }
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public void setCompleted(int row, boolean done) {
+        setValueAt(done, row, COMPLETED);
+    }
+
+    public void removeRow(int row) {
+        checkRow(row);
+        stats.removed(priorities[row], completed.get(row), strings.get(tags[row]));
+        facets.removed(ids[row], priorities[row], completed.get(row), strings.get(tags[row]));
+        index.remove(ids[row], searchFields(row));
+        unscheduleRow(row);
+        strings.release(texts[row]);
+        strings.release(tags[row]);
+        int tail = size - row - 1;
+        System.arraycopy(ids, row + 1, ids, row, tail);
+        System.arraycopy(created, row + 1, created, row, tail);
+        System.arraycopy(due, row + 1, due, row, tail);
+        System.arraycopy(priorities, row + 1, priorities, row, tail);
+        System.arraycopy(texts, row + 1, texts, row, tail);
+        System.arraycopy(tags, row + 1, tags, row, tail);
+        // BitSet cannot shift, so move the set bits above the row down by one
+        BitSet above = completed.get(row + 1, size);
+        completed.clear(row, size);
+        for (int i = above.nextSetBit(0); i >= 0; i = above.nextSetBit(i + 1)) {
+            completed.set(row + i);
+        }
+        size--;
+        fireTableRowsDeleted(row, row);
+    }
+
+    /** Matches the given model rows, e.g. a table selection converted to the model. */
+    public static IntPredicate rows(int... modelRows) {
+        BitSet set = new BitSet();
+        for (int row : modelRows) {
+            set.set(row);
+        }
+        return set::get;
+    }
+
+    /**
+     * Marks the matching rows done or not done with a single update event.
+     * changed, if not null, sees each row that actually changed, after the
+     * change. Returns the number of rows changed.
+     */
+    public int setCompleted(IntPredicate which, boolean done, IntConsumer changed) {
+        int first = -1, last = -1, count = 0;
+        for (int row = 0; row < size; row++) {
+            if (completed.get(row) != done && which.test(row)) {
+                String tagText = strings.get(tags[row]);
+                stats.changed(priorities[row], !done, tagText, priorities[row], done, tagText);
+                facets.changed(ids[row], priorities[row], !done, tagText, priorities[row], done, tagText);
+                unscheduleRow(row);
+                completed.set(row, done);
+                scheduleRow(row);
+                if (changed != null) {
+                    changed.accept(row);
+                }
+                first = first < 0 ? row : first;
+                last = row;
+                count++;
+            }
+        }
+        if (count > 0) {
+            fireTableRowsUpdated(first, last);
+        }
+        return count;
+    }
+
+    /** Gives the matching rows a new priority with a single update event; see {@link #setCompleted}. */
+    public int reprioritize(IntPredicate which, int priority, IntConsumer changed) {
+        int first = -1, last = -1, count = 0;
+        index.beginBatch();
+        for (int row = 0; row < size; row++) {
+            if (priorities[row] != priority && which.test(row)) {
+                String[] before = searchFields(row);
+                stats.changed(priorities[row], completed.get(row), before[1], priority, completed.get(row), before[1]);
+                facets.changed(ids[row], priorities[row], completed.get(row), before[1], priority, completed.get(row),
+                        before[1]);
+                unscheduleRow(row);
+                priorities[row] = (byte) priority;
+                scheduleRow(row);
+                index.update(ids[row], before, searchFields(row));
+                if (changed != null) {
+                    changed.accept(row);
+                }
+                first = first < 0 ? row : first;
+                last = row;
+                count++;
+            }
+        }
+        index.endBatch();
+        if (count > 0) {
+            fireTableRowsUpdated(first, last);
+        }
+        return count;
+    }
+
+    /** Replaces the tags of the matching rows with a single update event; see {@link #setCompleted}. */
+    public int retag(IntPredicate which, String tagText, IntConsumer changed) {
+        int first = -1, last = -1, count = 0;
+        int handle = strings.intern(tagText);
+        index.beginBatch();
+        for (int row = 0; row < size; row++) {
+            if (tags[row] != handle && which.test(row)) {
+                String[] before = searchFields(row);
+                stats.changed(priorities[row], completed.get(row), before[1], priorities[row], completed.get(row),
+                        tagText);
+                facets.changed(ids[row], priorities[row], completed.get(row), before[1], priorities[row],
+                        completed.get(row), tagText);
+                tags[row] = strings.replace(tags[row], tagText);
+                index.update(ids[row], before, searchFields(row));
+                if (changed != null) {
+                    changed.accept(row);
+                }
+                first = first < 0 ? row : first;
+                last = row;
+                count++;
+            }
+        }
+        strings.release(handle);
+        index.endBatch();
+        if (count > 0) {
+            fireTableRowsUpdated(first, last);
+        }
+        return count;
+    }
+
+    /**
+     * Removes the matching rows in one compacting pass over the columns.
+     * removed, if not null, sees each row just before it goes, still at its
+     * old index. Fires one event: a range deletion when the rows were
+     * contiguous, otherwise a data change. Returns the number removed.
+     */
+    public int delete(IntPredicate which, IntConsumer removed) {
+        int kept = 0, first = -1, last = -1;
+        index.beginBatch();
+        for (int row = 0; row < size; row++) {
+            if (which.test(row)) {
+                if (removed != null) {
+                    removed.accept(row);
+                }
+                stats.removed(priorities[row], completed.get(row), strings.get(tags[row]));
+                facets.removed(ids[row], priorities[row], completed.get(row), strings.get(tags[row]));
+                index.remove(ids[row], searchFields(row));
+                unscheduleRow(row);
+                strings.release(texts[row]);
+                strings.release(tags[row]);
+                first = first < 0 ? row : first;
+                last = row;
+                continue;
+            }
+            if (kept != row) {
+                ids[kept] = ids[row];
+                created[kept] = created[row];
+                due[kept] = due[row];
+                priorities[kept] = priorities[row];
+                texts[kept] = texts[row];
+                tags[kept] = tags[row];
+                completed.set(kept, completed.get(row));
+            }
+            kept++;
+        }
+        index.endBatch();
+        int count = size - kept;
+        if (count == 0) {
+            return 0;
+        }
+        completed.clear(kept, size);
+        size = kept;
+        if (last - first + 1 == count) {
+            fireTableRowsDeleted(first, last);
+        } else {
+            fireTableDataChanged();
+        }
+        return count;
+    }
+
+    /** Grows the columns so that rows can be appended without reallocating. */
+    public void ensureCapacity(int rows) {
+        if (rows <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(rows, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        created = Arrays.copyOf(created, capacity);
+        due = Arrays.copyOf(due, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        texts = Arrays.copyOf(texts, capacity);
+        tags = Arrays.copyOf(tags, capacity);
+    }
+
+    /** Number of distinct task and tag strings held. */
+    public int distinctStrings() {
+        return strings.count;
+    }
+
+    private String[] searchFields(int row) {
+        return new String[] { strings.get(texts[row]), strings.get(tags[row]), PRIORITIES[priorities[row]] };
+    }
+
+    // Open rows are in the schedule; take a row out before changing its due date, priority or completion
+    private void unscheduleRow(int row) {
+        if (!completed.get(row)) {
+            schedule.remove(ids[row], due[row], priorities[row], created[row]);
+        }
+    }
+
+    private void scheduleRow(int row) {
+        if (!completed.get(row)) {
+            schedule.add(ids[row], due[row], priorities[row], created[row]);
+        }
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + ", size " + size);
+        }
+    }
+
+    private String formatMinute(long epochMillis) {
+        long minute = Math.floorDiv(epochMillis, 60_000L);
+        int slot = (int) (minute & (MINUTE_CACHE - 1));
+        if (minuteKeys[slot] != minute) {
+            minuteTexts[slot] = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault())
+                    .format(MINUTE_FORMAT);
+            minuteKeys[slot] = minute;
+        }
+        return minuteTexts[slot];
+    }
+
+    /**
+     * Deduplicating, reference-counted string table. Equal strings share one
+     * handle, so repeated tags and recurring task names are stored once. A
+     * handle is freed when its last row lets go of it. Lookup is an
+     * open-addressing int[] table with linear probing, with no entry objects.
+     * Handle 0 is always the empty string.
+     */
+    static final class Strings {
+        private String[] values = new String[16];
+        private int[] refs = new int[16];
+        private int[] table = new int[32]; // handle + 1, 0 = empty slot
+        private int[] free = new int[16];
+        private int freeCount;
+        private int next = 1; // handles below this have been allocated at some point
+        int count;
+
+        Strings() {
+            values[0] = "";
+        }
+
+        String get(int handle) {
+            return values[handle];
+        }
+
+        int intern(String s) {
+            if (s.isEmpty()) {
+                return 0;
+            }
+            int mask = table.length - 1;
+            int i = slot(s, mask);
+            for (int h; (h = table[i] - 1) >= 0; i = (i + 1) & mask) {
+                if (values[h].equals(s)) {
+                    refs[h]++;
+                    return h;
+                }
+            }
+            int h = freeCount > 0 ? free[--freeCount] : allocate();
+            values[h] = s;
+            refs[h] = 1;
+            table[i] = h + 1;
+            if (++count * 2 > table.length) {
+                rehash(table.length * 2);
+            }
+            return h;
+        }
+
+        void release(int handle) {
+            if (handle == 0 || --refs[handle] > 0) {
+                return;
+            }
+            int mask = table.length - 1;
+            int i = slot(values[handle], mask);
+            while (table[i] != handle + 1) {
+                i = (i + 1) & mask;
+            }
+            // Backward-shift deletion keeps every probe chain unbroken without tombstones
+            for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+                int home = slot(values[table[j] - 1], mask);
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    table[i] = table[j];
+                    i = j;
+                }
+            }
+            table[i] = 0;
+            values[handle] = null;
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, freeCount * 2);
+            }
+            free[freeCount++] = handle;
+            count--;
+        }
+
+        int replace(int handle, String s) {
+            int h = intern(s);
+            release(handle);
+            return h;
+        }
+
+        private int allocate() {
+            if (next == values.length) {
+                values = Arrays.copyOf(values, next * 2);
+                refs = Arrays.copyOf(refs, next * 2);
+            }
+            return next++;
+        }
+
+        private void rehash(int capacity) {
+            int[] old = table;
+            table = new int[capacity];
+            int mask = capacity - 1;
+            for (int entry : old) {
+                if (entry != 0) {
+                    int i = slot(values[entry - 1], mask);
+                    while (table[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    table[i] = entry;
+                }
+            }
+        }
+
+        private static int slot(String s, int mask) {
+            int h = s.hashCode() * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+}
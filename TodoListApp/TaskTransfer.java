@@ -0,0 +1,1003 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+/**
+ * TaskTransfer - streaming import and export of task lists
+ * Three formats: CSV with a header row, JSON Lines with one object per
+ * task, and a compact binary format for moving lists between copies of the
+ * app. Files go through a FileChannel in fixed-size chunks, and text is
+ * decoded and encoded one chunk at a time, so memory stays flat however
+ * large the file is. Imported rows are handed to a sink in batches of a
+ * fixed row count, and the sink owns each batch from then on. Both
+ * directions report progress to a callback, which can cancel by returning
+ * false. These are blocking calls meant for a worker thread; nothing here
+ * touches Swing.
+ *
+ * Exports write the table's columns: Task, Priority, Tags, Created (an
+ * ISO-8601 UTC instant), Completed and Due (an instant, or empty). Imports
+ * find the columns by name, in any order and ignoring case, and accept a
+ * few common aliases (title, labels, done, ...). Other columns and ids are
+ * ignored; imported tasks get new ids. Priorities match by name, and
+ * unknown names are Low. Created may be an instant, a local date-time or
+ * date (system zone), or epoch milliseconds; empty means the time of the
+ * import. Due takes the same forms, with a bare date meaning the end of
+ * that day, and empty meaning no due date. Rows without task text are
+ * skipped. Exports go to a temporary file that is renamed over the target
+ * only when complete.
+ */
+public final class TaskTransfer {
+
+    public enum Format {
+        CSV("csv"), JSON_LINES("jsonl"), BINARY("tasks");
+
+        public final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /** The format for a file name's extension, or null. */
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+                return JSON_LINES;
+            }
+            return name.endsWith(".tasks") ? BINARY : null;
+        }
+    }
+
+    /** Called after each chunk with work done so far (bytes read or rows written); false cancels. */
+    public interface Progress {
+        boolean update(long done, long total);
+    }
+
+    /** A run of tasks without ids: what an import hands over and what an export writes. */
+    public static final class Batch {
+        int size;
+        long[] created;
+        long[] due;
+        byte[] priorities;
+        boolean[] completed;
+        String[] texts;
+        String[] tags;
+
+        public Batch(int capacity) {
+            capacity = Math.max(capacity, 16);
+            created = new long[capacity];
+            due = new long[capacity];
+            priorities = new byte[capacity];
+            completed = new boolean[capacity];
+            texts = new String[capacity];
+            tags = new String[capacity];
+        }
+
+        public void add(long createdAt, int priority, boolean done, String text, String tagText) {
+            add(createdAt, priority, done, text, tagText, TaskTableModel.NO_DUE);
+        }
+
+        public void add(long createdAt, int priority, boolean done, String text, String tagText, long dueAt) {
+            if (size == created.length) {
+                int n = size * 2;
+                created = Arrays.copyOf(created, n);
+                due = Arrays.copyOf(due, n);
+                priorities = Arrays.copyOf(priorities, n);
+                completed = Arrays.copyOf(completed, n);
+                texts = Arrays.copyOf(texts, n);
+                tags = Arrays.copyOf(tags, n);
+            }
+            created[size] = createdAt;
+            due[size] = dueAt;
+            priorities[size] = (byte) priority;
+            completed[size] = done;
+            texts[size] = text;
+            tags[size] = tagText;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long created(int i) {
+            return created[i];
+        }
+
+        public long due(int i) {
+            return due[i];
+        }
+
+        public int priority(int i) {
+            return priorities[i];
+        }
+
+        public boolean isCompleted(int i) {
+            return completed[i];
+        }
+
+        public String text(int i) {
+            return texts[i];
+        }
+
+        public String tags(int i) {
+            return tags[i];
+        }
+    }
+
+    private static final byte[] MAGIC = { 'T', 'O', 'D', 'O', 'X', 'P', 'T', '1' };
+    // Binary record: flags (priority, 0x40 = has due, 0x80 = completed), varint created, [varint due,] text, tags
+    private static final byte END = (byte) 0xFF;
+    private static final int HAS_DUE = 0x40, COMPLETED = 0x80;
+    private static final int CHUNK = 1 << 20;
+    private static final int MAX_FIELD = 16 << 20;
+    private static final String[] HEADER = { "Task", "Priority", "Tags", "Created", "Completed", "Due" };
+    private static final String[] JSON_KEYS = { "task", "priority", "tags", "created", "completed", "due" };
+
+    private TaskTransfer() {
+    }
+
+    /**
+     * Reads file and hands its tasks to sink, batchRows at a time; returns
+     * the number of tasks read. Throws CancellationException if progress
+     * cancels, after the batches handed over so far.
+     */
+    public static long read(Path file, Format format, int batchRows, Consumer<Batch> sink, Progress progress)
+            throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            Importer importer = new Importer(file, in, batchRows, sink, progress);
+            switch (format) {
+            case CSV:
+                importer.readCsv();
+                break;
+            case JSON_LINES:
+                importer.readJsonLines();
+                break;
+            default:
+                importer.readBinary();
+            }
+            importer.handOver();
+            return importer.rows;
+        }
+    }
+
+    /** Writes rows to file, replacing it only once every row is written. */
+    public static void write(Path file, Format format, Batch rows, Progress progress) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        boolean written = false;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Exporter exporter = new Exporter(out, rows, progress);
+            switch (format) {
+            case CSV:
+                exporter.writeCsv();
+                break;
+            case JSON_LINES:
+                exporter.writeJsonLines();
+                break;
+            default:
+                exporter.writeBinary();
+            }
+            out.force(true);
+            written = true;
+        } finally {
+            if (!written) {
+                Files.deleteIfExists(temp);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Column number (Task = 0 ... Due = 5) for a header name or JSON key, or -1. */
+    static int column(String name) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+        case "task": case "text": case "title": case "name": case "summary":
+            return 0;
+        case "priority":
+            return 1;
+        case "tags": case "tag": case "labels":
+            return 2;
+        case "created": case "created at": case "created_at": case "createdat": case "date":
+            return 3;
+        case "completed": case "done": case "status":
+            return 4;
+        case "due": case "due date": case "due_date": case "duedate": case "deadline":
+            return 5;
+        default:
+            return -1;
+        }
+    }
+
+    // ---- import ----
+
+    private static final class Importer {
+        private final Path file;
+        private final FileChannel in;
+        private final long total;
+        private final int batchRows;
+        private final Consumer<Batch> sink;
+        private final Progress progress;
+        private final long now = System.currentTimeMillis();
+        private final ZoneId zone = ZoneId.systemDefault();
+        private ByteBuffer bytes = ByteBuffer.allocate(CHUNK);
+        private final CharBuffer chars = CharBuffer.allocate(CHUNK);
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+        private long read;
+        private boolean eof;
+        private boolean started;
+        private Batch batch;
+        private long rows;
+        // Line (text formats) or record (binary) being read, for error messages
+        private long line = 1;
+        private boolean binary;
+        // Parse position in the current JSON line
+        private CharSequence json;
+        private int pos;
+
+        Importer(Path file, FileChannel in, int batchRows, Consumer<Batch> sink, Progress progress)
+                throws IOException {
+            this.file = file;
+            this.in = in;
+            this.total = in.size();
+            this.batchRows = batchRows;
+            this.sink = sink;
+            this.progress = progress;
+            batch = new Batch(batchRows);
+        }
+
+        private void row(String text, String priority, String tagText, String created, String completed,
+                String dueAt) throws IOException {
+            text = text.trim();
+            if (text.isEmpty()) {
+                return;
+            }
+            add(parseTime(created, false), parsePriority(priority), parseCompleted(completed), text, tagText.trim(),
+                    parseTime(dueAt, true));
+        }
+
+        private void add(long createdAt, int priority, boolean done, String text, String tagText, long dueAt) {
+            batch.add(createdAt, priority, done, text, tagText, dueAt);
+            rows++;
+            if (batch.size == batchRows) {
+                handOver();
+            }
+        }
+
+        void handOver() {
+            if (batch.size > 0) {
+                sink.accept(batch);
+                batch = new Batch(batchRows);
+            }
+        }
+
+        private void reportProgress() {
+            if (!progress.update(read, total)) {
+                throw new CancellationException();
+            }
+        }
+
+        private IOException error(String what) {
+            return new IOException(file.getFileName() + (binary ? " record " : " line ") + line
+                    + ": " + what);
+        }
+
+        // The next decoded chunk of text, or null at the end of the file
+        private CharBuffer nextChars() throws IOException {
+            chars.clear();
+            while (chars.position() == 0) {
+                if (eof) {
+                    return null;
+                }
+                int n = in.read(bytes);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    read += n;
+                }
+                bytes.flip();
+                CoderResult result = decoder.decode(bytes, chars, eof);
+                if (eof && !result.isError()) {
+                    result = decoder.flush(chars);
+                }
+                if (result.isError()) {
+                    throw error("not UTF-8 text");
+                }
+                bytes.compact();
+                reportProgress();
+            }
+            chars.flip();
+            // Spreadsheets often start UTF-8 files with a byte order mark
+            if (!started) {
+                started = true;
+                if (chars.get(0) == '\uFEFF') {
+                    chars.get();
+                    if (!chars.hasRemaining()) {
+                        return nextChars();
+                    }
+                }
+            }
+            return chars;
+        }
+
+        // ---- CSV (RFC 4180: quoted fields may hold commas, newlines and "" for a quote) ----
+
+        void readCsv() throws IOException {
+            StringBuilder field = new StringBuilder();
+            String[] fields = new String[8];
+            int count = 0;
+            int[] columns = null;
+            boolean quoted = false, closedQuote = false;
+            for (CharBuffer cb; (cb = nextChars()) != null;) {
+                char[] a = cb.array();
+                for (int i = cb.position(), end = cb.limit(); i < end; i++) {
+                    char c = a[i];
+                    if (quoted) {
+                        if (c == '"') {
+                            quoted = false;
+                            closedQuote = true;
+                        } else {
+                            if (c == '\n') {
+                                line++;
+                            }
+                            field.append(c);
+                        }
+                        continue;
+                    }
+                    if (c == '"') {
+                        if (closedQuote) {
+                            field.append('"');
+                            quoted = true;
+                        } else if (field.length() == 0) {
+                            quoted = true;
+                        } else {
+                            field.append(c);
+                        }
+                        closedQuote = false;
+                        continue;
+                    }
+                    closedQuote = false;
+                    if (c == ',' || c == '\n') {
+                        if (count == fields.length) {
+                            fields = Arrays.copyOf(fields, count * 2);
+                        }
+                        fields[count++] = field.toString();
+                        field.setLength(0);
+                        if (c == '\n') {
+                            columns = csvRecord(fields, count, columns);
+                            count = 0;
+                            line++;
+                        }
+                    } else if (c != '\r') {
+                        field.append(c);
+                    }
+                }
+            }
+            if (quoted) {
+                throw error("unterminated quoted field");
+            }
+            if (count > 0 || field.length() > 0) {
+                if (count == fields.length) {
+                    fields = Arrays.copyOf(fields, count + 1);
+                }
+                fields[count++] = field.toString();
+                csvRecord(fields, count, columns);
+            }
+        }
+
+        // Maps the header, or adds one row; returns the column map
+        private int[] csvRecord(String[] fields, int count, int[] columns) throws IOException {
+            if (columns == null) {
+                columns = new int[HEADER.length];
+                Arrays.fill(columns, -1);
+                for (int i = count - 1; i >= 0; i--) {
+                    int column = column(fields[i]);
+                    if (column >= 0) {
+                        columns[column] = i;
+                    }
+                }
+                if (columns[0] < 0) {
+                    throw error("no Task column in the header");
+                }
+                return columns;
+            }
+            row(csvField(fields, count, columns[0]), csvField(fields, count, columns[1]),
+                    csvField(fields, count, columns[2]), csvField(fields, count, columns[3]),
+                    csvField(fields, count, columns[4]), csvField(fields, count, columns[5]));
+            return columns;
+        }
+
+        private static String csvField(String[] fields, int count, int i) {
+            return i >= 0 && i < count ? fields[i] : "";
+        }
+
+        // ---- JSON Lines: one flat object per line; tags may also be an array of strings ----
+
+        void readJsonLines() throws IOException {
+            StringBuilder current = new StringBuilder();
+            for (CharBuffer cb; (cb = nextChars()) != null;) {
+                char[] a = cb.array();
+                int from = cb.position();
+                for (int i = from, end = cb.limit(); i < end; i++) {
+                    if (a[i] == '\n') {
+                        current.append(a, from, i - from);
+                        jsonLine(current);
+                        current.setLength(0);
+                        line++;
+                        from = i + 1;
+                    }
+                }
+                current.append(a, from, cb.limit() - from);
+            }
+            jsonLine(current);
+        }
+
+        private void jsonLine(CharSequence s) throws IOException {
+            json = s;
+            pos = 0;
+            skipSpace();
+            if (pos == s.length()) {
+                return;
+            }
+            String[] values = { "", "", "", "", "", "" };
+            expect('{');
+            skipSpace();
+            if (peek() != '}') {
+                do {
+                    skipSpace();
+                    String key = jsonString();
+                    skipSpace();
+                    expect(':');
+                    skipSpace();
+                    String value = jsonValue();
+                    int column = column(key);
+                    if (column >= 0) {
+                        values[column] = value;
+                    }
+                    skipSpace();
+                } while (accept(','));
+            }
+            expect('}');
+            skipSpace();
+            if (pos != s.length()) {
+                throw error("text after the object");
+            }
+            row(values[0], values[1], values[2], values[3], values[4], values[5]);
+        }
+
+        // A scalar as text (null as ""), an array as its scalars joined by spaces; objects are skipped
+        private String jsonValue() throws IOException {
+            char c = peek();
+            if (c == '"') {
+                return jsonString();
+            }
+            if (c == '[' || c == '{') {
+                char close = c == '[' ? ']' : '}';
+                pos++;
+                StringBuilder joined = new StringBuilder();
+                skipSpace();
+                if (peek() != close) {
+                    do {
+                        skipSpace();
+                        if (close == '}') {
+                            jsonString();
+                            skipSpace();
+                            expect(':');
+                            skipSpace();
+                            jsonValue();
+                        } else {
+                            String item = jsonValue();
+                            if (!item.isEmpty()) {
+                                joined.append(joined.length() == 0 ? "" : " ").append(item);
+                            }
+                        }
+                        skipSpace();
+                    } while (accept(','));
+                }
+                expect(close);
+                return close == ']' ? joined.toString() : "";
+            }
+            int start = pos;
+            while (pos < json.length() && ",}] \t\r".indexOf(json.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = json.subSequence(start, pos).toString();
+            if (literal.isEmpty()) {
+                throw error("expected a value at column " + (pos + 1));
+            }
+            return literal.equals("null") ? "" : literal;
+        }
+
+        private String jsonString() throws IOException {
+            expect('"');
+            StringBuilder sb = null;
+            int start = pos;
+            while (true) {
+                if (pos >= json.length()) {
+                    throw error("unterminated string");
+                }
+                char c = json.charAt(pos++);
+                if (c == '"') {
+                    return sb == null ? json.subSequence(start, pos - 1).toString() : sb.toString();
+                }
+                if (c != '\\') {
+                    if (sb != null) {
+                        sb.append(c);
+                    }
+                    continue;
+                }
+                if (sb == null) {
+                    sb = new StringBuilder().append(json, start, pos - 1);
+                }
+                if (pos >= json.length()) {
+                    throw error("unterminated string");
+                }
+                char e = json.charAt(pos++);
+                switch (e) {
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'u':
+                    if (pos + 4 > json.length()) {
+                        throw error("bad \\u escape");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(json.subSequence(pos, pos + 4).toString(), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("bad \\u escape");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    sb.append(e);
+                }
+            }
+        }
+
+        private char peek() throws IOException {
+            if (pos >= json.length()) {
+                throw error("unexpected end of line");
+            }
+            return json.charAt(pos);
+        }
+
+        private boolean accept(char c) {
+            if (pos < json.length() && json.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) throws IOException {
+            if (!accept(c)) {
+                throw error("expected '" + c + "' at column " + (pos + 1));
+            }
+        }
+
+        private void skipSpace() {
+            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        // ---- binary ----
+
+        void readBinary() throws IOException {
+            binary = true;
+            bytes.limit(0);
+            line = 0;
+            if (!fill(MAGIC.length)) {
+                throw error("not a task export");
+            }
+            for (byte b : MAGIC) {
+                if (bytes.get() != b) {
+                    throw error("not a task export");
+                }
+            }
+            while (true) {
+                line++;
+                byte flags = next();
+                if (flags == END) {
+                    return;
+                }
+                long createdAt = varLong();
+                long dueAt = (flags & HAS_DUE) != 0 ? varLong() : TaskTableModel.NO_DUE;
+                String text = binaryString();
+                String tagText = binaryString();
+                // The low six bits; flags is a signed byte, so clearing just the two flag bits keeps its sign
+                int priority = flags & 0x3F;
+                if (priority >= TaskTableModel.PRIORITIES.length) {
+                    throw error("damaged record");
+                }
+                add(createdAt, priority, (flags & COMPLETED) != 0, text, tagText, dueAt);
+            }
+        }
+
+        private byte next() throws IOException {
+            if (!bytes.hasRemaining() && !fill(1)) {
+                throw error("file ends early");
+            }
+            return bytes.get();
+        }
+
+        private long varLong() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = next();
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return v;
+                }
+            }
+            throw error("damaged record");
+        }
+
+        private String binaryString() throws IOException {
+            long n = varLong();
+            if (n > MAX_FIELD || !fill((int) n)) {
+                throw error(n > MAX_FIELD ? "damaged record" : "file ends early");
+            }
+            String s = new String(bytes.array(), bytes.arrayOffset() + bytes.position(), (int) n,
+                    StandardCharsets.UTF_8);
+            bytes.position(bytes.position() + (int) n);
+            return s;
+        }
+
+        // Makes n bytes available, reading (and growing the buffer) as needed; false at the end of the file
+        private boolean fill(int n) throws IOException {
+            if (bytes.remaining() >= n) {
+                return true;
+            }
+            if (bytes.capacity() < n) {
+                ByteBuffer bigger = ByteBuffer.allocate(n);
+                bigger.put(bytes);
+                bytes = bigger;
+            } else {
+                bytes.compact();
+            }
+            while (bytes.position() < n) {
+                int count = in.read(bytes);
+                if (count < 0) {
+                    bytes.flip();
+                    return false;
+                }
+                read += count;
+            }
+            bytes.flip();
+            reportProgress();
+            return true;
+        }
+
+        // ---- field values ----
+
+        // Created (empty: now) or, with due set, Due (empty: none; a bare date: the end of that day)
+        private long parseTime(String value, boolean due) throws IOException {
+            String s = value.trim();
+            if (s.isEmpty()) {
+                return due ? TaskTableModel.NO_DUE : now;
+            }
+            try {
+                long utc = parseUtc(s);
+                if (utc != Long.MIN_VALUE) {
+                    return utc;
+                }
+                if (s.chars().allMatch(Character::isDigit)) {
+                    return Long.parseLong(s);
+                }
+                if (s.length() == 10) {
+                    LocalDate date = LocalDate.parse(s);
+                    return due ? date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli() - 1
+                            : date.atStartOfDay(zone).toInstant().toEpochMilli();
+                }
+                if (s.length() > 10 && s.charAt(10) == ' ') {
+                    s = s.substring(0, 10) + 'T' + s.substring(11);
+                }
+                TemporalAccessor t = DateTimeFormatter.ISO_DATE_TIME.parseBest(s, ZonedDateTime::from,
+                        LocalDateTime::from);
+                return t instanceof ZonedDateTime ? ((ZonedDateTime) t).toInstant().toEpochMilli()
+                        : ((LocalDateTime) t).atZone(zone).toInstant().toEpochMilli();
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw error("bad " + (due ? "Due" : "Created") + " value \"" + value + "\"");
+            }
+        }
+
+        // yyyy-MM-ddTHH:mm:ss[.fraction]Z, the form exports write, without the general parser; MIN_VALUE if not
+        private static long parseUtc(String s) {
+            int n = s.length();
+            if (n < 20 || s.charAt(n - 1) != 'Z' || s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(10) != 'T'
+                    || s.charAt(13) != ':' || s.charAt(16) != ':' || (n > 20 && s.charAt(19) != '.')) {
+                return Long.MIN_VALUE;
+            }
+            int year = digits(s, 0, 4), month = digits(s, 5, 2), day = digits(s, 8, 2);
+            int hour = digits(s, 11, 2), minute = digits(s, 14, 2), second = digits(s, 17, 2);
+            int millis = 0;
+            for (int i = 20; i < n - 1; i++) {
+                int d = digits(s, i, 1);
+                if (d < 0) {
+                    return Long.MIN_VALUE;
+                }
+                if (i < 23) {
+                    millis = millis * 10 + d;
+                }
+            }
+            for (int i = Math.max(n - 1, 20); i < 23; i++) {
+                millis *= 10;
+            }
+            if (year < 0 || month < 1 || month > 12 || day < 1 || day > LocalDate.of(year, month, 1).lengthOfMonth()
+                    || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+                return Long.MIN_VALUE;
+            }
+            long epochDay = LocalDate.of(year, month, day).toEpochDay();
+            return ((epochDay * 24 + hour) * 60 + minute) * 60_000L + second * 1000L + millis;
+        }
+
+        // The decimal value of s[from, from + count), or -1 if any of it is not a digit
+        private static int digits(String s, int from, int count) {
+            int v = 0;
+            for (int i = from; i < from + count; i++) {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                v = v * 10 + c - '0';
+            }
+            return v;
+        }
+
+        private static int parsePriority(String value) {
+            String s = value.trim();
+            for (int i = 0; i < TaskTableModel.PRIORITIES.length; i++) {
+                if (TaskTableModel.PRIORITIES[i].equalsIgnoreCase(s)) {
+                    return i;
+                }
+            }
+            return 0;
+        }
+
+        private static boolean parseCompleted(String value) {
+            switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "true": case "yes": case "y": case "1": case "x": case "done": case "completed": case "closed":
+                return true;
+            default:
+                return false;
+            }
+        }
+    }
+
+    // ---- export ----
+
+    private static final class Exporter {
+        private final FileChannel out;
+        private final Batch rows;
+        private final Progress progress;
+        private ByteBuffer bytes = ByteBuffer.allocate(CHUNK);
+        private final StringBuilder text = new StringBuilder(CHUNK);
+        private long cachedDay;
+        private String cachedDate;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        Exporter(FileChannel out, Batch rows, Progress progress) {
+            this.out = out;
+            this.rows = rows;
+            this.progress = progress;
+        }
+
+        void writeCsv() throws IOException {
+            text.append(String.join(",", HEADER)).append("\r\n");
+            for (int i = 0; i < rows.size; i++) {
+                csv(rows.texts[i]).append(',').append(TaskTableModel.PRIORITIES[rows.priorities[i]]).append(',');
+                csv(rows.tags[i]).append(',');
+                utc(rows.created[i]).append(',').append(rows.completed[i]).append(',');
+                if (rows.due[i] != TaskTableModel.NO_DUE) {
+                    utc(rows.due[i]);
+                }
+                text.append("\r\n");
+                if (text.length() >= CHUNK / 2) {
+                    encode(false, i + 1);
+                }
+            }
+            encode(true, rows.size);
+        }
+
+        private StringBuilder csv(String s) {
+            boolean quote = !s.isEmpty() && (s.charAt(0) == ' ' || s.charAt(s.length() - 1) == ' ');
+            for (int i = 0; i < s.length() && !quote; i++) {
+                char c = s.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                return text.append(s);
+            }
+            text.append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                text.append(c);
+                if (c == '"') {
+                    text.append('"');
+                }
+            }
+            return text.append('"');
+        }
+
+        void writeJsonLines() throws IOException {
+            for (int i = 0; i < rows.size; i++) {
+                text.append("{\"").append(JSON_KEYS[0]).append("\":");
+                json(rows.texts[i]).append(",\"").append(JSON_KEYS[1]).append("\":\"")
+                        .append(TaskTableModel.PRIORITIES[rows.priorities[i]]).append("\",\"")
+                        .append(JSON_KEYS[2]).append("\":");
+                json(rows.tags[i]).append(",\"").append(JSON_KEYS[3]).append("\":\"");
+                utc(rows.created[i]).append("\",\"").append(JSON_KEYS[4])
+                        .append("\":").append(rows.completed[i]);
+                if (rows.due[i] != TaskTableModel.NO_DUE) {
+                    text.append(",\"").append(JSON_KEYS[5]).append("\":\"");
+                    utc(rows.due[i]).append('"');
+                }
+                text.append("}\n");
+                if (text.length() >= CHUNK / 2) {
+                    encode(false, i + 1);
+                }
+            }
+            encode(true, rows.size);
+        }
+
+        // Appends what Instant.toString would, formatting each day's date only once
+        private StringBuilder utc(long epochMillis) {
+            long day = Math.floorDiv(epochMillis, 86_400_000L);
+            int ms = (int) Math.floorMod(epochMillis, 86_400_000L);
+            if (day != cachedDay || cachedDate == null) {
+                cachedDay = day;
+                cachedDate = LocalDate.ofEpochDay(day).toString();
+            }
+            text.append(cachedDate).append('T');
+            twoDigits(ms / 3_600_000).append(':');
+            twoDigits(ms / 60_000 % 60).append(':');
+            twoDigits(ms / 1000 % 60);
+            if (ms % 1000 != 0) {
+                int fraction = ms % 1000;
+                text.append('.').append((char) ('0' + fraction / 100)).append((char) ('0' + fraction / 10 % 10))
+                        .append((char) ('0' + fraction % 10));
+            }
+            return text.append('Z');
+        }
+
+        private StringBuilder twoDigits(int v) {
+            return text.append((char) ('0' + v / 10)).append((char) ('0' + v % 10));
+        }
+
+        private StringBuilder json(String s) {
+            text.append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    text.append('\\').append(c);
+                } else if (c == '\n') {
+                    text.append("\\n");
+                } else if (c == '\r') {
+                    text.append("\\r");
+                } else if (c == '\t') {
+                    text.append("\\t");
+                } else if (c < 0x20) {
+                    text.append(String.format("\\u%04x", (int) c));
+                } else {
+                    text.append(c);
+                }
+            }
+            return text.append('"');
+        }
+
+        // Encodes the buffered text and writes it out
+        private void encode(boolean last, long done) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            while (true) {
+                CoderResult result = encoder.encode(chars, bytes, last);
+                if (result.isOverflow()) {
+                    flush();
+                    continue;
+                }
+                if (last) {
+                    while (encoder.flush(bytes).isOverflow()) {
+                        flush();
+                    }
+                }
+                break;
+            }
+            // Anything left over is half of a surrogate pair, finished by the next row
+            text.delete(0, chars.position());
+            flush();
+            reportProgress(done);
+        }
+
+        void writeBinary() throws IOException {
+            bytes.put(MAGIC);
+            for (int i = 0; i < rows.size; i++) {
+                byte[] t = rows.texts[i].getBytes(StandardCharsets.UTF_8);
+                byte[] g = rows.tags[i].getBytes(StandardCharsets.UTF_8);
+                if (t.length > MAX_FIELD || g.length > MAX_FIELD) {
+                    throw new IOException("task " + (i + 1) + " is too long to export");
+                }
+                int need = 1 + 10 + 10 + 5 + t.length + 5 + g.length;
+                if (bytes.remaining() < need) {
+                    flush();
+                    reportProgress(i);
+                    if (bytes.capacity() < need) {
+                        bytes = ByteBuffer.allocate(need);
+                    }
+                }
+                boolean hasDue = rows.due[i] != TaskTableModel.NO_DUE;
+                bytes.put((byte) (rows.priorities[i] | (hasDue ? HAS_DUE : 0) | (rows.completed[i] ? COMPLETED : 0)));
+                putVarLong(rows.created[i]);
+                if (hasDue) {
+                    putVarLong(rows.due[i]);
+                }
+                putVarLong(t.length);
+                bytes.put(t);
+                putVarLong(g.length);
+                bytes.put(g);
+            }
+            if (!bytes.hasRemaining()) {
+                flush();
+            }
+            bytes.put(END);
+            flush();
+            reportProgress(rows.size);
+        }
+
+        private void putVarLong(long v) {
+            while ((v & ~0x7FL) != 0) {
+                bytes.put((byte) (v & 0x7F | 0x80));
+                v >>>= 7;
+            }
+            bytes.put((byte) v);
+        }
+
+        private void flush() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            bytes.clear();
+        }
+
+        private void reportProgress(long done) {
+            if (!progress.update(done, rows.size)) {
+                throw new CancellationException();
+            }
+        }
+    }
+}
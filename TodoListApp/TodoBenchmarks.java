@@ -0,0 +1,1842 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import javax.swing.JTable;
+import javax.swing.RowFilter;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableRowSorter;
+
+/**
+ * TodoBenchmarks - benchmarks and self-checks for the task list internals
+ * Usage:
+ * java TodoBenchmarks [suite ...]
+ * Suites: journal, recovery, model, stats, search, scroll, bulk, transfer,
+ * schedule, facets.
+ * Without arguments every suite runs.
+ * The journal suite measures sustained write throughput for 1M tasks
+ * through {@link TaskJournal} (group commit and fsync on), and how long
+ * replaying them takes from the journal alone and from a snapshot. The
+ * recovery suite repeatedly SIGKILLs a child process that is writing a
+ * random workload, reopens the journal, and checks that every record the
+ * child saw acknowledged as durable is back and that the replayed state
+ * matches the workload exactly. It also tears the tail of the journal by
+ * hand. The model suite compares heap per task, sorting, filtering and a
+ * completed-count scan for {@link TaskTableModel} against the
+ * DefaultTableModel rows the app used before. The stats suite compares the
+ * status bar's old full scan with {@link TaskStats} reads, and checks the
+ * running counts against a recount after a random mutation soak. The
+ * search suite times the old per-keystroke regex filter against
+ * {@link TaskIndex} for a typed query sequence. It checks every result
+ * against a brute-force match, before and after random edits. The scroll
+ * suite paints the Nimbus-styled table offscreen, one viewport per frame,
+ * at 100k and 1M rows. It compares the stock renderers with
+ * {@link TaskRenderer}, both for wheel-style scrolling and for jumps. The
+ * bulk suite runs each bulk operation against the row-at-a-time loop it
+ * replaces. The model sits under a sorted JTable, and the suite counts
+ * events and checks that both paths leave the same rows and counts. The
+ * per-row delete is O(n^2) under a sorter, so it runs on a tenth of the
+ * rows. The transfer suite exports and re-imports 1M tasks through
+ * {@link TaskTransfer} in each format, reports rows/s for writing, for
+ * parsing and for importing into a model, and checks that every field
+ * survives the round trip. It also reads hand-written files in the forms
+ * other tools produce, and checks that cancelling stops both directions.
+ * The schedule suite sorts by Priority, Created and Due with the stock
+ * TableRowSorter and with {@link TaskRowSorter}, and checks the typed
+ * order. It times the next-tasks and overdue queries on
+ * {@link TaskSchedule} against a full scan, and checks both against the
+ * scan after a random mutation soak. The facets suite checks
+ * {@link TaskBitmap} against java.util.BitSet on random sparse and dense
+ * sets. It then times tag, open-only and priority selections through
+ * {@link TaskFacets} against a scan that parses every tags cell, and
+ * the sidebar's per-tag counts the same way. It compares the bitmaps'
+ * size with posting lists and plain bitsets, and checks the facets
+ * against a scan and the running tag totals after a mutation soak.
+ * It exits non-zero on any mismatch.
+ * Properties:
+ * -Dbench.tasks=N          tasks for the journal suite (1000000)
+ * -Dbench.rounds=N         kill/recover rounds for the recovery suite (5)
+ * -Dbench.modelTasks=N     tasks for the model and stats suites (1000000)
+ * -Dbench.searchTasks=N    tasks for the search suite (500000)
+ * -Dbench.frames=N         frames per scroll pattern (2000)
+ * -Dbench.bulkTasks=N      tasks for the bulk suite (200000)
+ * -Dbench.transferTasks=N  tasks for the transfer suite (1000000)
+ * -Dbench.scheduleTasks=N  tasks for the schedule suite (1000000; a fifth of them are sorted)
+ * -Dbench.facetTasks=N     tasks for the facets suite (1000000)
+ * -Dbench.dir=DIR          scratch directory (a new temp directory)
+ */
+public class TodoBenchmarks {
+
+    private static final int TASKS = Integer.getInteger("bench.tasks", 1_000_000);
+    private static final int ROUNDS = Integer.getInteger("bench.rounds", 5);
+    private static final int MODEL_TASKS = Integer.getInteger("bench.modelTasks", 1_000_000);
+    private static final int SEARCH_TASKS = Integer.getInteger("bench.searchTasks", 500_000);
+    private static final int FRAMES = Integer.getInteger("bench.frames", 2000);
+    private static final int BULK_TASKS = Integer.getInteger("bench.bulkTasks", 200_000);
+    private static final int TRANSFER_TASKS = Integer.getInteger("bench.transferTasks", 1_000_000);
+    private static final int SCHEDULE_TASKS = Integer.getInteger("bench.scheduleTasks", 1_000_000);
+    private static final int FACET_TASKS = Integer.getInteger("bench.facetTasks", 1_000_000);
+
+    interface Suite {
+        void run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && args[0].equals("recovery-child")) {
+            recoveryChild(Paths.get(args[1]), Long.parseLong(args[2]));
+            return;
+        }
+        Map<String, Suite> suites = new LinkedHashMap<>();
+        suites.put("journal", TodoBenchmarks::journalSuite);
+        suites.put("recovery", TodoBenchmarks::recoverySuite);
+        suites.put("model", TodoBenchmarks::modelSuite);
+        suites.put("stats", TodoBenchmarks::statsSuite);
+        suites.put("search", TodoBenchmarks::searchSuite);
+        suites.put("scroll", TodoBenchmarks::scrollSuite);
+        suites.put("bulk", TodoBenchmarks::bulkSuite);
+        suites.put("transfer", TodoBenchmarks::transferSuite);
+        suites.put("schedule", TodoBenchmarks::scheduleSuite);
+        suites.put("facets", TodoBenchmarks::facetsSuite);
+
+        if (args.length == 0) {
+            for (Suite suite : suites.values()) {
+                suite.run();
+            }
+            return;
+        }
+        for (String name : args) {
+            Suite suite = suites.get(name);
+            if (suite == null) {
+                System.err.println("Unknown suite: " + name + " (available: " + suites.keySet() + ")");
+                System.exit(2);
+            }
+            suite.run();
+        }
+    }
+
+    // ---- journal ----
+
+    static void journalSuite() throws IOException {
+        System.out.printf("== journal: %,d tasks, fsync on ==%n", TASKS);
+        Path dir = scratch("journal");
+        try {
+            String[] texts = new String[1024];
+            String[] tags = new String[64];
+            Random random = new Random(1);
+            for (int i = 0; i < texts.length; i++) {
+                texts[i] = Workload.sentence(random, 3 + random.nextInt(6));
+            }
+            for (int i = 0; i < tags.length; i++) {
+                tags[i] = Workload.sentence(random, random.nextInt(3));
+            }
+
+            // Reference point: waiting for the disk after every record, as a naive save would
+            int single = Math.min(2_000, TASKS);
+            long start = System.nanoTime();
+            try (TaskJournal journal = TaskJournal.open(dir.resolve("single"), true, new Tasks())) {
+                for (int i = 0; i < single; i++) {
+                    journal.awaitDurable(journal.add(i + 1, 0, i & 3, false, texts[i & 1023], tags[i & 63]));
+                }
+            }
+            long nanos = System.nanoTime() - start;
+            System.out.printf("%-44s %,12.0f tasks/s%n", "commit per record", single / (nanos / 1e9));
+
+            Path main = dir.resolve("main");
+            long created = System.currentTimeMillis();
+            start = System.nanoTime();
+            long appended;
+            String stats;
+            try (TaskJournal journal = TaskJournal.open(main, true, new Tasks())) {
+                for (int i = 0; i < TASKS; i++) {
+                    journal.add(i + 1, created + i, i & 3, false, texts[i & 1023], tags[i & 63]);
+                }
+                appended = System.nanoTime() - start;
+                journal.sync();
+                nanos = System.nanoTime() - start;
+                stats = journal.stats();
+            }
+            System.out.printf("%-44s %,12.0f tasks/s%n", "append (caller side)", TASKS / (appended / 1e9));
+            System.out.printf("%-44s %,12.0f tasks/s  %.1f MB/s%n", "group commit, durable", TASKS / (nanos / 1e9),
+                    size(main) / 1e6 / (nanos / 1e9));
+            System.out.println("  " + stats);
+
+            Tasks replayed = new Tasks();
+            start = System.nanoTime();
+            TaskJournal journal = TaskJournal.open(main, true, replayed);
+            System.out.printf("%-44s %,12.1f ms  (%,d tasks)%n", "replay journal only",
+                    (System.nanoTime() - start) / 1e6, replayed.size());
+            check(replayed.size() == TASKS, "replay lost tasks");
+            journal.snapshot(replayed.snapshot());
+            journal.close();
+
+            replayed = new Tasks();
+            start = System.nanoTime();
+            journal = TaskJournal.open(main, true, replayed);
+            System.out.printf("%-44s %,12.1f ms  (%,d tasks)%n", "replay snapshot",
+                    (System.nanoTime() - start) / 1e6, replayed.size());
+            check(replayed.size() == TASKS, "snapshot lost tasks");
+            journal.close();
+
+            // A realistic mix of edits, completions and deletes on top
+            Workload workload = new Workload(7);
+            Tasks state = new Tasks();
+            journal = TaskJournal.open(dir.resolve("mixed"), true, new Tasks());
+            start = System.nanoTime();
+            for (int i = 0; i < TASKS; i++) {
+                workload.step(journal, state);
+                if (journal.recordsSinceSnapshot() >= 100_000) {
+                    journal.snapshot(state.snapshot());
+                }
+            }
+            journal.sync();
+            nanos = System.nanoTime() - start;
+            System.out.printf("%-44s %,12.0f ops/s  (%,d tasks left)%n", "mixed workload with snapshots, durable",
+                    TASKS / (nanos / 1e9), state.size());
+            System.out.println("  " + journal.stats());
+            journal.close();
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    // ---- recovery ----
+
+    static void recoverySuite() throws Exception {
+        System.out.printf("== recovery: %d kill -9 rounds, then torn tails ==%n", ROUNDS);
+        Path dir = scratch("recovery");
+        long seed = 42;
+        Random random = new Random(seed);
+        try {
+            for (int round = 1; round <= ROUNDS; round++) {
+                long acked = runChildUntilKilled(dir, seed, 300 + random.nextInt(900));
+                Tasks recovered = new Tasks();
+                TaskJournal journal = TaskJournal.open(dir, true, recovered);
+                long last = journal.lastSeq();
+                journal.close();
+                boolean matches = new Workload(seed).replayTo(last).equals(recovered);
+                System.out.printf("round %d: acknowledged %,d, recovered %,d records, %,d tasks, %d file(s): %s%n",
+                        round, acked, last, recovered.size(), fileCount(dir),
+                        last >= acked && matches ? "ok" : "FAILED");
+                check(last >= acked, "lost acknowledged records");
+                check(matches, "recovered state differs from the workload");
+            }
+
+            // Tear the last segment by hand: half a record of garbage, then a flipped byte in the last record
+            Path segment = lastSegment(dir);
+            long before;
+            try (TaskJournal journal = TaskJournal.open(dir, true, new Tasks())) {
+                before = journal.lastSeq();
+            }
+            try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ch.write(ByteBuffer.wrap(new byte[] { 40, 0, 0, 0, 1, 2, 3, 4, 5, 6, 7 }));
+            }
+            Tasks recovered = new Tasks();
+            long last;
+            try (TaskJournal journal = TaskJournal.open(dir, true, recovered)) {
+                last = journal.lastSeq();
+            }
+            boolean ok = last == before && new Workload(seed).replayTo(last).equals(recovered);
+            System.out.printf("%-44s %s%n", "garbage after the last record", ok ? "ok" : "FAILED");
+            check(ok, "garbage tail not cut off");
+
+            long size = Files.size(segment);
+            if (size > 16) {
+                try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    ByteBuffer b = ByteBuffer.allocate(1);
+                    ch.read(b, size - 1);
+                    b.flip();
+                    b.put(0, (byte) (b.get(0) ^ 0x55));
+                    ch.write(b, size - 1);
+                }
+                recovered = new Tasks();
+                try (TaskJournal journal = TaskJournal.open(dir, true, recovered)) {
+                    last = journal.lastSeq();
+                    // The journal must accept appends right after the cut
+                    Workload workload = new Workload(seed);
+                    Tasks state = workload.replayTo(last);
+                    check(state.equals(recovered), "state differs after a corrupt last record");
+                    workload.step(journal, state);
+                }
+                ok = last == before - 1;
+                Tasks again = new Tasks();
+                try (TaskJournal journal = TaskJournal.open(dir, true, again)) {
+                    ok &= journal.lastSeq() == last + 1 && new Workload(seed).replayTo(last + 1).equals(again);
+                }
+                System.out.printf("%-44s %s%n", "corrupt last record, then append", ok ? "ok" : "FAILED");
+                check(ok, "corrupt last record not handled");
+            }
+        } finally {
+            deleteTree(dir);
+        }
+        thresholdSnapshots();
+        damagedPriority();
+    }
+
+    // A record whose priority no table column has must fail the open, not the model that replays it
+    private static void damagedPriority() throws IOException {
+        Path dir = scratch("recovery-priority");
+        try {
+            try (TaskJournal journal = TaskJournal.open(dir, true, new Tasks())) {
+                journal.add(1, 1, 1, false, "fine", "");
+                journal.add(2, 2, 63, true, "damaged", "");
+            }
+            boolean rejected;
+            try {
+                TaskJournal.open(dir, true, new Tasks()).close();
+                rejected = false;
+            } catch (IOException e) {
+                rejected = e.getMessage().contains("priority");
+            }
+            System.out.printf("%-44s %s%n", "record with an out-of-range priority", rejected ? "ok" : "FAILED");
+            check(rejected, "journal record with priority 63 replayed");
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    // The change that crosses the snapshot threshold must survive a close that takes no further snapshot.
+    // The app snapshots once the model has applied it; snapshotting in between loses it, which is checked too.
+    private static void thresholdSnapshots() throws IOException {
+        String[] kinds = { "add", "edit", "set completed", "set due", "delete", "complete all", "delete completed" };
+        int every = 50;
+        Path root = scratch("recovery-threshold");
+        try {
+            for (int k = 0; k < kinds.length; k++) {
+                boolean ok = thresholdRound(root.resolve(k + "-after"), k, every, true);
+                boolean lostBefore = !thresholdRound(root.resolve(k + "-before"), k, every, false);
+                System.out.printf("%-44s %s%n", "snapshot at the threshold, " + kinds[k],
+                        ok && lostBefore ? "ok" : "FAILED");
+                check(ok, "record that crossed the snapshot threshold lost: " + kinds[k]);
+                check(lostBefore, "snapshot before the change applied went unnoticed: " + kinds[k]);
+            }
+        } finally {
+            deleteTree(root);
+        }
+    }
+
+    // Journals every - 1 adds and one change of the given kind, snapshots as the threshold is crossed,
+    // closes and reopens; true if the replay matches
+    private static boolean thresholdRound(Path dir, int kind, int every, boolean applyFirst) throws IOException {
+        Tasks state = new Tasks();
+        try (TaskJournal journal = TaskJournal.open(dir, true, new Tasks())) {
+            for (long id = 1; journal.recordsSinceSnapshot() < every - 1; id++) {
+                journal.add(id, id, (int) (id % 4), id % 3 == 0, "task " + id, "t" + id % 5);
+                state.add(id, id, (int) (id % 4), id % 3 == 0, "task " + id, "t" + id % 5);
+            }
+            Runnable apply;
+            switch (kind) {
+                case 0:
+                    journal.add(every, every, 2, false, "last", "t0");
+                    apply = () -> state.add(every, every, 2, false, "last", "t0");
+                    break;
+                case 1:
+                    journal.edit(1, 3, "edited", "t9");
+                    apply = () -> state.edit(1, 3, "edited", "t9");
+                    break;
+                case 2:
+                    journal.setCompleted(1, true);
+                    apply = () -> state.setCompleted(1, true);
+                    break;
+                case 3:
+                    journal.setDue(1, 86_400_000L);
+                    apply = () -> state.setDue(1, 86_400_000L);
+                    break;
+                case 4:
+                    journal.delete(1);
+                    apply = () -> state.delete(1);
+                    break;
+                case 5:
+                    journal.completeAll();
+                    apply = state::completeAll;
+                    break;
+                default:
+                    journal.deleteCompleted();
+                    apply = state::deleteCompleted;
+                    break;
+            }
+            check(journal.recordsSinceSnapshot() >= every, "threshold not crossed");
+            if (applyFirst) {
+                apply.run();
+                journal.snapshot(state.snapshot());
+            } else {
+                journal.snapshot(state.snapshot());
+                apply.run();
+            }
+        }
+        Tasks recovered = new Tasks();
+        TaskJournal.open(dir, true, recovered).close();
+        return recovered.equals(state);
+    }
+
+    // Starts a writer process, lets it run, kills it and returns the last sequence it saw durable
+    private static long runChildUntilKilled(Path dir, long seed, long millis) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("TodoBenchmarks");
+        command.add("recovery-child");
+        command.add(dir.toString());
+        command.add(Long.toString(seed));
+        Process child = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        long[] acked = new long[1];
+        Thread reader = new Thread(() -> {
+            try (BufferedReader in = new BufferedReader(
+                    new InputStreamReader(child.getInputStream(), StandardCharsets.US_ASCII))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.startsWith("durable ")) {
+                        synchronized (acked) {
+                            acked[0] = Long.parseLong(line.substring(8));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // The child died mid-line
+            }
+        });
+        reader.start();
+        // Measured from the first acknowledgement, so JVM startup and replay do not eat the budget
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (true) {
+            synchronized (acked) {
+                if (acked[0] > 0) {
+                    break;
+                }
+            }
+            check(child.isAlive() && System.nanoTime() < deadline, "recovery child did not start writing");
+            Thread.sleep(5);
+        }
+        Thread.sleep(millis);
+        long seen;
+        synchronized (acked) {
+            seen = acked[0];
+        }
+        child.destroyForcibly();
+        child.waitFor();
+        reader.join();
+        // Anything printed after the snapshot above was durable too
+        synchronized (acked) {
+            return Math.max(seen, acked[0]);
+        }
+    }
+
+    // The killed process: continues the seeded workload from wherever the journal ends
+    static void recoveryChild(Path dir, long seed) throws IOException {
+        Tasks recovered = new Tasks();
+        TaskJournal journal = TaskJournal.open(dir, true, recovered);
+        Workload workload = new Workload(seed);
+        Tasks state = workload.replayTo(journal.lastSeq());
+        if (!state.equals(recovered)) {
+            System.err.println("recovery child: replayed state differs from the workload");
+            System.exit(1);
+        }
+        Random batches = new Random();
+        while (true) {
+            int n = 1 + batches.nextInt(200);
+            long seq = 0;
+            for (int i = 0; i < n; i++) {
+                seq = workload.step(journal, state);
+                if (journal.recordsSinceSnapshot() >= 5_000) {
+                    journal.snapshot(state.snapshot());
+                }
+            }
+            journal.awaitDurable(seq);
+            System.out.println("durable " + seq);
+            System.out.flush();
+        }
+    }
+
+    // ---- model ----
+
+    static void modelSuite() {
+        int n = MODEL_TASKS;
+        System.out.printf("== model: %,d tasks ==%n", n);
+        long base = usedHeap();
+        long start = System.nanoTime();
+        TaskTableModel columnar = new TaskTableModel();
+        fillModel(n, (id, created, priority, completed, text, tags) ->
+                columnar.addTask(id, created, priority, completed, text, tags));
+        long columnarBuild = System.nanoTime() - start;
+        long columnarBytes = usedHeap() - base;
+
+        // The rows TodoListApp kept before: five visible cells plus the hidden id and creation time
+        base = usedHeap();
+        start = System.nanoTime();
+        DefaultTableModel legacy = new DefaultTableModel(
+                new Object[] { "Task", "Priority", "Tags", "Created", "Completed", "Id", "CreatedAt" }, 0) {
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return column == 4 ? Boolean.class : column >= 5 ? Long.class : String.class;
+            }
+        };
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("MM/dd HH:mm");
+        fillModel(n, (id, created, priority, completed, text, tags) -> legacy.addRow(new Object[] { text,
+                TaskTableModel.PRIORITIES[priority], tags,
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(created), ZoneId.systemDefault()).format(format),
+                completed, id, created }));
+        long legacyBuild = System.nanoTime() - start;
+        long legacyBytes = usedHeap() - base;
+
+        System.out.printf("%-44s %,12.0f bytes/task  %,8.1f MB  built in %,.0f ms%n", "DefaultTableModel",
+                (double) legacyBytes / n, legacyBytes / 1e6, legacyBuild / 1e6);
+        System.out.printf("%-44s %,12.0f bytes/task  %,8.1f MB  built in %,.0f ms  (%,d distinct strings)%n",
+                "TaskTableModel", (double) columnarBytes / n, columnarBytes / 1e6, columnarBuild / 1e6,
+                columnar.distinctStrings());
+
+        for (int row = 0; row < n; row++) {
+            for (int column = 0; column < 5; column++) {
+                if (!legacy.getValueAt(row, column).equals(columnar.getValueAt(row, column))) {
+                    check(false, "row " + row + " column " + column + " differs: " + legacy.getValueAt(row, column)
+                            + " vs " + columnar.getValueAt(row, column));
+                }
+            }
+        }
+
+        timeModel("DefaultTableModel", legacy);
+        timeModel("TaskTableModel", columnar);
+        check(columnarBytes < legacyBytes, "columnar model uses more memory");
+
+        // Removing rows keeps the columns, the completion bits and the string table in step
+        Random random = new Random(3);
+        for (int i = 0; i < 2_000; i++) {
+            int row = random.nextInt(legacy.getRowCount());
+            legacy.removeRow(row);
+            columnar.removeRow(row);
+        }
+        for (int row = 0; row < columnar.getRowCount(); row += 97) {
+            for (int column = 0; column < 5; column++) {
+                check(legacy.getValueAt(row, column).equals(columnar.getValueAt(row, column)),
+                        "rows differ after removals");
+            }
+        }
+    }
+
+    static void statsSuite() {
+        int n = MODEL_TASKS;
+        System.out.printf("== stats: %,d tasks ==%n", n);
+        TaskTableModel model = new TaskTableModel();
+        fillModel(n, (id, created, priority, completed, text, tags) ->
+                model.addTask(id, created, priority, completed, text, tags));
+
+        int reps = 20;
+        long start = System.nanoTime();
+        for (int r = 0; r < reps; r++) {
+            int completed = 0;
+            for (int i = 0; i < model.getRowCount(); i++) {
+                if ((Boolean) model.getValueAt(i, TaskTableModel.COMPLETED)) {
+                    completed++;
+                }
+            }
+            sink += completed;
+        }
+        double scan = (System.nanoTime() - start) / 1e3 / reps;
+        start = System.nanoTime();
+        for (int r = 0; r < 100_000; r++) {
+            TaskStats stats = model.stats();
+            sink += String.format("Total: %d | Completed: %d | Remaining: %d", stats.total(), stats.completed(),
+                    stats.remaining()).length();
+        }
+        double read = (System.nanoTime() - start) / 1e3 / 100_000;
+        System.out.printf("%-44s %,12.1f us%n", "status counts by full scan", scan);
+        System.out.printf("%-44s %,12.1f us%n", "status label text from TaskStats", read);
+        check(model.stats().total() == n, "total count wrong after loading");
+
+        // Random adds, removals, edits and toggles on a smaller list, then a recount from scratch
+        TaskTableModel soak = new TaskTableModel();
+        Random random = new Random(5);
+        String[] tagPool = { "", "work", "#Work home", "home, urgent", "q3;budget", "urgent urgent", "ops #q3" };
+        int ops = 500_000;
+        start = System.nanoTime();
+        for (int i = 0; i < ops; i++) {
+            int r = random.nextInt(100);
+            int rows = soak.getRowCount();
+            if (rows < 1_000 || r < 35) {
+                soak.addTask(i, i, random.nextInt(4), random.nextBoolean(), "task " + i,
+                        tagPool[random.nextInt(tagPool.length)]);
+            } else if (r < 55) {
+                soak.removeRow(random.nextInt(rows));
+            } else if (r < 70) {
+                soak.edit(random.nextInt(rows), random.nextInt(4), "edited " + i,
+                        tagPool[random.nextInt(tagPool.length)]);
+            } else if (r < 90) {
+                soak.setCompleted(random.nextInt(rows), random.nextBoolean());
+            } else if (r < 95) {
+                soak.setValueAt(TaskTableModel.PRIORITIES[random.nextInt(4)], random.nextInt(rows),
+                        TaskTableModel.PRIORITY);
+            } else {
+                soak.setValueAt(tagPool[random.nextInt(tagPool.length)], random.nextInt(rows), TaskTableModel.TAGS);
+            }
+        }
+        double perOp = (System.nanoTime() - start) / (double) ops;
+        TaskStats stats = soak.stats();
+        int total = soak.getRowCount(), completed = 0;
+        int[] byPriority = new int[4], completedByPriority = new int[4];
+        Map<String, Integer> tagTotals = new TreeMap<>();
+        for (int i = 0; i < total; i++) {
+            int p = soak.priority(i);
+            byPriority[p]++;
+            if (soak.isCompleted(i)) {
+                completed++;
+                completedByPriority[p]++;
+            }
+            for (String tag : TaskStats.parseTags(soak.tags(i))) {
+                tagTotals.merge(tag, 1, Integer::sum);
+            }
+        }
+        boolean ok = stats.total() == total && stats.completed() == completed
+                && stats.tagTotals().equals(tagTotals);
+        for (int p = 0; p < 4; p++) {
+            ok &= stats.total(p) == byPriority[p] && stats.completed(p) == completedByPriority[p];
+        }
+        System.out.printf("%-44s %,12.0f ns/op  (%,d rows, %d tags: %s)%n", "mutation soak with running stats", perOp,
+                total, tagTotals.size(), ok ? "ok" : "FAILED");
+        check(ok, "running stats differ from a recount: " + stats.tagTotals() + " vs " + tagTotals);
+        check(stats.tagTotal("#WORK") == tagTotals.getOrDefault("work", 0), "tag lookup is not normalized");
+    }
+
+    static void searchSuite() {
+        int n = SEARCH_TASKS;
+        System.out.printf("== search: %,d tasks ==%n", n);
+        String[] syllables = { "ka", "lo", "mi", "ra", "te", "su", "no", "vi", "de", "pa", "re", "xo" };
+        TaskTableModel model = new TaskTableModel();
+        Random random = new Random(13);
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int k = 2 + random.nextInt(3); k > 0; k--) {
+                name.append(syllables[random.nextInt(syllables.length)]);
+            }
+            String text = Workload.sentence(random, 2 + random.nextInt(5)) + " " + name + " #" + random.nextInt(5000);
+            String tags = random.nextInt(3) == 0 ? "" : "#" + Workload.sentence(random, 1 + random.nextInt(2));
+            model.addTask(i + 1, i, random.nextInt(4), random.nextBoolean(), text, tags);
+        }
+        System.out.printf("%-44s %,12.0f ms  (%,d tokens)%n", "load with indexing", (System.nanoTime() - start) / 1e6,
+                model.index().tokenCount());
+
+        String[] typed = { "r", "re", "rev", "revi", "review", "review q", "review q3", "kalo", "eview", "#work",
+                "urgent home", "c++", "inv (q3", "zzzz" };
+        TableRowSorter<TaskTableModel> sorter = new TableRowSorter<>(model);
+        for (int warm = 0; warm < 3; warm++) {
+            for (String query : typed) {
+                sorter.setRowFilter(model.index().filter(query));
+                sink += sorter.getViewRowCount();
+            }
+        }
+        sorter.setRowFilter(null);
+        double worst = 0;
+        for (String query : typed) {
+            String regex;
+            long t0 = System.nanoTime();
+            try {
+                sorter.setRowFilter(RowFilter.regexFilter("(?i)" + query));
+                regex = String.format("%,9.1f ms", (System.nanoTime() - t0) / 1e6);
+            } catch (java.util.regex.PatternSyntaxException e) {
+                regex = "  invalid   ";
+            }
+            sorter.setRowFilter(null);
+            long t1 = System.nanoTime();
+            BitSet ids = model.index().search(query);
+            double lookup = (System.nanoTime() - t1) / 1e6;
+            t1 = System.nanoTime();
+            sorter.setRowFilter(model.index().filter(query));
+            double indexed = (System.nanoTime() - t1) / 1e6;
+            worst = Math.max(worst, indexed);
+            int rows = sorter.getViewRowCount();
+            sorter.setRowFilter(null);
+            boolean ok = ids.equals(bruteForce(model, query));
+            System.out.printf("%-14s regex %s   index %,6.1f ms (lookup %,5.1f ms)  %,8d rows  %s%n",
+                    "\"" + query + "\"", regex, indexed, lookup, rows, ok ? "ok" : "FAILED");
+            check(ok, "index results differ from a scan for \"" + query + "\"");
+        }
+        System.out.printf("%-44s %,12.1f ms%n", "slowest indexed filter", worst);
+
+        // Edits, removals and adds must keep the postings and the dictionary in step
+        for (int i = 0; i < 5_000; i++) {
+            int rows = model.getRowCount();
+            int row = random.nextInt(rows);
+            switch (random.nextInt(4)) {
+                case 0:
+                    model.removeRow(row);
+                    break;
+                case 1:
+                    model.edit(row, random.nextInt(4), Workload.sentence(random, 3) + " kalo", "#review");
+                    break;
+                case 2:
+                    model.setValueAt(Workload.sentence(random, 2), row, TaskTableModel.TAGS);
+                    break;
+                default:
+                    model.addTask(n + i + 1, i, 0, false, "revisit " + Workload.sentence(random, 2), "");
+            }
+        }
+        for (String query : typed) {
+            check(model.index().search(query).equals(bruteForce(model, query)),
+                    "index results differ from a scan after edits for \"" + query + "\"");
+        }
+        System.out.printf("%-44s %s%n", "results after 5,000 random edits", "ok");
+
+        // Tokens that repeat a trigram ("aaaa" has "aaa" twice) must drop out cleanly when their last task goes
+        int tokens = model.index().tokenCount();
+        String[] repeats = { "aaaa", "10000", "11111", "abcabcabc" };
+        for (String token : repeats) {
+            model.addTask(3L * n + 1, 0, 0, false, "repeat " + token, "#" + token);
+            model.removeRow(model.getRowCount() - 1);
+            check(model.index().search(token.substring(0, 3)).equals(bruteForce(model, token.substring(0, 3))),
+                    "index results differ from a scan after removing \"" + token + "\"");
+        }
+        check(model.index().tokenCount() == tokens, "tokens that repeat a trigram left behind in the index");
+        System.out.printf("%-44s %s%n", "tokens that repeat a trigram", "ok");
+    }
+
+    // What the index promises: every term is a prefix (1-2 chars) or a substring (3+) of some task token
+    private static BitSet bruteForce(TaskTableModel model, String query) {
+        List<String> terms = TaskIndex.tokenize(query);
+        BitSet out = new BitSet();
+        if (terms.isEmpty()) {
+            return out;
+        }
+        for (int row = 0; row < model.getRowCount(); row++) {
+            List<String> tokens = TaskIndex.tokenize(model.text(row), model.tags(row),
+                    TaskTableModel.PRIORITIES[model.priority(row)]);
+            boolean all = true;
+            for (String term : terms) {
+                boolean any = false;
+                for (String token : tokens) {
+                    if (term.length() < 3 ? token.startsWith(term) : token.contains(term)) {
+                        any = true;
+                        break;
+                    }
+                }
+                all &= any;
+            }
+            if (all) {
+                out.set((int) model.id(row));
+            }
+        }
+        return out;
+    }
+
+    static void scrollSuite() throws Exception {
+        UIManager.setLookAndFeel("javax.swing.plaf.nimbus.NimbusLookAndFeel");
+        for (int n : new int[] { 100_000, 1_000_000 }) {
+            System.out.printf("== scroll: %,d rows, 900x600 viewport ==%n", n);
+            TaskTableModel model = new TaskTableModel();
+            fillModel(n, (id, created, priority, completed, text, tags) ->
+                    model.addTask(id, created, priority, completed, text, tags));
+            for (boolean cached : new boolean[] { false, true }) {
+                SwingUtilities.invokeAndWait(() -> scrollFrames(model, cached));
+            }
+        }
+    }
+
+    // Paints FRAMES viewports while scrolling three rows at a time, then FRAMES at random offsets
+    private static void scrollFrames(TaskTableModel model, boolean cached) {
+        JTable table = new JTable(model);
+        table.setRowHeight(30);
+        table.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        table.setSelectionBackground(new Color(100, 149, 237));
+        table.setSelectionForeground(Color.WHITE);
+        table.setGridColor(new Color(60, 60, 65));
+        if (cached) {
+            TaskRenderer.install(table);
+        }
+        table.setRowSorter(new TableRowSorter<>(model));
+        int width = 900, height = 600;
+        table.setSize(width, table.getRowHeight() * model.getRowCount());
+        table.doLayout();
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int maxY = table.getHeight() - height;
+        Random random = new Random(17);
+        String name = cached ? "TaskRenderer" : "stock renderers";
+        for (String pattern : new String[] { "wheel", "jump" }) {
+            // The first pass warms up the JIT and the layout cache, the second is measured
+            long[] times = new long[FRAMES];
+            for (int pass = 0; pass < 2; pass++) {
+                int y = random.nextInt(maxY);
+                for (int f = 0; f < FRAMES; f++) {
+                    y = pattern.equals("wheel") ? Math.min(y + 3 * table.getRowHeight(), maxY) : random.nextInt(maxY);
+                    Graphics2D g = frame.createGraphics();
+                    long start = System.nanoTime();
+                    g.translate(0, -y);
+                    g.setClip(0, y, width, height);
+                    table.paint(g);
+                    times[f] = System.nanoTime() - start;
+                    g.dispose();
+                }
+            }
+            Arrays.sort(times);
+            System.out.printf("%-16s %-6s frame p50 %6.2f ms  p99 %6.2f ms  max %6.2f ms%n", name, pattern,
+                    times[FRAMES / 2] / 1e6, times[FRAMES * 99 / 100] / 1e6, times[FRAMES - 1] / 1e6);
+        }
+        check(frame.getRGB(width / 2, height / 2) != frame.getRGB(0, 0) || frame.getRGB(20, 15) != 0,
+                "nothing was painted");
+    }
+
+    interface Change {
+        void apply(TaskTableModel model);
+    }
+
+    static void bulkSuite() throws Exception {
+        System.out.printf("== bulk: %,d tasks under a JTable sorted by priority ==%n", BULK_TASKS);
+        // A small unprinted round first, so neither path is timed while the JIT compiles it
+        bulkSuite(BULK_TASKS / 20, false);
+        bulkSuite(BULK_TASKS, true);
+    }
+
+    private static void bulkSuite(int n, boolean print) throws Exception {
+        int[] half = new int[n / 2];
+        for (int i = 0; i < half.length; i++) {
+            half[i] = i * 2 + 1;
+        }
+        bulkCase(print, "complete all", n, m -> {
+            for (int i = 0; i < m.getRowCount(); i++) {
+                m.setCompleted(i, true);
+            }
+        }, m -> m.setCompleted(row -> true, true, null));
+        bulkCase(print, "reopen every other", n, m -> {
+            for (int row : half) {
+                if (row < m.getRowCount()) {
+                    m.setCompleted(row, false);
+                }
+            }
+        }, m -> m.setCompleted(TaskTableModel.rows(half), false, null));
+        bulkCase(print, "retag every other", n, m -> {
+            for (int row : half) {
+                if (row < m.getRowCount()) {
+                    m.setValueAt("#bulk moved", row, TaskTableModel.TAGS);
+                }
+            }
+        }, m -> m.retag(TaskTableModel.rows(half), "#bulk moved", null));
+        bulkCase(print, "reprioritize every other", n, m -> {
+            for (int row : half) {
+                if (row < m.getRowCount()) {
+                    m.setValueAt("Urgent", row, TaskTableModel.PRIORITY);
+                }
+            }
+        }, m -> m.reprioritize(TaskTableModel.rows(half), 3, null));
+        bulkCase(print, "delete completed", n / 10, m -> {
+            for (int i = m.getRowCount() - 1; i >= 0; i--) {
+                if (m.isCompleted(i)) {
+                    m.removeRow(i);
+                }
+            }
+        }, m -> m.delete(m::isCompleted, null));
+        bulkCase(print, "delete completed", n, null, m -> m.delete(m::isCompleted, null));
+    }
+
+    // Times one change made row by row and in bulk on identical tables, then compares the results
+    private static void bulkCase(boolean print, String name, int n, Change perRow, Change bulk) throws Exception {
+        TaskTableModel[] models = new TaskTableModel[2];
+        long[] nanos = new long[2];
+        int[] events = new int[2];
+        for (int k = perRow == null ? 1 : 0; k < 2; k++) {
+            TaskTableModel model = models[k] = new TaskTableModel();
+            fillModel(n, (id, created, priority, completed, text, tags) ->
+                    model.addTask(id, created, priority, completed, text, tags));
+            Change change = k == 0 ? perRow : bulk;
+            int slot = k;
+            SwingUtilities.invokeAndWait(() -> {
+                JTable table = new JTable(model);
+                TableRowSorter<TaskTableModel> sorter = new TableRowSorter<>(model);
+                sorter.setSortKeys(Collections.singletonList(new RowSorter.SortKey(1, SortOrder.ASCENDING)));
+                table.setRowSorter(sorter);
+                model.addTableModelListener(e -> events[slot]++);
+                long start = System.nanoTime();
+                change.apply(model);
+                nanos[slot] = System.nanoTime() - start;
+                check(sorter.getViewRowCount() == model.getRowCount(), "sorter lost track of the rows");
+            });
+        }
+        if (!print) {
+            return;
+        }
+        if (perRow == null) {
+            System.out.printf("%-28s %,8d rows  %-26s bulk %,9.1f ms (%d event)%n", name, n, "", nanos[1] / 1e6,
+                    events[1]);
+        } else {
+            System.out.printf("%-28s %,8d rows  row by row %,9.1f ms (%,d events)  bulk %,9.1f ms (%d event)%n",
+                    name, n, nanos[0] / 1e6, events[0], nanos[1] / 1e6, events[1]);
+            TaskTableModel a = models[0], b = models[1];
+            check(a.getRowCount() == b.getRowCount(), name + ": row counts differ");
+            for (int row = 0; row < a.getRowCount(); row++) {
+                check(a.id(row) == b.id(row) && a.isCompleted(row) == b.isCompleted(row)
+                        && a.priority(row) == b.priority(row) && a.tags(row).equals(b.tags(row)),
+                        name + ": row " + row + " differs");
+            }
+            check(a.stats().completed() == b.stats().completed() && a.stats().tagTotals().equals(b.stats().tagTotals())
+                    && a.stats().total(3) == b.stats().total(3), name + ": stats differ");
+            check(a.index().search("bulk").equals(b.index().search("bulk")), name + ": index differs");
+            check(a.facets().counts(null).equals(b.facets().counts(null)), name + ": facets differ");
+        }
+        check(events[1] <= 1, name + ": bulk change fired " + events[1] + " events");
+    }
+
+    // ---- transfer ----
+
+    static void transferSuite() throws Exception {
+        System.out.printf("== transfer: %,d tasks ==%n", TRANSFER_TASKS);
+        Path dir = scratch("transfer");
+        try {
+            TaskTransfer.Batch rows = new TaskTransfer.Batch(TRANSFER_TASKS);
+            fillModel(TRANSFER_TASKS, (id, created, priority, completed, text, tags) -> {
+                // Every so often a task that needs quoting or escaping
+                if (id % 997 == 0) {
+                    text = "say \"hi\", then\nleave \\ caf\u00e9 \u2713 \ud83d\ude00\t";
+                    tags = " #odd, tags ";
+                }
+                // A third of the tasks due a few days later
+                rows.add(created, priority, completed, text, tags,
+                        id % 3 == 0 ? created + id % 30 * 86_400_000L : TaskTableModel.NO_DUE);
+            });
+            // A small unprinted round first, so the JIT has compiled the loops before anything is timed
+            TaskTransfer.Batch warmup = new TaskTransfer.Batch(0);
+            for (int i = 0; i < rows.size() / 20; i++) {
+                warmup.add(rows.created(i), rows.priority(i), rows.isCompleted(i), rows.text(i), rows.tags(i),
+                        rows.due(i));
+            }
+            for (TaskTransfer.Format format : TaskTransfer.Format.values()) {
+                transferCase(dir, format, warmup, false);
+            }
+            for (TaskTransfer.Format format : TaskTransfer.Format.values()) {
+                transferCase(dir, format, rows, true);
+            }
+            foreignFiles(dir);
+            cancelTransfers(dir, rows);
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    private static void transferCase(Path dir, TaskTransfer.Format format, TaskTransfer.Batch rows, boolean print)
+            throws IOException {
+        Path file = dir.resolve("tasks." + format.extension);
+        long start = System.nanoTime();
+        TaskTransfer.write(file, format, rows, (done, total) -> true);
+        long write = System.nanoTime() - start;
+
+        TaskTransfer.Batch back = new TaskTransfer.Batch(rows.size());
+        start = System.nanoTime();
+        long read = TaskTransfer.read(file, format, 4096, batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                back.add(batch.created(i), batch.priority(i), batch.isCompleted(i), batch.text(i), batch.tags(i),
+                        batch.due(i));
+            }
+        }, (done, total) -> true);
+        long parse = System.nanoTime() - start;
+        check(read == rows.size() && back.size() == rows.size(), format + ": read " + read + " of " + rows.size());
+        // Text imports trim the task and tags fields, as the app does when they are typed in; binary is exact
+        boolean trimmed = format != TaskTransfer.Format.BINARY;
+        for (int i = 0; i < rows.size(); i++) {
+            String text = trimmed ? rows.text(i).trim() : rows.text(i);
+            String tags = trimmed ? rows.tags(i).trim() : rows.tags(i);
+            check(back.created(i) == rows.created(i) && back.priority(i) == rows.priority(i)
+                    && back.isCompleted(i) == rows.isCompleted(i) && back.text(i).equals(text)
+                    && back.tags(i).equals(tags) && back.due(i) == rows.due(i),
+                    format + ": row " + i + " changed in the round trip");
+        }
+
+        TaskTableModel model = new TaskTableModel();
+        long[] nextId = { 1 };
+        start = System.nanoTime();
+        TaskTransfer.read(file, format, 4096, batch -> {
+            model.addTasks(nextId[0], batch);
+            nextId[0] += batch.size();
+        }, (done, total) -> true);
+        long load = System.nanoTime() - start;
+        check(model.getRowCount() == rows.size() && model.stats().total() == rows.size(),
+                format + ": import into the model lost rows");
+        if (print) {
+            long bytes = Files.size(file);
+            System.out.printf("%-11s %7.1f MB  write %,10.0f rows/s %6.1f MB/s  parse %,10.0f rows/s %6.1f MB/s"
+                    + "  import %,10.0f rows/s%n", format, bytes / 1e6, rows.size() / (write / 1e9),
+                    bytes / 1e6 / (write / 1e9), rows.size() / (parse / 1e9), bytes / 1e6 / (parse / 1e9),
+                    rows.size() / (load / 1e9));
+        }
+    }
+
+    // Files shaped like other trackers' exports: aliases, extra columns, BOM, CRLF, odd values
+    private static void foreignFiles(Path dir) throws IOException {
+        Path csv = dir.resolve("foreign.csv");
+        Files.write(csv, ("\uFEFFID,Title,Status,Labels,Priority,Created At,Due Date\r\n"
+                + "17,\"Plan Q3, with \"\"care\"\"\",Done,\"#work,#q3\",HIGH,2024-03-01 09:30,2024-03-05\r\n"
+                + "18,\"two\nlines\",open,,whatever,2024-03-02,\r\n"
+                + "\r\n"
+                + "19,   ,done,,,,\r\n"
+                + "20,last row,x,home,urgent,1700000000000,1700086400000").getBytes(StandardCharsets.UTF_8));
+        TaskTransfer.Batch rows = readAll(csv);
+        long march1 = LocalDateTime.of(2024, 3, 1, 9, 30).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        // A due date without a time means the end of that day
+        long march5 = LocalDateTime.of(2024, 3, 6, 0, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() - 1;
+        check(rows.size() == 3, "foreign CSV: expected 3 tasks, got " + rows.size());
+        check(rows.text(0).equals("Plan Q3, with \"care\"") && rows.isCompleted(0) && rows.priority(0) == 2
+                && rows.tags(0).equals("#work,#q3") && rows.created(0) == march1 && rows.due(0) == march5,
+                "foreign CSV: row 1 misread");
+        check(rows.text(1).equals("two\nlines") && !rows.isCompleted(1) && rows.priority(1) == 0
+                && rows.due(1) == TaskTableModel.NO_DUE, "foreign CSV: row 2 misread");
+        check(rows.text(2).equals("last row") && rows.isCompleted(2) && rows.priority(2) == 3
+                && rows.created(2) == 1_700_000_000_000L && rows.due(2) == 1_700_086_400_000L,
+                "foreign CSV: row 3 misread");
+
+        Path jsonl = dir.resolve("foreign.jsonl");
+        Files.write(jsonl, ("{\"id\": 5, \"title\": \"A \\\"quoted\\\" \\u00e9\", \"labels\": [\"x\", \"y\"],"
+                + " \"done\": true, \"meta\": {\"a\": [1, 2]}, \"created\": \"2024-03-01T08:00:00+01:00\","
+                + " \"deadline\": \"2024-03-02T10:00:00Z\"}\n"
+                + "\n"
+                + "{\"text\": \"plain\", \"priority\": null, \"completed\": false}\n")
+                .getBytes(StandardCharsets.UTF_8));
+        rows = readAll(jsonl);
+        check(rows.size() == 2, "foreign JSONL: expected 2 tasks, got " + rows.size());
+        check(rows.text(0).equals("A \"quoted\" \u00e9") && rows.tags(0).equals("x y") && rows.isCompleted(0)
+                && rows.created(0) == Instant.parse("2024-03-01T07:00:00Z").toEpochMilli()
+                && rows.due(0) == Instant.parse("2024-03-02T10:00:00Z").toEpochMilli(), "foreign JSONL: row 1");
+        check(rows.text(1).equals("plain") && rows.priority(1) == 0 && !rows.isCompleted(1)
+                && rows.due(1) == TaskTableModel.NO_DUE, "foreign JSONL: row 2");
+
+        Path bad = dir.resolve("bad.jsonl");
+        Files.write(bad, "{\"task\": \"ok\"}\n{\"task\": \"broken\"\n".getBytes(StandardCharsets.UTF_8));
+        try {
+            readAll(bad);
+            check(false, "damaged JSONL was accepted");
+        } catch (IOException e) {
+            check(e.getMessage().contains("line 2"), "damaged JSONL error does not name the line: " + e.getMessage());
+        }
+
+        // A completed task's flags byte turned into 0xBF: priority bits 63, which no table column has
+        TaskTransfer.Batch done = new TaskTransfer.Batch(1);
+        done.add(1, 1, true, "done", "");
+        Path empty = dir.resolve("empty.tasks");
+        TaskTransfer.write(empty, TaskTransfer.Format.BINARY, new TaskTransfer.Batch(0), (d, total) -> true);
+        Path badBinary = dir.resolve("bad.tasks");
+        TaskTransfer.write(badBinary, TaskTransfer.Format.BINARY, done, (d, total) -> true);
+        byte[] image = Files.readAllBytes(badBinary);
+        // The empty export is the header and the end marker, so the first record's flags follow the header
+        image[(int) Files.size(empty) - 1] = (byte) 0xBF;
+        Files.write(badBinary, image);
+        try {
+            readAll(badBinary);
+            check(false, "binary record with priority 63 was accepted");
+        } catch (IOException e) {
+            check(e.getMessage().contains("damaged"), "unexpected error for a bad priority: " + e.getMessage());
+        }
+        System.out.println("files from other tools, damaged file         ok");
+    }
+
+    private static TaskTransfer.Batch readAll(Path file) throws IOException {
+        TaskTransfer.Batch all = new TaskTransfer.Batch(0);
+        TaskTransfer.read(file, TaskTransfer.Format.of(file), 2, batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                all.add(batch.created(i), batch.priority(i), batch.isCompleted(i), batch.text(i), batch.tags(i),
+                        batch.due(i));
+            }
+        }, (done, total) -> true);
+        return all;
+    }
+
+    // Cancelling after the first chunk stops both directions; a cancelled export leaves no file behind
+    private static void cancelTransfers(Path dir, TaskTransfer.Batch rows) throws IOException {
+        for (TaskTransfer.Format format : TaskTransfer.Format.values()) {
+            Path file = dir.resolve("cancel." + format.extension);
+            try {
+                TaskTransfer.write(file, format, rows, (done, total) -> done == 0);
+                check(false, format + ": export ignored the cancel");
+            } catch (CancellationException e) {
+                check(!Files.exists(file) && !Files.exists(dir.resolve(file.getFileName() + ".tmp")),
+                        format + ": cancelled export left a file");
+            }
+            Path full = dir.resolve("tasks." + format.extension);
+            long[] seen = { 0 };
+            try {
+                TaskTransfer.read(full, format, 4096, batch -> seen[0] += batch.size(), (done, total) -> false);
+                check(false, format + ": import ignored the cancel");
+            } catch (CancellationException e) {
+                check(seen[0] < rows.size(), format + ": import ran to the end after the cancel");
+            }
+        }
+        System.out.println("cancel export and import                    ok");
+    }
+
+    // ---- schedule ----
+
+    // "Now" for the schedule suite: due dates fall up to 30 days either side of it
+    private static final long SCHEDULE_NOW = 1_700_000_000_000L + 10L * 86_400_000L;
+
+    static void scheduleSuite() throws Exception {
+        int n = SCHEDULE_TASKS;
+        System.out.printf("== schedule: %,d tasks ==%n", n);
+        TaskTableModel model = scheduleModel(n);
+
+        int sorted = n / 5;
+        TaskTableModel small = scheduleModel(sorted);
+        String[] names = { "Priority", "Created", "Due" };
+        int[] columns = { TaskTableModel.PRIORITY, TaskTableModel.CREATED, TaskTableModel.DUE };
+        for (int round = 0; round < 2; round++) {
+            for (int c = 0; c < columns.length; c++) {
+                long[] nanos = new long[2];
+                long[][] keys = new long[2][sorted];
+                for (int k = 0; k < 2; k++) {
+                    TableRowSorter<TaskTableModel> sorter = k == 0 ? new TableRowSorter<>(small)
+                            : new TaskRowSorter<>(small);
+                    long start = System.nanoTime();
+                    sorter.setSortKeys(Collections.singletonList(new RowSorter.SortKey(columns[c],
+                            SortOrder.ASCENDING)));
+                    nanos[k] = System.nanoTime() - start;
+                    for (int v = 0; v < sorted; v++) {
+                        keys[k][v] = sortKey(small, sorter.convertRowIndexToModel(v), columns[c]);
+                    }
+                }
+                // Rows where the text sort shows a different value than the typed sort
+                int misplaced = 0;
+                for (int v = 0; v < sorted; v++) {
+                    misplaced += keys[0][v] != keys[1][v] ? 1 : 0;
+                    check(v == 0 || keys[1][v - 1] <= keys[1][v], "TaskRowSorter put row " + v
+                            + " out of order by " + names[c]);
+                }
+                if (round == 1) {
+                    System.out.printf("sort %,d rows by %-9s stock %,8.1f ms (%,7d misplaced)  typed %,8.1f ms%n",
+                            sorted, names[c], nanos[0] / 1e6, misplaced, nanos[1] / 1e6);
+                }
+            }
+        }
+
+        // The scan is what the app would do without the schedule: one pass over every row per query
+        int reps = 20;
+        long start = System.nanoTime();
+        for (int r = 0; r < reps; r++) {
+            sink += scanNext(model, 10).length + scanDueBefore(model, SCHEDULE_NOW);
+        }
+        double scan = (System.nanoTime() - start) / 1e3 / reps;
+        TaskSchedule schedule = model.schedule();
+        int queries = 200_000;
+        start = System.nanoTime();
+        for (int r = 0; r < queries; r++) {
+            sink += schedule.first(10).length + schedule.countDueBefore(SCHEDULE_NOW + r);
+        }
+        double indexed = (System.nanoTime() - start) / 1e3 / queries;
+        System.out.printf("%-44s %,12.1f us%n", "next 10 + overdue count by full scan", scan);
+        System.out.printf("%-44s %,12.3f us%n", "next 10 + overdue count from TaskSchedule", indexed);
+        checkSchedule(model, "after loading");
+
+        // Random adds, removals, completions, due dates and priority changes, checked against the scan as it goes
+        TaskTableModel soak = new TaskTableModel();
+        Random random = new Random(23);
+        int ops = 300_000;
+        start = System.nanoTime();
+        for (int i = 0; i < ops; i++) {
+            int r = random.nextInt(100);
+            int rows = soak.getRowCount();
+            if (rows < 1_000 || r < 35) {
+                soak.addTask(i, SCHEDULE_NOW - random.nextInt(1_000_000), random.nextInt(4), random.nextInt(5) == 0,
+                        "task " + i, "", randomDue(random));
+            } else if (r < 50) {
+                soak.removeRow(random.nextInt(rows));
+            } else if (r < 65) {
+                soak.setCompleted(random.nextInt(rows), random.nextBoolean());
+            } else if (r < 80) {
+                soak.setDue(random.nextInt(rows), randomDue(random));
+            } else if (r < 90) {
+                soak.edit(random.nextInt(rows), random.nextInt(4), "edited " + i, "");
+            } else if (r < 95) {
+                soak.setValueAt(TaskTableModel.PRIORITIES[random.nextInt(4)], random.nextInt(rows),
+                        TaskTableModel.PRIORITY);
+            } else if (r < 98) {
+                soak.setValueAt(random.nextBoolean(), random.nextInt(rows), TaskTableModel.COMPLETED);
+            } else {
+                int modulus = 50 + random.nextInt(50);
+                soak.reprioritize(row -> row % modulus == 0, random.nextInt(4), null);
+            }
+            if (i % 50_000 == 0) {
+                checkSchedule(soak, "during the soak");
+            }
+        }
+        double perOp = (System.nanoTime() - start) / (double) ops;
+        soak.delete(row -> row % 3 == 0, null);
+        soak.setCompleted(row -> row % 7 == 0, true, null);
+        checkSchedule(soak, "after the soak");
+        System.out.printf("%-44s %,12.0f ns/op  %,d rows  ok%n", "mutation soak, checked against a scan", perOp,
+                soak.getRowCount());
+    }
+
+    private static TaskTableModel scheduleModel(int n) {
+        TaskTableModel model = new TaskTableModel();
+        model.ensureCapacity(n);
+        Random dues = new Random(17);
+        fillModel(n, (id, created, priority, completed, text, tags) ->
+                model.addTask(id, created, priority, completed, text, tags, randomDue(dues)));
+        return model;
+    }
+
+    // Two tasks in five have no due date; the rest are due within 30 days of SCHEDULE_NOW, on the minute
+    private static long randomDue(Random random) {
+        return random.nextInt(5) < 2 ? TaskTableModel.NO_DUE
+                : SCHEDULE_NOW + (random.nextInt(2 * 30 * 1440) - 30 * 1440) * 60_000L;
+    }
+
+    // The value a typed sort orders the column by
+    private static long sortKey(TaskTableModel model, int row, int column) {
+        switch (column) {
+            case TaskTableModel.PRIORITY:
+                return model.priority(row);
+            case TaskTableModel.CREATED:
+                return model.created(row);
+            default:
+                return model.due(row);
+        }
+    }
+
+    private static void checkSchedule(TaskTableModel model, String when) {
+        TaskSchedule schedule = model.schedule();
+        int open = model.getRowCount() - model.stats().completed();
+        check(schedule.size() == open, "schedule has " + schedule.size() + " tasks, not " + open + " " + when);
+        check(Arrays.equals(schedule.first(50), scanNext(model, 50)), "next tasks differ from the scan " + when);
+        for (long time : new long[] { Long.MIN_VALUE, SCHEDULE_NOW - 86_400_000L, SCHEDULE_NOW, Long.MAX_VALUE }) {
+            check(schedule.countDueBefore(time) == scanDueBefore(model, time), "overdue count differs " + when);
+        }
+        long[] overdue = schedule.overdue(SCHEDULE_NOW, 5);
+        for (long id : overdue) {
+            check(model.due(model.rowOf(id)) < SCHEDULE_NOW, "a task that is not overdue was listed " + when);
+        }
+    }
+
+    // The first k open tasks in schedule order, by one pass with a small sorted buffer
+    private static long[] scanNext(TaskTableModel model, int k) {
+        int[] best = new int[k];
+        int size = 0;
+        for (int row = 0; row < model.getRowCount(); row++) {
+            if (model.isCompleted(row) || size == k && !before(model, row, best[k - 1])) {
+                continue;
+            }
+            int at = size < k ? size++ : k - 1;
+            while (at > 0 && before(model, row, best[at - 1])) {
+                best[at] = best[at - 1];
+                at--;
+            }
+            best[at] = row;
+        }
+        long[] ids = new long[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = model.id(best[i]);
+        }
+        return ids;
+    }
+
+    private static boolean before(TaskTableModel model, int a, int b) {
+        if (model.due(a) != model.due(b)) {
+            return model.due(a) < model.due(b);
+        }
+        if (model.priority(a) != model.priority(b)) {
+            return model.priority(a) > model.priority(b);
+        }
+        if (model.created(a) != model.created(b)) {
+            return model.created(a) < model.created(b);
+        }
+        return model.id(a) < model.id(b);
+    }
+
+    private static int scanDueBefore(TaskTableModel model, long time) {
+        int n = 0;
+        for (int row = 0; row < model.getRowCount(); row++) {
+            if (!model.isCompleted(row) && model.due(row) < time) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    // ---- facets ----
+
+    static void facetsSuite() {
+        int n = FACET_TASKS;
+        System.out.printf("== facets: %,d tasks ==%n", n);
+        bitmapChecks();
+
+        // Half the tasks are #work, some #home, most carry a few common words and a tenth one of 5,000 projects
+        TaskTableModel model = new TaskTableModel();
+        model.ensureCapacity(n);
+        Random random = new Random(29);
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            String tags = (random.nextBoolean() ? "#work " : "") + (random.nextInt(10) < 3 ? "home, " : "")
+                    + Workload.sentence(random, random.nextInt(3))
+                    + (random.nextInt(10) == 0 ? " #p" + random.nextInt(5000) : "");
+            model.addTask(i + 1, i, random.nextInt(4), random.nextInt(3) == 0, "task " + i, tags);
+        }
+        TaskFacets facets = model.facets();
+        System.out.printf("%-44s %,12.0f ms  (%,d tags)%n", "load", (System.nanoTime() - start) / 1e6,
+                facets.distinctTags());
+
+        TaskFacets.Selection[] selections = {
+            new TaskFacets.Selection(Arrays.asList("work"), false, 0),
+            new TaskFacets.Selection(Arrays.asList("#work", "q3"), false, 0),
+            new TaskFacets.Selection(Arrays.asList("home"), true, 0),
+            new TaskFacets.Selection(Collections.emptyList(), true, 2),
+            new TaskFacets.Selection(Arrays.asList("work", "urgent"), true, 2),
+            new TaskFacets.Selection(Arrays.asList("p42"), false, 0),
+            new TaskFacets.Selection(Arrays.asList("work", "no-such-tag"), false, 0),
+        };
+        for (int warm = 0; warm < 3; warm++) {
+            for (TaskFacets.Selection selection : selections) {
+                sink += facets.select(selection).cardinality() + facets.counts(facets.select(selection)).size();
+            }
+        }
+        for (TaskFacets.Selection selection : selections) {
+            long t0 = System.nanoTime();
+            BitSet scanned = scanSelect(model, selection);
+            double scan = (System.nanoTime() - t0) / 1e6;
+            int reps = 20;
+            TaskBitmap selected = null;
+            t0 = System.nanoTime();
+            for (int r = 0; r < reps; r++) {
+                selected = facets.select(selection);
+            }
+            double bitmap = (System.nanoTime() - t0) / 1e6 / reps;
+            boolean ok = toBitSet(selected).equals(scanned);
+            System.out.printf("%-30s scan %,8.1f ms   bitmaps %,7.2f ms  %,8d tasks  %s%n", describe(selection), scan,
+                    bitmap, selected.cardinality(), ok ? "ok" : "FAILED");
+            check(ok, "facet selection differs from a scan for " + describe(selection));
+        }
+
+        // The sidebar: every tag's count within a selection
+        TaskFacets.Selection open = selections[4];
+        long t0 = System.nanoTime();
+        Map<String, Integer> scannedCounts = scanCounts(model, scanSelect(model, open));
+        double scan = (System.nanoTime() - t0) / 1e6;
+        TaskBitmap within = facets.select(open);
+        Map<String, Integer> counts = null;
+        t0 = System.nanoTime();
+        for (int r = 0; r < 20; r++) {
+            counts = facets.counts(within);
+        }
+        double bitmap = (System.nanoTime() - t0) / 1e6 / 20;
+        Map<String, Integer> nonZero = new TreeMap<>(counts);
+        nonZero.values().removeIf(c -> c == 0);
+        System.out.printf("%-30s scan %,8.1f ms   bitmaps %,7.2f ms  %,8d tags   %s%n",
+                "sidebar counts, " + describe(open), scan, bitmap, counts.size(),
+                nonZero.equals(scannedCounts) ? "ok" : "FAILED");
+        check(nonZero.equals(scannedCounts), "sidebar counts differ from a scan");
+
+        // Size of the tag sets as roaring-style bitmaps, sorted int[] posting lists and one BitSet per tag
+        long roaring = 0, postings = 0, bitsets = 0;
+        for (String tag : facets.counts(null).keySet()) {
+            TaskBitmap b = facets.tag(tag);
+            roaring += b.bytes();
+            postings += 4L * b.cardinality() + 16;
+            bitsets += (n + 64) / 8 + 16;
+        }
+        System.out.printf("%-44s roaring %,7.1f MB  int[] postings %,7.1f MB  BitSet per tag %,9.1f MB%n",
+                "tag sets in memory", roaring / 1e6, postings / 1e6, bitsets / 1e6);
+
+        // Random changes through every mutation path, checked against a scan and the running tag totals
+        TaskTableModel soak = new TaskTableModel();
+        String[] tagPool = { "", "work", "#Work home", "home, urgent", "q3;budget", "urgent urgent", "ops #q3" };
+        int ops = 200_000;
+        start = System.nanoTime();
+        for (int i = 0; i < ops; i++) {
+            int r = random.nextInt(100);
+            int rows = soak.getRowCount();
+            if (rows < 1_000 || r < 35) {
+                soak.addTask(i + 1, i, random.nextInt(4), random.nextBoolean(), "task " + i,
+                        tagPool[random.nextInt(tagPool.length)]);
+            } else if (r < 50) {
+                soak.removeRow(random.nextInt(rows));
+            } else if (r < 65) {
+                soak.edit(random.nextInt(rows), random.nextInt(4), "edited " + i,
+                        tagPool[random.nextInt(tagPool.length)]);
+            } else if (r < 80) {
+                soak.setCompleted(random.nextInt(rows), random.nextBoolean());
+            } else if (r < 90) {
+                soak.setValueAt(tagPool[random.nextInt(tagPool.length)], random.nextInt(rows), TaskTableModel.TAGS);
+            } else if (r < 95) {
+                soak.setValueAt(TaskTableModel.PRIORITIES[random.nextInt(4)], random.nextInt(rows),
+                        TaskTableModel.PRIORITY);
+            } else if (r < 97) {
+                int modulus = 20 + random.nextInt(50);
+                soak.retag(row -> row % modulus == 0, tagPool[random.nextInt(tagPool.length)], null);
+            } else if (r < 99) {
+                int modulus = 20 + random.nextInt(50);
+                soak.reprioritize(row -> row % modulus == 0, random.nextInt(4), null);
+            } else {
+                int modulus = 20 + random.nextInt(50);
+                soak.delete(row -> row % modulus == 0, null);
+            }
+            if (i % 20_000 == 0) {
+                checkFacets(soak, selections);
+            }
+        }
+        double perOp = (System.nanoTime() - start) / (double) ops;
+        soak.setCompleted(row -> row % 3 == 0, true, null);
+        checkFacets(soak, selections);
+        System.out.printf("%-44s %,12.0f ns/op  %,d rows  ok%n", "mutation soak, checked against a scan", perOp,
+                soak.getRowCount());
+    }
+
+    // TaskBitmap against BitSet: sparse, dense and emptied chunks, every operation
+    private static void bitmapChecks() {
+        Random random = new Random(31);
+        for (int round = 0; round < 20; round++) {
+            TaskBitmap[] bitmaps = new TaskBitmap[2];
+            BitSet[] sets = new BitSet[2];
+            for (int k = 0; k < 2; k++) {
+                bitmaps[k] = new TaskBitmap();
+                sets[k] = new BitSet();
+                for (int chunk = 0; chunk < 6; chunk++) {
+                    // Per chunk a density from empty to nearly full, so both container kinds meet
+                    int[] densities = { 0, 5, 300, 4_000, 5_000, 30_000, 65_000 };
+                    int count = densities[random.nextInt(densities.length)];
+                    for (int i = 0; i < count; i++) {
+                        int id = chunk << 16 | random.nextInt(1 << 16);
+                        check(bitmaps[k].add(id) == !sets[k].get(id), "bitmap add disagrees");
+                        sets[k].set(id);
+                    }
+                    for (int i = random.nextInt(2) == 0 ? 0 : count * 3 / 4; i > 0; i--) {
+                        int id = chunk << 16 | random.nextInt(1 << 16);
+                        check(bitmaps[k].remove(id) == sets[k].get(id), "bitmap remove disagrees");
+                        sets[k].clear(id);
+                    }
+                }
+                check(bitmaps[k].cardinality() == sets[k].cardinality() && toBitSet(bitmaps[k]).equals(sets[k]),
+                        "bitmap contents differ");
+            }
+            BitSet and = (BitSet) sets[0].clone();
+            and.and(sets[1]);
+            BitSet or = (BitSet) sets[0].clone();
+            or.or(sets[1]);
+            BitSet andNot = (BitSet) sets[0].clone();
+            andNot.andNot(sets[1]);
+            check(toBitSet(bitmaps[0].and(bitmaps[1])).equals(and), "bitmap and differs");
+            check(toBitSet(bitmaps[0].or(bitmaps[1])).equals(or), "bitmap or differs");
+            check(toBitSet(bitmaps[0].andNot(bitmaps[1])).equals(andNot), "bitmap andNot differs");
+            check(bitmaps[0].andCardinality(bitmaps[1]) == and.cardinality(), "bitmap andCardinality differs");
+            check(bitmaps[0].and(bitmaps[1]).cardinality() == and.cardinality()
+                    && bitmaps[0].or(bitmaps[1]).cardinality() == or.cardinality()
+                    && bitmaps[0].andNot(bitmaps[1]).cardinality() == andNot.cardinality(), "bitmap counts differ");
+            for (int i = 0; i < 1_000; i++) {
+                int id = random.nextInt(7 << 16);
+                check(bitmaps[0].contains(id) == sets[0].get(id), "bitmap contains differs");
+            }
+        }
+        System.out.println("TaskBitmap against BitSet                    ok");
+    }
+
+    private static void checkFacets(TaskTableModel model, TaskFacets.Selection[] selections) {
+        TaskFacets facets = model.facets();
+        for (TaskFacets.Selection selection : selections) {
+            check(toBitSet(facets.select(selection)).equals(scanSelect(model, selection)),
+                    "facets differ from a scan for " + describe(selection));
+        }
+        check(facets.counts(null).equals(model.stats().tagTotals()), "facet tag counts differ from the stats");
+    }
+
+    // What a tag filter costs without the bitmaps: parse every tags cell and test every row
+    private static BitSet scanSelect(TaskTableModel model, TaskFacets.Selection selection) {
+        BitSet out = new BitSet();
+        for (int row = 0; row < model.getRowCount(); row++) {
+            if (selection.openOnly() && model.isCompleted(row) || model.priority(row) < selection.minPriority()) {
+                continue;
+            }
+            if (Arrays.asList(TaskStats.parseTags(model.tags(row))).containsAll(selection.tags())) {
+                out.set((int) model.id(row));
+            }
+        }
+        return out;
+    }
+
+    private static Map<String, Integer> scanCounts(TaskTableModel model, BitSet ids) {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (int row = 0; row < model.getRowCount(); row++) {
+            if (ids.get((int) model.id(row))) {
+                for (String tag : TaskStats.parseTags(model.tags(row))) {
+                    counts.merge(tag, 1, Integer::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static BitSet toBitSet(TaskBitmap bitmap) {
+        BitSet out = new BitSet();
+        bitmap.forEach(out::set);
+        return out;
+    }
+
+    private static String describe(TaskFacets.Selection selection) {
+        StringBuilder sb = new StringBuilder();
+        for (String tag : selection.tags()) {
+            sb.append(sb.length() == 0 ? "" : " ").append('#').append(tag);
+        }
+        if (selection.openOnly()) {
+            sb.append(sb.length() == 0 ? "" : " ").append("open");
+        }
+        if (selection.minPriority() > 0) {
+            sb.append(sb.length() == 0 ? "" : " ").append(TaskTableModel.PRIORITIES[selection.minPriority()])
+                    .append('+');
+        }
+        return sb.toString();
+    }
+
+    interface Row {
+        void add(long id, long created, int priority, boolean completed, String text, String tags);
+    }
+
+    // A fresh String per cell, as typed into the app, so duplicates are not shared up front
+    private static void fillModel(int n, Row row) {
+        Random random = new Random(11);
+        long created = 1_700_000_000_000L;
+        for (int i = 0; i < n; i++) {
+            created += random.nextInt(20_000);
+            row.add(i + 1, created, random.nextInt(4), random.nextInt(4) == 0,
+                    Workload.sentence(random, 3 + random.nextInt(6)), Workload.sentence(random, random.nextInt(3)));
+        }
+    }
+
+    private static void timeModel(String name, AbstractTableModel model) {
+        int rows = model.getRowCount();
+        long start = System.nanoTime();
+        int completed = 0;
+        for (int i = 0; i < rows; i++) {
+            if ((Boolean) model.getValueAt(i, 4)) {
+                completed++;
+            }
+        }
+        long scan = System.nanoTime() - start;
+
+        TableRowSorter<AbstractTableModel> sorter = new TableRowSorter<>(model);
+        start = System.nanoTime();
+        sorter.setSortKeys(Collections.singletonList(new RowSorter.SortKey(4, SortOrder.DESCENDING)));
+        long sort = System.nanoTime() - start;
+        sorter.setSortKeys(null);
+        start = System.nanoTime();
+        sorter.setRowFilter(RowFilter.regexFilter("(?i)review"));
+        long filter = System.nanoTime() - start;
+        sink += completed + sorter.getViewRowCount();
+        System.out.printf("%-44s scan %,7.1f ms  sort by Completed %,8.1f ms  regex filter %,8.1f ms%n", name,
+                scan / 1e6, sort / 1e6, filter / 1e6);
+    }
+
+    static long sink;
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /** Deterministic stream of mutations: the same seed always produces the same history. */
+    static final class Workload {
+        private static final String[] WORDS = { "call", "email", "review", "fix", "deploy", "write", "plan",
+                "buy", "book", "draft", "update", "release", "backup", "report", "meeting", "invoice", "budget",
+                "design", "test", "docs", "home", "work", "urgent", "later", "q3", "client", "team", "ops" };
+
+        private final Random random;
+        private long nextId = 1;
+        // Live ids with O(1) random pick and removal
+        private long[] live = new long[1024];
+        private int liveCount;
+        private final Map<Long, Integer> slot = new HashMap<>();
+
+        Workload(long seed) {
+            random = new Random(seed);
+        }
+
+        static String sentence(Random random, int words) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < words; i++) {
+                if (i > 0) {
+                    sb.append(' ');
+                }
+                sb.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            return sb.toString();
+        }
+
+        /** The state after the first n steps, without a journal. */
+        Tasks replayTo(long n) throws IOException {
+            Tasks state = new Tasks();
+            for (long i = 0; i < n; i++) {
+                step(null, state);
+            }
+            return state;
+        }
+
+        /** Applies one mutation to state and, if given, appends it to journal; returns its sequence. */
+        long step(TaskJournal journal, Tasks state) throws IOException {
+            int r = random.nextInt(10_000);
+            if (liveCount == 0 || r < 5_500) {
+                long id = nextId++;
+                long created = 1_700_000_000_000L + id * 1000;
+                int priority = random.nextInt(4);
+                String text = sentence(random, 2 + random.nextInt(6));
+                String tags = sentence(random, random.nextInt(3));
+                long due = r < 1_500 ? created + random.nextInt(30) * 86_400_000L : TaskTableModel.NO_DUE;
+                state.add(id, created, priority, false, text, tags);
+                state.setDue(id, due);
+                addLive(id);
+                return journal == null ? 0 : journal.add(id, created, priority, false, text, tags, due);
+            }
+            long id = live[random.nextInt(liveCount)];
+            if (r < 6_000) {
+                long due = random.nextInt(4) == 0 ? TaskTableModel.NO_DUE
+                        : 1_700_000_000_000L + random.nextInt(1 << 30) * 1000L;
+                state.setDue(id, due);
+                return journal == null ? 0 : journal.setDue(id, due);
+            }
+            if (r < 7_000) {
+                int priority = random.nextInt(4);
+                String text = sentence(random, 2 + random.nextInt(6));
+                String tags = sentence(random, random.nextInt(3));
+                state.edit(id, priority, text, tags);
+                return journal == null ? 0 : journal.edit(id, priority, text, tags);
+            }
+            if (r < 8_800) {
+                boolean completed = random.nextBoolean();
+                state.setCompleted(id, completed);
+                return journal == null ? 0 : journal.setCompleted(id, completed);
+            }
+            if (r < 9_990) {
+                state.delete(id);
+                removeLive(id);
+                return journal == null ? 0 : journal.delete(id);
+            }
+            if (r < 9_995) {
+                state.completeAll();
+                return journal == null ? 0 : journal.completeAll();
+            }
+            state.deleteCompleted();
+            liveCount = 0;
+            slot.clear();
+            for (long taskId : state.tasks.keySet()) {
+                addLive(taskId);
+            }
+            return journal == null ? 0 : journal.deleteCompleted();
+        }
+
+        private void addLive(long id) {
+            if (liveCount == live.length) {
+                live = Arrays.copyOf(live, liveCount * 2);
+            }
+            slot.put(id, liveCount);
+            live[liveCount++] = id;
+        }
+
+        private void removeLive(long id) {
+            int i = slot.remove(id);
+            long moved = live[--liveCount];
+            if (i != liveCount) {
+                live[i] = moved;
+                slot.put(moved, i);
+            }
+        }
+    }
+
+    /** Reference task list; replays exactly like the app does. */
+    static final class Tasks implements TaskJournal.Replay {
+        static final class Task {
+            long created;
+            int priority;
+            boolean completed;
+            String text, tags;
+            long due = TaskTableModel.NO_DUE;
+
+            @Override
+            public boolean equals(Object o) {
+                if (!(o instanceof Task)) {
+                    return false;
+                }
+                Task t = (Task) o;
+                return created == t.created && priority == t.priority && completed == t.completed
+                        && text.equals(t.text) && tags.equals(t.tags) && due == t.due;
+            }
+
+            @Override
+            public int hashCode() {
+                return Objects.hash(created, priority, completed, text, tags, due);
+            }
+        }
+
+        final Map<Long, Task> tasks = new LinkedHashMap<>();
+
+        int size() {
+            return tasks.size();
+        }
+
+        TaskJournal.Snapshot snapshot() {
+            TaskJournal.Snapshot snapshot = new TaskJournal.Snapshot(tasks.size());
+            for (Map.Entry<Long, Task> e : tasks.entrySet()) {
+                Task t = e.getValue();
+                snapshot.add(e.getKey(), t.created, t.priority, t.completed, t.text, t.tags, t.due);
+            }
+            return snapshot;
+        }
+
+        @Override
+        public void add(long id, long created, int priority, boolean completed, String text, String tags) {
+            Task t = new Task();
+            t.created = created;
+            t.priority = priority;
+            t.completed = completed;
+            t.text = text;
+            t.tags = tags;
+            tasks.put(id, t);
+        }
+
+        @Override
+        public void edit(long id, int priority, String text, String tags) {
+            Task t = tasks.get(id);
+            if (t != null) {
+                t.priority = priority;
+                t.text = text;
+                t.tags = tags;
+            }
+        }
+
+        @Override
+        public void setCompleted(long id, boolean completed) {
+            Task t = tasks.get(id);
+            if (t != null) {
+                t.completed = completed;
+            }
+        }
+
+        @Override
+        public void setDue(long id, long due) {
+            Task t = tasks.get(id);
+            if (t != null) {
+                t.due = due;
+            }
+        }
+
+        @Override
+        public void delete(long id) {
+            tasks.remove(id);
+        }
+
+        @Override
+        public void completeAll() {
+            for (Task t : tasks.values()) {
+                t.completed = true;
+            }
+        }
+
+        @Override
+        public void deleteCompleted() {
+            for (Iterator<Task> it = tasks.values().iterator(); it.hasNext();) {
+                if (it.next().completed) {
+                    it.remove();
+                }
+            }
+        }
+
+        // Order matters too: the table shows tasks in insertion order
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Tasks && new ArrayList<>(tasks.entrySet())
+                    .equals(new ArrayList<>(((Tasks) o).tasks.entrySet()));
+        }
+
+        @Override
+        public int hashCode() {
+            return tasks.hashCode();
+        }
+    }
+
+    // ---- helpers ----
+
+    private static void check(boolean ok, String message) {
+        if (!ok) {
+            System.out.println("Check FAILED: " + message);
+            System.exit(1);
+        }
+    }
+
+    private static Path scratch(String name) throws IOException {
+        String configured = System.getProperty("bench.dir");
+        if (configured == null) {
+            return Files.createTempDirectory("todo-" + name);
+        }
+        Path dir = Paths.get(configured, name);
+        deleteTree(dir);
+        return Files.createDirectories(dir);
+    }
+
+    private static Path lastSegment(Path dir) throws IOException {
+        TreeMap<String, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "journal-*.log")) {
+            for (Path p : stream) {
+                segments.put(p.getFileName().toString(), p);
+            }
+        }
+        return segments.lastEntry().getValue();
+    }
+
+    private static int fileCount(Path dir) throws IOException {
+        int n = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path ignored : stream) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private static long size(Path dir) throws IOException {
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                total += Files.size(p);
+            }
+        }
+        return total;
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                if (Files.isDirectory(p)) {
+                    deleteTree(p);
+                } else {
+                    Files.delete(p);
+                }
+            }
+        }
+        Files.delete(dir);
+    }
+}
@@ -1,21 +1,110 @@
 import java.awt.*;
 import java.awt.event.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.TableRowSorter;
 
 public class TodoListApp extends JFrame {
-    private DefaultTableModel tableModel;
+    // Tasks are saved here: -Dtodo.dataDir=DIR, default ~/.todolistapp
+    private static final Path DATA_DIR = Paths.get(System.getProperty("todo.dataDir",
+            Paths.get(System.getProperty("user.home"), ".todolistapp").toString()));
+    // A compacted snapshot is written after this many journal records, and on exit
+    private static final int SNAPSHOT_EVERY = Integer.getInteger("todo.snapshotEvery", 10_000);
+    // Imported rows reach the table this many at a time; the reader waits once IMPORT_QUEUE batches are queued
+    private static final int IMPORT_BATCH = 4096;
+    private static final int IMPORT_QUEUE = 4;
+    // How many tasks "What's Next" selects
+    private static final int NEXT_TASKS = 10;
+    private static final DateTimeFormatter DUE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    // A due date entered without a time means the end of that day
+    private static final LocalTime END_OF_DAY = LocalTime.of(23, 59, 59, 999_000_000);
+
+    private TaskModel tableModel;
     private JTable table;
-    private TableRowSorter<DefaultTableModel> sorter;
+    private TableRowSorter<TaskModel> sorter;
     private JTextField taskField;
     private JTextField tagField;
+    private JTextField dueField;
     private JComboBox<String> priorityCombo;
     private JTextField searchField;
     private JLabel statusLabel;
+    // null when saving is off (the data directory could not be opened, or a write failed)
+    private TaskJournal journal;
+    private long nextId = 1;
+    private boolean statusRefreshQueued;
+    private String activeSearch = "";
+    // Facet sidebar: tags in name order, each shown with its count within the current selection
+    private DefaultListModel<String> facetTags;
+    private JList<String> facetList;
+    private JCheckBox openOnlyBox;
+    private JComboBox<String> minPriorityCombo;
+    private final Map<String, Integer> facetCounts = new HashMap<>();
+    private TaskFacets.Selection facetSelection = TaskFacets.Selection.ALL;
+    private boolean facetRefreshQueued;
+    private boolean updatingFacets;
+    // Set while a bulk change runs: the model is mid-pass, so no snapshot or dialog may look at it
+    private boolean inBulkChange;
+    private IOException deferredError;
+    // The import or export in progress, if any; snapshots wait until it ends
+    private TransferWorker<?> transfer;
+    private JPanel transferPanel;
+    private JProgressBar transferProgress;
+    private File lastTransferDir;
+
+    /** The table's rows; completion edits from the checkbox editor are journaled here. */
+    private class TaskModel extends TaskTableModel {
+        @Override
+        public void setValueAt(Object value, int row, int column) {
+            if (column == COMPLETED && (Boolean) value != isCompleted(row) && journal != null) {
+                long id = id(row);
+                record(() -> journal.setCompleted(id, (Boolean) value));
+            }
+            super.setValueAt(value, row, column);
+            maybeSnapshot();
+        }
+
+        // For callers that journal the change themselves
+        @Override
+        public void setCompleted(int row, boolean completed) {
+            super.setValueAt(completed, row, COMPLETED);
+        }
+    }
+
+    /** Runs an import or export off the EDT; TaskTransfer reports its progress here and learns of a cancel. */
+    private abstract static class TransferWorker<T> extends SwingWorker<T, Void> implements TaskTransfer.Progress {
+        @Override
+        public boolean update(long done, long total) {
+            setProgress(total == 0 ? 100 : (int) (done * 100 / total));
+            return !isCancelled();
+        }
+    }
+
+    /** One journal append; IOException turns saving off. */
+    private interface JournalWrite {
+        void run() throws IOException;
+    }
 
     public TodoListApp() {
         setTitle("Modern To-Do List Manager");
@@ -30,18 +119,9 @@ public class TodoListApp extends JFrame {
             e.printStackTrace();
         }
 
-        // Enhanced table model with more columns
-        tableModel = new DefaultTableModel(new Object[] { "Task", "Priority", "Tags", "Created", "Completed" }, 0) {
-            @Override
-            public Class<?> getColumnClass(int column) {
-                return (column == 4) ? Boolean.class : String.class;
-            }
-
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return column == 4; // Only completion checkbox is editable
-            }
-        };
+        // Enhanced table model with more columns, filled from the saved tasks before the table sees it
+        tableModel = new TaskModel();
+        openJournal();
         table = new JTable(tableModel);
         table.setRowHeight(30);
         table.setFont(new Font("Segoe UI", Font.PLAIN, 13));
@@ -52,6 +132,7 @@ public class TodoListApp extends JFrame {
         table.getTableHeader().setBackground(new Color(45, 45, 48));
         table.getTableHeader().setForeground(new Color(240, 240, 240));
         table.getTableHeader().setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, new Color(60, 60, 65)));
+        TaskRenderer.install(table);
 
         // Set column widths
         table.getColumnModel().getColumn(0).setPreferredWidth(300); // Task
@@ -59,9 +140,10 @@ public class TodoListApp extends JFrame {
         table.getColumnModel().getColumn(2).setPreferredWidth(150); // Tags
         table.getColumnModel().getColumn(3).setPreferredWidth(120); // Created
         table.getColumnModel().getColumn(4).setPreferredWidth(80); // Completed
+        table.getColumnModel().getColumn(5).setPreferredWidth(120); // Due
 
-        // Add sorter for search functionality
-        sorter = new TableRowSorter<>(tableModel);
+        // Add sorter for search functionality; Priority, Created and Due sort by value, not by text
+        sorter = new TaskRowSorter<>(tableModel);
         table.setRowSorter(sorter);
         JScrollPane scrollPane = new JScrollPane(table);
         scrollPane.setBorder(BorderFactory.createTitledBorder(
@@ -69,6 +151,8 @@ public class TodoListApp extends JFrame {
                 0, 0, new Font("Segoe UI", Font.BOLD, 12), new Color(240, 240, 240)));
         scrollPane.setBackground(new Color(45, 45, 48));
         scrollPane.getViewport().setBackground(new Color(60, 60, 65));
+        // Scrolling copies the pixels already on screen and paints only the rows that come into view
+        scrollPane.getViewport().setScrollMode(JViewport.BLIT_SCROLL_MODE);
 
         // Create modern input panel
         createInputPanel();
@@ -87,15 +171,215 @@ public class TodoListApp extends JFrame {
         setLayout(new BorderLayout(10, 10));
         add(createTopPanel(), BorderLayout.NORTH);
         add(scrollPane, BorderLayout.CENTER);
+        add(createFacetPanel(), BorderLayout.EAST);
         add(createBottomPanel(), BorderLayout.SOUTH);
 
         // Add some padding and set background
         ((JComponent) getContentPane()).setBorder(new EmptyBorder(10, 10, 10, 10));
         getContentPane().setBackground(new Color(45, 45, 48));
 
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                closeJournal();
+            }
+        });
+
+        table.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                updateStatusLabel();
+            }
+        });
+        // Checkbox edits change the counts too; one refresh per burst of events is enough
+        tableModel.addTableModelListener(e -> {
+            if (e.getColumn() == TaskTableModel.COMPLETED && !statusRefreshQueued) {
+                statusRefreshQueued = true;
+                SwingUtilities.invokeLater(() -> {
+                    statusRefreshQueued = false;
+                    updateStatusLabel();
+                });
+            }
+        });
+        // The sidebar counts follow every change, refreshed once per burst of events
+        tableModel.addTableModelListener(e -> {
+            if (!facetRefreshQueued) {
+                facetRefreshQueued = true;
+                SwingUtilities.invokeLater(() -> {
+                    facetRefreshQueued = false;
+                    refreshFacets(false);
+                });
+            }
+        });
+        // Tasks become overdue as the clock moves, not only when something changes
+        new javax.swing.Timer(60_000, e -> {
+            if (!statusRefreshQueued) {
+                updateStatusLabel();
+            }
+        }).start();
+        updateStatusLabel();
+    }
+
+    // Replays the saved tasks into the model; without a usable data directory the app runs in memory only
+    private void openJournal() {
+        Map<Long, Object[]> tasks = new LinkedHashMap<>();
+        try {
+            journal = TaskJournal.open(DATA_DIR, true, new TaskJournal.Replay() {
+                @Override
+                public void add(long id, long created, int priority, boolean completed, String text, String tags) {
+                    tasks.put(id, new Object[] { created, priority, completed, text, tags, TaskTableModel.NO_DUE });
+                }
+
+                @Override
+                public void edit(long id, int priority, String text, String tags) {
+                    Object[] t = tasks.get(id);
+                    if (t != null) {
+                        t[1] = priority;
+                        t[3] = text;
+                        t[4] = tags;
+                    }
+                }
+
+                @Override
+                public void setCompleted(long id, boolean completed) {
+                    Object[] t = tasks.get(id);
+                    if (t != null) {
+                        t[2] = completed;
+                    }
+                }
+
+                @Override
+                public void setDue(long id, long due) {
+                    Object[] t = tasks.get(id);
+                    if (t != null) {
+                        t[5] = due;
+                    }
+                }
+
+                @Override
+                public void delete(long id) {
+                    tasks.remove(id);
+                }
+
+                @Override
+                public void completeAll() {
+                    for (Object[] t : tasks.values()) {
+                        t[2] = true;
+                    }
+                }
+
+                @Override
+                public void deleteCompleted() {
+                    for (Iterator<Object[]> it = tasks.values().iterator(); it.hasNext();) {
+                        if ((Boolean) it.next()[2]) {
+                            it.remove();
+                        }
+                    }
+                }
+            });
+        } catch (IOException e) {
+            journal = null;
+            JOptionPane.showMessageDialog(null, "Tasks will not be saved: " + e.getMessage(), "Storage Unavailable",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        tableModel.ensureCapacity(tasks.size());
+        for (Map.Entry<Long, Object[]> e : tasks.entrySet()) {
+            Object[] t = e.getValue();
+            tableModel.addTask(e.getKey(), (Long) t[0], (Integer) t[1], (Boolean) t[2], (String) t[3],
+                    (String) t[4], (Long) t[5]);
+            nextId = Math.max(nextId, e.getKey() + 1);
+        }
+    }
+
+    // Appends to the journal; the caller applies the change to the model, then calls maybeSnapshot()
+    private void record(JournalWrite write) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            write.run();
+        } catch (IOException e) {
+            journal = null;
+            if (inBulkChange) {
+                deferredError = e;
+            } else {
+                showStorageError(e);
+            }
+        }
+    }
+
+    // Snapshots once enough records have piled up. A snapshot covers every record appended so far,
+    // so it must only be taken once the model holds all of them.
+    private void maybeSnapshot() {
+        if (journal == null || inBulkChange || transfer != null || journal.recordsSinceSnapshot() < SNAPSHOT_EVERY) {
+            return;
+        }
+        try {
+            journal.snapshot(captureSnapshot());
+        } catch (IOException e) {
+            journal = null;
+            showStorageError(e);
+        }
+    }
+
+    private void showStorageError(IOException e) {
+        JOptionPane.showMessageDialog(this, "Saving stopped: " + e.getMessage()
+                + "\nChanges from now on are kept in memory only.", "Storage Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    // Runs one bulk model call whose per-row callbacks journal the rows it touches
+    private void bulkChange(Runnable change) {
+        inBulkChange = true;
+        try {
+            change.run();
+        } finally {
+            inBulkChange = false;
+        }
+        if (deferredError != null) {
+            IOException e = deferredError;
+            deferredError = null;
+            showStorageError(e);
+        }
+        // Catches up on the snapshot the bulk change held back
+        maybeSnapshot();
         updateStatusLabel();
     }
 
+    // The selected rows as model indices
+    private int[] selectedModelRows() {
+        int[] rows = table.getSelectedRows();
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = table.convertRowIndexToModel(rows[i]);
+        }
+        return rows;
+    }
+
+    private TaskJournal.Snapshot captureSnapshot() {
+        int rows = tableModel.getRowCount();
+        TaskJournal.Snapshot snapshot = new TaskJournal.Snapshot(rows);
+        for (int i = 0; i < rows; i++) {
+            snapshot.add(tableModel.id(i), tableModel.created(i), tableModel.priority(i), tableModel.isCompleted(i),
+                    tableModel.text(i), tableModel.tags(i), tableModel.due(i));
+        }
+        return snapshot;
+    }
+
+    // Compacts the journal into a snapshot so the next start replays as little as possible
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            if (journal.recordsSinceSnapshot() > 0) {
+                journal.snapshot(captureSnapshot());
+            }
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Could not save tasks: " + e.getMessage());
+        }
+        journal = null;
+    }
+
     private JPanel createTopPanel() {
         JPanel topPanel = new JPanel(new BorderLayout(5, 5));
         topPanel.setBackground(new Color(45, 45, 48));
@@ -108,10 +392,217 @@ public class TodoListApp extends JFrame {
         JPanel bottomPanel = new JPanel(new BorderLayout());
         bottomPanel.setBackground(new Color(45, 45, 48));
         bottomPanel.add(createControlPanel(), BorderLayout.CENTER);
-        bottomPanel.add(statusLabel, BorderLayout.SOUTH);
+        bottomPanel.add(createStatusPanel(), BorderLayout.SOUTH);
         return bottomPanel;
     }
 
+    // The status line, with a progress bar and Cancel button that show while an import or export runs
+    private JPanel createStatusPanel() {
+        transferProgress = new JProgressBar(0, 100);
+        transferProgress.setStringPainted(true);
+        transferProgress.setFont(new Font("Segoe UI", Font.PLAIN, 11));
+        transferProgress.setForeground(new Color(100, 149, 237));
+        transferProgress.setBackground(new Color(60, 60, 65));
+        transferProgress.setPreferredSize(new Dimension(220, 18));
+        JButton cancelButton = createModernButton("Cancel", new Color(244, 67, 54));
+        cancelButton.addActionListener(e -> {
+            if (transfer != null) {
+                transfer.cancel(true);
+            }
+        });
+
+        transferPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 2));
+        transferPanel.setBackground(new Color(45, 45, 48));
+        transferPanel.add(transferProgress);
+        transferPanel.add(cancelButton);
+        transferPanel.setVisible(false);
+
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.setBackground(new Color(45, 45, 48));
+        statusPanel.add(statusLabel, BorderLayout.CENTER);
+        statusPanel.add(transferPanel, BorderLayout.EAST);
+        return statusPanel;
+    }
+
+    // Tag list with live counts, plus open-only and minimum-priority facets; selected tags must all match
+    private JPanel createFacetPanel() {
+        facetTags = new DefaultListModel<>();
+        facetList = new JList<>(facetTags);
+        facetList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        facetList.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        facetList.setBackground(new Color(45, 45, 48));
+        facetList.setForeground(new Color(240, 240, 240));
+        facetList.setSelectionBackground(new Color(100, 149, 237));
+        facetList.setSelectionForeground(Color.WHITE);
+        facetList.setToolTipText("Show tasks with every selected tag (Ctrl-click to select several)");
+        facetList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean selected,
+                    boolean focused) {
+                Integer count = facetCounts.get(value);
+                String text = "#" + value + "  (" + (count == null ? 0 : count) + ")";
+                super.getListCellRendererComponent(list, text, index, selected, focused);
+                if (!selected && (count == null || count == 0)) {
+                    setForeground(new Color(130, 130, 135));
+                }
+                return this;
+            }
+        });
+        facetList.addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting() && !updatingFacets) {
+                updateFacetSelection();
+            }
+        });
+
+        openOnlyBox = new JCheckBox("Open tasks only");
+        openOnlyBox.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        openOnlyBox.setForeground(new Color(240, 240, 240));
+        openOnlyBox.setBackground(new Color(60, 60, 65));
+        openOnlyBox.setFocusPainted(false);
+        openOnlyBox.addActionListener(e -> updateFacetSelection());
+
+        minPriorityCombo = new JComboBox<>(new String[] { "Any", "Medium+", "High+", "Urgent" });
+        minPriorityCombo.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        minPriorityCombo.setBackground(new Color(45, 45, 48));
+        minPriorityCombo.setForeground(new Color(240, 240, 240));
+        minPriorityCombo.addActionListener(e -> {
+            if (!updatingFacets) {
+                updateFacetSelection();
+            }
+        });
+        JLabel priorityLabel = new JLabel("Priority:");
+        priorityLabel.setForeground(new Color(240, 240, 240));
+        priorityLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+
+        JButton clearFacetsButton = createModernButton("Clear", new Color(255, 152, 0));
+        clearFacetsButton.addActionListener(e -> clearFacets());
+
+        JPanel options = new JPanel(new GridLayout(0, 1, 4, 4));
+        options.setBackground(new Color(60, 60, 65));
+        options.add(openOnlyBox);
+        JPanel priorityRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        priorityRow.setBackground(new Color(60, 60, 65));
+        priorityRow.add(priorityLabel);
+        priorityRow.add(minPriorityCombo);
+        options.add(priorityRow);
+        options.add(clearFacetsButton);
+
+        JScrollPane tagScroll = new JScrollPane(facetList);
+        tagScroll.setBorder(BorderFactory.createLineBorder(new Color(60, 60, 65)));
+
+        JPanel facetPanel = new JPanel(new BorderLayout(5, 5));
+        facetPanel.setBackground(new Color(60, 60, 65));
+        facetPanel.setBorder(BorderFactory.createTitledBorder(
+                BorderFactory.createLineBorder(new Color(60, 60, 65)), "Filter by Tag",
+                0, 0, new Font("Segoe UI", Font.BOLD, 12), new Color(240, 240, 240)));
+        facetPanel.setPreferredSize(new Dimension(190, 0));
+        facetPanel.add(options, BorderLayout.NORTH);
+        facetPanel.add(tagScroll, BorderLayout.CENTER);
+        refreshFacets(true);
+        return facetPanel;
+    }
+
+    private void updateFacetSelection() {
+        facetSelection = new TaskFacets.Selection(facetList.getSelectedValuesList(), openOnlyBox.isSelected(),
+                minPriorityCombo.getSelectedIndex());
+        applyFilters();
+        refreshFacets(true);
+    }
+
+    private void clearFacets() {
+        updatingFacets = true;
+        facetList.clearSelection();
+        openOnlyBox.setSelected(false);
+        minPriorityCombo.setSelectedIndex(0);
+        updatingFacets = false;
+        updateFacetSelection();
+    }
+
+    /**
+     * Brings the sidebar up to date with the facets. With nothing selected
+     * only the tags that changed since the last refresh are touched, so a
+     * single edit repaints one or two rows. Within a selection every count
+     * can move, so all are recounted with bitmap intersections.
+     */
+    private void refreshFacets(boolean all) {
+        TaskFacets facets = tableModel.facets();
+        Set<String> changed = facets.drainChanged();
+        TaskBitmap within = facetSelection.isAll() ? null : facets.select(facetSelection);
+        boolean dropped = false;
+        updatingFacets = true;
+        if (all || within != null) {
+            Map<String, Integer> counts = facets.counts(within);
+            for (int i = facetTags.size() - 1; i >= 0; i--) {
+                if (!counts.containsKey(facetTags.get(i))) {
+                    dropped |= facetList.isSelectedIndex(i);
+                    facetCounts.remove(facetTags.remove(i));
+                }
+            }
+            for (Map.Entry<String, Integer> e : counts.entrySet()) {
+                setFacetCount(e.getKey(), e.getValue());
+            }
+        } else {
+            for (String tag : changed) {
+                int count = facets.tagCount(tag);
+                if (count == 0) {
+                    int i = facetIndex(tag);
+                    if (i >= 0) {
+                        dropped |= facetList.isSelectedIndex(i);
+                        facetTags.remove(i);
+                        facetCounts.remove(tag);
+                    }
+                } else {
+                    setFacetCount(tag, count);
+                }
+            }
+        }
+        updatingFacets = false;
+        // A selected tag that no task carries any more leaves the selection
+        if (dropped) {
+            updateFacetSelection();
+        }
+    }
+
+    private void setFacetCount(String tag, int count) {
+        Integer old = facetCounts.put(tag, count);
+        int i = facetIndex(tag);
+        if (i < 0) {
+            facetTags.add(-i - 1, tag);
+        } else if (old == null || old != count) {
+            facetTags.set(i, tag); // repaints just this row
+        }
+    }
+
+    // Binary search of the sidebar's name-ordered tags; -(insertion point) - 1 if absent
+    private int facetIndex(String tag) {
+        int lo = 0, hi = facetTags.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = facetTags.get(mid).compareTo(tag);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -lo - 1;
+    }
+
+    // The table shows the rows that pass both the search box and the facets
+    private void applyFilters() {
+        List<RowFilter<TaskTableModel, Integer>> filters = new ArrayList<>();
+        if (!activeSearch.isEmpty()) {
+            filters.add(tableModel.index().filter(activeSearch));
+        }
+        if (!facetSelection.isAll()) {
+            filters.add(tableModel.facets().filter(facetSelection));
+        }
+        sorter.setRowFilter(filters.isEmpty() ? null : filters.size() == 1 ? filters.get(0)
+                : RowFilter.andFilter(filters));
+    }
+
     private JPanel createSearchPanel() {
         JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         searchPanel.setBackground(new Color(60, 60, 65));
@@ -180,8 +671,19 @@ public class TodoListApp extends JFrame {
                 BorderFactory.createLineBorder(new Color(60, 60, 65)),
                 BorderFactory.createEmptyBorder(5, 8, 5, 8)));
 
+        // Due date field
+        dueField = new JTextField(12);
+        dueField.setToolTipText("Optional: yyyy-MM-dd or yyyy-MM-dd HH:mm");
+        dueField.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        dueField.setBackground(new Color(45, 45, 48));
+        dueField.setForeground(new Color(240, 240, 240));
+        dueField.setCaretColor(new Color(100, 149, 237));
+        dueField.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(new Color(60, 60, 65)),
+                BorderFactory.createEmptyBorder(5, 8, 5, 8)));
+
         // Priority combo
-        priorityCombo = new JComboBox<>(new String[] { "Low", "Medium", "High", "Urgent" });
+        priorityCombo = new JComboBox<>(TaskTableModel.PRIORITIES);
         priorityCombo.setFont(new Font("Segoe UI", Font.PLAIN, 13));
         priorityCombo.setBackground(new Color(45, 45, 48));
         priorityCombo.setForeground(new Color(240, 240, 240));
@@ -203,6 +705,10 @@ public class TodoListApp extends JFrame {
         tagsLabel.setForeground(new Color(240, 240, 240));
         tagsLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
 
+        JLabel dueLabel = new JLabel("Due:");
+        dueLabel.setForeground(new Color(240, 240, 240));
+        dueLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+
         // Layout components
         gbc.insets = new Insets(5, 5, 5, 5);
 
@@ -232,7 +738,15 @@ public class TodoListApp extends JFrame {
 
         gbc.gridx = 2;
         gbc.gridy = 1;
-        gbc.gridwidth = 2;
+        inputPanel.add(dueLabel, gbc);
+
+        gbc.gridx = 3;
+        gbc.gridy = 1;
+        inputPanel.add(dueField, gbc);
+
+        gbc.gridx = 4;
+        gbc.gridy = 0;
+        gbc.gridheight = 2;
         inputPanel.add(addButton, gbc);
 
         // Add Enter key listener to task field
@@ -257,18 +771,40 @@ public class TodoListApp extends JFrame {
 
         JButton editButton = createModernButton("Edit Task", new Color(100, 149, 237));
         JButton deleteButton = createModernButton("Delete Task", new Color(244, 67, 54));
+        JButton completeButton = createModernButton("Complete", new Color(76, 175, 80));
+        JButton reopenButton = createModernButton("Reopen", new Color(120, 144, 156));
+        JButton priorityButton = createModernButton("Set Priority", new Color(100, 149, 237));
+        JButton tagsButton = createModernButton("Set Tags", new Color(100, 149, 237));
         JButton completeAllButton = createModernButton("Complete All", new Color(76, 175, 80));
         JButton deleteCompletedButton = createModernButton("Clear Completed", new Color(255, 152, 0));
+        JButton nextButton = createModernButton("What's Next", new Color(156, 39, 176));
+        JButton importButton = createModernButton("Import...", new Color(0, 150, 136));
+        JButton exportButton = createModernButton("Export...", new Color(0, 150, 136));
 
+        // Everything but Edit acts on all selected rows (Ctrl/Shift-click to select several)
         editButton.addActionListener(e -> editTask());
         deleteButton.addActionListener(e -> deleteTask());
+        completeButton.addActionListener(e -> completeSelected(true));
+        reopenButton.addActionListener(e -> completeSelected(false));
+        priorityButton.addActionListener(e -> reprioritizeSelected());
+        tagsButton.addActionListener(e -> retagSelected());
         completeAllButton.addActionListener(e -> markAllComplete());
         deleteCompletedButton.addActionListener(e -> deleteCompletedTasks());
+        nextButton.addActionListener(e -> selectNextTasks());
+        importButton.addActionListener(e -> importTasks());
+        exportButton.addActionListener(e -> exportTasks());
 
         controlPanel.add(editButton);
         controlPanel.add(deleteButton);
+        controlPanel.add(completeButton);
+        controlPanel.add(reopenButton);
+        controlPanel.add(priorityButton);
+        controlPanel.add(tagsButton);
         controlPanel.add(completeAllButton);
         controlPanel.add(deleteCompletedButton);
+        controlPanel.add(nextButton);
+        controlPanel.add(importButton);
+        controlPanel.add(exportButton);
 
         return controlPanel;
     }
@@ -286,20 +822,21 @@ public class TodoListApp extends JFrame {
         button.putClientProperty("JButton.buttonType", "roundRect");
         // For Java Swing, we need to set a custom border to get rounded corners
         int radius = 15; // Adjust the radius to control the curve amount
-        button.setBorder(new RoundedBorder(radius, backgroundColor));
+        Color hoverColor = backgroundColor.brighter();
+        RoundedBorder border = new RoundedBorder(radius, backgroundColor);
+        RoundedBorder hoverBorder = new RoundedBorder(radius, hoverColor);
+        button.setBorder(border);
 
-        // Add hover effect
+        // Add hover effect; both looks are built once and swapped
         button.addMouseListener(new java.awt.event.MouseAdapter() {
             public void mouseEntered(java.awt.event.MouseEvent evt) {
-                button.setBackground(backgroundColor.brighter());
-                // Update border color on hover
-                button.setBorder(new RoundedBorder(radius, backgroundColor.brighter()));
+                button.setBackground(hoverColor);
+                button.setBorder(hoverBorder);
             }
 
             public void mouseExited(java.awt.event.MouseEvent evt) {
                 button.setBackground(backgroundColor);
-                // Restore original border color
-                button.setBorder(new RoundedBorder(radius, backgroundColor));
+                button.setBorder(border);
             }
         });
 
@@ -342,22 +879,27 @@ public class TodoListApp extends JFrame {
         String task = taskField.getText().trim();
         String tags = tagField.getText().trim();
         String priority = (String) priorityCombo.getSelectedItem();
-
-        if (!task.isEmpty()) {
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("MM/dd HH:mm"));
-            tableModel.addRow(new Object[] { task, priority, tags, timestamp, false });
+        Long due = parseDue(dueField.getText());
+
+        if (due == null) {
+            showBadDue();
+        } else if (!task.isEmpty()) {
+            long id = nextId++;
+            long created = System.currentTimeMillis();
+            int p = TaskTableModel.priorityIndex(priority);
+            record(() -> journal.add(id, created, p, false, task, tags, due));
+            tableModel.addTask(id, created, p, false, task, tags, due);
+            maybeSnapshot();
 
             // Clear input fields
             taskField.setText("");
             tagField.setText("");
+            dueField.setText("");
             priorityCombo.setSelectedIndex(0);
 
             updateStatusLabel();
             // Show confirmation
-            statusLabel.setText("Task added successfully!");
-            javax.swing.Timer timer = new javax.swing.Timer(3000, e -> updateStatusLabel());
-            timer.setRepeats(false);
-            timer.start();
+            showStatusMessage("Task added successfully!");
         } else {
             JOptionPane.showMessageDialog(this, "Please enter a task description.", "Empty Task",
                     JOptionPane.WARNING_MESSAGE);
@@ -368,9 +910,10 @@ public class TodoListApp extends JFrame {
         int selected = table.getSelectedRow();
         if (selected >= 0) {
             int modelRow = table.convertRowIndexToModel(selected);
-            String currentTask = (String) tableModel.getValueAt(modelRow, 0);
-            String currentPriority = (String) tableModel.getValueAt(modelRow, 1);
-            String currentTags = (String) tableModel.getValueAt(modelRow, 2); // Create edit dialog
+            String currentTask = tableModel.text(modelRow);
+            String currentPriority = TaskTableModel.PRIORITIES[tableModel.priority(modelRow)];
+            String currentTags = tableModel.tags(modelRow);
+            long currentDue = tableModel.due(modelRow); // Create edit dialog
             JDialog editDialog = new JDialog(this, "Edit Task", true);
             editDialog.setLayout(new GridBagLayout());
             editDialog.getContentPane().setBackground(new Color(45, 45, 48));
@@ -395,7 +938,17 @@ public class TodoListApp extends JFrame {
                     BorderFactory.createLineBorder(new Color(60, 60, 65)),
                     BorderFactory.createEmptyBorder(5, 8, 5, 8)));
 
-            JComboBox<String> editPriorityCombo = new JComboBox<>(new String[] { "Low", "Medium", "High", "Urgent" });
+            JTextField editDueField = new JTextField(formatDue(currentDue), 15);
+            editDueField.setToolTipText("Optional: yyyy-MM-dd or yyyy-MM-dd HH:mm");
+            editDueField.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+            editDueField.setBackground(new Color(60, 60, 65));
+            editDueField.setForeground(new Color(240, 240, 240));
+            editDueField.setCaretColor(new Color(100, 149, 237));
+            editDueField.setBorder(BorderFactory.createCompoundBorder(
+                    BorderFactory.createLineBorder(new Color(60, 60, 65)),
+                    BorderFactory.createEmptyBorder(5, 8, 5, 8)));
+
+            JComboBox<String> editPriorityCombo = new JComboBox<>(TaskTableModel.PRIORITIES);
             editPriorityCombo.setSelectedItem(currentPriority);
             editPriorityCombo.setFont(new Font("Segoe UI", Font.PLAIN, 13));
             editPriorityCombo.setBackground(new Color(60, 60, 65));
@@ -408,6 +961,8 @@ public class TodoListApp extends JFrame {
             priorityLabelEdit.setForeground(new Color(240, 240, 240));
             JLabel tagsLabelEdit = new JLabel("Tags:");
             tagsLabelEdit.setForeground(new Color(240, 240, 240));
+            JLabel dueLabelEdit = new JLabel("Due:");
+            dueLabelEdit.setForeground(new Color(240, 240, 240));
 
             gbc.gridx = 0;
             gbc.gridy = 0;
@@ -427,6 +982,12 @@ public class TodoListApp extends JFrame {
             gbc.gridx = 1;
             editDialog.add(editTagField, gbc);
 
+            gbc.gridx = 0;
+            gbc.gridy = 3;
+            editDialog.add(dueLabelEdit, gbc);
+            gbc.gridx = 1;
+            editDialog.add(editDueField, gbc);
+
             JPanel buttonPanel = new JPanel();
             buttonPanel.setBackground(new Color(45, 45, 48));
             JButton saveButton = createModernButton("Save", new Color(76, 175, 80));
@@ -434,10 +995,20 @@ public class TodoListApp extends JFrame {
 
             saveButton.addActionListener(e -> {
                 String updatedTask = editTaskField.getText().trim();
-                if (!updatedTask.isEmpty()) {
-                    tableModel.setValueAt(updatedTask, modelRow, 0);
-                    tableModel.setValueAt(editPriorityCombo.getSelectedItem(), modelRow, 1);
-                    tableModel.setValueAt(editTagField.getText().trim(), modelRow, 2);
+                Long updatedDue = parseDue(editDueField.getText());
+                if (updatedDue == null) {
+                    showBadDue();
+                } else if (!updatedTask.isEmpty()) {
+                    int updatedPriority = editPriorityCombo.getSelectedIndex();
+                    String updatedTags = editTagField.getText().trim();
+                    long id = tableModel.id(modelRow);
+                    record(() -> journal.edit(id, updatedPriority, updatedTask, updatedTags));
+                    tableModel.edit(modelRow, updatedPriority, updatedTask, updatedTags);
+                    if (updatedDue != currentDue) {
+                        record(() -> journal.setDue(id, updatedDue));
+                        tableModel.setDue(modelRow, updatedDue);
+                    }
+                    maybeSnapshot();
                     editDialog.dispose();
                     updateStatusLabel();
                 }
@@ -449,7 +1020,7 @@ public class TodoListApp extends JFrame {
             buttonPanel.add(cancelButton);
 
             gbc.gridx = 0;
-            gbc.gridy = 3;
+            gbc.gridy = 4;
             gbc.gridwidth = 2;
             editDialog.add(buttonPanel, gbc);
 
@@ -464,17 +1035,17 @@ public class TodoListApp extends JFrame {
     }
 
     private void deleteTask() {
-        int selected = table.getSelectedRow();
-        if (selected >= 0) {
+        int[] rows = selectedModelRows();
+        if (rows.length > 0) {
             int result = JOptionPane.showConfirmDialog(this,
-                    "Are you sure you want to delete this task?",
+                    rows.length == 1 ? "Are you sure you want to delete this task?"
+                            : "Are you sure you want to delete these " + rows.length + " tasks?",
                     "Confirm Delete",
                     JOptionPane.YES_NO_OPTION);
 
             if (result == JOptionPane.YES_OPTION) {
-                int modelRow = table.convertRowIndexToModel(selected);
-                tableModel.removeRow(modelRow);
-                updateStatusLabel();
+                bulkChange(() -> tableModel.delete(TaskTableModel.rows(rows),
+                        row -> record(() -> journal.delete(tableModel.id(row)))));
             }
         } else {
             JOptionPane.showMessageDialog(this, "Please select a task to delete.", "No Selection",
@@ -482,46 +1053,326 @@ public class TodoListApp extends JFrame {
         }
     }
 
-    private void markAllComplete() {
-        for (int i = 0; i < tableModel.getRowCount(); i++) {
-            tableModel.setValueAt(true, i, 4);
+    private void completeSelected(boolean done) {
+        int[] rows = selectedModelRows();
+        if (rows.length == 0) {
+            JOptionPane.showMessageDialog(this, "Please select one or more tasks.", "No Selection",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
         }
-        updateStatusLabel();
+        bulkChange(() -> tableModel.setCompleted(TaskTableModel.rows(rows), done,
+                row -> record(() -> journal.setCompleted(tableModel.id(row), done))));
+    }
+
+    private void reprioritizeSelected() {
+        int[] rows = selectedModelRows();
+        if (rows.length == 0) {
+            JOptionPane.showMessageDialog(this, "Please select one or more tasks.", "No Selection",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        Object choice = JOptionPane.showInputDialog(this, "Priority for " + rows.length + " task(s):", "Set Priority",
+                JOptionPane.QUESTION_MESSAGE, null, TaskTableModel.PRIORITIES,
+                TaskTableModel.PRIORITIES[tableModel.priority(rows[0])]);
+        if (choice != null) {
+            int priority = TaskTableModel.priorityIndex((String) choice);
+            bulkChange(() -> tableModel.reprioritize(TaskTableModel.rows(rows), priority, this::recordEdit));
+        }
+    }
+
+    private void retagSelected() {
+        int[] rows = selectedModelRows();
+        if (rows.length == 0) {
+            JOptionPane.showMessageDialog(this, "Please select one or more tasks.", "No Selection",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        String tags = (String) JOptionPane.showInputDialog(this, "Tags for " + rows.length + " task(s):", "Set Tags",
+                JOptionPane.QUESTION_MESSAGE, null, null, tableModel.tags(rows[0]));
+        if (tags != null) {
+            bulkChange(() -> tableModel.retag(TaskTableModel.rows(rows), tags.trim(), this::recordEdit));
+        }
+    }
+
+    private void recordEdit(int row) {
+        record(() -> journal.edit(tableModel.id(row), tableModel.priority(row), tableModel.text(row),
+                tableModel.tags(row)));
+    }
+
+    private void markAllComplete() {
+        record(() -> journal.completeAll());
+        bulkChange(() -> tableModel.setCompleted(row -> true, true, null));
     }
 
     private void deleteCompletedTasks() {
-        for (int i = tableModel.getRowCount() - 1; i >= 0; i--) {
-            if ((Boolean) tableModel.getValueAt(i, 4)) {
-                tableModel.removeRow(i);
+        record(() -> journal.deleteCompleted());
+        bulkChange(() -> tableModel.delete(tableModel::isCompleted, null));
+    }
+
+    private void importTasks() {
+        if (transfer != null) {
+            showTransferBusy();
+            return;
+        }
+        Path file = chooseTransferFile(false);
+        TaskTransfer.Format format = file == null ? null : TaskTransfer.Format.of(file);
+        if (format == null) {
+            return;
+        }
+        Semaphore queued = new Semaphore(IMPORT_QUEUE);
+        long[] imported = { 0 };
+        startTransfer("Importing", new TransferWorker<Long>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                long rows = TaskTransfer.read(file, format, IMPORT_BATCH, batch -> {
+                    try {
+                        queued.acquire();
+                    } catch (InterruptedException e) {
+                        throw new CancellationException();
+                    }
+                    // Straight onto the event queue rather than publish(), which holds chunks for a timer tick
+                    SwingUtilities.invokeLater(() -> {
+                        try {
+                            if (!isCancelled()) {
+                                addImported(batch);
+                                imported[0] += batch.size();
+                            }
+                        } finally {
+                            queued.release();
+                        }
+                    });
+                }, this);
+                // Every batch is in the table before done() runs
+                queued.acquire(IMPORT_QUEUE);
+                return rows;
             }
+
+            @Override
+            protected void done() {
+                finishTransfer();
+                try {
+                    get();
+                    showStatusMessage(String.format("Imported %,d tasks from %s", imported[0], file.getFileName()));
+                } catch (CancellationException | InterruptedException e) {
+                    showStatusMessage(String.format("Import cancelled after %,d tasks", imported[0]));
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(TodoListApp.this, "Import stopped after " + imported[0]
+                            + " tasks: " + e.getCause().getMessage(), "Import Failed", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        });
+    }
+
+    // One batch of imported rows: journaled with fresh ids, then added to the table with a single event
+    private void addImported(TaskTransfer.Batch batch) {
+        long firstId = nextId;
+        nextId += batch.size();
+        bulkChange(() -> {
+            for (int i = 0; i < batch.size(); i++) {
+                int row = i;
+                record(() -> journal.add(firstId + row, batch.created(row), batch.priority(row),
+                        batch.isCompleted(row), batch.text(row), batch.tags(row), batch.due(row)));
+            }
+            tableModel.addTasks(firstId, batch);
+        });
+    }
+
+    private void exportTasks() {
+        if (transfer != null) {
+            showTransferBusy();
+            return;
+        }
+        Path file = chooseTransferFile(true);
+        TaskTransfer.Format format = file == null ? null : TaskTransfer.Format.of(file);
+        if (format == null) {
+            return;
+        }
+        // The rows as they are now; the worker writes them while the table stays editable
+        int count = tableModel.getRowCount();
+        TaskTransfer.Batch rows = new TaskTransfer.Batch(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(tableModel.created(i), tableModel.priority(i), tableModel.isCompleted(i), tableModel.text(i),
+                    tableModel.tags(i), tableModel.due(i));
         }
+        startTransfer("Exporting", new TransferWorker<Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                TaskTransfer.write(file, format, rows, this);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                finishTransfer();
+                try {
+                    get();
+                    showStatusMessage(String.format("Exported %,d tasks to %s", count, file.getFileName()));
+                } catch (CancellationException | InterruptedException e) {
+                    showStatusMessage("Export cancelled");
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(TodoListApp.this, "Export failed: " + e.getCause().getMessage(),
+                            "Export Failed", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        });
+    }
+
+    // Asks for a file to import from or export to; exports without a known extension get the chosen filter's
+    private Path chooseTransferFile(boolean export) {
+        JFileChooser chooser = new JFileChooser(lastTransferDir);
+        chooser.setDialogTitle(export ? "Export Tasks" : "Import Tasks");
+        FileNameExtensionFilter csv = new FileNameExtensionFilter("CSV (*.csv)", "csv");
+        FileNameExtensionFilter jsonl = new FileNameExtensionFilter("JSON Lines (*.jsonl)", "jsonl", "ndjson");
+        FileNameExtensionFilter binary = new FileNameExtensionFilter("Task list (*.tasks)", "tasks");
+        chooser.setAcceptAllFileFilterUsed(false);
+        if (!export) {
+            chooser.addChoosableFileFilter(
+                    new FileNameExtensionFilter("Task files (*.csv, *.jsonl, *.tasks)", "csv", "jsonl", "ndjson",
+                            "tasks"));
+        }
+        chooser.addChoosableFileFilter(csv);
+        chooser.addChoosableFileFilter(jsonl);
+        chooser.addChoosableFileFilter(binary);
+        chooser.setFileFilter(chooser.getChoosableFileFilters()[0]);
+        int result = export ? chooser.showSaveDialog(this) : chooser.showOpenDialog(this);
+        if (result != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
+        lastTransferDir = chooser.getCurrentDirectory();
+        Path file = chooser.getSelectedFile().toPath();
+        if (export && TaskTransfer.Format.of(file) == null) {
+            String extension = chooser.getFileFilter() == jsonl ? "jsonl"
+                    : chooser.getFileFilter() == binary ? "tasks" : "csv";
+            file = file.resolveSibling(file.getFileName() + "." + extension);
+        }
+        if (TaskTransfer.Format.of(file) == null) {
+            JOptionPane.showMessageDialog(this, "Choose a .csv, .jsonl or .tasks file.", "Unknown File Type",
+                    JOptionPane.WARNING_MESSAGE);
+            return null;
+        }
+        if (export && file.toFile().exists() && JOptionPane.showConfirmDialog(this, file.getFileName()
+                + " already exists. Replace it?", "Confirm Export", JOptionPane.YES_NO_OPTION)
+                != JOptionPane.YES_OPTION) {
+            return null;
+        }
+        return file;
+    }
+
+    private void startTransfer(String verb, TransferWorker<?> worker) {
+        transfer = worker;
+        transferProgress.setValue(0);
+        transferProgress.setString(verb + " 0%");
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName()) && transfer == worker) {
+                transferProgress.setValue((Integer) e.getNewValue());
+                transferProgress.setString(verb + " " + e.getNewValue() + "%");
+            }
+        });
+        transferPanel.setVisible(true);
+        worker.execute();
+    }
+
+    // Called from done(), which a cancel triggers at once, even while the worker is still winding down
+    private void finishTransfer() {
+        transfer = null;
+        transferPanel.setVisible(false);
+        // Catches up on the snapshot held back while the transfer ran
+        maybeSnapshot();
         updateStatusLabel();
     }
 
+    private void showTransferBusy() {
+        JOptionPane.showMessageDialog(this, "An import or export is already running.", "Busy",
+                JOptionPane.WARNING_MESSAGE);
+    }
+
+    // Selects the next open tasks in due-date and priority order, as far as the search lets them show
+    private void selectNextTasks() {
+        TaskSchedule schedule = tableModel.schedule();
+        long[] next = schedule.first(NEXT_TASKS);
+        if (next.length == 0) {
+            showStatusMessage("Nothing left to do!");
+            return;
+        }
+        table.clearSelection();
+        int firstView = -1;
+        for (long id : next) {
+            int view = table.convertRowIndexToView(tableModel.rowOf(id));
+            if (view >= 0) {
+                table.addRowSelectionInterval(view, view);
+                firstView = firstView < 0 || view < firstView ? view : firstView;
+            }
+        }
+        if (firstView >= 0) {
+            table.scrollRectToVisible(table.getCellRect(firstView, 0, true));
+        }
+        int overdue = schedule.countDueBefore(System.currentTimeMillis());
+        showStatusMessage(String.format("Next %d of %,d open tasks selected%s", next.length, schedule.size(),
+                overdue > 0 ? String.format(" (%,d overdue)", overdue) : ""));
+    }
+
+    // Empty means no due date, a bare date the end of that day; null if the text is not a date
+    private static Long parseDue(String text) {
+        String s = text.trim();
+        if (s.isEmpty()) {
+            return TaskTableModel.NO_DUE;
+        }
+        try {
+            if (s.length() == 10) {
+                return LocalDate.parse(s).atTime(END_OF_DAY).atZone(ZoneId.systemDefault()).toInstant()
+                        .toEpochMilli();
+            }
+            return LocalDateTime.parse(s, DUE_FORMAT).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String formatDue(long due) {
+        if (due == TaskTableModel.NO_DUE) {
+            return "";
+        }
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(due), ZoneId.systemDefault());
+        return time.toLocalTime().equals(END_OF_DAY)
+                ? time.toLocalDate().toString() : time.format(DUE_FORMAT);
+    }
+
+    private void showBadDue() {
+        JOptionPane.showMessageDialog(this, "Enter the due date as yyyy-MM-dd or yyyy-MM-dd HH:mm, or leave it empty.",
+                "Invalid Due Date", JOptionPane.WARNING_MESSAGE);
+    }
+
     private void performSearch() {
         String searchText = searchField.getText().trim();
-        if (searchText.isEmpty()) {
-            sorter.setRowFilter(null);
-        } else {
-            sorter.setRowFilter(RowFilter.regexFilter("(?i)" + searchText));
+        // Arrow keys and modifiers fire keyReleased too; the index keeps the filter current on its own
+        if (searchText.equals(activeSearch)) {
+            return;
         }
+        activeSearch = searchText;
+        applyFilters();
     }
 
     private void clearSearch() {
+        activeSearch = "";
         searchField.setText("");
-        sorter.setRowFilter(null);
+        applyFilters();
+    }
+
+    // Shows a message in the status bar for a few seconds, then the counts again
+    private void showStatusMessage(String message) {
+        statusLabel.setText(message);
+        javax.swing.Timer timer = new javax.swing.Timer(3000, e -> updateStatusLabel());
+        timer.setRepeats(false);
+        timer.start();
     }
 
     private void updateStatusLabel() {
-        int total = tableModel.getRowCount();
-        int completed = 0;
-        for (int i = 0; i < total; i++) {
-            if ((Boolean) tableModel.getValueAt(i, 4)) {
-                completed++;
-            }
-        }
-        statusLabel.setText(String.format("Total: %d | Completed: %d | Remaining: %d",
-                total, completed, total - completed));
+        TaskStats stats = tableModel.stats();
+        int selected = table.getSelectedRowCount();
+        int overdue = tableModel.schedule().countDueBefore(System.currentTimeMillis());
+        statusLabel.setText(String.format("Total: %d | Completed: %d | Remaining: %d", stats.total(),
+                stats.completed(), stats.remaining()) + (overdue > 0 ? " | Overdue: " + overdue : "")
+                + (selected > 1 ? " | Selected: " + selected : ""));
     }
 
     public static void main(String[] args) {